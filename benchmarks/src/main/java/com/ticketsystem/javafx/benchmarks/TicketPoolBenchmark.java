@@ -0,0 +1,134 @@
+package com.ticketsystem.javafx.benchmarks;
+
+import com.ticketsystem.javafx.TextEventSink;
+import com.ticketsystem.javafx.TicketEventLog;
+import com.ticketsystem.javafx.TicketPool;
+import com.ticketsystem.javafx.TicketPoolType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Vendors call addTickets and customers call removeTicket on one shared pool. Each group fixes the
+// vendor:customer ratio; poolType, maxCapacity and logging are swept as parameters. A new TicketPoolType
+// has to be added to the poolType list. Run with -prof gc to get bytes allocated per operation.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketPoolBenchmark {
+
+    @State(Scope.Group)
+    public static class PoolState {
+        // SEAT_MAP is left out: it sells a fixed set of seats and cannot run without a ticket limit
+        @Param({"LOCKING", "RING_BUFFER", "SHARDED", "WAITING_ROOM"})
+        public TicketPoolType poolType;
+
+        @Param({"10", "100", "1000"})
+        public int maxCapacity;
+
+        @Param({"false", "true"})
+        public boolean logging;
+
+        TicketPool pool;
+        TicketEventLog eventLog;
+
+        @Setup(Level.Iteration)
+        public void createPool() {
+            if (logging) {
+                // Format every event on the writer thread but discard the text, so console speed is not measured
+                eventLog = new TicketEventLog(TicketEventLog.DEFAULT_CAPACITY);
+                eventLog.addSink(new TextEventSink(line -> { }));
+            } else {
+                eventLog = TicketEventLog.disabled();
+            }
+            // No ticket limit: the pool must keep selling for the whole iteration
+            pool = poolType.create(maxCapacity, Integer.MAX_VALUE, eventLog);
+        }
+
+        @TearDown(Level.Iteration)
+        public void shutdownPool() {
+            pool.shutdown();
+            eventLog.close();
+        }
+
+        // Once JMH asks threads to stop, whoever gets here first releases anyone still blocked in the pool
+        boolean stopIfRequested(Control control) {
+            if (control.stopMeasurement) {
+                pool.shutdown();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Participant {
+        private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+        int id;
+
+        @Setup(Level.Trial)
+        public void assignId() {
+            id = NEXT_ID.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @Group("vendors1_customers1")
+    @GroupThreads(1)
+    public boolean add_1_1(PoolState state, Participant vendor, Control control) {
+        return !state.stopIfRequested(control) && state.pool.addTickets(vendor.id, 1);
+    }
+
+    @Benchmark
+    @Group("vendors1_customers1")
+    @GroupThreads(1)
+    public int remove_1_1(PoolState state, Participant customer, Control control) {
+        return state.stopIfRequested(control) ? TicketPool.NO_TICKET : state.pool.removeTicket(customer.id);
+    }
+
+    @Benchmark
+    @Group("vendors5_customers10")
+    @GroupThreads(5)
+    public boolean add_5_10(PoolState state, Participant vendor, Control control) {
+        return !state.stopIfRequested(control) && state.pool.addTickets(vendor.id, 1);
+    }
+
+    @Benchmark
+    @Group("vendors5_customers10")
+    @GroupThreads(10)
+    public int remove_5_10(PoolState state, Participant customer, Control control) {
+        return state.stopIfRequested(control) ? TicketPool.NO_TICKET : state.pool.removeTicket(customer.id);
+    }
+
+    @Benchmark
+    @Group("vendors50_customers200")
+    @GroupThreads(50)
+    public boolean add_50_200(PoolState state, Participant vendor, Control control) {
+        return !state.stopIfRequested(control) && state.pool.addTickets(vendor.id, 1);
+    }
+
+    @Benchmark
+    @Group("vendors50_customers200")
+    @GroupThreads(200)
+    public int remove_50_200(PoolState state, Participant customer, Control control) {
+        return state.stopIfRequested(control) ? TicketPool.NO_TICKET : state.pool.removeTicket(customer.id);
+    }
+}
@@ -0,0 +1,205 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Admission control in front of the ticket pools. Customers ask here before each purchase and get
+// TRY_LATER instead of joining an unbounded crowd of threads parked on a pool during a flash sale.
+// Rates are token buckets kept as a single theoretical arrival time each (the generic cell rate
+// algorithm), so admitting a request is one CAS per bucket: one bucket for all customers together and
+// one per customer, in chunks created on first use and found through a table that grows to the highest
+// customer id seen, so ids have no fixed upper bound. A request that would conform within the max wait
+// reserves its slot and sleeps on the simulation clock; anything later is turned away. The pending
+// limit caps how many admitted purchases can be inside the pools at once.
+public class AdmissionController {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final long MIN_RETRY_AFTER_MILLIS = 10;
+    private static final long REJECT = -1;
+
+    private final SimulationClock clock;
+    private final long globalIntervalNanos;
+    private final long customerIntervalNanos;
+    private final long globalToleranceNanos;
+    private final long customerToleranceNanos;
+    private final long maxWaitNanos;
+    private final int maxPending;
+    private final long retryAfterMillis;
+    private final AtomicLongArray globalArrival;
+    // Replaced by a longer copy, under the controller's lock, when an id falls beyond it; chunks are
+    // only created under that lock too, so a copy never misses one
+    private volatile AtomicReferenceArray<AtomicLongArray> customerArrivals;
+    private final AtomicInteger pending;
+    private final LongAdder admitted;
+    private final LongAdder delayed;
+    private final LongAdder turnedAway;
+
+    public AdmissionController(Configuration configuration, SimulationClock clock) {
+        this(configuration.getAdmissionRate(), configuration.getCustomerAdmissionRate(),
+                configuration.getAdmissionBurst(), configuration.getAdmissionMaxWait(),
+                configuration.getMaxPendingPurchases(), clock);
+    }
+
+    // A rate or maxPending of 0 leaves that limit off; burst is how many requests each bucket lets through at once
+    public AdmissionController(int requestsPerSecond, int customerRequestsPerSecond, int burst, long maxWaitMillis,
+                               int maxPending, SimulationClock clock) {
+        if (requestsPerSecond < 0 || customerRequestsPerSecond < 0 || maxPending < 0) {
+            throw new IllegalArgumentException("Admission limits cannot be negative");
+        }
+        if (burst < 1 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("Burst must be positive and max wait cannot be negative");
+        }
+        this.clock = clock;
+        this.globalIntervalNanos = intervalNanos(requestsPerSecond);
+        this.customerIntervalNanos = intervalNanos(customerRequestsPerSecond);
+        this.globalToleranceNanos = (burst - 1) * globalIntervalNanos;
+        this.customerToleranceNanos = (burst - 1) * customerIntervalNanos;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.maxPending = maxPending;
+        // By then the bucket that turned the customer away has room again
+        long slowest = TimeUnit.NANOSECONDS.toMillis(Math.max(globalIntervalNanos, customerIntervalNanos));
+        this.retryAfterMillis = Math.max(MIN_RETRY_AFTER_MILLIS, Math.max(maxWaitMillis, slowest));
+        this.globalArrival = new AtomicLongArray(1);
+        this.customerArrivals = new AtomicReferenceArray<>(1);
+        this.pending = new AtomicInteger(0);
+        this.admitted = new LongAdder();
+        this.delayed = new LongAdder();
+        this.turnedAway = new LongAdder();
+    }
+
+    private static long intervalNanos(int requestsPerSecond) {
+        return requestsPerSecond == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+    }
+
+    // Every admitted request must be followed by release() once the purchase is over
+    public AdmissionResult admit(int customerId) throws InterruptedException {
+        if (!enterPending()) {
+            turnedAway.increment();
+            return AdmissionResult.TRY_LATER;
+        }
+
+        long now = TimeUnit.MILLISECONDS.toNanos(clock.currentTimeMillis());
+        // A customer turned away by the global bucket keeps the slot it took in its own; it is
+        // told to back off anyway, so that only delays it further
+        long customerWait = customerIntervalNanos == 0 ? 0 : reserve(chunkFor(customerId),
+                customerId & CHUNK_MASK, now, customerIntervalNanos, customerToleranceNanos);
+        long globalWait = customerWait == REJECT || globalIntervalNanos == 0 ? customerWait
+                : reserve(globalArrival, 0, now, globalIntervalNanos, globalToleranceNanos);
+        if (customerWait == REJECT || globalWait == REJECT) {
+            release();
+            turnedAway.increment();
+            return AdmissionResult.TRY_LATER;
+        }
+
+        admitted.increment();
+        long wait = Math.max(customerWait, globalWait);
+        if (wait <= 0) {
+            return AdmissionResult.ADMITTED;
+        }
+        delayed.increment();
+        try {
+            // Rounded up so the request never goes ahead of its slot
+            clock.sleep((wait + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1));
+        } catch (InterruptedException e) {
+            release();
+            throw e;
+        }
+        return AdmissionResult.DELAYED;
+    }
+
+    public void release() {
+        if (maxPending > 0) {
+            pending.decrementAndGet();
+        }
+    }
+
+    private boolean enterPending() {
+        if (maxPending == 0) {
+            return true;
+        }
+        while (true) {
+            int current = pending.get();
+            if (current >= maxPending) {
+                return false;
+            }
+            if (pending.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Returns how long to wait until the request conforms, or REJECT if that is longer than the max wait
+    private long reserve(AtomicLongArray arrivals, int slot, long now, long interval, long tolerance) {
+        while (true) {
+            long expected = arrivals.get(slot);
+            long start = Math.max(expected, now);
+            long wait = start - tolerance - now;
+            if (wait > maxWaitNanos) {
+                return REJECT;
+            }
+            if (arrivals.compareAndSet(slot, expected, start + interval)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    private AtomicLongArray chunkFor(int customerId) {
+        if (customerId < 0) {
+            throw new IllegalArgumentException("Customer id cannot be negative: " + customerId);
+        }
+        int index = customerId >> CHUNK_BITS;
+        AtomicReferenceArray<AtomicLongArray> chunks = customerArrivals;
+        AtomicLongArray chunk = index < chunks.length() ? chunks.get(index) : null;
+        return chunk != null ? chunk : createChunk(index);
+    }
+
+    private synchronized AtomicLongArray createChunk(int index) {
+        AtomicReferenceArray<AtomicLongArray> chunks = customerArrivals;
+        if (index >= chunks.length()) {
+            // Doubled, so a crowd arriving in id order only copies the table a logarithmic number of times
+            int length = (int) Math.min(Integer.MAX_VALUE, Math.max(index + 1L, 2L * chunks.length()));
+            AtomicReferenceArray<AtomicLongArray> grown = new AtomicReferenceArray<>(length);
+            for (int i = 0; i < chunks.length(); i++) {
+                grown.set(i, chunks.get(i));
+            }
+            customerArrivals = grown;
+            chunks = grown;
+        }
+        AtomicLongArray chunk = chunks.get(index);
+        if (chunk == null) {
+            chunk = new AtomicLongArray(CHUNK_MASK + 1);
+            chunks.set(index, chunk);
+        }
+        return chunk;
+    }
+
+    // How long a customer who got TRY_LATER should back off before asking again
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getDelayed() {
+        return delayed.sum();
+    }
+
+    public long getTurnedAway() {
+        return turnedAway.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Admission: %d admitted (%d after a delay), %d told to try later",
+                admitted.sum(), delayed.sum(), turnedAway.sum());
+    }
+}
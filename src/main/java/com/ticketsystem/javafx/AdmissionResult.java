@@ -0,0 +1,13 @@
+package com.ticketsystem.javafx;
+
+public enum AdmissionResult {
+    ADMITTED,
+    // Admitted after waiting for the rate limits
+    DELAYED,
+    // Turned away; the customer should back off and ask again
+    TRY_LATER;
+
+    public boolean isAdmitted() {
+        return this != TRY_LATER;
+    }
+}
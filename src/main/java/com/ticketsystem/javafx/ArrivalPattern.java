@@ -0,0 +1,23 @@
+package com.ticketsystem.javafx;
+
+public enum ArrivalPattern {
+    // Evenly spaced at the arrival rate
+    UNIFORM("Uniform"),
+    // Independent arrivals at the arrival rate, so gaps are exponentially distributed
+    POISSON("Poisson"),
+    // Poisson arrivals whose rate jumps by the burst factor for part of every burst period
+    BURSTY("Bursty"),
+    // Most customers pile in around the on-sale time; the rest trickle in as Poisson arrivals
+    FLASH_SALE("Flash sale");
+
+    private final String displayName;
+
+    ArrivalPattern(String displayName) {
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
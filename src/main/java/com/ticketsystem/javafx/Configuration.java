@@ -9,12 +9,41 @@ public class Configuration implements Serializable {
     private final int maxTicketCapacity;
     private final int ticketRetrievalTime;
     private final int ticketBuyingTime;
+    private final int vendorBatchSize;
+    private final int customerBatchSize;
+    // Admission control; a rate or pending limit of 0 means unlimited
+    private final int admissionRate;
+    private final int customerAdmissionRate;
+    private final int admissionBurst;
+    private final int admissionMaxWait;
+    private final int maxPendingPurchases;
 
     public Configuration(int totalTickets, int maxTicketCapacity, int ticketRetrievalTime, int ticketBuyingTime) {
+        this(totalTickets, maxTicketCapacity, ticketRetrievalTime, ticketBuyingTime, 1, 1);
+    }
+
+    public Configuration(int totalTickets, int maxTicketCapacity, int ticketRetrievalTime, int ticketBuyingTime,
+                         int vendorBatchSize, int customerBatchSize) {
+        this(totalTickets, maxTicketCapacity, ticketRetrievalTime, ticketBuyingTime, vendorBatchSize,
+                customerBatchSize, 0, 0, 1, 0, 0);
+    }
+
+    // Rates are purchase requests per second, for all customers together and for each customer on their own.
+    // Requests may wait up to admissionMaxWait ms for the rate limits before they are turned away.
+    public Configuration(int totalTickets, int maxTicketCapacity, int ticketRetrievalTime, int ticketBuyingTime,
+                         int vendorBatchSize, int customerBatchSize, int admissionRate, int customerAdmissionRate,
+                         int admissionBurst, int admissionMaxWait, int maxPendingPurchases) {
         this.totalTickets = validateTotalTickets(totalTickets);
         this.maxTicketCapacity = validateMaxCapacity(maxTicketCapacity, totalTickets);
         this.ticketRetrievalTime = validateTime(ticketRetrievalTime, "Ticket retrieval time");
         this.ticketBuyingTime = validateTime(ticketBuyingTime, "Ticket buying time");
+        this.vendorBatchSize = validateBatchSize(vendorBatchSize, maxTicketCapacity, "Vendor batch size");
+        this.customerBatchSize = validateBatchSize(customerBatchSize, maxTicketCapacity, "Customer batch size");
+        this.admissionRate = validateLimit(admissionRate, 100000, "Admission rate");
+        this.customerAdmissionRate = validateLimit(customerAdmissionRate, 100000, "Customer admission rate");
+        this.admissionBurst = validateBurst(admissionBurst);
+        this.admissionMaxWait = validateLimit(admissionMaxWait, 10000, "Admission max wait");
+        this.maxPendingPurchases = validateLimit(maxPendingPurchases, 100000, "Max pending purchases");
     }
 
     private int validateTotalTickets(int tickets) {
@@ -38,6 +67,27 @@ public class Configuration implements Serializable {
         return time;
     }
 
+    private int validateBatchSize(int batchSize, int maxCapacity, String fieldName) {
+        if (batchSize < 1 || batchSize > maxCapacity) {
+            throw new IllegalArgumentException(fieldName + " must be between 1 and max capacity");
+        }
+        return batchSize;
+    }
+
+    private int validateLimit(int limit, int max, String fieldName) {
+        if (limit < 0 || limit > max) {
+            throw new IllegalArgumentException(fieldName + " must be between 0 and " + max);
+        }
+        return limit;
+    }
+
+    private int validateBurst(int burst) {
+        if (burst < 1 || burst > 100000) {
+            throw new IllegalArgumentException("Admission burst must be between 1 and 100000");
+        }
+        return burst;
+    }
+
     public int getTotalTickets() {
         return totalTickets;
     }
@@ -54,6 +104,38 @@ public class Configuration implements Serializable {
         return ticketBuyingTime;
     }
 
+    public int getVendorBatchSize() {
+        return vendorBatchSize;
+    }
+
+    public int getCustomerBatchSize() {
+        return customerBatchSize;
+    }
+
+    public int getAdmissionRate() {
+        return admissionRate;
+    }
+
+    public int getCustomerAdmissionRate() {
+        return customerAdmissionRate;
+    }
+
+    public int getAdmissionBurst() {
+        return admissionBurst;
+    }
+
+    public int getAdmissionMaxWait() {
+        return admissionMaxWait;
+    }
+
+    public int getMaxPendingPurchases() {
+        return maxPendingPurchases;
+    }
+
+    public boolean hasAdmissionControl() {
+        return admissionRate > 0 || customerAdmissionRate > 0 || maxPendingPurchases > 0;
+    }
+
     public void saveToFile(String filename) {
         File directory = new File(new File(filename).getParent());
         if (!directory.exists() && !directory.mkdirs()) {
@@ -66,6 +148,13 @@ public class Configuration implements Serializable {
             props.setProperty("MaxTicketCapacity", String.valueOf(maxTicketCapacity));
             props.setProperty("TicketRetrievalTime", String.valueOf(ticketRetrievalTime));
             props.setProperty("TicketBuyingTime", String.valueOf(ticketBuyingTime));
+            props.setProperty("VendorBatchSize", String.valueOf(vendorBatchSize));
+            props.setProperty("CustomerBatchSize", String.valueOf(customerBatchSize));
+            props.setProperty("AdmissionRate", String.valueOf(admissionRate));
+            props.setProperty("CustomerAdmissionRate", String.valueOf(customerAdmissionRate));
+            props.setProperty("AdmissionBurst", String.valueOf(admissionBurst));
+            props.setProperty("AdmissionMaxWait", String.valueOf(admissionMaxWait));
+            props.setProperty("MaxPendingPurchases", String.valueOf(maxPendingPurchases));
 
             props.store(writer, "Ticket System Configuration");
         } catch (IOException e) {
@@ -82,7 +171,14 @@ public class Configuration implements Serializable {
                     Integer.parseInt(props.getProperty("TotalTickets")),
                     Integer.parseInt(props.getProperty("MaxTicketCapacity")),
                     Integer.parseInt(props.getProperty("TicketRetrievalTime")),
-                    Integer.parseInt(props.getProperty("TicketBuyingTime"))
+                    Integer.parseInt(props.getProperty("TicketBuyingTime")),
+                    Integer.parseInt(props.getProperty("VendorBatchSize", "1")),
+                    Integer.parseInt(props.getProperty("CustomerBatchSize", "1")),
+                    Integer.parseInt(props.getProperty("AdmissionRate", "0")),
+                    Integer.parseInt(props.getProperty("CustomerAdmissionRate", "0")),
+                    Integer.parseInt(props.getProperty("AdmissionBurst", "1")),
+                    Integer.parseInt(props.getProperty("AdmissionMaxWait", "0")),
+                    Integer.parseInt(props.getProperty("MaxPendingPurchases", "0"))
             );
         } catch (IOException | NumberFormatException e) {
             throw new RuntimeException("Error loading configuration: " + e.getMessage(), e);
@@ -95,6 +191,13 @@ public class Configuration implements Serializable {
             validateMaxCapacity(maxTicketCapacity, totalTickets);
             validateTime(ticketRetrievalTime, "Ticket retrieval time");
             validateTime(ticketBuyingTime, "Ticket buying time");
+            validateBatchSize(vendorBatchSize, maxTicketCapacity, "Vendor batch size");
+            validateBatchSize(customerBatchSize, maxTicketCapacity, "Customer batch size");
+            validateLimit(admissionRate, 100000, "Admission rate");
+            validateLimit(customerAdmissionRate, 100000, "Customer admission rate");
+            validateBurst(admissionBurst);
+            validateLimit(admissionMaxWait, 10000, "Admission max wait");
+            validateLimit(maxPendingPurchases, 100000, "Max pending purchases");
             return true;
         } catch (IllegalArgumentException e) {
             return false;
@@ -103,7 +206,11 @@ public class Configuration implements Serializable {
 
     @Override
     public String toString() {
-        return String.format("Configuration{totalTickets=%d, maxCapacity=%d, retrievalTime=%d, buyingTime=%d}",
-                totalTickets, maxTicketCapacity, ticketRetrievalTime, ticketBuyingTime);
+        return String.format("Configuration{totalTickets=%d, maxCapacity=%d, retrievalTime=%d, buyingTime=%d, " +
+                        "vendorBatchSize=%d, customerBatchSize=%d, admissionRate=%d, customerAdmissionRate=%d, " +
+                        "admissionBurst=%d, admissionMaxWait=%d, maxPendingPurchases=%d}",
+                totalTickets, maxTicketCapacity, ticketRetrievalTime, ticketBuyingTime,
+                vendorBatchSize, customerBatchSize, admissionRate, customerAdmissionRate,
+                admissionBurst, admissionMaxWait, maxPendingPurchases);
     }
 }
\ No newline at end of file
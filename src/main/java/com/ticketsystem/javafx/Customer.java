@@ -1,53 +1,228 @@
 package com.ticketsystem.javafx;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class Customer implements Runnable {
     private final int customerId;
     private final TicketPool ticketPool;
     private final int ticketBuyingTime;
+    private final int batchSize;
+    private final SimulationClock clock;
+    private final ReservationTicketPool reservations;
+    private final AdmissionController admissionController;
+    private final double abandonRate;
+    private final int maxPurchases;
+    private final boolean seatsTogether;
+    private final long patienceMillis;
     private volatile boolean running;
+    private volatile boolean gaveUp;
     private final AtomicInteger ticketsPurchased;
-    private Thread customerThread;
+    private final AtomicInteger ticketsAbandoned;
+    private final AtomicInteger requestsTurnedAway;
 
     public Customer(int customerId, TicketPool ticketPool, int ticketBuyingTime) {
-        this.customerId = customerId;
-        this.ticketPool = ticketPool;
-        this.ticketBuyingTime = ticketBuyingTime;
+        this(new Builder(customerId, ticketPool, ticketBuyingTime));
+    }
+
+    private Customer(Builder builder) {
+        if (builder.batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        if (builder.abandonRate < 0 || builder.abandonRate > 1) {
+            throw new IllegalArgumentException("Abandon rate must be between 0 and 1");
+        }
+        if (builder.maxPurchases < 0) {
+            throw new IllegalArgumentException("Max purchases cannot be negative");
+        }
+        if (builder.patienceMillis < 0) {
+            throw new IllegalArgumentException("Patience cannot be negative");
+        }
+        this.customerId = builder.customerId;
+        this.ticketPool = builder.ticketPool;
+        this.reservations = builder.reservations;
+        this.admissionController = builder.admissionController;
+        this.ticketBuyingTime = builder.ticketBuyingTime;
+        this.batchSize = builder.batchSize;
+        this.clock = builder.clock;
+        this.abandonRate = builder.abandonRate;
+        this.maxPurchases = builder.maxPurchases;
+        this.seatsTogether = builder.seatsTogether;
+        this.patienceMillis = builder.patienceMillis;
         this.running = true;
         this.ticketsPurchased = new AtomicInteger(0);
+        this.ticketsAbandoned = new AtomicInteger(0);
+        this.requestsTurnedAway = new AtomicInteger(0);
+    }
+
+    public static class Builder {
+        private final int customerId;
+        private final TicketPool ticketPool;
+        private final int ticketBuyingTime;
+        private int batchSize;
+        private SimulationClock clock;
+        private ReservationTicketPool reservations;
+        private AdmissionController admissionController;
+        private double abandonRate;
+        private int maxPurchases;
+        private boolean seatsTogether;
+        private long patienceMillis;
+
+        public Builder(int customerId, TicketPool ticketPool, int ticketBuyingTime) {
+            this.customerId = customerId;
+            this.ticketPool = ticketPool;
+            this.ticketBuyingTime = ticketBuyingTime;
+            this.batchSize = 1;
+            this.clock = SimulationClock.realTime();
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder clock(SimulationClock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        // Reserves tickets, spends ticketBuyingTime checking out and then confirms them, or with probability
+        // abandonRate walks away and lets the holds expire. Without reservations the customer buys outright.
+        public Builder reservations(ReservationTicketPool reservations, double abandonRate) {
+            this.reservations = reservations;
+            this.abandonRate = abandonRate;
+            return this;
+        }
+
+        // Without an admission controller every request goes straight to the pool
+        public Builder admissionController(AdmissionController admissionController) {
+            this.admissionController = admissionController;
+            return this;
+        }
+
+        // Leaves after maxPurchases successful purchases; 0 keeps buying until the event sells out
+        public Builder maxPurchases(int maxPurchases) {
+            this.maxPurchases = maxPurchases;
+            return this;
+        }
+
+        // With seatsTogether the customer buys for a group of batchSize, as adjacent seats in one row; the
+        // pool must know where its seats are
+        public Builder seatsTogether(boolean seatsTogether) {
+            this.seatsTogether = seatsTogether;
+            return this;
+        }
+
+        // A customer buying outright with patienceMillis above 0 waits at most that long, in real time, for
+        // tickets and then gives up and leaves, so their thread ends instead of staying parked on the pool
+        public Builder patienceMillis(long patienceMillis) {
+            this.patienceMillis = patienceMillis;
+            return this;
+        }
+
+        public Customer build() {
+            return new Customer(this);
+        }
     }
 
     @Override
     public void run() {
-        customerThread = Thread.currentThread();
         System.out.printf("Customer %d started shopping for tickets%n", customerId);
+        int[] purchasedTickets = new int[batchSize];
+        long[] holds = reservations == null ? null : new long[batchSize];
+        clock.register();
+        try {
+            int purchases = 0;
+            while (running && !Thread.currentThread().isInterrupted()
+                    && (maxPurchases == 0 || purchases < maxPurchases)) {
+                try {
+                    long requestStart = System.nanoTime();
+                    if (admissionController != null && !admissionController.admit(customerId).isAdmitted()) {
+                        requestsTurnedAway.incrementAndGet();
+                        clock.sleep(backOffMillis());
+                        continue;
+                    }
+                    int purchased;
+                    try {
+                        purchased = seatsTogether ? buyTogether(purchasedTickets, holds) : 0;
+                        // A group that can no longer sit together splits up rather than going home
+                        if (purchased == 0) {
+                            purchased = reservations != null
+                                    ? reservations.reserve(customerId, batchSize, purchasedTickets, holds)
+                                    : patienceMillis > 0 ? buyWithinPatience(purchasedTickets)
+                                    : ticketPool.removeTickets(customerId, batchSize, purchasedTickets);
+                        }
+                    } finally {
+                        if (admissionController != null) {
+                            admissionController.release();
+                        }
+                    }
+                    if (purchased == 0 || !running) {
+                        break;
+                    }
+                    ticketPool.getMetrics().recordPurchaseLatency(System.nanoTime() - requestStart);
+
+                    clock.sleep(ticketBuyingTime);
+                    if (reservations == null) {
+                        ticketsPurchased.addAndGet(purchased);
+                    } else {
+                        checkOut(holds, purchased);
+                    }
+                    purchases++;
 
-        while (running && !Thread.currentThread().isInterrupted()) {
-            try {
-                Integer ticket = ticketPool.removeTicket(customerId);
-                if (ticket == null || !running) {
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                     break;
                 }
-
-                Thread.sleep(ticketBuyingTime);
-                ticketsPurchased.incrementAndGet();
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
             }
+        } finally {
+            clock.deregister();
         }
 
         System.out.printf("Customer %d finishing. Total tickets purchased: %d%n",
                 customerId, ticketsPurchased.get());
     }
 
+    private int buyTogether(int[] purchasedTickets, long[] holds) {
+        return reservations == null
+                ? ticketPool.removeContiguous(customerId, batchSize, TicketPool.ANY_SECTION, purchasedTickets)
+                : reservations.reserveContiguous(customerId, batchSize, TicketPool.ANY_SECTION, purchasedTickets,
+                        holds);
+    }
+
+    private int buyWithinPatience(int[] purchasedTickets) {
+        int purchased = ticketPool.tryRemoveTickets(customerId, batchSize, purchasedTickets, patienceMillis,
+                TimeUnit.MILLISECONDS);
+        // Nothing bought although the sale goes on and the customer may still buy: they ran out of patience
+        if (purchased == 0 && running && ticketPool.isRunning() && !ticketPool.allTicketsRetrieved()
+                && ticketPool.getPurchaseAllowance(customerId) > 0) {
+            gaveUp = true;
+        }
+        return purchased;
+    }
+
+    // Jittered so that customers turned away together do not all come back together
+    private long backOffMillis() {
+        long retryAfter = admissionController.getRetryAfterMillis();
+        return retryAfter / 2 + ThreadLocalRandom.current().nextLong(retryAfter + 1);
+    }
+
+    private void checkOut(long[] holds, int count) {
+        if (abandonRate > 0 && ThreadLocalRandom.current().nextDouble() < abandonRate) {
+            ticketsAbandoned.addAndGet(count);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            // A hold that ran out while checking out is lost; its ticket is already back in the pool
+            if (reservations.confirm(holds[i])) {
+                ticketsPurchased.incrementAndGet();
+            }
+        }
+    }
+
     public void stop() {
         running = false;
-        if (customerThread != null) {
-            customerThread.interrupt();
-        }
     }
 
     public int getCustomerId() {
@@ -58,6 +233,30 @@ public class Customer implements Runnable {
         return ticketsPurchased.get();
     }
 
+    public int getTicketsAbandoned() {
+        return ticketsAbandoned.get();
+    }
+
+    public int getRequestsTurnedAway() {
+        return requestsTurnedAway.get();
+    }
+
+    public boolean hasGivenUp() {
+        return gaveUp;
+    }
+
+    public long getPatienceMillis() {
+        return patienceMillis;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isSeatsTogether() {
+        return seatsTogether;
+    }
+
     public int getTicketBuyingTime() {
         return ticketBuyingTime;
     }
@@ -67,10 +266,8 @@ public class Customer implements Runnable {
     }
 
     public String getStatistics() {
-        return String.format("Customer %d Statistics:%n" +
-                        "Total Tickets Purchased: %d%n" +
-                        "Status: %s",
-                customerId, ticketsPurchased.get(),
-                running ? "Running" : "Stopped");
+        return "Customer " + customerId + " Statistics:" + System.lineSeparator()
+                + "Total Tickets Purchased: " + ticketsPurchased.get() + System.lineSeparator()
+                + "Status: " + (running ? "Running" : "Stopped");
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.ticketsystem.javafx;
+
+// One kind of customer in a workload: how often it shows up relative to the other kinds, how many
+// tickets it asks for at once, how long it takes to check out and how many purchases it makes before
+// leaving (0 for as many as it can get).
+public class CustomerProfile {
+    private final String name;
+    private final double weight;
+    private final int batchSize;
+    private final int buyingTime;
+    private final int maxPurchases;
+
+    public CustomerProfile(String name, double weight, int batchSize, int buyingTime, int maxPurchases) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Profile weight must be positive: " + name);
+        }
+        if (batchSize < 1 || buyingTime < 0 || maxPurchases < 0) {
+            throw new IllegalArgumentException("Invalid customer profile: " + name);
+        }
+        this.name = name;
+        this.weight = weight;
+        this.batchSize = batchSize;
+        this.buyingTime = buyingTime;
+        this.maxPurchases = maxPurchases;
+    }
+
+    // weight,batchSize,buyingTime,maxPurchases as written in scenario files
+    public static CustomerProfile parse(String name, String value) {
+        String[] fields = value.split(",");
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Profile " + name
+                    + " must be weight,batchSize,buyingTime,maxPurchases: " + value);
+        }
+        try {
+            return new CustomerProfile(name, Double.parseDouble(fields[0].trim()),
+                    Integer.parseInt(fields[1].trim()), Integer.parseInt(fields[2].trim()),
+                    Integer.parseInt(fields[3].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in profile " + name + ": " + value, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getBuyingTime() {
+        return buyingTime;
+    }
+
+    public int getMaxPurchases() {
+        return maxPurchases;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (weight %.2f, %d per purchase, %d ms checkout, %s)", name, weight, batchSize,
+                buyingTime, maxPurchases == 0 ? "buys until sold out" : "leaves after " + maxPurchases);
+    }
+}
@@ -0,0 +1,19 @@
+package com.ticketsystem.javafx;
+
+// Declared in priority order: a waiting VIP is always served before a presale or general customer
+public enum CustomerTier {
+    VIP("VIP"),
+    PRESALE("Presale"),
+    GENERAL("General");
+
+    private final String displayName;
+
+    CustomerTier(String displayName) {
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,96 @@
+package com.ticketsystem.javafx;
+
+import eu.hansolo.tilesfx.Tile;
+import eu.hansolo.tilesfx.TileBuilder;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.scene.layout.TilePane;
+
+import java.util.concurrent.TimeUnit;
+
+// Gauges and charts for a running pool. Metrics are sampled at a fixed rate on the FX thread,
+// independent of how many tickets are sold, so the UI cost stays flat as the sale rate rises.
+public class DashboardPane extends TilePane {
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final double TILE_SIZE = 180;
+
+    private final Tile occupancyTile;
+    private final Tile salesTile;
+    private final Tile addsTile;
+    private final Tile waitingTile;
+    private final Tile soldTile;
+    private final Tile customerWaitTile;
+    private final AnimationTimer timer;
+    private TicketPool ticketPool;
+    private MetricsSnapshot previous;
+    private long lastSampleNanos;
+
+    public DashboardPane() {
+        super(10, 10);
+        setPadding(new Insets(10));
+        setPrefColumns(6);
+
+        occupancyTile = createTile(Tile.SkinType.GAUGE, "Pool Occupancy", "tickets");
+        salesTile = createTile(Tile.SkinType.SPARK_LINE, "Sales", "/s");
+        addsTile = createTile(Tile.SkinType.SPARK_LINE, "Releases", "/s");
+        waitingTile = createTile(Tile.SkinType.NUMBER, "Waiting Customers", "");
+        soldTile = createTile(Tile.SkinType.PERCENTAGE, "Sold", "%");
+        customerWaitTile = createTile(Tile.SkinType.NUMBER, "Customer Wait p99", "ms");
+        customerWaitTile.setDescription("last interval");
+        getChildren().addAll(occupancyTile, salesTile, addsTile, waitingTile, soldTile, customerWaitTile);
+
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (now - lastSampleNanos >= SAMPLE_INTERVAL_NANOS) {
+                    lastSampleNanos = now;
+                    refresh();
+                }
+            }
+        };
+    }
+
+    private Tile createTile(Tile.SkinType skinType, String title, String unit) {
+        return TileBuilder.create()
+                .skinType(skinType)
+                .prefSize(TILE_SIZE, TILE_SIZE)
+                .title(title)
+                .unit(unit)
+                .decimals(0)
+                .animated(false)
+                .build();
+    }
+
+    public void attach(TicketPool pool) {
+        ticketPool = pool;
+        previous = pool.getMetrics().snapshot();
+        occupancyTile.setMaxValue(pool.getMaxCapacity());
+        soldTile.setMaxValue(pool.getTotalTicketsLimit());
+        salesTile.clearData();
+        addsTile.clearData();
+        lastSampleNanos = 0;
+        timer.start();
+    }
+
+    // Draws the final state and stops sampling
+    public void detach() {
+        if (ticketPool != null) {
+            refresh();
+        }
+        timer.stop();
+        ticketPool = null;
+    }
+
+    private void refresh() {
+        MetricsSnapshot current = ticketPool.getMetrics().snapshot();
+        occupancyTile.setValue(current.getOccupancy());
+        salesTile.setValue(current.getSalesPerSecond(previous));
+        addsTile.setValue(current.getAddsPerSecond(previous));
+        waitingTile.setValue(current.getWaitingCustomers());
+        soldTile.setValue(current.getTicketsSold());
+
+        HistogramSnapshot recentWaits = current.getCustomerWait().since(previous.getCustomerWait());
+        customerWaitTile.setValue(recentWaits.getPercentileNanos(99) / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        previous = current;
+    }
+}
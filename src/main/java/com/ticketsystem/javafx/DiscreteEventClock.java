@@ -0,0 +1,222 @@
+package com.ticketsystem.javafx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Virtual clock for accelerated runs. Sleeping participants are queued by wake-up time instead of
+// blocking for real. Once every registered participant is either asleep on this clock or parked on
+// the pool, a driver thread jumps virtual time to the earliest wake-up and releases those sleepers.
+// Wake-ups happen in the same order as under real time, only without the wait in between.
+// Participants are counted out when they sleep or park and back in by whoever wakes them, instead of
+// judged by their thread state, which still says waiting for a thread that was woken but not yet run.
+public class DiscreteEventClock implements SimulationClock, AutoCloseable {
+    private static final long DEFAULT_SETTLE_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final long POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    private final ReentrantLock lock;
+    private final PriorityQueue<Sleeper> sleepers;
+    // Each registered participant reuses one Sleeper, so going to sleep allocates nothing
+    private final Map<Thread, Sleeper> participants;
+    // Sleepers released by the last advance; only touched by the driver
+    private final List<Sleeper> woken;
+    private final RunnableParticipants runnable;
+    private final AtomicInteger pendingParticipants;
+    private final long settleNanos;
+    private final Thread driver;
+    private long sequence;
+    // Size of sleepers, written under lock, so the driver can poll it without contending with sleepers
+    private volatile int sleeperCount;
+    private volatile long now;
+    private volatile boolean running;
+
+    private static final class Sleeper implements Comparable<Sleeper> {
+        private final Thread thread;
+        // Registered participants count in runnable; other threads may sleep on the clock too
+        private final boolean participant;
+        // Guarded by lock, and only changed while the sleeper is not queued
+        private long wakeAt;
+        private long sequence;
+        private volatile boolean released;
+
+        private Sleeper(Thread thread, boolean participant) {
+            this.thread = thread;
+            this.participant = participant;
+        }
+
+        @Override
+        public int compareTo(Sleeper other) {
+            int byTime = Long.compare(wakeAt, other.wakeAt);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public DiscreteEventClock() {
+        this(DEFAULT_SETTLE_NANOS);
+    }
+
+    // settleNanos is how long every participant must stay idle before virtual time moves on. Idle is
+    // counted exactly, so this only lets a participant that just parked finish checking its pool.
+    public DiscreteEventClock(long settleNanos) {
+        this.lock = new ReentrantLock();
+        this.sleepers = new PriorityQueue<>();
+        this.participants = new ConcurrentHashMap<>();
+        this.woken = new ArrayList<>();
+        this.runnable = new RunnableParticipants();
+        this.pendingParticipants = new AtomicInteger(0);
+        this.settleNanos = settleNanos;
+        this.now = 0;
+        this.running = true;
+        this.driver = new Thread(this::drive, "discrete-event-clock");
+        this.driver.setDaemon(true);
+        this.driver.start();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis <= 0) {
+            return;
+        }
+
+        Thread current = Thread.currentThread();
+        Sleeper sleeper = participants.get(current);
+        if (sleeper == null) {
+            sleeper = new Sleeper(current, false);
+        }
+        lock.lock();
+        try {
+            sleeper.wakeAt = now + millis;
+            sleeper.sequence = sequence++;
+            sleeper.released = false;
+            sleepers.add(sleeper);
+            sleeperCount = sleepers.size();
+            if (sleeper.participant) {
+                runnable.blocked();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        while (!sleeper.released) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                lock.lock();
+                try {
+                    // Not queued any more once the driver has taken it, even before it is released
+                    if (sleepers.remove(sleeper)) {
+                        sleeperCount = sleepers.size();
+                        if (sleeper.participant) {
+                            runnable.woken();
+                        }
+                        throw new InterruptedException();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                // Woken and interrupted at the same time: finish the sleep, keep the interrupt
+                current.interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void expectParticipants(int count) {
+        pendingParticipants.addAndGet(count);
+    }
+
+    @Override
+    public void register() {
+        participants.put(Thread.currentThread(), new Sleeper(Thread.currentThread(), true));
+        // Counted in before it stops being pending, so time cannot slip through in between
+        runnable.join();
+        pendingParticipants.updateAndGet(pending -> Math.max(0, pending - 1));
+    }
+
+    @Override
+    public void deregister() {
+        if (participants.remove(Thread.currentThread()) != null) {
+            runnable.leave();
+        }
+    }
+
+    private void drive() {
+        long idleSince = -1;
+        while (running) {
+            if (!isQuiescent()) {
+                idleSince = -1;
+            } else if (idleSince < 0) {
+                idleSince = System.nanoTime();
+            } else if (System.nanoTime() - idleSince >= settleNanos) {
+                advance();
+                idleSince = -1;
+                continue;
+            }
+            LockSupport.parkNanos(this, POLL_NANOS);
+        }
+    }
+
+    // Time must not move while a participant is still starting up, or can run, including one that was
+    // woken but has not been scheduled yet
+    private boolean isQuiescent() {
+        return pendingParticipants.get() == 0 && sleeperCount > 0 && runnable.get() == 0;
+    }
+
+    private void advance() {
+        lock.lock();
+        try {
+            Sleeper next = sleepers.peek();
+            if (next == null) {
+                return;
+            }
+            now = next.wakeAt;
+            while (!sleepers.isEmpty() && sleepers.peek().wakeAt <= now) {
+                Sleeper sleeper = sleepers.poll();
+                if (sleeper.participant) {
+                    runnable.woken();
+                }
+                woken.add(sleeper);
+            }
+            sleeperCount = sleepers.size();
+        } finally {
+            lock.unlock();
+        }
+
+        // Woken participants go straight back to sleep, so they are let go only once the lock is free
+        for (int i = 0; i < woken.size(); i++) {
+            Sleeper sleeper = woken.get(i);
+            sleeper.released = true;
+            LockSupport.unpark(sleeper.thread);
+        }
+        woken.clear();
+    }
+
+    public int getSleepingCount() {
+        return sleeperCount;
+    }
+
+    public int getRunnableCount() {
+        return runnable.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(driver);
+    }
+
+    @Override
+    public String toString() {
+        return "Discrete event";
+    }
+}
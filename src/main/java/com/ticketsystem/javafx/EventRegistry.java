@@ -0,0 +1,141 @@
+package com.ticketsystem.javafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Holds one pool per event. Lookups read a copy-on-write array with a single volatile read and no
+// lock. Each event's pool logs to a shard of the event log of its own, so events share no counters and
+// no ring, and a busy event neither slows down nor drops the events of another.
+// Aggregate statistics are summed from the per-event pools when asked for.
+public class EventRegistry {
+    private final TicketPoolType poolType;
+    private final TicketEventLog eventLog;
+    private final PurchasePolicy purchasePolicy;
+    // Shards this registry created for the events it built itself, closed on shutdown
+    private final List<TicketEventLog> shards;
+    // index is eventId - 1; replaced as a whole whenever an event is registered
+    private volatile TicketedEvent[] events;
+
+    public EventRegistry(TicketPoolType poolType) {
+        this(poolType, TicketEventLog.console());
+    }
+
+    public EventRegistry(TicketPoolType poolType, TicketEventLog eventLog) {
+        this(poolType, eventLog, PurchasePolicy.unrestricted());
+    }
+
+    public EventRegistry(TicketPoolType poolType, TicketEventLog eventLog, PurchasePolicy purchasePolicy) {
+        this.poolType = poolType;
+        this.eventLog = eventLog;
+        this.purchasePolicy = purchasePolicy;
+        this.shards = new ArrayList<>();
+        this.events = new TicketedEvent[0];
+    }
+
+    public synchronized TicketedEvent register(String name, int maxCapacity, int totalTickets) {
+        int eventId = events.length + 1;
+        TicketEventLog shard = eventLog.shard();
+        TicketInventory inventory = TicketInventory.defaultLayout(eventId, totalTickets);
+        TicketPool ticketPool = poolType.create(inventory, maxCapacity, totalTickets, shard, purchasePolicy);
+        if (shard != eventLog) {
+            shards.add(shard);
+        }
+        return register(new TicketedEvent(eventId, name, ticketPool, inventory));
+    }
+
+    public synchronized TicketedEvent register(TicketedEvent event) {
+        if (event.getEventId() != events.length + 1) {
+            throw new IllegalArgumentException("Expected event id " + (events.length + 1)
+                    + " but got " + event.getEventId());
+        }
+        TicketedEvent[] updated = Arrays.copyOf(events, events.length + 1);
+        updated[event.getEventId() - 1] = event;
+        events = updated;
+        return event;
+    }
+
+    public TicketedEvent get(int eventId) {
+        TicketedEvent[] current = events;
+        if (eventId < 1 || eventId > current.length) {
+            throw new IllegalArgumentException("Unknown event: " + eventId);
+        }
+        return current[eventId - 1];
+    }
+
+    public TicketPool getPool(int eventId) {
+        return get(eventId).getTicketPool();
+    }
+
+    // Spreads participants round robin, so participant ids 1..n cover every event when n >= size()
+    public TicketedEvent route(int participantId) {
+        TicketedEvent[] current = events;
+        if (current.length == 0) {
+            throw new IllegalStateException("No events registered");
+        }
+        return current[Math.floorMod(participantId - 1, current.length)];
+    }
+
+    public int size() {
+        return events.length;
+    }
+
+    public List<TicketedEvent> getEvents() {
+        return Collections.unmodifiableList(Arrays.asList(events));
+    }
+
+    public int getTotalTicketsLimit() {
+        int total = 0;
+        for (TicketedEvent event : events) {
+            total += event.getTicketPool().getTotalTicketsLimit();
+        }
+        return total;
+    }
+
+    public int getTotalTicketsAdded() {
+        int total = 0;
+        for (TicketedEvent event : events) {
+            total += event.getTicketPool().getTotalTicketsAdded();
+        }
+        return total;
+    }
+
+    public int getTicketsSold() {
+        int total = 0;
+        for (TicketedEvent event : events) {
+            total += event.getTicketsSold();
+        }
+        return total;
+    }
+
+    public boolean allTicketsRetrieved() {
+        for (TicketedEvent event : events) {
+            if (!event.getTicketPool().allTicketsRetrieved()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public MetricsSnapshot getAggregateMetrics() {
+        MetricsSnapshot total = null;
+        for (TicketedEvent event : events) {
+            MetricsSnapshot metrics = event.getMetrics();
+            total = total == null ? metrics : total.plus(metrics);
+        }
+        return total;
+    }
+
+    public void shutdown() {
+        for (TicketedEvent event : events) {
+            event.getTicketPool().shutdown();
+        }
+        synchronized (this) {
+            for (TicketEventLog shard : shards) {
+                shard.close();
+            }
+            shards.clear();
+        }
+    }
+}
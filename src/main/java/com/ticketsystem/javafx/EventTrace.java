@@ -0,0 +1,112 @@
+package com.ticketsystem.javafx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Ticket movements read back from a file written by TraceEventSink, kept in parallel arrays in the
+// order they were recorded. Only additions, purchases and returns are kept; waiting and queueing
+// events are consequences of those and come back on their own when the trace is replayed.
+public class EventTrace {
+    private final long[] timestamps;
+    private final TicketEventType[] types;
+    private final int[] participants;
+    private final int[] counts;
+    private final int size;
+
+    private EventTrace(long[] timestamps, TicketEventType[] types, int[] participants, int[] counts, int size) {
+        this.timestamps = timestamps;
+        this.types = types;
+        this.participants = participants;
+        this.counts = counts;
+        this.size = size;
+    }
+
+    public static EventTrace read(Path file) {
+        long[] timestamps = new long[1024];
+        TicketEventType[] types = new TicketEventType[1024];
+        int[] participants = new int[1024];
+        int[] counts = new int[1024];
+        int size = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != 7) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " does not have 7 fields");
+                }
+                TicketEventType type = TicketEventType.valueOf(fields[1]);
+                if (type != TicketEventType.ADDED && type != TicketEventType.PURCHASED
+                        && type != TicketEventType.RETURNED) {
+                    continue;
+                }
+                if (size == timestamps.length) {
+                    timestamps = Arrays.copyOf(timestamps, size * 2);
+                    types = Arrays.copyOf(types, size * 2);
+                    participants = Arrays.copyOf(participants, size * 2);
+                    counts = Arrays.copyOf(counts, size * 2);
+                }
+                timestamps[size] = Long.parseLong(fields[0]);
+                types[size] = type;
+                participants[size] = Integer.parseInt(fields[2]);
+                counts[size] = Integer.parseInt(fields[5]);
+                size++;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("Error reading event trace " + file + ": " + e.getMessage(), e);
+        }
+        return new EventTrace(timestamps, types, participants, counts, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public TicketEventType getType(int index) {
+        return types[index];
+    }
+
+    public int getParticipantId(int index) {
+        return participants[index];
+    }
+
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    public int getTicketsAdded() {
+        return total(TicketEventType.ADDED);
+    }
+
+    public int getTicketsSold() {
+        return total(TicketEventType.PURCHASED) - total(TicketEventType.RETURNED);
+    }
+
+    private int total(TicketEventType type) {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == type) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    // Time the recorded run took from its first to its last ticket movement
+    public long getDurationMillis() {
+        return size == 0 ? 0 : timestamps[size - 1] - timestamps[0];
+    }
+}
@@ -0,0 +1,38 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.ThreadFactory;
+
+public enum ExecutionMode {
+    PLATFORM_THREADS("Platform threads", 50, 200),
+    VIRTUAL_THREADS("Virtual threads", 1000, 50000);
+
+    private final String displayName;
+    private final int maxVendors;
+    private final int maxCustomers;
+
+    ExecutionMode(String displayName, int maxVendors, int maxCustomers) {
+        this.displayName = displayName;
+        this.maxVendors = maxVendors;
+        this.maxCustomers = maxCustomers;
+    }
+
+    public ThreadFactory threadFactory() {
+        return switch (this) {
+            case PLATFORM_THREADS -> Thread.ofPlatform().name("participant-", 1).factory();
+            case VIRTUAL_THREADS -> Thread.ofVirtual().name("participant-", 1).factory();
+        };
+    }
+
+    public int getMaxVendors() {
+        return maxVendors;
+    }
+
+    public int getMaxCustomers() {
+        return maxCustomers;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
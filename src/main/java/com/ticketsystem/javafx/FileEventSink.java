@@ -0,0 +1,60 @@
+package com.ticketsystem.javafx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+public class FileEventSink implements TicketEventSink {
+    private final BufferedWriter writer;
+    private final StringBuilder line;
+
+    public FileEventSink(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening event log file: " + e.getMessage(), e);
+        }
+        this.line = new StringBuilder(160);
+    }
+
+    @Override
+    public void onEvent(TicketEvent event) {
+        line.setLength(0);
+        line.append(Instant.ofEpochMilli(event.getTimestamp())).append(' ')
+                .append(event.getType()).append(' ');
+        event.appendTo(line);
+        line.append(System.lineSeparator());
+        try {
+            writer.append(line);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing event log: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Error flushing event log: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing event log: " + e.getMessage(), e);
+        }
+    }
+}
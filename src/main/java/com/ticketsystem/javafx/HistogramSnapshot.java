@@ -0,0 +1,77 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    HistogramSnapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+        this.counts = counts;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    // percentile between 0 and 100; reports the upper edge of the bucket holding that rank
+    public long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    // Records made between two snapshots of the same histogram
+    public HistogramSnapshot since(HistogramSnapshot earlier) {
+        long[] delta = new long[counts.length];
+        long deltaCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            delta[i] = Math.max(0, counts[i] - earlier.counts[i]);
+            deltaCount += delta[i];
+        }
+        return new HistogramSnapshot(delta, deltaCount, Math.max(0, totalNanos - earlier.totalNanos), maxNanos);
+    }
+
+    // Combines snapshots of different histograms, e.g. the same metric across several pools
+    public HistogramSnapshot plus(HistogramSnapshot other) {
+        long[] sum = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            sum[i] = counts[i] + other.counts[i];
+        }
+        return new HistogramSnapshot(sum, count + other.count, totalNanos + other.totalNanos,
+                Math.max(maxNanos, other.maxNanos));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.2fms, p50=%.2fms, p99=%.2fms, max=%.2fms",
+                count, toMillis(getMeanNanos()), toMillis(getPercentileNanos(50)),
+                toMillis(getPercentileNanos(99)), toMillis(maxNanos));
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,57 @@
+package com.ticketsystem.javafx;
+
+// Bounded FIFO of ints over a circular array. Not thread-safe: callers guard it with their own lock.
+final class IntArrayQueue {
+    private final int[] elements;
+    private int head;
+    private int size;
+
+    IntArrayQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.elements = new int[capacity];
+    }
+
+    boolean offer(int value) {
+        if (size == elements.length) {
+            return false;
+        }
+        elements[(head + size) % elements.length] = value;
+        size++;
+        return true;
+    }
+
+    // Removes up to max values into out starting at index 0 and returns how many were removed
+    int drainTo(int[] out, int max) {
+        int count = Math.min(Math.min(max, out.length), size);
+        for (int i = 0; i < count; i++) {
+            out[i] = elements[head];
+            head = (head + 1) % elements.length;
+        }
+        size -= count;
+        return count;
+    }
+
+    int poll() {
+        if (size == 0) {
+            return IntRingBuffer.EMPTY;
+        }
+        int value = elements[head];
+        head = (head + 1) % elements.length;
+        size--;
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,136 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer/multi-consumer queue of ints. Each slot carries a sequence number
+// that tells producers and consumers whose turn it is, so no locks and no per-element objects.
+// A slot free for position p holds 2p and a filled one 2p + 1. With plain p and p + 1, a slot of a
+// one-slot buffer filled at p would read as free for p + 1 and the next offer would overwrite it.
+final class IntRingBuffer {
+    static final int EMPTY = -1;
+
+    private final int capacity;
+    private final int[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+
+    IntRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = new int[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, freeAt(i));
+        }
+        this.head = new AtomicLong(0);
+        this.tail = new AtomicLong(0);
+    }
+
+    boolean offer(int value) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position % capacity);
+            long difference = sequences.get(index) - freeAt(position);
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = value;
+                    sequences.set(index, filledAt(position));
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Adds up to max new tickets in a row. The free slots are claimed first and only then numbered from
+    // counter, so a ticket number is never handed out without a slot to go in. The numbers are also
+    // written to out from index from. Returns how many were added, 0 if the buffer is full.
+    int offerNumbered(AtomicInteger counter, int max, int[] out, int from) {
+        int limit = Math.min(max, capacity);
+        long position = tail.get();
+        while (true) {
+            int free = 0;
+            long difference = 0;
+            while (free < limit
+                    && (difference = sequences.get(index(position + free)) - freeAt(position + free)) == 0) {
+                free++;
+            }
+
+            if (free == 0 && difference < 0) {
+                return 0;
+            }
+            if (free > 0 && tail.compareAndSet(position, position + free)) {
+                int first = counter.getAndAdd(free) + 1;
+                for (int i = 0; i < free; i++) {
+                    int index = index(position + i);
+                    slots[index] = first + i;
+                    out[from + i] = first + i;
+                    sequences.set(index, filledAt(position + i));
+                }
+                return free;
+            }
+            position = tail.get();
+        }
+    }
+
+    int poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position % capacity);
+            long difference = sequences.get(index) - filledAt(position);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    int value = slots[index];
+                    sequences.set(index, freeAt(position + capacity));
+                    return value;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return EMPTY;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+
+    private static long freeAt(long position) {
+        return 2 * position;
+    }
+
+    private static long filledAt(long position) {
+        return 2 * position + 1;
+    }
+
+    int size() {
+        long consumed = head.get();
+        long produced = tail.get();
+        return (int) Math.max(0, Math.min(capacity, produced - consumed));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    boolean isFull() {
+        return size() >= capacity;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
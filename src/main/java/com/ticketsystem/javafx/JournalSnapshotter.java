@@ -0,0 +1,77 @@
+package com.ticketsystem.javafx;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Keeps a snapshot file close behind a journal. Every interval it folds the records committed since
+// the last snapshot into its own copy of the state and rewrites the file. Committed records never change,
+// so this reads the journal, not the pool, and sales carry on untouched while it runs.
+public class JournalSnapshotter implements AutoCloseable {
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    private final TicketJournal journal;
+    private final Path snapshotFile;
+    private final PoolSnapshot snapshot;
+    private final long intervalNanos;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile long snapshotsWritten;
+
+    // snapshot must already be folded up to the journal's current end, as JournaledTicketPool leaves it
+    public JournalSnapshotter(TicketJournal journal, Path snapshotFile, PoolSnapshot snapshot, long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        this.journal = journal;
+        this.snapshotFile = snapshotFile;
+        this.snapshot = snapshot;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.running = true;
+        this.thread = new Thread(this::snapshotLoop, "pool-snapshotter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void snapshotLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            snapshotNow();
+        }
+    }
+
+    // Only one thread writes at a time: the background loop, or close() once the loop has stopped
+    private void snapshotNow() {
+        long durable = journal.getDurableRecordCount();
+        if (durable <= snapshot.getJournalRecords()) {
+            return;
+        }
+        journal.fold(snapshot, durable);
+        snapshot.writeTo(snapshotFile);
+        snapshotsWritten++;
+    }
+
+    public long getSnapshotsWritten() {
+        return snapshotsWritten;
+    }
+
+    public long getSnapshotRecords() {
+        return snapshot.getJournalRecords();
+    }
+
+    // Stops the background thread and writes a final snapshot of everything committed so far
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotNow();
+    }
+}
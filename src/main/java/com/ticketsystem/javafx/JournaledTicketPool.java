@@ -0,0 +1,251 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+
+// Journals every ticket a pool adds or sells before the outcome is returned to the caller, and
+// replays the snapshot and journal into the pool when it is created, so a restart resumes where the last run stopped.
+// Each call enters the journal before it touches the pool, so once the journal closes the pool sells nothing
+// it could not record; callers get the pool's stop answer instead.
+public class JournaledTicketPool implements TicketPool {
+    private final TicketPool delegate;
+    private final TicketJournal journal;
+    private final ThreadLocal<int[]> addBuffers;
+    private final RecoveredPoolState recoveredState;
+
+    public JournaledTicketPool(TicketPool delegate, TicketJournal journal) {
+        this(delegate, journal, new PoolSnapshot());
+    }
+
+    // Starts from a snapshot and replays only the journal records written after it; the snapshot
+    // is folded forward to the journal's end, ready to hand to a JournalSnapshotter
+    public JournaledTicketPool(TicketPool delegate, TicketJournal journal, PoolSnapshot snapshot) {
+        this(delegate, journal, snapshot, false);
+    }
+
+    // With keepHolds, tickets still on hold when the journal was last written stay out of the pool for a
+    // ReservationTicketPool to take over from getRecoveredState(). Otherwise nobody is left to confirm
+    // those holds, so they are journaled as returned and go straight back on sale.
+    public JournaledTicketPool(TicketPool delegate, TicketJournal journal, PoolSnapshot snapshot, boolean keepHolds) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.addBuffers = ThreadLocal.withInitial(() -> new int[1]);
+
+        RecoveredPoolState state = journal.replay(snapshot);
+        if (!keepHolds && state.getHeldCount() > 0) {
+            for (int i = 0; i < state.getHeldCount(); i++) {
+                journal.append(TicketJournal.TICKET_RETURNED, state.getHeldTicket(i), state.getHolder(i));
+            }
+            state = journal.replay(snapshot);
+        }
+        if (!state.isEmpty()) {
+            delegate.restore(state);
+        }
+        this.recoveredState = state;
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        if (amount < 1) {
+            return delegate.isRunning();
+        }
+        int[] buffer = addBuffers.get();
+        if (buffer.length < amount) {
+            buffer = new int[amount];
+            addBuffers.set(buffer);
+        }
+        return addTickets(vendorId, amount, buffer) > 0;
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        if (!journal.startAppend()) {
+            return 0;
+        }
+        try {
+            int added = delegate.addTickets(vendorId, amount, out);
+            journal.appendAll(TicketJournal.TICKET_ADDED, vendorId, out, added);
+            return added;
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        if (!journal.startAppend()) {
+            return 0;
+        }
+        try {
+            int added = delegate.tryAddTickets(vendorId, amount, out, timeout, unit);
+            journal.appendAll(TicketJournal.TICKET_ADDED, vendorId, out, added);
+            return added;
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    @Override
+    public int removeTicket(int customerId) {
+        if (!journal.startAppend()) {
+            return NO_TICKET;
+        }
+        try {
+            int ticket = delegate.removeTicket(customerId);
+            if (ticket != NO_TICKET) {
+                journal.append(TicketJournal.TICKET_SOLD, ticket, customerId);
+            }
+            return ticket;
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        if (!journal.startAppend()) {
+            return 0;
+        }
+        try {
+            int removed = delegate.removeTickets(customerId, max, out);
+            journal.appendAll(TicketJournal.TICKET_SOLD, customerId, out, removed);
+            return removed;
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        if (!journal.startAppend()) {
+            return 0;
+        }
+        try {
+            int removed = delegate.tryRemoveTickets(customerId, max, out, timeout, unit);
+            journal.appendAll(TicketJournal.TICKET_SOLD, customerId, out, removed);
+            return removed;
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    @Override
+    public int removeContiguous(int customerId, int count, int section, int[] out) {
+        if (!journal.startAppend()) {
+            return 0;
+        }
+        try {
+            int removed = delegate.removeContiguous(customerId, count, section, out);
+            journal.appendAll(TicketJournal.TICKET_SOLD, customerId, out, removed);
+            return removed;
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    // Journaled before the tickets go back, so the return is always ahead of any later sale of them
+    @Override
+    public int returnTickets(int customerId, int[] tickets, int count) {
+        if (!journal.startAppend()) {
+            return 0;
+        }
+        try {
+            journal.appendAll(TicketJournal.TICKET_RETURNED, customerId, tickets, count);
+            return delegate.returnTickets(customerId, tickets, count);
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    // Journaled after the sale it qualifies, so replay never finds a hold on a ticket it has not seen sold
+    @Override
+    public void ticketsHeld(int customerId, int[] tickets, int count, long deadline) {
+        if (!journal.startAppend()) {
+            return;
+        }
+        try {
+            journal.appendAll(TicketJournal.TICKET_HELD, customerId, tickets, count, deadline);
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    @Override
+    public void holdConfirmed(int customerId, int ticketId) {
+        if (!journal.startAppend()) {
+            return;
+        }
+        try {
+            journal.append(TicketJournal.TICKET_CONFIRMED, ticketId, customerId);
+        } finally {
+            journal.finishAppend();
+        }
+    }
+
+    @Override
+    public void restore(RecoveredPoolState state) {
+        delegate.restore(state);
+    }
+
+    // What the journal held when this pool was created, including holds kept for a ReservationTicketPool
+    public RecoveredPoolState getRecoveredState() {
+        return recoveredState;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        return delegate.allTicketsRetrieved();
+    }
+
+    @Override
+    public int getPurchaseAllowance(int customerId) {
+        return delegate.getPurchaseAllowance(customerId);
+    }
+
+    @Override
+    public boolean supportsContiguous() {
+        return delegate.supportsContiguous();
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        return delegate.getAvailableTickets();
+    }
+
+    @Override
+    public int getTotalTicketsAdded() {
+        return delegate.getTotalTicketsAdded();
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return delegate.getTotalTicketsLimit();
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return delegate.getMaxCapacity();
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return delegate.getMetrics();
+    }
+
+    public TicketPool getDelegate() {
+        return delegate;
+    }
+
+    public TicketJournal getJournal() {
+        return journal;
+    }
+}
@@ -0,0 +1,320 @@
+package com.ticketsystem.javafx;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Owns ticket numbers 1..totalTicketsLimit for a partitioned sale and leases them to pool nodes in ranges
+// of at most leaseSize. Every number is at any time either free here or in exactly one node's lease, and
+// a node can only give back a part of a lease it holds, so no number can be released by two nodes and the
+// nodes together can never sell more than the limit. Ranges given back are leased again before new ones.
+// When a node finds nothing to lease, the coordinator asks the others, through their heartbeats, to give
+// back half of what they have not released yet.
+// A node not heard from within the lease timeout is taken for dead. Its leases expire, and the tickets it
+// had not released are written off rather than leased again: the coordinator cannot tell which of them
+// the node released after its last heartbeat. A node holds at most its current lease and one fetched
+// ahead, so a lost node costs at most two leases. With a LeaseJournal every grant, give-back and expiry
+// is on disk before it takes effect, and a restarted coordinator replays them.
+public class LeaseCoordinator implements TicketLeaseService {
+    public static final long DEFAULT_LEASE_TIMEOUT_MILLIS = 2000;
+
+    private final int totalTicketsLimit;
+    private final int leaseSize;
+    private final long leaseTimeoutNanos;
+    private final LeaseJournal journal;
+    // Outstanding leases by first ticket; the value packs the node id and the end of the range (exclusive)
+    private final TreeMap<Integer, Long> leases;
+    private final ArrayDeque<Long> returned;
+    // Tickets each node has leased but not released, as of its last heartbeat plus leases since
+    private final Map<Integer, Integer> unreleased;
+    private final Set<Integer> starvingNodes;
+    // What a replay of the journal would make of unreleased; empty without a journal
+    private final Map<Integer, Integer> journaledUnreleased;
+    // When each live node last called, by System.nanoTime()
+    private final Map<Integer, Long> lastHeard;
+    private final Set<Integer> expiredNodes;
+    private int nextTicket;
+    private long leasesGranted;
+    private long ticketsGivenBack;
+    private long ticketsWrittenOff;
+
+    public LeaseCoordinator(int totalTicketsLimit, int leaseSize) {
+        this(totalTicketsLimit, leaseSize, DEFAULT_LEASE_TIMEOUT_MILLIS, null);
+    }
+
+    // journal is null for a coordinator that keeps its state only in memory
+    public LeaseCoordinator(int totalTicketsLimit, int leaseSize, long leaseTimeoutMillis, LeaseJournal journal) {
+        if (totalTicketsLimit < 1) {
+            throw new IllegalArgumentException("Total tickets must be positive");
+        }
+        if (leaseSize < 1) {
+            throw new IllegalArgumentException("Lease size must be positive");
+        }
+        if (leaseTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Lease timeout must be positive");
+        }
+        this.totalTicketsLimit = totalTicketsLimit;
+        this.leaseSize = leaseSize;
+        this.leaseTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(leaseTimeoutMillis);
+        this.journal = journal;
+        this.leases = new TreeMap<>();
+        this.returned = new ArrayDeque<>();
+        this.unreleased = new HashMap<>();
+        this.journaledUnreleased = new HashMap<>();
+        this.starvingNodes = new HashSet<>();
+        this.lastHeard = new HashMap<>();
+        this.expiredNodes = new HashSet<>();
+        this.nextTicket = 1;
+        if (journal != null) {
+            journal.replay(this::replay);
+            // Nodes from before the restart get one lease timeout to call again
+            long now = System.nanoTime();
+            for (int nodeId : unreleased.keySet()) {
+                if (!expiredNodes.contains(nodeId)) {
+                    lastHeard.put(nodeId, now);
+                }
+            }
+        }
+    }
+
+    private void replay(int type, int nodeId, int firstTicket, int count) {
+        switch (type) {
+            case LeaseJournal.GRANTED -> grant(nodeId, firstTicket, count);
+            case LeaseJournal.GIVEN_BACK -> takeBack(nodeId, firstTicket, count);
+            case LeaseJournal.EXPIRED -> expire(nodeId);
+            case LeaseJournal.REPORTED -> report(nodeId, count);
+            default -> throw new IllegalStateException("Unknown lease journal record type " + type);
+        }
+    }
+
+    @Override
+    public synchronized long acquire(int nodeId, int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Lease size must be positive");
+        }
+        heardFrom(nodeId);
+        int limit = Math.min(max, leaseSize);
+        int first;
+        int count;
+        if (!returned.isEmpty()) {
+            long range = returned.peek();
+            first = TicketLeaseService.firstTicket(range);
+            count = Math.min(limit, TicketLeaseService.count(range));
+        } else if (nextTicket <= totalTicketsLimit) {
+            first = nextTicket;
+            count = Math.min(limit, totalTicketsLimit - nextTicket + 1);
+        } else if (unreleasedElsewhere(nodeId) > 0) {
+            starvingNodes.add(nodeId);
+            return RETRY;
+        } else {
+            starvingNodes.remove(nodeId);
+            return SOLD_OUT;
+        }
+
+        if (journal != null) {
+            journal.append(LeaseJournal.GRANTED, nodeId, first, count);
+        }
+        grant(nodeId, first, count);
+        return TicketLeaseService.lease(first, count);
+    }
+
+    // Takes first..first + count - 1 from the head of the returned ranges or the unleased numbers, the
+    // same way acquire picked them, so a replayed grant lands exactly where the original did
+    private void grant(int nodeId, int first, int count) {
+        if (!returned.isEmpty()) {
+            long range = returned.poll();
+            if (TicketLeaseService.firstTicket(range) != first || TicketLeaseService.count(range) < count) {
+                throw new IllegalStateException("Lease of tickets " + first + " to " + (first + count - 1)
+                        + " does not match the tickets given back");
+            }
+            if (count < TicketLeaseService.count(range)) {
+                returned.addFirst(TicketLeaseService.lease(first + count, TicketLeaseService.count(range) - count));
+            }
+        } else {
+            if (first != nextTicket || count > totalTicketsLimit - nextTicket + 1) {
+                throw new IllegalStateException("Lease of tickets " + first + " to " + (first + count - 1)
+                        + " does not follow ticket " + (nextTicket - 1));
+            }
+            nextTicket += count;
+        }
+
+        leases.put(first, holder(nodeId, first + count));
+        unreleased.merge(nodeId, count, Integer::sum);
+        if (journal != null) {
+            journaledUnreleased.merge(nodeId, count, Integer::sum);
+        }
+        starvingNodes.remove(nodeId);
+        leasesGranted++;
+    }
+
+    @Override
+    public synchronized void giveBack(int nodeId, int firstTicket, int count) {
+        heardFrom(nodeId);
+        Map.Entry<Integer, Long> lease = leases.floorEntry(firstTicket);
+        if (count < 1 || lease == null || nodeOf(lease.getValue()) != nodeId
+                || (long) firstTicket + count > endOf(lease.getValue())) {
+            throw new IllegalStateException("Node " + nodeId + " does not hold tickets " + firstTicket + " to "
+                    + ((long) firstTicket + count - 1));
+        }
+        if (journal != null) {
+            journal.append(LeaseJournal.GIVEN_BACK, nodeId, firstTicket, count);
+        }
+        takeBack(nodeId, firstTicket, count);
+    }
+
+    private void takeBack(int nodeId, int firstTicket, int count) {
+        Map.Entry<Integer, Long> lease = leases.floorEntry(firstTicket);
+        int start = lease.getKey();
+        int end = endOf(lease.getValue());
+        // Split the lease around the range given back; the rest stays with the node
+        leases.remove(start);
+        if (start < firstTicket) {
+            leases.put(start, holder(nodeId, firstTicket));
+        }
+        if (firstTicket + count < end) {
+            leases.put(firstTicket + count, holder(nodeId, end));
+        }
+        returned.add(TicketLeaseService.lease(firstTicket, count));
+        unreleased.merge(nodeId, -count, (held, given) -> Math.max(0, held + given));
+        if (journal != null) {
+            journaledUnreleased.merge(nodeId, -count, (held, given) -> Math.max(0, held + given));
+        }
+        ticketsGivenBack += count;
+    }
+
+    @Override
+    public synchronized int heartbeat(int nodeId, int unreleasedTickets) {
+        heardFrom(nodeId);
+        if (journal != null) {
+            // Often enough that a restart takes a node to hold at most about a lease more than it does
+            int journaled = journaledUnreleased.getOrDefault(nodeId, 0);
+            if (unreleasedTickets < journaled
+                    && (unreleasedTickets == 0 || journaled - unreleasedTickets >= leaseSize)) {
+                journal.append(LeaseJournal.REPORTED, nodeId, 0, unreleasedTickets);
+                report(nodeId, unreleasedTickets);
+            }
+        }
+        unreleased.put(nodeId, unreleasedTickets);
+        boolean othersStarving = starvingNodes.size() > (starvingNodes.contains(nodeId) ? 1 : 0);
+        return othersStarving && unreleasedTickets > 1 ? unreleasedTickets / 2 : 0;
+    }
+
+    // Every call counts as a heartbeat, even a late one, as long as the node's leases have not expired yet.
+    // An expired node stays expired: its tickets may already be written off.
+    private void heardFrom(int nodeId) {
+        if (expiredNodes.contains(nodeId)) {
+            throw new IllegalStateException("The leases of node " + nodeId + " expired");
+        }
+        lastHeard.put(nodeId, System.nanoTime());
+        expireSilentNodes();
+    }
+
+    // Checked whenever anyone calls, so expiry needs no timer thread of its own
+    private void expireSilentNodes() {
+        long now = System.nanoTime();
+        lastHeard.entrySet().removeIf(heard -> {
+            if (now - heard.getValue() <= leaseTimeoutNanos) {
+                return false;
+            }
+            if (journal != null) {
+                journal.append(LeaseJournal.EXPIRED, heard.getKey(), 0, 0);
+            }
+            expire(heard.getKey());
+            return true;
+        });
+    }
+
+    private void report(int nodeId, int unreleasedTickets) {
+        unreleased.put(nodeId, unreleasedTickets);
+        journaledUnreleased.put(nodeId, unreleasedTickets);
+    }
+
+    private void expire(int nodeId) {
+        leases.values().removeIf(holder -> nodeOf(holder) == nodeId);
+        if (journal != null) {
+            journaledUnreleased.put(nodeId, 0);
+        }
+        Integer lost = unreleased.put(nodeId, 0);
+        ticketsWrittenOff += lost == null ? 0 : lost;
+        starvingNodes.remove(nodeId);
+        expiredNodes.add(nodeId);
+    }
+
+    private int unreleasedElsewhere(int nodeId) {
+        return totalUnreleased() - unreleased.getOrDefault(nodeId, 0);
+    }
+
+    private int totalUnreleased() {
+        int total = 0;
+        for (int tickets : unreleased.values()) {
+            total += tickets;
+        }
+        return total;
+    }
+
+    private static long holder(int nodeId, int end) {
+        return ((long) nodeId << 32) | end;
+    }
+
+    private static int nodeOf(long holder) {
+        return (int) (holder >>> 32);
+    }
+
+    private static int endOf(long holder) {
+        return (int) holder;
+    }
+
+    // True once every ticket is leased and every node reported releasing all of its leases, or expired
+    public synchronized boolean isSoldOut() {
+        expireSilentNodes();
+        return nextTicket > totalTicketsLimit && returned.isEmpty() && totalUnreleased() == 0;
+    }
+
+    public synchronized int getTicketsLeased() {
+        int free = 0;
+        for (long range : returned) {
+            free += TicketLeaseService.count(range);
+        }
+        return nextTicket - 1 - free;
+    }
+
+    public synchronized long getLeasesGranted() {
+        return leasesGranted;
+    }
+
+    public synchronized long getTicketsGivenBack() {
+        return ticketsGivenBack;
+    }
+
+    public synchronized long getTicketsWrittenOff() {
+        return ticketsWrittenOff;
+    }
+
+    public synchronized int getExpiredNodeCount() {
+        return expiredNodes.size();
+    }
+
+    public synchronized int getNodeCount() {
+        return unreleased.size();
+    }
+
+    public int getTotalTicketsLimit() {
+        return totalTicketsLimit;
+    }
+
+    public int getLeaseSize() {
+        return leaseSize;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Lease Coordinator: %d/%d tickets leased to %d nodes in %d leases, %d given back, "
+                        + "%d written off with %d expired nodes",
+                getTicketsLeased(), totalTicketsLimit, getNodeCount(), leasesGranted, ticketsGivenBack,
+                ticketsWrittenOff, expiredNodes.size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.ticketsystem.javafx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Serves a LeaseCoordinator to RemoteLeaseService clients on the loopback interface. Nodes make a
+// request per lease and one per heartbeat, not one per sale, so a blocking thread per node is plenty.
+public class LeaseCoordinatorServer implements AutoCloseable {
+    private final LeaseCoordinator coordinator;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections;
+    private final Thread acceptor;
+    private volatile boolean running;
+
+    public LeaseCoordinatorServer(LeaseCoordinator coordinator, int port) {
+        this.coordinator = coordinator;
+        try {
+            this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new RuntimeException("Error starting lease coordinator: " + e.getMessage(), e);
+        }
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.running = true;
+        this.acceptor = new Thread(this::acceptLoop, "lease-coordinator");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread node = new Thread(() -> serve(socket), "lease-node-" + socket.getPort());
+                node.setDaemon(true);
+                node.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Lease coordinator stopped accepting: " + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (running) {
+                byte operation = in.readByte();
+                int nodeId = in.readInt();
+                int first = in.readInt();
+                int second = in.readInt();
+                out.writeLong(handle(operation, nodeId, first, second));
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // The node disconnected
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Lease connection failed: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private long handle(byte operation, int nodeId, int first, int second) {
+        try {
+            return switch (operation) {
+                case RemoteLeaseService.ACQUIRE -> coordinator.acquire(nodeId, first);
+                case RemoteLeaseService.GIVE_BACK -> {
+                    coordinator.giveBack(nodeId, first, second);
+                    yield 0;
+                }
+                case RemoteLeaseService.HEARTBEAT -> coordinator.heartbeat(nodeId, first);
+                default -> throw new IllegalArgumentException("Unknown lease operation: " + operation);
+            };
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Node " + nodeId + ": " + e.getMessage());
+            return RemoteLeaseService.REJECTED;
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getConnectedNodes() {
+        return connections.size();
+    }
+
+    public LeaseCoordinator getCoordinator() {
+        return coordinator;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+            for (Socket socket : connections) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error stopping lease coordinator: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ticketsystem.javafx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Write-ahead log of a LeaseCoordinator: every grant, give-back and expiry, and now and then a node's
+// count of unreleased tickets, so a restarted coordinator
+// carries on where it stopped instead of leasing from ticket 1 again. There is one record per lease, not
+// per sale, so each is forced to disk before the coordinator answers and no group commit is needed.
+// Record: header (magic | type), node id, first ticket, count, and a checksum of the four.
+public final class LeaseJournal implements AutoCloseable {
+    static final int GRANTED = 1;
+    static final int GIVEN_BACK = 2;
+    static final int EXPIRED = 3;
+    // A node's own count of the tickets it has not released yet, in the count field
+    static final int REPORTED = 4;
+    private static final int RECORD_SIZE = 20;
+    private static final int MAGIC = 0x4C4A0000;
+    private static final int MAGIC_MASK = 0xFFFF0000;
+
+    interface Replayer {
+        void apply(int type, int nodeId, int firstTicket, int count);
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long records;
+
+    public LeaseJournal(Path file) {
+        this.file = file;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening lease journal: " + e.getMessage(), e);
+        }
+        this.buffer = ByteBuffer.allocate(RECORD_SIZE);
+    }
+
+    // Feeds every complete record to replayer in order and cuts off a record a crash left half written.
+    // Meant to run once, before the first append.
+    void replay(Replayer replayer) {
+        try {
+            long size = channel.size();
+            long record = 0;
+            for (; (record + 1) * RECORD_SIZE <= size; record++) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.read(buffer, record * RECORD_SIZE + buffer.position());
+                }
+                int header = buffer.getInt(0);
+                int nodeId = buffer.getInt(4);
+                int firstTicket = buffer.getInt(8);
+                int count = buffer.getInt(12);
+                if ((header & MAGIC_MASK) != MAGIC
+                        || buffer.getInt(16) != checksum(header, nodeId, firstTicket, count)) {
+                    break;
+                }
+                replayer.apply(header & ~MAGIC_MASK, nodeId, firstTicket, count);
+            }
+            records = record;
+            if (size > records * RECORD_SIZE) {
+                channel.truncate(records * RECORD_SIZE);
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading lease journal: " + e.getMessage(), e);
+        }
+    }
+
+    // Returns once the record is on disk; callers change their state only after that
+    void append(int type, int nodeId, int firstTicket, int count) {
+        int header = MAGIC | type;
+        buffer.clear();
+        buffer.putInt(header).putInt(nodeId).putInt(firstTicket).putInt(count)
+                .putInt(checksum(header, nodeId, firstTicket, count));
+        buffer.flip();
+        try {
+            long position = records * RECORD_SIZE;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing lease journal " + file + ": " + e.getMessage(), e);
+        }
+        records++;
+    }
+
+    private static int checksum(int header, int nodeId, int firstTicket, int count) {
+        int hash = header;
+        hash = 31 * hash + nodeId;
+        hash = 31 * hash + firstTicket;
+        return 31 * hash + count;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing lease journal: " + e.getMessage(), e);
+        }
+    }
+}
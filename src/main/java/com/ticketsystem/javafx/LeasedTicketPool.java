@@ -0,0 +1,560 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// One node of a partitioned sale. Ticket numbers come from leases granted by a TicketLeaseService rather
+// than from a local counter, so nodes in separate JVMs can sell the same event without coordinating per
+// sale. Vendors release tickets from the current lease; a keeper thread fetches the next lease when the
+// current one runs low, reports the node's unreleased tickets on every heartbeat and gives some back when
+// the coordinator wants them for a node that ran dry. Selling works like the lock-based pool. The node is
+// sold out once the coordinator has nothing left to lease and the node's own leases are used up.
+public class LeasedTicketPool implements TicketPool {
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 20;
+
+    private final int nodeId;
+    private final TicketLeaseService leases;
+    private final int leaseSize;
+    private final long heartbeatMillis;
+    private final IntArrayQueue tickets;
+    private final int maxCapacity;
+    private final int totalTicketsLimit;
+    private final ReentrantLock lock;
+    private final ParticipantCondition notFull;
+    private final ParticipantCondition notEmpty;
+    // Held for every call to the coordinator, so calls reach it in the order the node made them.
+    // Taken before lock, never while holding it.
+    private final ReentrantLock leaseLock;
+    // Ticket numbers the boolean addTickets has no use for, so that it allocates nothing per call
+    private final ThreadLocal<int[]> addBuffers;
+    private final TicketEventLog eventLog;
+    private final PoolMetrics metrics;
+    private final Thread keeper;
+    // Guarded by lock: the lease being released, leaseNext..leaseEnd - 1, and the one after it, if fetched
+    private int leaseNext;
+    private int leaseEnd;
+    private long nextLease;
+    private boolean coordinatorSoldOut;
+    private volatile int totalTicketsAdded;
+    // Written under lock after every change, so readers can see an empty or full pool without it
+    private volatile int availableTickets;
+    private volatile boolean isRunning;
+
+    public LeasedTicketPool(int nodeId, TicketLeaseService leases, int leaseSize, int maxCapacity,
+                            int totalTicketsLimit, TicketEventLog eventLog) {
+        this(nodeId, leases, leaseSize, maxCapacity, totalTicketsLimit, eventLog, DEFAULT_HEARTBEAT_MILLIS);
+    }
+
+    public LeasedTicketPool(int nodeId, TicketLeaseService leases, int leaseSize, int maxCapacity,
+                            int totalTicketsLimit, TicketEventLog eventLog, long heartbeatMillis) {
+        if (nodeId < 1) {
+            throw new IllegalArgumentException("Node id must be positive");
+        }
+        if (leaseSize < 1 || heartbeatMillis < 1) {
+            throw new IllegalArgumentException("Lease size and heartbeat interval must be positive");
+        }
+        this.nodeId = nodeId;
+        this.leases = leases;
+        this.leaseSize = leaseSize;
+        this.heartbeatMillis = heartbeatMillis;
+        this.tickets = new IntArrayQueue(maxCapacity);
+        this.maxCapacity = maxCapacity;
+        this.totalTicketsLimit = totalTicketsLimit;
+        this.lock = new ReentrantLock();
+        this.notFull = new ParticipantCondition(lock);
+        this.notEmpty = new ParticipantCondition(lock);
+        this.leaseLock = new ReentrantLock();
+        this.addBuffers = ThreadLocal.withInitial(() -> new int[1]);
+        this.eventLog = eventLog;
+        this.metrics = new PoolMetrics();
+        this.isRunning = true;
+        this.keeper = new Thread(this::keepLeases, "lease-keeper-" + nodeId);
+        this.keeper.setDaemon(true);
+        this.keeper.start();
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        if (amount < 1) {
+            return false;
+        }
+        int[] buffer = addBuffers.get();
+        if (buffer.length < Math.min(amount, maxCapacity)) {
+            buffer = new int[Math.min(amount, maxCapacity)];
+            addBuffers.set(buffer);
+        }
+        return addTickets(vendorId, amount, buffer) > 0;
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        return add(vendorId, amount, out, Long.MAX_VALUE);
+    }
+
+    // A vendor who cannot wait leaves fetching the next lease to the keeper
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && availableTickets >= maxCapacity) {
+            return 0;
+        }
+        return add(vendorId, amount, out, nanos);
+    }
+
+    private int add(int vendorId, int amount, int[] out, long nanos) {
+        if (!isRunning || amount < 1 || out.length == 0) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        while (isRunning) {
+            lock.lock();
+            try {
+                if (!awaitSpace(nanos - (System.nanoTime() - start)) || !isRunning) {
+                    return 0;
+                }
+                if (leaseNext == leaseEnd && nextLease != 0) {
+                    leaseNext = TicketLeaseService.firstTicket(nextLease);
+                    leaseEnd = leaseNext + TicketLeaseService.count(nextLease);
+                    nextLease = 0;
+                }
+
+                int ticketsToAdd = Math.min(Math.min(amount, out.length), leaseEnd - leaseNext);
+                ticketsToAdd = Math.min(ticketsToAdd, maxCapacity - tickets.size());
+                if (ticketsToAdd > 0) {
+                    for (int i = 0; i < ticketsToAdd; i++) {
+                        out[i] = leaseNext++;
+                        tickets.offer(out[i]);
+                    }
+                    totalTicketsAdded += ticketsToAdd;
+                    availableTickets = tickets.size();
+                    metrics.ticketsAdded(ticketsToAdd);
+                    eventLog.ticketsAdded(vendorId, out[0], out[ticketsToAdd - 1], ticketsToAdd, tickets.size());
+                    signalAdded();
+                    if (runningLow()) {
+                        LockSupport.unpark(keeper);
+                    }
+                    return ticketsToAdd;
+                }
+                if (coordinatorSoldOut) {
+                    return 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // The keeper did not have the next lease ready in time, so fetch it here
+            if (nanos - (System.nanoTime() - start) <= 0 || !fetchLease()) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    // Returns false if the vendor was interrupted while other nodes still held every unleased ticket
+    private boolean fetchLease() {
+        leaseLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (leaseNext < leaseEnd || nextLease != 0 || coordinatorSoldOut) {
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            long lease;
+            try {
+                lease = leases.acquire(nodeId, leaseSize);
+            } catch (RuntimeException e) {
+                loseCoordinator(e);
+                return true;
+            }
+            if (lease != TicketLeaseService.RETRY) {
+                install(lease);
+                return true;
+            }
+        } finally {
+            leaseLock.unlock();
+        }
+
+        // Give the coordinator a heartbeat or two to get tickets back from other nodes
+        try {
+            Thread.sleep(heartbeatMillis);
+            return isRunning;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Called with leaseLock held
+    private void install(long lease) {
+        lock.lock();
+        try {
+            if (lease == TicketLeaseService.SOLD_OUT) {
+                coordinatorSoldOut = true;
+                // Customers waiting on an empty pool may now be done
+                signalAdded();
+            } else if (leaseNext == leaseEnd) {
+                leaseNext = TicketLeaseService.firstTicket(lease);
+                leaseEnd = leaseNext + TicketLeaseService.count(lease);
+            } else {
+                nextLease = lease;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void keepLeases() {
+        while (isRunning) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(heartbeatMillis));
+            if (Thread.interrupted() || !isRunning) {
+                return;
+            }
+            leaseLock.lock();
+            try {
+                lock.lock();
+                boolean low;
+                try {
+                    low = runningLow();
+                } finally {
+                    lock.unlock();
+                }
+                if (low) {
+                    long lease = leases.acquire(nodeId, leaseSize);
+                    if (lease != TicketLeaseService.RETRY) {
+                        install(lease);
+                    }
+                }
+                int wanted = leases.heartbeat(nodeId, getUnreleasedTickets());
+                if (wanted > 0) {
+                    giveBack(wanted);
+                }
+            } catch (RuntimeException e) {
+                loseCoordinator(e);
+                return;
+            } finally {
+                leaseLock.unlock();
+            }
+        }
+    }
+
+    // Called with leaseLock held. Without a coordinator no lease will come, so the node sells what it holds
+    // and is then sold out; the coordinator writes off what it had not released once its leases expire.
+    private void loseCoordinator(RuntimeException e) {
+        System.err.println("Node " + nodeId + " lost its lease coordinator: " + e.getMessage());
+        install(TicketLeaseService.SOLD_OUT);
+    }
+
+    // Called with lock held
+    private boolean runningLow() {
+        return isRunning && nextLease == 0 && !coordinatorSoldOut && leaseEnd - leaseNext <= leaseSize / 4;
+    }
+
+    // Called with leaseLock held. Gives back up to max unreleased tickets from the end of the last lease;
+    // they are taken out of the node's leases before the coordinator hears about them, so no vendor can
+    // release a ticket that is already on its way back. Returns how many were given back.
+    private int giveBack(int max) {
+        int first;
+        int count;
+        lock.lock();
+        try {
+            if (nextLease != 0) {
+                int start = TicketLeaseService.firstTicket(nextLease);
+                int leased = TicketLeaseService.count(nextLease);
+                count = Math.min(max, leased);
+                first = start + leased - count;
+                nextLease = count < leased ? TicketLeaseService.lease(start, leased - count) : 0;
+            } else {
+                count = Math.min(max, leaseEnd - leaseNext);
+                leaseEnd -= count;
+                first = leaseEnd;
+            }
+            signalAdded();
+        } finally {
+            lock.unlock();
+        }
+        if (count > 0) {
+            leases.giveBack(nodeId, first, count);
+        }
+        return count;
+    }
+
+    // Called with the lock held; returns false if the vendor was interrupted or timed out while the pool was full
+    private boolean awaitSpace(long nanos) {
+        return awaitSpace(nanos, true);
+    }
+
+    // A vendor stops waiting once the node's leases are used up; a returned ticket waits for space regardless
+    private boolean awaitSpace(long nanos, boolean vendor) {
+        if (!isRunning || tickets.size() < maxCapacity || (vendor && leasesUsedUp())) {
+            return true;
+        }
+        if (nanos <= 0) {
+            return false;
+        }
+
+        long waitStart = metrics.vendorWaitStarted();
+        try {
+            long remaining = nanos;
+            while (isRunning && tickets.size() >= maxCapacity && !(vendor && leasesUsedUp())) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (tickets.size() < maxCapacity) {
+                notFull.signal();
+            }
+            return false;
+        } finally {
+            metrics.vendorWaitEnded(waitStart);
+        }
+    }
+
+    private boolean awaitTickets(int customerId) {
+        return awaitTickets(customerId, Long.MAX_VALUE);
+    }
+
+    // Called with the lock held; returns false if the customer was interrupted or timed out while the pool was empty
+    private boolean awaitTickets(int customerId, long nanos) {
+        if (!isRunning || !tickets.isEmpty() || leasesUsedUp()) {
+            return true;
+        }
+        if (nanos <= 0) {
+            return false;
+        }
+
+        long waitStart = metrics.customerWaitStarted();
+        try {
+            long remaining = nanos;
+            while (isRunning && tickets.isEmpty() && !leasesUsedUp()) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                eventLog.customerWaiting(customerId);
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!tickets.isEmpty()) {
+                notEmpty.signal();
+            }
+            return false;
+        } finally {
+            metrics.customerWaitEnded(waitStart);
+        }
+    }
+
+    // Called with the lock held after tickets went into the pool or the leases changed. A woken customer
+    // passes the signal on if it leaves tickets behind, so no more customers wake than there are tickets for.
+    private void signalAdded() {
+        if (!tickets.isEmpty()) {
+            notEmpty.signal();
+        }
+        if (leasesUsedUp()) {
+            // Nothing more will be added: vendors stop, and customers facing an empty pool go home
+            notFull.signalAll();
+            if (tickets.isEmpty()) {
+                notEmpty.signalAll();
+            }
+        } else if (tickets.size() < maxCapacity) {
+            notFull.signal();
+        }
+    }
+
+    // Called with the lock held after tickets left the pool
+    private void signalTaken() {
+        notFull.signal();
+        if (!tickets.isEmpty()) {
+            notEmpty.signal();
+        } else if (leasesUsedUp()) {
+            notEmpty.signalAll();
+        }
+    }
+
+    // Called with the lock held
+    private boolean leasesUsedUp() {
+        return coordinatorSoldOut && leaseNext == leaseEnd && nextLease == 0;
+    }
+
+    @Override
+    public int removeTicket(int customerId) {
+        if (!isRunning) {
+            return NO_TICKET;
+        }
+
+        lock.lock();
+        try {
+            if (!awaitTickets(customerId) || !isRunning || tickets.isEmpty()) {
+                return NO_TICKET;
+            }
+
+            int ticket = tickets.poll();
+            availableTickets = tickets.size();
+            metrics.ticketsSold(1);
+            eventLog.ticketsPurchased(customerId, ticket, ticket, 1, tickets.size());
+            signalTaken();
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        return take(customerId, max, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && availableTickets == 0) {
+            return 0;
+        }
+        return take(customerId, max, out, nanos);
+    }
+
+    private int take(int customerId, int max, int[] out, long nanos) {
+        if (!isRunning || max < 1 || out.length == 0) {
+            return 0;
+        }
+
+        lock.lock();
+        try {
+            if (!awaitTickets(customerId, nanos) || !isRunning || tickets.isEmpty()) {
+                return 0;
+            }
+
+            int ticketsToRemove = tickets.drainTo(out, max);
+            availableTickets = tickets.size();
+            metrics.ticketsSold(ticketsToRemove);
+            eventLog.ticketsPurchased(customerId, out[0], out[ticketsToRemove - 1], ticketsToRemove,
+                    tickets.size());
+            signalTaken();
+            return ticketsToRemove;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int returnTickets(int customerId, int[] returned, int count) {
+        lock.lock();
+        try {
+            int accepted = 0;
+            while (accepted < count) {
+                if (!awaitSpace(Long.MAX_VALUE, false) || !isRunning) {
+                    break;
+                }
+                while (accepted < count && tickets.offer(returned[accepted])) {
+                    accepted++;
+                }
+            }
+            availableTickets = tickets.size();
+            if (accepted > 0) {
+                metrics.ticketsReturned(accepted);
+                eventLog.ticketsReturned(customerId, returned[0], returned[accepted - 1], accepted, tickets.size());
+                signalAdded();
+            }
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A node's tickets belong to the coordinator's leases, which a local journal cannot restore
+    @Override
+    public void restore(RecoveredPoolState state) {
+        throw new IllegalStateException("Leased pools cannot be restored from a journal");
+    }
+
+    // Stops the keeper and gives every unreleased ticket back, so other nodes can still sell them
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            isRunning = false;
+            eventLog.poolShutdown(tickets.size());
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        keeper.interrupt();
+
+        leaseLock.lock();
+        try {
+            // The fetched lease first, then the rest of the current one
+            giveBack(Integer.MAX_VALUE);
+            giveBack(Integer.MAX_VALUE);
+            // Tells the coordinator the node released everything else, which a stopped keeper no longer would
+            leases.heartbeat(nodeId, getUnreleasedTickets());
+        } catch (RuntimeException e) {
+            System.err.println("Node " + nodeId + " could not give back its unreleased tickets: " + e.getMessage());
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        lock.lock();
+        try {
+            return leasesUsedUp() && tickets.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        return availableTickets;
+    }
+
+    // Tickets this node has released; the limit is the whole sale's, across every node
+    @Override
+    public int getTotalTicketsAdded() {
+        return totalTicketsAdded;
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return totalTicketsLimit;
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getUnreleasedTickets() {
+        lock.lock();
+        try {
+            return leaseEnd - leaseNext + TicketLeaseService.count(nextLease);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+}
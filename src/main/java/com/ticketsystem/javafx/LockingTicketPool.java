@@ -0,0 +1,401 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class LockingTicketPool implements TicketPool {
+    private final IntArrayQueue tickets;
+    private final int maxCapacity;
+    private final AtomicInteger ticketCounter;
+    private volatile int totalTicketsAdded;
+    // Written under the lock after every change, so readers can see an empty or full pool without it
+    private volatile int availableTickets;
+    private final int totalTicketsLimit;
+    private final ReentrantLock lock;
+    private final ParticipantCondition notFull;
+    private final ParticipantCondition notEmpty;
+    private final TicketEventLog eventLog;
+    private final PoolMetrics metrics;
+    private volatile boolean isRunning;
+
+    public LockingTicketPool(int maxCapacity, int totalTicketsLimit) {
+        this(maxCapacity, totalTicketsLimit, TicketEventLog.console());
+    }
+
+    public LockingTicketPool(int maxCapacity, int totalTicketsLimit, TicketEventLog eventLog) {
+        this.tickets = new IntArrayQueue(maxCapacity);
+        this.maxCapacity = maxCapacity;
+        this.totalTicketsLimit = totalTicketsLimit;
+        this.ticketCounter = new AtomicInteger(0);
+        this.totalTicketsAdded = 0;
+        this.lock = new ReentrantLock();
+        this.notFull = new ParticipantCondition(lock);
+        this.notEmpty = new ParticipantCondition(lock);
+        this.eventLog = eventLog;
+        this.metrics = new PoolMetrics();
+        this.isRunning = true;
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        if (!isRunning) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            if (!awaitSpace()) {
+                return false;
+            }
+
+            if (!isRunning) {
+                return false;
+            }
+
+            if (totalTicketsAdded >= totalTicketsLimit) {
+                return false;
+            }
+
+            int ticketsToAdd = Math.min(amount, totalTicketsLimit - totalTicketsAdded);
+
+            int firstTicket = ticketCounter.get() + 1;
+            int added = 0;
+            for (int i = 0; i < ticketsToAdd && tickets.size() < maxCapacity; i++) {
+                tickets.offer(ticketCounter.incrementAndGet());
+                totalTicketsAdded++;
+                added++;
+            }
+            availableTickets = tickets.size();
+            if (added > 0) {
+                metrics.ticketsAdded(added);
+                eventLog.ticketsAdded(vendorId, firstTicket, firstTicket + added - 1, added, tickets.size());
+            }
+
+            signalAdded();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        return add(vendorId, amount, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && (availableTickets >= maxCapacity || totalTicketsAdded >= totalTicketsLimit)) {
+            return 0;
+        }
+        return add(vendorId, amount, out, nanos);
+    }
+
+    private int add(int vendorId, int amount, int[] out, long nanos) {
+        if (!isRunning || amount < 1 || out.length == 0) {
+            return 0;
+        }
+
+        lock.lock();
+        try {
+            if (!awaitSpace(nanos)) {
+                return 0;
+            }
+
+            if (!isRunning || totalTicketsAdded >= totalTicketsLimit) {
+                return 0;
+            }
+
+            int ticketsToAdd = Math.min(Math.min(amount, out.length), totalTicketsLimit - totalTicketsAdded);
+            ticketsToAdd = Math.min(ticketsToAdd, maxCapacity - tickets.size());
+
+            for (int i = 0; i < ticketsToAdd; i++) {
+                int ticketNumber = ticketCounter.incrementAndGet();
+                tickets.offer(ticketNumber);
+                out[i] = ticketNumber;
+            }
+            totalTicketsAdded += ticketsToAdd;
+            availableTickets = tickets.size();
+            metrics.ticketsAdded(ticketsToAdd);
+
+            eventLog.ticketsAdded(vendorId, out[0], out[ticketsToAdd - 1], ticketsToAdd, tickets.size());
+
+            signalAdded();
+            return ticketsToAdd;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int removeTicket(int customerId) {
+        if (!isRunning) {
+            return NO_TICKET;
+        }
+
+        lock.lock();
+        try {
+            if (!awaitTickets(customerId)) {
+                return NO_TICKET;
+            }
+
+            if (!isRunning || (tickets.isEmpty() && totalTicketsAdded >= totalTicketsLimit)) {
+                return NO_TICKET;
+            }
+
+            if (!tickets.isEmpty()) {
+                int ticket = tickets.poll();
+                availableTickets = tickets.size();
+                metrics.ticketsSold(1);
+                eventLog.ticketsPurchased(customerId, ticket, ticket, 1, tickets.size());
+
+                signalTaken();
+                return ticket;
+            }
+
+            return NO_TICKET;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        return take(customerId, max, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && availableTickets == 0) {
+            return 0;
+        }
+        return take(customerId, max, out, nanos);
+    }
+
+    private int take(int customerId, int max, int[] out, long nanos) {
+        if (!isRunning || max < 1 || out.length == 0) {
+            return 0;
+        }
+
+        lock.lock();
+        try {
+            if (!awaitTickets(customerId, nanos)) {
+                return 0;
+            }
+
+            if (!isRunning || tickets.isEmpty()) {
+                return 0;
+            }
+
+            int ticketsToRemove = tickets.drainTo(out, max);
+            availableTickets = tickets.size();
+            metrics.ticketsSold(ticketsToRemove);
+
+            eventLog.ticketsPurchased(customerId, out[0], out[ticketsToRemove - 1], ticketsToRemove,
+                    tickets.size());
+
+            signalTaken();
+            return ticketsToRemove;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held after tickets went into the pool. The customer woken here passes the signal on
+    // if it leaves tickets behind, so an add wakes no more customers than it has tickets for.
+    private void signalAdded() {
+        notEmpty.signal();
+        if (totalTicketsAdded >= totalTicketsLimit) {
+            // Vendors still waiting for space have nothing left to add
+            notFull.signalAll();
+        } else if (tickets.size() < maxCapacity) {
+            notFull.signal();
+        }
+    }
+
+    // Called with the lock held after tickets left the pool
+    private void signalTaken() {
+        notFull.signal();
+        if (!tickets.isEmpty()) {
+            notEmpty.signal();
+        } else if (totalTicketsAdded >= totalTicketsLimit) {
+            // Sold out: every customer still waiting goes home
+            notEmpty.signalAll();
+        }
+    }
+
+    private boolean awaitSpace() {
+        return awaitSpace(Long.MAX_VALUE);
+    }
+
+    // Called with the lock held; returns false if the vendor was interrupted or timed out while the pool was full
+    private boolean awaitSpace(long nanos) {
+        return awaitSpace(nanos, true);
+    }
+
+    // A vendor stops waiting once every ticket has been added; a returned ticket waits for space regardless
+    private boolean awaitSpace(long nanos, boolean vendor) {
+        if (!isRunning || tickets.size() < maxCapacity || (vendor && totalTicketsAdded >= totalTicketsLimit)) {
+            return true;
+        }
+        if (nanos <= 0) {
+            return false;
+        }
+
+        long waitStart = metrics.vendorWaitStarted();
+        try {
+            long remaining = nanos;
+            while (isRunning && tickets.size() >= maxCapacity && !(vendor && totalTicketsAdded >= totalTicketsLimit)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // A signal this thread took goes to the next one waiting
+            if (tickets.size() < maxCapacity) {
+                notFull.signal();
+            }
+            return false;
+        } finally {
+            metrics.vendorWaitEnded(waitStart);
+        }
+    }
+
+    private boolean awaitTickets(int customerId) {
+        return awaitTickets(customerId, Long.MAX_VALUE);
+    }
+
+    // Called with the lock held; returns false if the customer was interrupted or timed out while the pool was empty
+    private boolean awaitTickets(int customerId, long nanos) {
+        if (!isRunning || !tickets.isEmpty() || totalTicketsAdded >= totalTicketsLimit) {
+            return true;
+        }
+        if (nanos <= 0) {
+            return false;
+        }
+
+        long waitStart = metrics.customerWaitStarted();
+        try {
+            long remaining = nanos;
+            while (isRunning && tickets.isEmpty() && totalTicketsAdded < totalTicketsLimit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                eventLog.customerWaiting(customerId);
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!tickets.isEmpty()) {
+                notEmpty.signal();
+            }
+            return false;
+        } finally {
+            metrics.customerWaitEnded(waitStart);
+        }
+    }
+
+    @Override
+    public int returnTickets(int customerId, int[] returned, int count) {
+        lock.lock();
+        try {
+            int accepted = 0;
+            while (accepted < count) {
+                if (!awaitSpace(Long.MAX_VALUE, false) || !isRunning) {
+                    break;
+                }
+                while (accepted < count && tickets.offer(returned[accepted])) {
+                    accepted++;
+                }
+            }
+            availableTickets = tickets.size();
+            if (accepted > 0) {
+                metrics.ticketsReturned(accepted);
+                eventLog.ticketsReturned(customerId, returned[0], returned[accepted - 1], accepted, tickets.size());
+                signalAdded();
+            }
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void restore(RecoveredPoolState state) {
+        lock.lock();
+        try {
+            state.validateFor(this);
+            ticketCounter.set(state.getLastTicketId());
+            totalTicketsAdded = state.getTicketsAdded();
+            for (int i = 0; i < state.getAvailableCount(); i++) {
+                tickets.offer(state.getAvailableTicket(i));
+            }
+            availableTickets = tickets.size();
+            metrics.ticketsAdded(state.getTicketsAdded());
+            metrics.ticketsSold(state.getTicketsSold());
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            isRunning = false;
+            eventLog.poolShutdown(tickets.size());
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        lock.lock();
+        try {
+            return totalTicketsAdded >= totalTicketsLimit && tickets.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        return availableTickets;
+    }
+
+    @Override
+    public int getTotalTicketsAdded() {
+        return totalTicketsAdded;
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return totalTicketsLimit;
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.ticketsystem.javafx;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.control.ListView;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Virtualized log list. Any thread may append; lines are buffered in a bounded queue and moved onto
+// the FX thread once per frame, and only the newest MAX_LINES are kept.
+public class LogView extends ListView<String> {
+    private static final int MAX_LINES = 5000;
+    private static final int PENDING_CAPACITY = 10000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final ArrayBlockingQueue<String> pending;
+    private final AtomicLong droppedLines;
+    private final List<String> frameBatch;
+    private final AnimationTimer timer;
+
+    public LogView() {
+        this.pending = new ArrayBlockingQueue<>(PENDING_CAPACITY);
+        this.droppedLines = new AtomicLong(0);
+        this.frameBatch = new ArrayList<>(PENDING_CAPACITY);
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flushPending();
+            }
+        };
+        setStyle("-fx-font-family: 'Courier New'; -fx-font-size: 12px;");
+        timer.start();
+    }
+
+    public void append(String message) {
+        String line = "[" + LocalTime.now().format(TIME_FORMAT) + "] " + message;
+        // Under overload keep the newest lines; the oldest pending ones are counted and skipped
+        while (!pending.offer(line)) {
+            if (pending.poll() != null) {
+                droppedLines.incrementAndGet();
+            }
+        }
+    }
+
+    public void clear() {
+        pending.clear();
+        droppedLines.set(0);
+        getItems().clear();
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long dropped = droppedLines.getAndSet(0);
+        if (dropped > 0) {
+            frameBatch.add("... " + dropped + " log lines skipped");
+        }
+        pending.drainTo(frameBatch);
+
+        List<String> items = getItems();
+        int keep = Math.min(frameBatch.size(), MAX_LINES);
+        items.addAll(frameBatch.subList(frameBatch.size() - keep, frameBatch.size()));
+        if (items.size() > MAX_LINES) {
+            getItems().remove(0, items.size() - MAX_LINES);
+        }
+        frameBatch.clear();
+        scrollTo(items.size() - 1);
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+}
@@ -0,0 +1,44 @@
+package com.ticketsystem.javafx;
+
+public class MetricsSample {
+    private final long elapsedMillis;
+    private final long occupancy;
+    private final long waitingCustomers;
+    private final long waitingVendors;
+    private final double addsPerSecond;
+    private final double salesPerSecond;
+
+    MetricsSample(long elapsedMillis, long occupancy, long waitingCustomers, long waitingVendors,
+                  double addsPerSecond, double salesPerSecond) {
+        this.elapsedMillis = elapsedMillis;
+        this.occupancy = occupancy;
+        this.waitingCustomers = waitingCustomers;
+        this.waitingVendors = waitingVendors;
+        this.addsPerSecond = addsPerSecond;
+        this.salesPerSecond = salesPerSecond;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getOccupancy() {
+        return occupancy;
+    }
+
+    public long getWaitingCustomers() {
+        return waitingCustomers;
+    }
+
+    public long getWaitingVendors() {
+        return waitingVendors;
+    }
+
+    public double getAddsPerSecond() {
+        return addsPerSecond;
+    }
+
+    public double getSalesPerSecond() {
+        return salesPerSecond;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ticketsystem.javafx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Takes a metrics snapshot at a fixed interval and keeps a bounded history of occupancy and rates.
+public class MetricsSampler implements AutoCloseable {
+    private final Supplier<MetricsSnapshot> metrics;
+    private final MetricsSample[] history;
+    private final ScheduledExecutorService scheduler;
+    private final long startNanos;
+    private MetricsSnapshot previous;
+    private long samplesTaken;
+
+    public MetricsSampler(PoolMetrics metrics, long intervalMillis, int historySize) {
+        this(metrics::snapshot, intervalMillis, historySize);
+    }
+
+    // Samples whatever metrics supplies, e.g. the sum over every event of a run
+    public MetricsSampler(Supplier<MetricsSnapshot> metrics, long intervalMillis, int historySize) {
+        if (intervalMillis < 1 || historySize < 1) {
+            throw new IllegalArgumentException("Sampling interval and history size must be positive");
+        }
+        this.metrics = metrics;
+        this.history = new MetricsSample[historySize];
+        this.previous = metrics.get();
+        this.startNanos = previous.getTimestampNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void sample() {
+        MetricsSnapshot current = metrics.get();
+        history[(int) (samplesTaken % history.length)] = new MetricsSample(
+                TimeUnit.NANOSECONDS.toMillis(current.getTimestampNanos() - startNanos),
+                current.getOccupancy(), current.getWaitingCustomers(), current.getWaitingVendors(),
+                current.getAddsPerSecond(previous), current.getSalesPerSecond(previous));
+        samplesTaken++;
+        previous = current;
+    }
+
+    // Oldest first
+    public synchronized List<MetricsSample> getSamples() {
+        int size = (int) Math.min(samplesTaken, history.length);
+        List<MetricsSample> samples = new ArrayList<>(size);
+        for (long i = samplesTaken - size; i < samplesTaken; i++) {
+            samples.add(history[(int) (i % history.length)]);
+        }
+        return samples;
+    }
+
+    public synchronized MetricsSample getLatestSample() {
+        return samplesTaken == 0 ? null : history[(int) ((samplesTaken - 1) % history.length)];
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,146 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+
+public class MetricsSnapshot {
+    private final long timestampNanos;
+    private final long ticketsAdded;
+    private final long ticketsSold;
+    private final long occupancy;
+    private final long waitingCustomers;
+    private final long waitingVendors;
+    private final HistogramSnapshot customerWait;
+    private final HistogramSnapshot vendorWait;
+    private final HistogramSnapshot purchaseLatency;
+    private final HistogramSnapshot releaseLatency;
+    private final long supplyDecisions;
+    private final long targetOccupancy;
+    private final int releaseBatchSize;
+    private final int releaseIntervalMillis;
+
+    MetricsSnapshot(long timestampNanos, long ticketsAdded, long ticketsSold, long occupancy,
+                    long waitingCustomers, long waitingVendors,
+                    HistogramSnapshot customerWait, HistogramSnapshot vendorWait,
+                    HistogramSnapshot purchaseLatency, HistogramSnapshot releaseLatency,
+                    long supplyDecisions, long targetOccupancy, int releaseBatchSize, int releaseIntervalMillis) {
+        this.timestampNanos = timestampNanos;
+        this.ticketsAdded = ticketsAdded;
+        this.ticketsSold = ticketsSold;
+        this.occupancy = occupancy;
+        this.waitingCustomers = waitingCustomers;
+        this.waitingVendors = waitingVendors;
+        this.customerWait = customerWait;
+        this.vendorWait = vendorWait;
+        this.purchaseLatency = purchaseLatency;
+        this.releaseLatency = releaseLatency;
+        this.supplyDecisions = supplyDecisions;
+        this.targetOccupancy = targetOccupancy;
+        this.releaseBatchSize = releaseBatchSize;
+        this.releaseIntervalMillis = releaseIntervalMillis;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public long getTicketsAdded() {
+        return ticketsAdded;
+    }
+
+    public long getTicketsSold() {
+        return ticketsSold;
+    }
+
+    public long getOccupancy() {
+        return occupancy;
+    }
+
+    public long getWaitingCustomers() {
+        return waitingCustomers;
+    }
+
+    public long getWaitingVendors() {
+        return waitingVendors;
+    }
+
+    public HistogramSnapshot getCustomerWait() {
+        return customerWait;
+    }
+
+    public HistogramSnapshot getVendorWait() {
+        return vendorWait;
+    }
+
+    public HistogramSnapshot getPurchaseLatency() {
+        return purchaseLatency;
+    }
+
+    public HistogramSnapshot getReleaseLatency() {
+        return releaseLatency;
+    }
+
+    public long getSupplyDecisions() {
+        return supplyDecisions;
+    }
+
+    public long getTargetOccupancy() {
+        return targetOccupancy;
+    }
+
+    public int getReleaseBatchSize() {
+        return releaseBatchSize;
+    }
+
+    public int getReleaseIntervalMillis() {
+        return releaseIntervalMillis;
+    }
+
+    public boolean isSupplyAdaptive() {
+        return supplyDecisions > 0;
+    }
+
+    public double getSalesPerSecond(MetricsSnapshot previous) {
+        return perSecond(ticketsSold - previous.ticketsSold, previous);
+    }
+
+    public double getAddsPerSecond(MetricsSnapshot previous) {
+        return perSecond(ticketsAdded - previous.ticketsAdded, previous);
+    }
+
+    private double perSecond(long delta, MetricsSnapshot previous) {
+        long elapsed = timestampNanos - previous.timestampNanos;
+        return elapsed <= 0 ? 0 : delta * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    // Totals of two pools' snapshots taken at about the same time. Release batches add up like occupancy;
+    // the release interval is the shorter one, so the total shows the busiest pool's pace.
+    public MetricsSnapshot plus(MetricsSnapshot other) {
+        int interval = releaseIntervalMillis == 0 || other.releaseIntervalMillis == 0
+                ? Math.max(releaseIntervalMillis, other.releaseIntervalMillis)
+                : Math.min(releaseIntervalMillis, other.releaseIntervalMillis);
+        return new MetricsSnapshot(Math.max(timestampNanos, other.timestampNanos),
+                ticketsAdded + other.ticketsAdded, ticketsSold + other.ticketsSold, occupancy + other.occupancy,
+                waitingCustomers + other.waitingCustomers, waitingVendors + other.waitingVendors,
+                customerWait.plus(other.customerWait), vendorWait.plus(other.vendorWait),
+                purchaseLatency.plus(other.purchaseLatency), releaseLatency.plus(other.releaseLatency),
+                supplyDecisions + other.supplyDecisions, targetOccupancy + other.targetOccupancy,
+                releaseBatchSize + other.releaseBatchSize, interval);
+    }
+
+    @Override
+    public String toString() {
+        String supply = isSupplyAdaptive()
+                ? String.format("%nAdaptive Supply: %d decisions, target occupancy %d, last batch %d every %d ms",
+                        supplyDecisions, targetOccupancy, releaseBatchSize, releaseIntervalMillis)
+                : "";
+        return String.format("Pool Metrics:%n" +
+                        "Tickets Added: %d, Tickets Sold: %d, Occupancy: %d%n" +
+                        "Waiting Customers: %d, Waiting Vendors: %d%n" +
+                        "Customer Wait: %s%n" +
+                        "Vendor Wait: %s%n" +
+                        "Purchase Latency: %s%n" +
+                        "Release Latency: %s%s",
+                ticketsAdded, ticketsSold, occupancy, waitingCustomers, waitingVendors,
+                customerWait, vendorWait, purchaseLatency, releaseLatency, supply);
+    }
+}
@@ -0,0 +1,178 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+// Spin briefly, then park. Wakers unpark one parked thread at a time instead of signalling everyone.
+// Parked threads wait in an intrusive list of per-thread waiters, so parking and waking allocate nothing.
+// A parked participant of a discrete event clock counts as not runnable until it is unlinked again.
+final class ParkingStrategy {
+    private static final int SPIN_TRIES = 64;
+    // A thread waits in one strategy at a time, so one waiter per thread is enough
+    private static final ThreadLocal<Waiter> WAITERS = ThreadLocal.withInitial(Waiter::new);
+
+    private static final class Waiter {
+        private final Thread thread = Thread.currentThread();
+        // Set by the waiter's own thread before it is queued; null unless it is a participant
+        private RunnableParticipants participants;
+        private Waiter previous;
+        private Waiter next;
+        // Cleared under the list's lock by whoever unlinks it; read without the lock to skip it
+        private volatile boolean queued;
+    }
+
+    // Guarded by this
+    private Waiter head;
+    private Waiter tail;
+    private volatile int parkedCount;
+
+    boolean await(BooleanSupplier ready) {
+        return await(ready, Long.MAX_VALUE);
+    }
+
+    // Returns false if the thread was interrupted, or nanos passed before ready became true. Parks for
+    // at most the time left, and with no timeout at all for Long.MAX_VALUE.
+    boolean await(BooleanSupplier ready, long nanos) {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (ready.getAsBoolean()) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        if (nanos <= 0) {
+            return false;
+        }
+
+        Waiter waiter = WAITERS.get();
+        waiter.participants = RunnableParticipants.current();
+        boolean timed = nanos != Long.MAX_VALUE;
+        long deadline = System.nanoTime() + nanos;
+        while (true) {
+            // Queued before ready is checked again, so a waker that made it true after this check
+            // finds the waiter in the list and its unpark makes the park below return
+            enqueue(waiter);
+            if (ready.getAsBoolean()) {
+                dequeue(waiter);
+                return true;
+            }
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    leave(waiter);
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+
+            if (ready.getAsBoolean()) {
+                dequeue(waiter);
+                return true;
+            }
+            if (waiter.thread.isInterrupted() || (timed && deadline - System.nanoTime() <= 0)) {
+                leave(waiter);
+                return false;
+            }
+            // A spurious return, or another thread got to what the wake-up was for
+            dequeue(waiter);
+        }
+    }
+
+    // A waiter that gives up after a waker already unlinked it would swallow that wake-up, so it passes it on
+    private void leave(Waiter waiter) {
+        if (!dequeue(waiter)) {
+            wakeOne();
+        }
+    }
+
+    void wakeOne() {
+        Thread parked = poll();
+        if (parked != null) {
+            LockSupport.unpark(parked);
+        }
+    }
+
+    void wakeAll() {
+        Thread parked;
+        while ((parked = poll()) != null) {
+            LockSupport.unpark(parked);
+        }
+    }
+
+    boolean hasParkedThreads() {
+        return parkedCount > 0;
+    }
+
+    int getParkedCount() {
+        return parkedCount;
+    }
+
+    private synchronized void enqueue(Waiter waiter) {
+        waiter.previous = tail;
+        waiter.next = null;
+        if (tail == null) {
+            head = waiter;
+        } else {
+            tail.next = waiter;
+        }
+        tail = waiter;
+        waiter.queued = true;
+        if (waiter.participants != null) {
+            waiter.participants.blocked();
+        }
+        // A volatile write before the caller checks ready again, so a waker that changed the state
+        // first either sees this thread parked or this thread sees the change
+        parkedCount++;
+    }
+
+    // Returns false if a waker unlinked the waiter first
+    private boolean dequeue(Waiter waiter) {
+        if (!waiter.queued) {
+            return false;
+        }
+        synchronized (this) {
+            if (!waiter.queued) {
+                return false;
+            }
+            unlink(waiter);
+            return true;
+        }
+    }
+
+    // Checked without the lock first, so a waker with nobody to wake stays off it
+    private Thread poll() {
+        if (parkedCount == 0) {
+            return null;
+        }
+        synchronized (this) {
+            Waiter waiter = head;
+            if (waiter == null) {
+                return null;
+            }
+            unlink(waiter);
+            return waiter.thread;
+        }
+    }
+
+    private void unlink(Waiter waiter) {
+        if (waiter.previous == null) {
+            head = waiter.next;
+        } else {
+            waiter.previous.next = waiter.next;
+        }
+        if (waiter.next == null) {
+            tail = waiter.previous;
+        } else {
+            waiter.next.previous = waiter.previous;
+        }
+        waiter.previous = null;
+        waiter.next = null;
+        waiter.queued = false;
+        parkedCount--;
+        // Before a waker unparks the thread, so the clock cannot move on while it waits to be scheduled
+        if (waiter.participants != null) {
+            waiter.participants.woken();
+        }
+    }
+}
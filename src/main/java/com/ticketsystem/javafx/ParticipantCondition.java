@@ -0,0 +1,79 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A lock's Condition that keeps a discrete event clock's runnable count right: a participant waiting on it
+// counts as blocked, and whoever signals it counts it back in before the waiter gets the lock back, the way
+// ParkingStrategy does for the lock-free pools. Signals are targeted, one waiter at a time, so a pool wakes
+// only as many threads as it has work for. Every method is called with the lock held.
+final class ParticipantCondition {
+    private final Condition condition;
+    // Threads in await that no signal has picked yet. A waiter that gives up just as it is signalled can
+    // leave this one too high for a moment, which costs at most a signal nobody receives.
+    private int waiting;
+    // Signals whose waiter has not returned from await yet
+    private int signalled;
+    private int blockedParticipants;
+    // Participants a signal already counted back in that have not returned from await yet
+    private int countedIn;
+    private RunnableParticipants participants;
+
+    ParticipantCondition(ReentrantLock lock) {
+        this.condition = lock.newCondition();
+    }
+
+    // Like Condition.awaitNanos: returns an estimate of the time left, 0 or less once nanos passed
+    long awaitNanos(long nanos) throws InterruptedException {
+        RunnableParticipants current = RunnableParticipants.current();
+        waiting++;
+        if (current != null) {
+            participants = current;
+            blockedParticipants++;
+            current.blocked();
+        }
+        try {
+            return condition.awaitNanos(nanos);
+        } finally {
+            if (signalled > 0) {
+                signalled--;
+            } else {
+                waiting--;
+            }
+            if (current != null) {
+                if (countedIn > 0) {
+                    countedIn--;
+                } else {
+                    blockedParticipants--;
+                    current.woken();
+                }
+            }
+        }
+    }
+
+    // Returns false if nobody was waiting
+    boolean signal() {
+        if (waiting == 0) {
+            return false;
+        }
+        waiting--;
+        signalled++;
+        if (blockedParticipants > 0) {
+            blockedParticipants--;
+            countedIn++;
+            participants.woken();
+        }
+        condition.signal();
+        return true;
+    }
+
+    void signalAll() {
+        while (waiting > 0) {
+            signal();
+        }
+    }
+
+    boolean hasWaiters() {
+        return waiting > 0;
+    }
+}
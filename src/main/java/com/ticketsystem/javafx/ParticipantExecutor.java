@@ -0,0 +1,63 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs vendors and customers one task per thread and owns their lifecycle, so stopping the
+// system interrupts every participant through the executor instead of through stored threads.
+public class ParticipantExecutor implements AutoCloseable {
+    private final ExecutionMode mode;
+    private final ExecutorService executor;
+    private final AtomicInteger activeParticipants;
+
+    public ParticipantExecutor(ExecutionMode mode) {
+        this.mode = mode;
+        this.executor = Executors.newThreadPerTaskExecutor(mode.threadFactory());
+        this.activeParticipants = new AtomicInteger(0);
+    }
+
+    public void submit(Runnable participant) {
+        activeParticipants.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                participant.run();
+            } finally {
+                activeParticipants.decrementAndGet();
+            }
+        });
+    }
+
+    // Lets running participants finish on their own and waits for them
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    // Interrupts every participant that is still sleeping or blocked in the pool
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    public int getActiveParticipants() {
+        return activeParticipants.get();
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
@@ -0,0 +1,103 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histograms recorded by a ticket pool and the participants using it.
+// Writers only touch LongAdders and atomic buckets; snapshot() never takes the pool lock.
+public class PoolMetrics {
+    private final LongAdder ticketsAdded;
+    private final LongAdder ticketsSold;
+    private final LongAdder occupancy;
+    private final LongAdder waitingCustomers;
+    private final LongAdder waitingVendors;
+    private final LatencyHistogram customerWait;
+    private final LatencyHistogram vendorWait;
+    private final LatencyHistogram purchaseLatency;
+    private final LatencyHistogram releaseLatency;
+    private final LongAdder supplyDecisions;
+    // Latest decision of the pool's SupplyController; zero while vendors release at the configured rate
+    private volatile int targetOccupancy;
+    private volatile int releaseBatchSize;
+    private volatile int releaseIntervalMillis;
+
+    public PoolMetrics() {
+        this.ticketsAdded = new LongAdder();
+        this.ticketsSold = new LongAdder();
+        this.occupancy = new LongAdder();
+        this.waitingCustomers = new LongAdder();
+        this.waitingVendors = new LongAdder();
+        this.customerWait = new LatencyHistogram();
+        this.vendorWait = new LatencyHistogram();
+        this.purchaseLatency = new LatencyHistogram();
+        this.releaseLatency = new LatencyHistogram();
+        this.supplyDecisions = new LongAdder();
+    }
+
+    public void ticketsAdded(int count) {
+        ticketsAdded.add(count);
+        occupancy.add(count);
+    }
+
+    public void ticketsSold(int count) {
+        ticketsSold.add(count);
+        occupancy.add(-count);
+    }
+
+    // A sold ticket came back, e.g. because its hold expired before checkout
+    public void ticketsReturned(int count) {
+        ticketsSold.add(-count);
+        occupancy.add(count);
+    }
+
+    // Returns the start time to hand back to customerWaitEnded
+    public long customerWaitStarted() {
+        waitingCustomers.increment();
+        return System.nanoTime();
+    }
+
+    public void customerWaitEnded(long startNanos) {
+        waitingCustomers.decrement();
+        customerWait.record(System.nanoTime() - startNanos);
+    }
+
+    public long vendorWaitStarted() {
+        waitingVendors.increment();
+        return System.nanoTime();
+    }
+
+    public void vendorWaitEnded(long startNanos) {
+        waitingVendors.decrement();
+        vendorWait.record(System.nanoTime() - startNanos);
+    }
+
+    // Whole removeTickets call as seen by the customer: lock contention plus any wait for supply
+    public void recordPurchaseLatency(long nanos) {
+        purchaseLatency.record(nanos);
+    }
+
+    public void recordReleaseLatency(long nanos) {
+        releaseLatency.record(nanos);
+    }
+
+    public void supplyAdjusted(int targetOccupancy, int batchSize, int intervalMillis) {
+        supplyDecisions.increment();
+        this.targetOccupancy = targetOccupancy;
+        this.releaseBatchSize = batchSize;
+        this.releaseIntervalMillis = intervalMillis;
+    }
+
+    public long getOccupancy() {
+        return occupancy.sum();
+    }
+
+    public long getWaitingCustomers() {
+        return waitingCustomers.sum();
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(System.nanoTime(), ticketsAdded.sum(), ticketsSold.sum(), occupancy.sum(),
+                waitingCustomers.sum(), waitingVendors.sum(), customerWait.snapshot(), vendorWait.snapshot(),
+                purchaseLatency.snapshot(), releaseLatency.snapshot(), supplyDecisions.sum(), targetOccupancy,
+                releaseBatchSize, releaseIntervalMillis);
+    }
+}
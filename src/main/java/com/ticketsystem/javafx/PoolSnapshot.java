@@ -0,0 +1,263 @@
+package com.ticketsystem.javafx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Pool state folded from the first journalRecords records of a journal: which tickets were added
+// and sold, as bitsets, plus tickets added per vendor and bought per customer. Sold tickets still on an
+// unconfirmed hold are also kept with their customer and deadline. A restart loads the latest snapshot
+// and only replays the journal records written after it.
+public class PoolSnapshot {
+    private static final int MAGIC = 0x54505353;
+    private static final int VERSION = 2;
+    // Snapshots written before holds were journaled; they read back with no holds
+    private static final int VERSION_WITHOUT_HOLDS = 1;
+
+    private final BitSet added;
+    private final BitSet sold;
+    private final BitSet held;
+    // Indexed by ticket id, and only meaningful where held is set
+    private int[] holders;
+    private long[] holdDeadlines;
+    private int[] vendorTallies;
+    private int[] customerTallies;
+    private long journalRecords;
+
+    public PoolSnapshot() {
+        this(new BitSet(), new BitSet(), new BitSet(), new int[0], new long[0], new int[0], new int[0], 0);
+    }
+
+    private PoolSnapshot(BitSet added, BitSet sold, BitSet held, int[] holders, long[] holdDeadlines,
+                         int[] vendorTallies, int[] customerTallies, long journalRecords) {
+        this.added = added;
+        this.sold = sold;
+        this.held = held;
+        this.holders = holders;
+        this.holdDeadlines = holdDeadlines;
+        this.vendorTallies = vendorTallies;
+        this.customerTallies = customerTallies;
+        this.journalRecords = journalRecords;
+    }
+
+    // A customer can journal a sale before the vendor journals the addition, so a sold ticket
+    // counts as added whichever record comes first. A hold is journaled after the sale it qualifies and
+    // ends with a confirmation, which keeps the sale, or a return.
+    void apply(int type, int ticketId, int participantId, long timestamp) {
+        if (type == TicketJournal.TICKET_ADDED) {
+            added.set(ticketId);
+            vendorTallies = increment(vendorTallies, participantId, 1);
+        } else if (type == TicketJournal.TICKET_SOLD) {
+            sold.set(ticketId);
+            customerTallies = increment(customerTallies, participantId, 1);
+        } else if (type == TicketJournal.TICKET_RETURNED) {
+            sold.clear(ticketId);
+            held.clear(ticketId);
+            customerTallies = increment(customerTallies, participantId, -1);
+        } else if (type == TicketJournal.TICKET_HELD) {
+            hold(ticketId, participantId, timestamp);
+        } else if (type == TicketJournal.TICKET_CONFIRMED) {
+            held.clear(ticketId);
+        } else {
+            throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private void hold(int ticketId, int customerId, long deadline) {
+        if (ticketId >= holders.length) {
+            int length = Math.max(ticketId + 1, holders.length * 2);
+            holders = Arrays.copyOf(holders, length);
+            holdDeadlines = Arrays.copyOf(holdDeadlines, length);
+        }
+        held.set(ticketId);
+        holders[ticketId] = customerId;
+        holdDeadlines[ticketId] = deadline;
+    }
+
+    private static int[] increment(int[] tallies, int participantId, int delta) {
+        if (participantId < 0) {
+            return tallies;
+        }
+        if (participantId >= tallies.length) {
+            tallies = Arrays.copyOf(tallies, Math.max(participantId + 1, tallies.length * 2));
+        }
+        tallies[participantId] += delta;
+        return tallies;
+    }
+
+    void setJournalRecords(long journalRecords) {
+        this.journalRecords = journalRecords;
+    }
+
+    public long getJournalRecords() {
+        return journalRecords;
+    }
+
+    public int getTicketsAdded() {
+        BitSet issued = (BitSet) added.clone();
+        issued.or(sold);
+        return issued.cardinality();
+    }
+
+    // Includes the tickets still on hold
+    public int getTicketsSold() {
+        return sold.cardinality();
+    }
+
+    public int getTicketsHeld() {
+        return held.cardinality();
+    }
+
+    public int getVendorTally(int vendorId) {
+        return vendorId >= 0 && vendorId < vendorTallies.length ? vendorTallies[vendorId] : 0;
+    }
+
+    public int getCustomerTally(int customerId) {
+        return customerId >= 0 && customerId < customerTallies.length ? customerTallies[customerId] : 0;
+    }
+
+    public RecoveredPoolState toRecoveredState() {
+        BitSet issued = (BitSet) added.clone();
+        issued.or(sold);
+        BitSet available = (BitSet) issued.clone();
+        available.andNot(sold);
+        int[] heldTickets = held.stream().toArray();
+        int[] heldBy = new int[heldTickets.length];
+        long[] deadlines = new long[heldTickets.length];
+        for (int i = 0; i < heldTickets.length; i++) {
+            heldBy[i] = holders[heldTickets[i]];
+            deadlines[i] = holdDeadlines[heldTickets[i]];
+        }
+        return new RecoveredPoolState(Math.max(0, issued.length() - 1), issued.cardinality(),
+                sold.cardinality(), available.stream().toArray(), heldTickets, heldBy, deadlines);
+    }
+
+    // Writes to a temporary file first and renames it, so a crash never leaves a torn snapshot behind
+    public void writeTo(Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (OutputStream fileOut = Files.newOutputStream(temp);
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(journalRecords);
+                writeLongs(out, added.toLongArray());
+                writeLongs(out, sold.toLongArray());
+                writeInts(out, vendorTallies);
+                writeInts(out, customerTallies);
+                writeLongs(out, held.toLongArray());
+                for (int ticketId = held.nextSetBit(0); ticketId >= 0; ticketId = held.nextSetBit(ticketId + 1)) {
+                    out.writeInt(holders[ticketId]);
+                    out.writeLong(holdDeadlines[ticketId]);
+                }
+                out.flush();
+                // The checksum itself goes through the raw stream so it is not part of the sum
+                new DataOutputStream(fileOut).writeLong(crc.getValue());
+                fileOut.flush();
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing pool snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    // Returns an empty snapshot if the file does not exist
+    public static PoolSnapshot readFrom(Path file) {
+        CRC32 crc = new CRC32();
+        try (InputStream fileIn = new BufferedInputStream(Files.newInputStream(file));
+             DataInputStream in = new DataInputStream(new CheckedInputStream(fileIn, crc))) {
+            if (in.readInt() != MAGIC) {
+                throw new RuntimeException("Not a pool snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != VERSION_WITHOUT_HOLDS) {
+                throw new RuntimeException("Unsupported pool snapshot version " + version + ": " + file);
+            }
+            long journalRecords = in.readLong();
+            BitSet added = BitSet.valueOf(readLongs(in));
+            BitSet sold = BitSet.valueOf(readLongs(in));
+            int[] vendorTallies = readInts(in);
+            int[] customerTallies = readInts(in);
+            BitSet held = version == VERSION ? BitSet.valueOf(readLongs(in)) : new BitSet();
+            int[] holders = new int[held.length()];
+            long[] holdDeadlines = new long[held.length()];
+            for (int ticketId = held.nextSetBit(0); ticketId >= 0; ticketId = held.nextSetBit(ticketId + 1)) {
+                holders[ticketId] = in.readInt();
+                holdDeadlines[ticketId] = in.readLong();
+            }
+            long expected = crc.getValue();
+            if (new DataInputStream(fileIn).readLong() != expected) {
+                throw new RuntimeException("Pool snapshot checksum mismatch: " + file);
+            }
+            return new PoolSnapshot(added, sold, held, holders, holdDeadlines, vendorTallies, customerTallies,
+                    journalRecords);
+        } catch (NoSuchFileException e) {
+            return new PoolSnapshot();
+        } catch (EOFException e) {
+            throw new RuntimeException("Pool snapshot is truncated: " + file, e);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading pool snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static long[] readLongs(DataInputStream in) throws IOException {
+        long[] values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolSnapshot{journalRecords=%d, added=%d, sold=%d, held=%d}",
+                journalRecords, getTicketsAdded(), getTicketsSold(), getTicketsHeld());
+    }
+}
@@ -0,0 +1,273 @@
+package com.ticketsystem.javafx;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Buys tickets for callers who should not hold a thread while they wait. purchase() returns at once with
+// a future of the tickets bought, which completes with no tickets once the timeout passes, the customer
+// should stop or the dispatcher is closed. A single dispatcher thread serves requests in the order they
+// came in and waits on the pool only for the oldest one, so any number of waiting customers cost one
+// thread. It waits until the pool wakes it or the earliest timeout among the requests is due, and is
+// interrupted out of the wait when a request it must look at sooner comes in or is cancelled. A customer
+// who gives up cancels the future; tickets bought for a request nobody wants any more go back on sale.
+public class PurchaseDispatcher implements AutoCloseable {
+    private static final int[] NO_TICKETS = new int[0];
+    // waitDeadline while the dispatcher has no request to wait for
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final TicketPool pool;
+    private final ConcurrentLinkedQueue<Request> submitted;
+    // Only touched by the dispatcher thread
+    private final ArrayDeque<Request> waiting;
+    // Shared by the dispatcher and the fast path of purchase(); held by whichever is buying into it
+    private final int[] buffer;
+    private final ReentrantLock bufferLock;
+    private final AtomicInteger pending;
+    private final LongAdder timedOut;
+    private final Thread dispatcher;
+    // System.nanoTime() at which the dispatcher's current wait on the pool ends, Long.MAX_VALUE for never
+    private volatile long waitDeadline;
+    private volatile boolean running;
+
+    // The request is its own future, so a cancel can wake the dispatcher without another object
+    private final class Request extends CompletableFuture<int[]> {
+        private final int customerId;
+        private final int max;
+        private final long start;
+        private final long deadline;
+
+        private Request(int customerId, int max, long nanos) {
+            this.customerId = customerId;
+            this.max = max;
+            this.start = System.nanoTime();
+            long end = start + nanos;
+            this.deadline = nanos > 0 && end < start ? Long.MAX_VALUE : end;
+        }
+
+        private boolean hasExpired(long now) {
+            return deadline != Long.MAX_VALUE && deadline - now <= 0;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return finishedElsewhere(super.cancel(mayInterruptIfRunning));
+        }
+
+        @Override
+        public boolean complete(int[] tickets) {
+            return finishedElsewhere(super.complete(tickets));
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable failure) {
+            return finishedElsewhere(super.completeExceptionally(failure));
+        }
+
+        // The dispatcher may be waiting on the pool for this very request
+        private boolean finishedElsewhere(boolean finished) {
+            if (finished && Thread.currentThread() != dispatcher) {
+                dispatcher.interrupt();
+            }
+            return finished;
+        }
+    }
+
+    public PurchaseDispatcher(TicketPool pool) {
+        this.pool = pool;
+        this.submitted = new ConcurrentLinkedQueue<>();
+        this.waiting = new ArrayDeque<>();
+        // Nobody can buy more tickets at once than the pool holds
+        this.buffer = new int[pool.getMaxCapacity()];
+        this.bufferLock = new ReentrantLock();
+        this.pending = new AtomicInteger(0);
+        this.timedOut = new LongAdder();
+        this.waitDeadline = IDLE;
+        this.running = true;
+        this.dispatcher = new Thread(this::dispatchLoop, "purchase-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public CompletableFuture<int[]> purchase(int customerId, int max) {
+        return purchase(customerId, max, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    public CompletableFuture<int[]> purchase(int customerId, int max, long timeout, TimeUnit unit) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Must ask for at least one ticket");
+        }
+        if (!running) {
+            return CompletableFuture.completedFuture(NO_TICKETS);
+        }
+
+        // Nobody is waiting, so a ticket on sale right now can go to this customer without a hand-off. The
+        // dispatcher only holds the buffer while it serves a request, which it cannot while none is pending.
+        int limit = Math.min(max, buffer.length);
+        if (pending.get() == 0 && bufferLock.tryLock()) {
+            try {
+                int count = pool.tryRemoveTickets(customerId, limit, buffer);
+                if (count > 0) {
+                    return CompletableFuture.completedFuture(Arrays.copyOf(buffer, count));
+                }
+            } finally {
+                bufferLock.unlock();
+            }
+        }
+
+        Request request = new Request(customerId, limit, unit.toNanos(timeout));
+        pending.incrementAndGet();
+        submitted.add(request);
+        // Read after the request is queued; the dispatcher publishes its deadline before it looks at the queue
+        long waitingUntil = waitDeadline;
+        if (waitingUntil == IDLE) {
+            LockSupport.unpark(dispatcher);
+        } else if (request.deadline < waitingUntil) {
+            dispatcher.interrupt();
+        }
+        // The dispatcher may have stopped before it could see the request
+        if (!running && submitted.remove(request)) {
+            complete(request, NO_TICKETS);
+        }
+        return request;
+    }
+
+    private void dispatchLoop() {
+        long nextDeadline = Long.MAX_VALUE;
+        while (running) {
+            // An interrupt only tells the dispatcher to look at its requests again
+            boolean woken = Thread.interrupted();
+            Request request;
+            while ((request = submitted.poll()) != null) {
+                waiting.addLast(request);
+                nextDeadline = Math.min(nextDeadline, request.deadline);
+            }
+            if (woken || (nextDeadline != Long.MAX_VALUE && nextDeadline - System.nanoTime() <= 0)) {
+                nextDeadline = expireWaiting();
+            }
+
+            Request oldest = waiting.peekFirst();
+            if (oldest == null) {
+                waitDeadline = IDLE;
+                if (submitted.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                continue;
+            }
+            waitDeadline = nextDeadline;
+            if (!submitted.isEmpty()) {
+                continue;
+            }
+
+            long nanos = nextDeadline == Long.MAX_VALUE ? Long.MAX_VALUE : nextDeadline - System.nanoTime();
+            int count;
+            bufferLock.lock();
+            try {
+                count = pool.tryRemoveTickets(oldest.customerId, oldest.max, buffer, nanos, TimeUnit.NANOSECONDS);
+                if (count > 0) {
+                    deliver(waiting.pollFirst(), count);
+                }
+            } finally {
+                bufferLock.unlock();
+            }
+            if (count > 0) {
+                continue;
+            }
+            if (!pool.isRunning() || pool.allTicketsRetrieved()) {
+                completeWaiting();
+            } else if (pool.getPurchaseAllowance(oldest.customerId) == 0) {
+                // The customer has bought their limit, so waiting longer would not get them a ticket
+                complete(waiting.pollFirst(), NO_TICKETS);
+            }
+            // Otherwise a timeout came due or the wait was interrupted, which the next round sorts out
+        }
+        waitDeadline = IDLE;
+        completeWaiting();
+    }
+
+    // Called with bufferLock held
+    private void deliver(Request request, int count) {
+        int[] tickets = Arrays.copyOf(buffer, count);
+        if (complete(request, tickets)) {
+            pool.getMetrics().recordPurchaseLatency(System.nanoTime() - request.start);
+            return;
+        }
+        // The customer gave up while we were buying. A full pool would make the dispatcher wait on its own
+        // customers to take the tickets back, so they go back on a thread of their own.
+        Thread.ofVirtual().name("purchase-return")
+                .start(() -> pool.returnTickets(request.customerId, tickets, count));
+    }
+
+    // Counted before the future completes, so whoever sees it time out also sees it in the count
+    private void expire(Request request) {
+        timedOut.increment();
+        if (!complete(request, NO_TICKETS)) {
+            timedOut.decrement();
+        }
+    }
+
+    // Drops requests that were cancelled or ran out of time; returns the earliest deadline of those left
+    private long expireWaiting() {
+        long now = System.nanoTime();
+        long earliest = Long.MAX_VALUE;
+        Iterator<Request> requests = waiting.iterator();
+        while (requests.hasNext()) {
+            Request request = requests.next();
+            if (request.isDone() || request.hasExpired(now)) {
+                requests.remove();
+                expire(request);
+            } else {
+                earliest = Math.min(earliest, request.deadline);
+            }
+        }
+        return earliest;
+    }
+
+    // Once the pool has sold out or stopped, or the dispatcher is closed, everyone still waiting goes home
+    private void completeWaiting() {
+        Request request;
+        while ((request = submitted.poll()) != null) {
+            waiting.addLast(request);
+        }
+        while ((request = waiting.pollFirst()) != null) {
+            complete(request, NO_TICKETS);
+        }
+    }
+
+    // Every request leaves the dispatcher through here exactly once, even if its customer cancelled it
+    private boolean complete(Request request, int[] tickets) {
+        pending.decrementAndGet();
+        return request.complete(tickets);
+    }
+
+    public int getPendingRequests() {
+        return pending.get();
+    }
+
+    public long getTimedOutRequests() {
+        return timedOut.sum();
+    }
+
+    public TicketPool getPool() {
+        return pool;
+    }
+
+    // Stops the dispatcher; requests still waiting complete with no tickets
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Purchase Dispatcher: %d pending, %d timed out", pending.get(), timedOut.sum());
+    }
+}
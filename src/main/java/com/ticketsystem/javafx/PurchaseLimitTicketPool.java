@@ -0,0 +1,239 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Caps how many tickets each customer can buy from a pool. A customer claims its share from a
+// per-customer counter with a CAS before reaching the pool and hands back whatever the pool did
+// not sell, so the limit holds across batch calls and adds no lock to the purchase path.
+// Counters live in chunks created on first use, in a table that grows to the highest customer id seen.
+public class PurchaseLimitTicketPool implements TicketPool {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final TicketPool delegate;
+    private final int maxTicketsPerCustomer;
+    // Replaced by a longer copy under this pool's lock; chunks are created under it too
+    private volatile AtomicReferenceArray<AtomicIntegerArray> purchases;
+
+    public PurchaseLimitTicketPool(TicketPool delegate, int maxTicketsPerCustomer) {
+        if (maxTicketsPerCustomer < 1) {
+            throw new IllegalArgumentException("Max tickets per customer must be positive");
+        }
+        this.delegate = delegate;
+        this.maxTicketsPerCustomer = maxTicketsPerCustomer;
+        this.purchases = new AtomicReferenceArray<>(1);
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        return delegate.addTickets(vendorId, amount);
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        return delegate.addTickets(vendorId, amount, out);
+    }
+
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        return delegate.tryAddTickets(vendorId, amount, out, timeout, unit);
+    }
+
+    @Override
+    public int removeTicket(int customerId) {
+        if (claim(customerId, 1) == 0) {
+            return NO_TICKET;
+        }
+        int ticket = delegate.removeTicket(customerId);
+        if (ticket == NO_TICKET) {
+            refund(customerId, 1);
+        }
+        return ticket;
+    }
+
+    // Returns 0 once the customer has bought their limit, which tells them to stop
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        int granted = claim(customerId, Math.min(max, out.length));
+        if (granted == 0) {
+            return 0;
+        }
+        int removed = delegate.removeTickets(customerId, granted, out);
+        if (removed < granted) {
+            refund(customerId, granted - removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        int granted = claim(customerId, Math.min(max, out.length));
+        if (granted == 0) {
+            return 0;
+        }
+        int removed = delegate.tryRemoveTickets(customerId, granted, out, timeout, unit);
+        if (removed < granted) {
+            refund(customerId, granted - removed);
+        }
+        return removed;
+    }
+
+    // A block that does not fit in what is left of the customer's limit is not bought at all
+    @Override
+    public int removeContiguous(int customerId, int count, int section, int[] out) {
+        int granted = claim(customerId, count);
+        if (granted < count) {
+            if (granted > 0) {
+                refund(customerId, granted);
+            }
+            return 0;
+        }
+        int removed = delegate.removeContiguous(customerId, count, section, out);
+        if (removed < count) {
+            refund(customerId, count - removed);
+        }
+        return removed;
+    }
+
+    private int claim(int customerId, int requested) {
+        AtomicIntegerArray chunk = chunkFor(customerId);
+        int slot = customerId & CHUNK_MASK;
+        while (true) {
+            int bought = chunk.get(slot);
+            int granted = Math.min(requested, maxTicketsPerCustomer - bought);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (chunk.compareAndSet(slot, bought, bought + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    private void refund(int customerId, int unused) {
+        chunkFor(customerId).addAndGet(customerId & CHUNK_MASK, -unused);
+    }
+
+    private AtomicIntegerArray chunkFor(int customerId) {
+        if (customerId < 0) {
+            throw new IllegalArgumentException("Customer id cannot be negative: " + customerId);
+        }
+        AtomicIntegerArray chunk = existingChunk(customerId);
+        return chunk != null ? chunk : createChunk(customerId >> CHUNK_BITS);
+    }
+
+    private AtomicIntegerArray existingChunk(int customerId) {
+        int index = customerId >> CHUNK_BITS;
+        AtomicReferenceArray<AtomicIntegerArray> chunks = purchases;
+        return customerId >= 0 && index < chunks.length() ? chunks.get(index) : null;
+    }
+
+    private synchronized AtomicIntegerArray createChunk(int index) {
+        AtomicReferenceArray<AtomicIntegerArray> chunks = purchases;
+        if (index >= chunks.length()) {
+            int length = (int) Math.min(Integer.MAX_VALUE, Math.max(index + 1L, 2L * chunks.length()));
+            AtomicReferenceArray<AtomicIntegerArray> grown = new AtomicReferenceArray<>(length);
+            for (int i = 0; i < chunks.length(); i++) {
+                grown.set(i, chunks.get(i));
+            }
+            purchases = grown;
+            chunks = grown;
+        }
+        AtomicIntegerArray chunk = chunks.get(index);
+        if (chunk == null) {
+            chunk = new AtomicIntegerArray(CHUNK_MASK + 1);
+            chunks.set(index, chunk);
+        }
+        return chunk;
+    }
+
+    public int getTicketsPurchased(int customerId) {
+        AtomicIntegerArray chunk = existingChunk(customerId);
+        return chunk == null ? 0 : chunk.get(customerId & CHUNK_MASK);
+    }
+
+    @Override
+    public int getPurchaseAllowance(int customerId) {
+        return Math.max(0, maxTicketsPerCustomer - getTicketsPurchased(customerId));
+    }
+
+    @Override
+    public boolean supportsContiguous() {
+        return delegate.supportsContiguous();
+    }
+
+    public int getMaxTicketsPerCustomer() {
+        return maxTicketsPerCustomer;
+    }
+
+    // Returned tickets no longer count against the customer's limit
+    @Override
+    public int returnTickets(int customerId, int[] tickets, int count) {
+        int returned = delegate.returnTickets(customerId, tickets, count);
+        if (returned > 0) {
+            refund(customerId, returned);
+        }
+        return returned;
+    }
+
+    @Override
+    public void ticketsHeld(int customerId, int[] tickets, int count, long deadline) {
+        delegate.ticketsHeld(customerId, tickets, count, deadline);
+    }
+
+    @Override
+    public void holdConfirmed(int customerId, int ticketId) {
+        delegate.holdConfirmed(customerId, ticketId);
+    }
+
+    @Override
+    public void restore(RecoveredPoolState state) {
+        delegate.restore(state);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        return delegate.allTicketsRetrieved();
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        return delegate.getAvailableTickets();
+    }
+
+    @Override
+    public int getTotalTicketsAdded() {
+        return delegate.getTotalTicketsAdded();
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return delegate.getTotalTicketsLimit();
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return delegate.getMaxCapacity();
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return delegate.getMetrics();
+    }
+
+    public TicketPool getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ticketsystem.javafx;
+
+// Rules a pool applies to customers: how many tickets one customer may buy in total, and which
+// tier each customer is in. Customers 1..vipCustomers are VIP, the next presaleCustomers are
+// presale and everyone after them is general.
+public class PurchasePolicy {
+    private static final PurchasePolicy UNRESTRICTED = new PurchasePolicy(0, 0, 0);
+
+    private final int maxTicketsPerCustomer;
+    private final int vipCustomers;
+    private final int presaleCustomers;
+
+    // maxTicketsPerCustomer of 0 means no limit
+    public PurchasePolicy(int maxTicketsPerCustomer, int vipCustomers, int presaleCustomers) {
+        if (maxTicketsPerCustomer < 0) {
+            throw new IllegalArgumentException("Max tickets per customer cannot be negative");
+        }
+        if (vipCustomers < 0 || presaleCustomers < 0) {
+            throw new IllegalArgumentException("Tier sizes cannot be negative");
+        }
+        this.maxTicketsPerCustomer = maxTicketsPerCustomer;
+        this.vipCustomers = vipCustomers;
+        this.presaleCustomers = presaleCustomers;
+    }
+
+    public static PurchasePolicy unrestricted() {
+        return UNRESTRICTED;
+    }
+
+    public CustomerTier tierOf(int customerId) {
+        if (customerId <= vipCustomers) {
+            return CustomerTier.VIP;
+        }
+        if (customerId <= vipCustomers + presaleCustomers) {
+            return CustomerTier.PRESALE;
+        }
+        return CustomerTier.GENERAL;
+    }
+
+    public boolean hasPurchaseLimit() {
+        return maxTicketsPerCustomer > 0;
+    }
+
+    public int getMaxTicketsPerCustomer() {
+        return maxTicketsPerCustomer;
+    }
+
+    public int getVipCustomers() {
+        return vipCustomers;
+    }
+
+    public int getPresaleCustomers() {
+        return presaleCustomers;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PurchasePolicy{maxTicketsPerCustomer=%d, vipCustomers=%d, presaleCustomers=%d}",
+                maxTicketsPerCustomer, vipCustomers, presaleCustomers);
+    }
+}
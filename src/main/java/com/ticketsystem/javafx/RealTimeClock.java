@@ -0,0 +1,25 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+
+public final class RealTimeClock implements SimulationClock {
+    static final RealTimeClock INSTANCE = new RealTimeClock();
+
+    private RealTimeClock() {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Override
+    public String toString() {
+        return "Real time";
+    }
+}
@@ -0,0 +1,98 @@
+package com.ticketsystem.javafx;
+
+// What a pool looked like when its journal was last written: the highest ticket number issued,
+// how many tickets were added and sold, and the tickets still waiting to be sold, oldest first.
+// Sold tickets whose hold was never confirmed are listed with their customer and wall-clock deadline;
+// they count as sold until whoever takes the holds over returns them.
+public class RecoveredPoolState {
+    private final int lastTicketId;
+    private final int ticketsAdded;
+    private final int ticketsSold;
+    private final int[] availableTickets;
+    private final int[] heldTickets;
+    private final int[] holders;
+    private final long[] holdDeadlines;
+
+    public RecoveredPoolState(int lastTicketId, int ticketsAdded, int ticketsSold, int[] availableTickets) {
+        this(lastTicketId, ticketsAdded, ticketsSold, availableTickets, new int[0], new int[0], new long[0]);
+    }
+
+    public RecoveredPoolState(int lastTicketId, int ticketsAdded, int ticketsSold, int[] availableTickets,
+                              int[] heldTickets, int[] holders, long[] holdDeadlines) {
+        if (ticketsAdded - ticketsSold != availableTickets.length) {
+            throw new IllegalArgumentException("Available tickets do not match added minus sold");
+        }
+        if (heldTickets.length > ticketsSold || holders.length != heldTickets.length
+                || holdDeadlines.length != heldTickets.length) {
+            throw new IllegalArgumentException("Held tickets do not match their holders and deadlines");
+        }
+        this.lastTicketId = lastTicketId;
+        this.ticketsAdded = ticketsAdded;
+        this.ticketsSold = ticketsSold;
+        this.availableTickets = availableTickets;
+        this.heldTickets = heldTickets;
+        this.holders = holders;
+        this.holdDeadlines = holdDeadlines;
+    }
+
+    public int getLastTicketId() {
+        return lastTicketId;
+    }
+
+    public int getTicketsAdded() {
+        return ticketsAdded;
+    }
+
+    public int getTicketsSold() {
+        return ticketsSold;
+    }
+
+    public int getAvailableCount() {
+        return availableTickets.length;
+    }
+
+    public int getAvailableTicket(int index) {
+        return availableTickets[index];
+    }
+
+    public int getHeldCount() {
+        return heldTickets.length;
+    }
+
+    public int getHeldTicket(int index) {
+        return heldTickets[index];
+    }
+
+    public int getHolder(int index) {
+        return holders[index];
+    }
+
+    public long getHoldDeadline(int index) {
+        return holdDeadlines[index];
+    }
+
+    public boolean isEmpty() {
+        return ticketsAdded == 0;
+    }
+
+    // Checks the state fits a pool before any of it is applied
+    void validateFor(TicketPool pool) {
+        if (ticketsAdded > pool.getTotalTicketsLimit() || lastTicketId > pool.getTotalTicketsLimit()) {
+            throw new IllegalStateException("Recovered " + ticketsAdded + " tickets but the pool limit is "
+                    + pool.getTotalTicketsLimit());
+        }
+        if (availableTickets.length > pool.getMaxCapacity()) {
+            throw new IllegalStateException("Recovered " + availableTickets.length
+                    + " available tickets but the pool capacity is " + pool.getMaxCapacity());
+        }
+        if (pool.getTotalTicketsAdded() > 0) {
+            throw new IllegalStateException("Pool state can only be restored before tickets are added");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RecoveredPoolState{lastTicketId=%d, added=%d, sold=%d, available=%d, held=%d}",
+                lastTicketId, ticketsAdded, ticketsSold, availableTickets.length, heldTickets.length);
+    }
+}
@@ -0,0 +1,104 @@
+package com.ticketsystem.javafx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+// TicketLeaseService of a LeaseCoordinatorServer in another process. Each call is one request and one
+// response over a single connection; calls from several threads take turns, so the coordinator sees a
+// node's requests in the order the node made them. A call the coordinator does not answer within the
+// timeout fails and closes the connection, so a hung coordinator cannot hold up the node for good.
+public class RemoteLeaseService implements TicketLeaseService, AutoCloseable {
+    static final byte ACQUIRE = 1;
+    static final byte GIVE_BACK = 2;
+    static final byte HEARTBEAT = 3;
+    // Answer to a give-back of tickets the node does not hold
+    static final long REJECTED = -2L;
+    public static final int DEFAULT_TIMEOUT_MILLIS = 5000;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public RemoteLeaseService(String host, int port) {
+        this(host, port, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public RemoteLeaseService(String host, int port, int timeoutMillis) {
+        if (timeoutMillis < 1) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        try {
+            this.socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        } catch (IOException e) {
+            throw new RuntimeException("Error connecting to lease coordinator: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long acquire(int nodeId, int max) {
+        long lease = call(ACQUIRE, nodeId, max, 0);
+        if (lease == REJECTED) {
+            throw new IllegalStateException("Coordinator rejected a lease of " + max + " tickets for node " + nodeId);
+        }
+        return lease;
+    }
+
+    @Override
+    public void giveBack(int nodeId, int firstTicket, int count) {
+        if (call(GIVE_BACK, nodeId, firstTicket, count) == REJECTED) {
+            throw new IllegalStateException("Coordinator rejected tickets " + firstTicket + " to "
+                    + (firstTicket + count - 1) + " from node " + nodeId);
+        }
+    }
+
+    @Override
+    public int heartbeat(int nodeId, int unreleased) {
+        long wanted = call(HEARTBEAT, nodeId, unreleased, 0);
+        if (wanted == REJECTED) {
+            throw new IllegalStateException("Coordinator rejected a heartbeat from node " + nodeId);
+        }
+        return (int) wanted;
+    }
+
+    private synchronized long call(byte operation, int nodeId, int first, int second) {
+        try {
+            out.writeByte(operation);
+            out.writeInt(nodeId);
+            out.writeInt(first);
+            out.writeInt(second);
+            out.flush();
+            return in.readLong();
+        } catch (IOException e) {
+            // An answer that turns up late would be taken for the answer to the next call
+            closeQuietly();
+            throw new RuntimeException("Lost the lease coordinator: " + e.getMessage(), e);
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // The connection is being given up anyway
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing lease connection: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+// Two-phase checkout on top of any pool: reserve() takes tickets out of the pool and puts a hold on
+// each, confirm() turns a hold into a sale, and a hold that is not confirmed within holdMillis expires
+// and its ticket goes back into the pool. Holds live on one hashed timer wheel driven by a single
+// ticker thread on the simulation clock, so each hold costs O(1) however many are outstanding.
+// While holds are outstanding the pool is not sold out: customers who find it empty wait for
+// returned tickets instead of going home. Holds and confirmations are passed down to the delegate, so
+// a journal below can bring unconfirmed holds back after a crash instead of counting them as sales.
+public class ReservationTicketPool implements TicketPool, AutoCloseable {
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 512;
+    private static final int EXPIRY_BATCH = 256;
+
+    private final TicketPool delegate;
+    private final long holdMillis;
+    private final SimulationClock clock;
+    private final TimerWheel wheel;
+    private final AtomicInteger heldTickets;
+    private final AtomicInteger reserving;
+    // Bumped whenever a held ticket goes back into the pool
+    private final AtomicInteger holdsReturned;
+    private final LongAdder confirmedHolds;
+    private final LongAdder expiredHolds;
+    private final ParkingStrategy waitingCustomers;
+    // Groups waiting for a whole block, woken together on every returned hold
+    private final ParkingStrategy waitingGroups;
+    private final BooleanSupplier canRetry;
+    private final Thread ticker;
+    private volatile boolean running;
+
+    public ReservationTicketPool(TicketPool delegate, long holdMillis, SimulationClock clock) {
+        this(delegate, holdMillis, DEFAULT_TICK_MILLIS, clock);
+    }
+
+    public ReservationTicketPool(TicketPool delegate, long holdMillis, long tickMillis, SimulationClock clock) {
+        if (holdMillis < 1) {
+            throw new IllegalArgumentException("Hold time must be positive");
+        }
+        this.delegate = delegate;
+        this.holdMillis = holdMillis;
+        this.clock = clock;
+        this.wheel = new TimerWheel(tickMillis, WHEEL_SIZE, clock.currentTimeMillis());
+        this.heldTickets = new AtomicInteger(0);
+        this.reserving = new AtomicInteger(0);
+        this.holdsReturned = new AtomicInteger(0);
+        this.confirmedHolds = new LongAdder();
+        this.expiredHolds = new LongAdder();
+        this.waitingCustomers = new ParkingStrategy();
+        this.waitingGroups = new ParkingStrategy();
+        this.canRetry = () -> !isRunning() || noHoldsLeft() || delegate.getAvailableTickets() > 0;
+        this.running = true;
+        // The ticker sleeps on the simulation clock like a participant, so holds expire in virtual time too
+        clock.expectParticipants(1);
+        this.ticker = new Thread(this::tickLoop, "reservation-expiry");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    // Takes up to max tickets and puts a hold on each; holds[i] is the handle for tickets[i].
+    // Returns 0 once the customer should stop.
+    public int reserve(int customerId, int max, int[] tickets, long[] holds) {
+        int limit = Math.min(max, Math.min(tickets.length, holds.length));
+        if (limit < 1) {
+            return 0;
+        }
+        return reserve(customerId, limit, ANY_SECTION, false, tickets, holds);
+    }
+
+    // Holds count adjacent seats as one block, or nothing; see TicketPool.removeContiguous
+    public int reserveContiguous(int customerId, int count, int section, int[] tickets, long[] holds) {
+        if (count < 1 || count > Math.min(tickets.length, holds.length)) {
+            throw new IllegalArgumentException("Block size must be between 1 and "
+                    + Math.min(tickets.length, holds.length));
+        }
+        // A returned hold would not make a block appear either
+        if (!delegate.supportsContiguous()) {
+            return 0;
+        }
+        return reserve(customerId, count, section, true, tickets, holds);
+    }
+
+    private int reserve(int customerId, int limit, int section, boolean together, int[] tickets, long[] holds) {
+        while (true) {
+            int reserved;
+            int returnedBefore = holdsReturned.get();
+            // Counted from before the pool is asked until the holds exist, so nobody mistakes the gap for a sell-out
+            reserving.incrementAndGet();
+            try {
+                reserved = together
+                        ? delegate.removeContiguous(customerId, limit, section, tickets)
+                        : delegate.removeTickets(customerId, limit, tickets);
+                if (reserved > 0) {
+                    heldTickets.addAndGet(reserved);
+                    // Before the holds can expire, so a journal sees each hold ahead of its return
+                    delegate.ticketsHeld(customerId, tickets, reserved, System.currentTimeMillis() + holdMillis);
+                    long deadline = clock.currentTimeMillis() + holdMillis;
+                    for (int i = 0; i < reserved; i++) {
+                        holds[i] = wheel.schedule(deadline, ((long) customerId << 32) | (tickets[i] & 0xFFFFFFFFL));
+                    }
+                }
+            } finally {
+                reserving.decrementAndGet();
+                holdsChanged();
+            }
+            if (reserved > 0) {
+                return reserved;
+            }
+            if (together ? !awaitReturnedHold(returnedBefore) : !awaitReturnedTickets(Long.MAX_VALUE)) {
+                return 0;
+            }
+        }
+    }
+
+    // Returns false if the hold already expired and the ticket went back to the pool
+    public boolean confirm(long hold) {
+        long payload = wheel.cancel(hold);
+        if (payload == TimerWheel.NO_PAYLOAD) {
+            return false;
+        }
+        delegate.holdConfirmed((int) (payload >>> 32), (int) payload);
+        confirmedHolds.increment();
+        heldTickets.decrementAndGet();
+        holdsChanged();
+        return true;
+    }
+
+    // Takes over the holds a journal recovered from before a restart. Nobody has their handles any more, so
+    // none can be confirmed: each expires once the time it had left runs out, and one whose deadline passed
+    // while the pool was down goes back on sale with the ticker's next tick.
+    public void restoreHolds(RecoveredPoolState state) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < state.getHeldCount(); i++) {
+            long remaining = Math.max(0, Math.min(holdMillis, state.getHoldDeadline(i) - now));
+            heldTickets.incrementAndGet();
+            wheel.schedule(clock.currentTimeMillis() + remaining,
+                    ((long) state.getHolder(i) << 32) | (state.getHeldTicket(i) & 0xFFFFFFFFL));
+        }
+    }
+
+    // Gives a held ticket back straight away instead of waiting for the hold to expire
+    public boolean cancel(long hold) {
+        long payload = wheel.cancel(hold);
+        if (payload == TimerWheel.NO_PAYLOAD) {
+            return false;
+        }
+        returnHeld(payload, new int[1]);
+        return true;
+    }
+
+    private void tickLoop() {
+        clock.register();
+        long[] expired = new long[EXPIRY_BATCH];
+        int[] ticket = new int[1];
+        try {
+            while (running) {
+                clock.sleep(wheel.getTickMillis());
+                int count;
+                while ((count = wheel.expire(clock.currentTimeMillis(), expired)) > 0) {
+                    for (int i = 0; i < count; i++) {
+                        expiredHolds.increment();
+                        returnHeld(expired[i], ticket);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clock.deregister();
+        }
+    }
+
+    // ticket is scratch space for the ticket going back, so the ticker can reuse one for every expiry
+    private void returnHeld(long payload, int[] ticket) {
+        ticket[0] = (int) payload;
+        delegate.returnTickets((int) (payload >>> 32), ticket, 1);
+        holdsReturned.incrementAndGet();
+        heldTickets.decrementAndGet();
+        waitingCustomers.wakeOne();
+        waitingGroups.wakeAll();
+        holdsChanged();
+    }
+
+    // Called when the pool came back empty-handed. The pool may look sold out while holds are still
+    // outstanding; returns true once tickets came back and the caller should try again, false if they
+    // did not come back within nanos.
+    private boolean awaitReturnedTickets(long nanos) {
+        long start = System.nanoTime();
+        while (isRunning()) {
+            // Expired tickets are back in the pool before their hold stops counting, so read the holds first
+            boolean lastHold = noHoldsLeft();
+            if (delegate.getAvailableTickets() > 0) {
+                return true;
+            }
+            if (lastHold || !waitingCustomers.await(canRetry, nanos - (System.nanoTime() - start))) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // A ticket in the pool need not complete a block, so a group waits for another hold to come back
+    // since it read returnedBefore instead
+    private boolean awaitReturnedHold(int returnedBefore) {
+        BooleanSupplier returned = () -> !isRunning() || noHoldsLeft() || holdsReturned.get() != returnedBefore;
+        while (isRunning()) {
+            boolean lastHold = noHoldsLeft();
+            if (holdsReturned.get() != returnedBefore) {
+                return true;
+            }
+            if (lastHold || !waitingGroups.await(returned)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean noHoldsLeft() {
+        return heldTickets.get() == 0 && reserving.get() == 0;
+    }
+
+    private void holdsChanged() {
+        if (noHoldsLeft()) {
+            waitingCustomers.wakeAll();
+            waitingGroups.wakeAll();
+        }
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        return delegate.addTickets(vendorId, amount);
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        return delegate.addTickets(vendorId, amount, out);
+    }
+
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        return delegate.tryAddTickets(vendorId, amount, out, timeout, unit);
+    }
+
+    // Buys without a hold; waits like reserve() while other customers' holds could still come back
+    @Override
+    public int removeTicket(int customerId) {
+        while (true) {
+            int ticket = delegate.removeTicket(customerId);
+            if (ticket != NO_TICKET || !awaitReturnedTickets(Long.MAX_VALUE)) {
+                return ticket;
+            }
+        }
+    }
+
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        while (true) {
+            int taken = delegate.removeTickets(customerId, max, out);
+            if (taken > 0 || !awaitReturnedTickets(Long.MAX_VALUE)) {
+                return taken;
+            }
+        }
+    }
+
+    @Override
+    public int removeContiguous(int customerId, int count, int section, int[] out) {
+        if (!delegate.supportsContiguous()) {
+            return 0;
+        }
+        while (true) {
+            int returnedBefore = holdsReturned.get();
+            int taken = delegate.removeContiguous(customerId, count, section, out);
+            if (taken > 0 || !awaitReturnedHold(returnedBefore)) {
+                return taken;
+            }
+        }
+    }
+
+    // The timeout covers waiting for both the pool and other customers' holds
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        long start = System.nanoTime();
+        while (true) {
+            int taken = delegate.tryRemoveTickets(customerId, max, out, nanos - (System.nanoTime() - start),
+                    TimeUnit.NANOSECONDS);
+            long remaining = nanos - (System.nanoTime() - start);
+            if (taken > 0 || remaining <= 0 || !awaitReturnedTickets(remaining)) {
+                return taken;
+            }
+        }
+    }
+
+    @Override
+    public int returnTickets(int customerId, int[] tickets, int count) {
+        return delegate.returnTickets(customerId, tickets, count);
+    }
+
+    @Override
+    public void restore(RecoveredPoolState state) {
+        delegate.restore(state);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+        close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running && delegate.isRunning();
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        return noHoldsLeft() && delegate.allTicketsRetrieved();
+    }
+
+    @Override
+    public int getPurchaseAllowance(int customerId) {
+        return delegate.getPurchaseAllowance(customerId);
+    }
+
+    @Override
+    public boolean supportsContiguous() {
+        return delegate.supportsContiguous();
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        return delegate.getAvailableTickets();
+    }
+
+    @Override
+    public int getTotalTicketsAdded() {
+        return delegate.getTotalTicketsAdded();
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return delegate.getTotalTicketsLimit();
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return delegate.getMaxCapacity();
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return delegate.getMetrics();
+    }
+
+    public int getHeldTickets() {
+        return wheel.size();
+    }
+
+    public long getConfirmedHolds() {
+        return confirmedHolds.sum();
+    }
+
+    public long getExpiredHolds() {
+        return expiredHolds.sum();
+    }
+
+    public long getHoldMillis() {
+        return holdMillis;
+    }
+
+    public TicketPool getDelegate() {
+        return delegate;
+    }
+
+    // Stops the expiry ticker; holds still outstanding stay with their customers
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        ticker.interrupt();
+        waitingCustomers.wakeAll();
+        waitingGroups.wakeAll();
+    }
+}
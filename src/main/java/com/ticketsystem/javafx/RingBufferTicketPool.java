@@ -0,0 +1,320 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class RingBufferTicketPool implements TicketPool {
+    private final IntRingBuffer tickets;
+    private final int maxCapacity;
+    private final AtomicInteger ticketCounter;
+    private final AtomicInteger ticketsReserved;
+    private final AtomicInteger totalTicketsAdded;
+    private final int totalTicketsLimit;
+    private final ParkingStrategy waitingVendors;
+    private final ParkingStrategy waitingCustomers;
+    private final BooleanSupplier canAdd;
+    private final BooleanSupplier canRemove;
+    // Ticket numbers the boolean addTickets has no use for, so that it allocates nothing per call
+    private final ThreadLocal<int[]> addBuffers;
+    private final TicketEventLog eventLog;
+    private final PoolMetrics metrics;
+    private volatile boolean isRunning;
+
+    public RingBufferTicketPool(int maxCapacity, int totalTicketsLimit) {
+        this(maxCapacity, totalTicketsLimit, TicketEventLog.console());
+    }
+
+    public RingBufferTicketPool(int maxCapacity, int totalTicketsLimit, TicketEventLog eventLog) {
+        this.tickets = new IntRingBuffer(maxCapacity);
+        this.maxCapacity = maxCapacity;
+        this.totalTicketsLimit = totalTicketsLimit;
+        this.ticketCounter = new AtomicInteger(0);
+        this.ticketsReserved = new AtomicInteger(0);
+        this.totalTicketsAdded = new AtomicInteger(0);
+        this.waitingVendors = new ParkingStrategy();
+        this.waitingCustomers = new ParkingStrategy();
+        this.canAdd = () -> !isRunning || !tickets.isFull();
+        this.canRemove = () -> !isRunning || !tickets.isEmpty() || allTicketsRetrieved();
+        this.addBuffers = ThreadLocal.withInitial(() -> new int[1]);
+        this.eventLog = eventLog;
+        this.metrics = new PoolMetrics();
+        this.isRunning = true;
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        if (amount < 1) {
+            return false;
+        }
+        int[] buffer = addBuffers.get();
+        if (buffer.length < Math.min(amount, maxCapacity)) {
+            buffer = new int[Math.min(amount, maxCapacity)];
+            addBuffers.set(buffer);
+        }
+        return add(vendorId, amount, buffer, Long.MAX_VALUE) > 0;
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        return add(vendorId, amount, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && (tickets.isFull() || ticketsReserved.get() >= totalTicketsLimit)) {
+            return 0;
+        }
+        return add(vendorId, amount, out, nanos);
+    }
+
+    // Only the wait for space before any ticket is reserved is timed; once reserved, a ticket waits for a
+    // slot until the vendor is interrupted or the pool shuts down
+    private int add(int vendorId, int amount, int[] out, long nanos) {
+        if (!isRunning || amount < 1 || out.length == 0) {
+            return 0;
+        }
+
+        if (tickets.isFull() && (!awaitSpace(nanos) || !isRunning)) {
+            return 0;
+        }
+
+        int requested = Math.min(Math.min(amount, out.length), Math.max(1, maxCapacity - tickets.size()));
+        int reserved = reserveTickets(requested);
+        if (reserved == 0) {
+            // Every ticket is out; a returner may want the space this vendor was woken for
+            waitingVendors.wakeOne();
+            return 0;
+        }
+
+        int added = 0;
+        while (added < reserved) {
+            int placed = tickets.offerNumbered(ticketCounter, reserved - added, out, added);
+            if (placed == 0) {
+                if (!awaitSpace() || !isRunning) {
+                    break;
+                }
+                continue;
+            }
+            added += placed;
+            for (int i = 0; i < placed; i++) {
+                waitingCustomers.wakeOne();
+            }
+        }
+        if (added < reserved) {
+            // Interrupted or shut down before every reserved ticket found a slot; the rest were never numbered
+            ticketsReserved.addAndGet(-(reserved - added));
+        }
+
+        if (added > 0) {
+            totalTicketsAdded.addAndGet(added);
+            metrics.ticketsAdded(added);
+            eventLog.ticketsAdded(vendorId, out[0], out[added - 1], added, tickets.size());
+            if (allTicketsRetrieved()) {
+                waitingCustomers.wakeAll();
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public int removeTicket(int customerId) {
+        if (!isRunning) {
+            return NO_TICKET;
+        }
+
+        while (isRunning) {
+            int ticket = tickets.poll();
+            if (ticket != IntRingBuffer.EMPTY) {
+                metrics.ticketsSold(1);
+                eventLog.ticketsPurchased(customerId, ticket, ticket, 1, tickets.size());
+                waitingVendors.wakeOne();
+                if (allTicketsRetrieved()) {
+                    waitingCustomers.wakeAll();
+                }
+                return ticket;
+            }
+
+            if (allTicketsRetrieved()) {
+                return NO_TICKET;
+            }
+
+            eventLog.customerWaiting(customerId);
+            if (!awaitTickets()) {
+                return NO_TICKET;
+            }
+        }
+        return NO_TICKET;
+    }
+
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        return take(customerId, max, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && tickets.isEmpty()) {
+            return 0;
+        }
+        return take(customerId, max, out, nanos);
+    }
+
+    private int take(int customerId, int max, int[] out, long nanos) {
+        if (!isRunning || max < 1 || out.length == 0) {
+            return 0;
+        }
+
+        int limit = Math.min(max, out.length);
+        long start = System.nanoTime();
+        while (isRunning) {
+            int count = 0;
+            int ticket;
+            while (count < limit && (ticket = tickets.poll()) != IntRingBuffer.EMPTY) {
+                out[count++] = ticket;
+            }
+
+            if (count > 0) {
+                metrics.ticketsSold(count);
+                eventLog.ticketsPurchased(customerId, out[0], out[count - 1], count, tickets.size());
+                for (int i = 0; i < count; i++) {
+                    waitingVendors.wakeOne();
+                }
+                if (allTicketsRetrieved()) {
+                    waitingCustomers.wakeAll();
+                }
+                return count;
+            }
+
+            if (allTicketsRetrieved()) {
+                return 0;
+            }
+
+            long remaining = nanos - (System.nanoTime() - start);
+            if (remaining <= 0) {
+                return 0;
+            }
+            eventLog.customerWaiting(customerId);
+            if (!awaitTickets(remaining)) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private int reserveTickets(int requested) {
+        while (true) {
+            int reserved = ticketsReserved.get();
+            int granted = Math.min(requested, totalTicketsLimit - reserved);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (ticketsReserved.compareAndSet(reserved, reserved + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    private boolean awaitSpace() {
+        return awaitSpace(Long.MAX_VALUE);
+    }
+
+    private boolean awaitSpace(long nanos) {
+        long waitStart = metrics.vendorWaitStarted();
+        try {
+            return waitingVendors.await(canAdd, nanos);
+        } finally {
+            metrics.vendorWaitEnded(waitStart);
+        }
+    }
+
+    private boolean awaitTickets() {
+        return awaitTickets(Long.MAX_VALUE);
+    }
+
+    private boolean awaitTickets(long nanos) {
+        long waitStart = metrics.customerWaitStarted();
+        try {
+            return waitingCustomers.await(canRemove, nanos);
+        } finally {
+            metrics.customerWaitEnded(waitStart);
+        }
+    }
+
+    @Override
+    public int returnTickets(int customerId, int[] returned, int count) {
+        int accepted = 0;
+        while (accepted < count && isRunning) {
+            if (tickets.offer(returned[accepted])) {
+                accepted++;
+                waitingCustomers.wakeOne();
+            } else if (!awaitSpace()) {
+                break;
+            }
+        }
+        if (accepted > 0) {
+            metrics.ticketsReturned(accepted);
+            eventLog.ticketsReturned(customerId, returned[0], returned[accepted - 1], accepted, tickets.size());
+        }
+        return accepted;
+    }
+
+    @Override
+    public void restore(RecoveredPoolState state) {
+        state.validateFor(this);
+        ticketCounter.set(state.getLastTicketId());
+        ticketsReserved.set(state.getTicketsAdded());
+        for (int i = 0; i < state.getAvailableCount(); i++) {
+            tickets.offer(state.getAvailableTicket(i));
+        }
+        totalTicketsAdded.set(state.getTicketsAdded());
+        metrics.ticketsAdded(state.getTicketsAdded());
+        metrics.ticketsSold(state.getTicketsSold());
+        waitingCustomers.wakeAll();
+    }
+
+    @Override
+    public void shutdown() {
+        isRunning = false;
+        eventLog.poolShutdown(tickets.size());
+        waitingCustomers.wakeAll();
+        waitingVendors.wakeAll();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        return totalTicketsAdded.get() >= totalTicketsLimit && tickets.isEmpty();
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        return tickets.size();
+    }
+
+    @Override
+    public int getTotalTicketsAdded() {
+        return totalTicketsAdded.get();
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return totalTicketsLimit;
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Counts the participants of a discrete event clock that are able to run. A participant counts itself out
+// when it goes to sleep on the clock or parks on a pool, and whoever wakes it counts it back in before
+// unparking it, so a woken thread the scheduler has not run yet still keeps virtual time from moving.
+final class RunnableParticipants {
+    private static final ThreadLocal<RunnableParticipants> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger count;
+
+    RunnableParticipants() {
+        this.count = new AtomicInteger(0);
+    }
+
+    // The counter of the clock the current thread takes part in, or null if it is not a participant
+    static RunnableParticipants current() {
+        return CURRENT.get();
+    }
+
+    void join() {
+        CURRENT.set(this);
+        count.incrementAndGet();
+    }
+
+    void leave() {
+        CURRENT.remove();
+        count.decrementAndGet();
+    }
+
+    void blocked() {
+        count.decrementAndGet();
+    }
+
+    void woken() {
+        count.incrementAndGet();
+    }
+
+    int get() {
+        return count.get();
+    }
+}
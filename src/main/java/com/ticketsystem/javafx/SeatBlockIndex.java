@@ -0,0 +1,130 @@
+package com.ticketsystem.javafx;
+
+// Free-space index over the seats of one section, in seat order. A bitset says which seats are free;
+// a segment tree on top keeps, for every range of seats, the free run at its start, the free run at its
+// end and the longest free run inside it. Runs never cross from one row into the next, so finding the
+// front-most block of n adjacent free seats, and freeing or taking a seat, are all O(log seats).
+// Not thread-safe: the owning pool guards each section's index with its own lock.
+final class SeatBlockIndex {
+    static final int NONE = -1;
+
+    private final int size;
+    private final int leaves;
+    private final long[] free;
+    // joinsNext[i]: seat i + 1 sits directly beside seat i in the same row
+    private final boolean[] joinsNext;
+    private final int[] prefix;
+    private final int[] suffix;
+    private final int[] longest;
+    private int freeCount;
+
+    SeatBlockIndex(boolean[] joinsNext) {
+        this.size = joinsNext.length;
+        this.leaves = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.free = new long[(size + 63) >>> 6];
+        this.joinsNext = joinsNext;
+        this.prefix = new int[2 * leaves];
+        this.suffix = new int[2 * leaves];
+        this.longest = new int[2 * leaves];
+    }
+
+    // Builds the index for one section of an inventory with every seat taken
+    static SeatBlockIndex forSection(TicketInventory inventory, int section) {
+        int seats = inventory.getSectionSize(section);
+        boolean[] joinsNext = new boolean[seats];
+        for (int i = 0; i + 1 < seats; i++) {
+            int seat = inventory.getTicketInSection(section, i);
+            int next = inventory.getTicketInSection(section, i + 1);
+            joinsNext[i] = inventory.getRow(seat) == inventory.getRow(next)
+                    && inventory.getSeat(next) == inventory.getSeat(seat) + 1;
+        }
+        return new SeatBlockIndex(joinsNext);
+    }
+
+    boolean isFree(int seat) {
+        return (free[seat >>> 6] & (1L << seat)) != 0;
+    }
+
+    // Returns false if the seat was already in that state
+    boolean setFree(int seat, boolean isFree) {
+        if (seat < 0 || seat >= size) {
+            throw new IllegalArgumentException("Seat index out of range: " + seat);
+        }
+        if (isFree(seat) == isFree) {
+            return false;
+        }
+        free[seat >>> 6] ^= 1L << seat;
+        freeCount += isFree ? 1 : -1;
+        update(1, 0, leaves - 1, seat, isFree ? 1 : 0);
+        return true;
+    }
+
+    // Start of the front-most run of count adjacent free seats, or NONE
+    int findBlock(int count) {
+        if (count < 1 || longest[1] < count) {
+            return NONE;
+        }
+        return find(1, 0, leaves - 1, count);
+    }
+
+    // The front-most free seat, or NONE; finding a block of one is the same walk down the tree
+    int firstFree() {
+        return findBlock(1);
+    }
+
+    int getLongestRun() {
+        return longest[1];
+    }
+
+    int getFreeCount() {
+        return freeCount;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void update(int node, int low, int high, int seat, int value) {
+        if (low == high) {
+            prefix[node] = value;
+            suffix[node] = value;
+            longest[node] = value;
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        if (seat <= middle) {
+            update(2 * node, low, middle, seat, value);
+        } else {
+            update(2 * node + 1, middle + 1, high, seat, value);
+        }
+
+        int left = 2 * node;
+        int right = left + 1;
+        int leftLength = middle - low + 1;
+        int rightLength = high - middle;
+        boolean joined = middle + 1 < size && joinsNext[middle];
+        prefix[node] = joined && prefix[left] == leftLength ? leftLength + prefix[right] : prefix[left];
+        suffix[node] = joined && suffix[right] == rightLength ? rightLength + suffix[left] : suffix[right];
+        int across = joined ? suffix[left] + prefix[right] : 0;
+        longest[node] = Math.max(across, Math.max(longest[left], longest[right]));
+    }
+
+    // Called only on nodes whose longest run is at least count
+    private int find(int node, int low, int high, int count) {
+        while (low != high) {
+            int middle = (low + high) >>> 1;
+            int left = 2 * node;
+            int right = left + 1;
+            if (longest[left] >= count) {
+                node = left;
+                high = middle;
+            } else if (middle + 1 < size && joinsNext[middle] && suffix[left] + prefix[right] >= count) {
+                return middle - suffix[left] + 1;
+            } else {
+                node = right;
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,536 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+// Pool that knows where its tickets sit. Instead of a queue of ticket ids it keeps a SeatBlockIndex per
+// section of the inventory, so a group can buy a block of adjacent seats in one step and the front-most
+// block of any size is found in O(log seats). Each section has its own lock; buyers start at a section
+// picked by their id, so they only contend when they want seats in the same section.
+// Batch purchases get adjacent seats whenever a big enough block is free anywhere, and scattered seats
+// otherwise.
+public class SeatMapTicketPool implements TicketPool {
+    private final TicketInventory inventory;
+    private final SeatBlockIndex[] sections;
+    private final ReentrantLock[] sectionLocks;
+    // Position of each ticket in its section's index
+    private final int[] positions;
+    private final int maxCapacity;
+    private final int totalTicketsLimit;
+    private final AtomicInteger ticketCounter;
+    private final AtomicInteger ticketsReserved;
+    private final AtomicInteger totalTicketsAdded;
+    // Free seats plus seats a vendor or returning customer has claimed room for but not yet freed
+    private final AtomicInteger occupied;
+    private final AtomicInteger available;
+    // Bumped whenever a seat becomes free, so a group waiting for a block can tell something changed
+    private final AtomicInteger seatsFreed;
+    private final ParkingStrategy waitingVendors;
+    private final ParkingStrategy waitingCustomers;
+    // Groups wait apart from single buyers: any freed seat may complete any group's block, so they are
+    // all woken together and never take a wake-up meant for a single ticket
+    private final ParkingStrategy waitingGroups;
+    private final BooleanSupplier hasSpace;
+    private final BooleanSupplier canAdd;
+    private final BooleanSupplier canRemove;
+    // Ticket numbers the boolean addTickets has no use for, so that it allocates nothing per call
+    private final ThreadLocal<int[]> addBuffers;
+    private final TicketEventLog eventLog;
+    private final PoolMetrics metrics;
+    private volatile boolean isRunning;
+
+    public SeatMapTicketPool(TicketInventory inventory, int maxCapacity, int totalTicketsLimit) {
+        this(inventory, maxCapacity, totalTicketsLimit, TicketEventLog.console());
+    }
+
+    public SeatMapTicketPool(TicketInventory inventory, int maxCapacity, int totalTicketsLimit,
+                             TicketEventLog eventLog) {
+        if (inventory.size() < totalTicketsLimit) {
+            throw new IllegalArgumentException("Inventory has fewer seats than tickets");
+        }
+        this.inventory = inventory;
+        this.sections = new SeatBlockIndex[inventory.getSectionCount()];
+        this.sectionLocks = new ReentrantLock[sections.length];
+        this.positions = new int[inventory.size() + 1];
+        for (int section = 0; section < sections.length; section++) {
+            sections[section] = SeatBlockIndex.forSection(inventory, section);
+            sectionLocks[section] = new ReentrantLock();
+            for (int i = 0; i < inventory.getSectionSize(section); i++) {
+                positions[inventory.getTicketInSection(section, i)] = i;
+            }
+        }
+        this.maxCapacity = maxCapacity;
+        this.totalTicketsLimit = totalTicketsLimit;
+        this.ticketCounter = new AtomicInteger(0);
+        this.ticketsReserved = new AtomicInteger(0);
+        this.totalTicketsAdded = new AtomicInteger(0);
+        this.occupied = new AtomicInteger(0);
+        this.available = new AtomicInteger(0);
+        this.seatsFreed = new AtomicInteger(0);
+        this.waitingVendors = new ParkingStrategy();
+        this.waitingCustomers = new ParkingStrategy();
+        this.waitingGroups = new ParkingStrategy();
+        this.hasSpace = () -> !isRunning || occupied.get() < maxCapacity;
+        this.canAdd = () -> hasSpace.getAsBoolean() || ticketsReserved.get() >= totalTicketsLimit;
+        this.canRemove = () -> !isRunning || available.get() > 0 || allTicketsRetrieved();
+        this.addBuffers = ThreadLocal.withInitial(() -> new int[1]);
+        this.eventLog = eventLog;
+        this.metrics = new PoolMetrics();
+        this.isRunning = true;
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        if (amount < 1) {
+            return false;
+        }
+        int[] buffer = addBuffers.get();
+        if (buffer.length < Math.min(amount, maxCapacity)) {
+            buffer = new int[Math.min(amount, maxCapacity)];
+            addBuffers.set(buffer);
+        }
+        return addTickets(vendorId, amount, buffer) > 0;
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        return add(vendorId, amount, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && (occupied.get() >= maxCapacity || ticketsReserved.get() >= totalTicketsLimit)) {
+            return 0;
+        }
+        return add(vendorId, amount, out, nanos);
+    }
+
+    private int add(int vendorId, int amount, int[] out, long nanos) {
+        if (!isRunning || amount < 1 || out.length == 0) {
+            return 0;
+        }
+
+        int space;
+        long start = System.nanoTime();
+        while ((space = claimSpace(Math.min(amount, out.length))) == 0) {
+            if (ticketsReserved.get() >= totalTicketsLimit
+                    || !awaitSpace(canAdd, nanos - (System.nanoTime() - start)) || !isRunning) {
+                return 0;
+            }
+        }
+        int reserved = reserveTickets(space);
+        if (reserved < space) {
+            releaseSpace(space - reserved);
+        }
+        if (reserved == 0) {
+            return 0;
+        }
+
+        int firstTicket = ticketCounter.getAndAdd(reserved) + 1;
+        for (int i = 0; i < reserved; i++) {
+            out[i] = firstTicket + i;
+        }
+        freeSeats(out, 0, reserved);
+        totalTicketsAdded.addAndGet(reserved);
+        metrics.ticketsAdded(reserved);
+        eventLog.ticketsAdded(vendorId, firstTicket, firstTicket + reserved - 1, reserved, available.get());
+        if (totalTicketsAdded.get() >= totalTicketsLimit) {
+            // A group that found no block before these seats were counted waits for this to give up
+            waitingGroups.wakeAll();
+        }
+        if (allTicketsRetrieved()) {
+            waitingCustomers.wakeAll();
+        }
+        return reserved;
+    }
+
+    @Override
+    public int removeTicket(int customerId) {
+        while (isRunning) {
+            int ticket = takeAny(customerId);
+            if (ticket != NO_TICKET) {
+                sold(customerId, ticket, ticket, 1);
+                return ticket;
+            }
+
+            if (allTicketsRetrieved()) {
+                return NO_TICKET;
+            }
+
+            eventLog.customerWaiting(customerId);
+            if (!awaitTickets(canRemove)) {
+                return NO_TICKET;
+            }
+        }
+        return NO_TICKET;
+    }
+
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        return take(customerId, max, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && available.get() == 0) {
+            return 0;
+        }
+        return take(customerId, max, out, nanos);
+    }
+
+    private int take(int customerId, int max, int[] out, long nanos) {
+        if (!isRunning || max < 1 || out.length == 0) {
+            return 0;
+        }
+
+        int limit = Math.min(max, out.length);
+        long start = System.nanoTime();
+        while (isRunning) {
+            int count = limit > 1 ? takeBlock(customerId, limit, out) : 0;
+            if (count == 0) {
+                count = takeScattered(customerId, limit, out);
+            }
+            if (count > 0) {
+                sold(customerId, out[0], out[count - 1], count);
+                return count;
+            }
+
+            if (allTicketsRetrieved()) {
+                return 0;
+            }
+
+            long remaining = nanos - (System.nanoTime() - start);
+            if (remaining <= 0) {
+                return 0;
+            }
+            eventLog.customerWaiting(customerId);
+            if (!awaitTickets(canRemove, remaining)) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean supportsContiguous() {
+        return true;
+    }
+
+    // Takes the front-most block in the section, or for ANY_SECTION in the first section from the
+    // customer's home section that has one. Returns 0 once every ticket has been released and no block
+    // that big is free, or the pool shut down.
+    @Override
+    public int removeContiguous(int customerId, int count, int section, int[] out) {
+        if (section != ANY_SECTION && (section < 0 || section >= sections.length)) {
+            throw new IllegalArgumentException("Unknown section: " + section);
+        }
+        if (count < 1 || count > out.length) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + out.length);
+        }
+
+        while (isRunning) {
+            int freedBefore = seatsFreed.get();
+            if (section == ANY_SECTION ? takeBlock(customerId, count, out) > 0 : takeBlockIn(section, count, out)) {
+                sold(customerId, out[0], out[count - 1], count);
+                return count;
+            }
+
+            // Seats freed since the attempt may have formed the block, even if they were the last ones
+            if (totalTicketsAdded.get() >= totalTicketsLimit && seatsFreed.get() == freedBefore) {
+                return 0;
+            }
+
+            eventLog.customerWaiting(customerId);
+            if (!awaitFreedSeats(() -> !isRunning || seatsFreed.get() != freedBefore
+                    || totalTicketsAdded.get() >= totalTicketsLimit)) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    // Length of the longest block of adjacent free seats in the section right now
+    public int getLongestBlock(int section) {
+        sectionLocks[section].lock();
+        try {
+            return sections[section].getLongestRun();
+        } finally {
+            sectionLocks[section].unlock();
+        }
+    }
+
+    private int takeAny(int customerId) {
+        for (int i = 0; i < sections.length; i++) {
+            int section = homeSection(customerId, i);
+            ReentrantLock lock = sectionLocks[section];
+            lock.lock();
+            try {
+                int seat = sections[section].firstFree();
+                if (seat != SeatBlockIndex.NONE) {
+                    sections[section].setFree(seat, false);
+                    available.decrementAndGet();
+                    return inventory.getTicketInSection(section, seat);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return NO_TICKET;
+    }
+
+    private int takeBlock(int customerId, int count, int[] out) {
+        for (int i = 0; i < sections.length; i++) {
+            if (takeBlockIn(homeSection(customerId, i), count, out)) {
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    private boolean takeBlockIn(int section, int count, int[] out) {
+        ReentrantLock lock = sectionLocks[section];
+        lock.lock();
+        try {
+            SeatBlockIndex index = sections[section];
+            int start = index.findBlock(count);
+            if (start == SeatBlockIndex.NONE) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                index.setFree(start + i, false);
+                out[i] = inventory.getTicketInSection(section, start + i);
+            }
+            available.addAndGet(-count);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int takeScattered(int customerId, int limit, int[] out) {
+        int count = 0;
+        for (int i = 0; i < sections.length && count < limit; i++) {
+            int section = homeSection(customerId, i);
+            ReentrantLock lock = sectionLocks[section];
+            lock.lock();
+            try {
+                SeatBlockIndex index = sections[section];
+                int taken = 0;
+                int seat;
+                while (count < limit && (seat = index.firstFree()) != SeatBlockIndex.NONE) {
+                    index.setFree(seat, false);
+                    out[count++] = inventory.getTicketInSection(section, seat);
+                    taken++;
+                }
+                available.addAndGet(-taken);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    private int homeSection(int customerId, int attempt) {
+        return Math.floorMod(customerId + attempt, sections.length);
+    }
+
+    private void sold(int customerId, int firstTicket, int lastTicket, int count) {
+        releaseSpace(count);
+        metrics.ticketsSold(count);
+        eventLog.ticketsPurchased(customerId, firstTicket, lastTicket, count, available.get());
+        if (allTicketsRetrieved()) {
+            waitingCustomers.wakeAll();
+        }
+    }
+
+    // Marks tickets[from..from + count) free, taking each section's lock once per run of tickets in it.
+    // Space for them must already be claimed; space for tickets that were free already is given back.
+    private void freeSeats(int[] tickets, int from, int count) {
+        int freed = 0;
+        int i = from;
+        int end = from + count;
+        while (i < end) {
+            int section = inventory.getSection(tickets[i]);
+            ReentrantLock lock = sectionLocks[section];
+            lock.lock();
+            try {
+                for (; i < end && inventory.getSection(tickets[i]) == section; i++) {
+                    if (sections[section].setFree(positions[tickets[i]], true)) {
+                        available.incrementAndGet();
+                        freed++;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (freed < count) {
+            releaseSpace(count - freed);
+        }
+        seatsFreed.addAndGet(freed);
+        for (int j = 0; j < freed; j++) {
+            waitingCustomers.wakeOne();
+        }
+        if (freed > 0) {
+            waitingGroups.wakeAll();
+        }
+    }
+
+    private int claimSpace(int requested) {
+        while (true) {
+            int current = occupied.get();
+            int granted = Math.min(requested, maxCapacity - current);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (occupied.compareAndSet(current, current + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    private void releaseSpace(int count) {
+        occupied.addAndGet(-count);
+        for (int i = 0; i < count; i++) {
+            waitingVendors.wakeOne();
+        }
+    }
+
+    private int reserveTickets(int requested) {
+        while (true) {
+            int reserved = ticketsReserved.get();
+            int granted = Math.min(requested, totalTicketsLimit - reserved);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (ticketsReserved.compareAndSet(reserved, reserved + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    private boolean awaitSpace(BooleanSupplier ready) {
+        return awaitSpace(ready, Long.MAX_VALUE);
+    }
+
+    private boolean awaitSpace(BooleanSupplier ready, long nanos) {
+        long waitStart = metrics.vendorWaitStarted();
+        try {
+            return waitingVendors.await(ready, nanos);
+        } finally {
+            metrics.vendorWaitEnded(waitStart);
+        }
+    }
+
+    private boolean awaitTickets(BooleanSupplier ready) {
+        return awaitTickets(ready, Long.MAX_VALUE);
+    }
+
+    private boolean awaitTickets(BooleanSupplier ready, long nanos) {
+        long waitStart = metrics.customerWaitStarted();
+        try {
+            return waitingCustomers.await(ready, nanos);
+        } finally {
+            metrics.customerWaitEnded(waitStart);
+        }
+    }
+
+    private boolean awaitFreedSeats(BooleanSupplier ready) {
+        long waitStart = metrics.customerWaitStarted();
+        try {
+            return waitingGroups.await(ready, Long.MAX_VALUE);
+        } finally {
+            metrics.customerWaitEnded(waitStart);
+        }
+    }
+
+    @Override
+    public int returnTickets(int customerId, int[] returned, int count) {
+        int accepted = 0;
+        while (accepted < count && isRunning) {
+            int space = claimSpace(count - accepted);
+            if (space == 0) {
+                if (!awaitSpace(hasSpace)) {
+                    break;
+                }
+                continue;
+            }
+            freeSeats(returned, accepted, space);
+            accepted += space;
+        }
+        if (accepted > 0) {
+            metrics.ticketsReturned(accepted);
+            eventLog.ticketsReturned(customerId, returned[0], returned[accepted - 1], accepted, available.get());
+        }
+        return accepted;
+    }
+
+    @Override
+    public void restore(RecoveredPoolState state) {
+        state.validateFor(this);
+        ticketCounter.set(state.getLastTicketId());
+        ticketsReserved.set(state.getTicketsAdded());
+        int[] tickets = new int[state.getAvailableCount()];
+        for (int i = 0; i < tickets.length; i++) {
+            tickets[i] = state.getAvailableTicket(i);
+        }
+        occupied.set(tickets.length);
+        freeSeats(tickets, 0, tickets.length);
+        totalTicketsAdded.set(state.getTicketsAdded());
+        metrics.ticketsAdded(state.getTicketsAdded());
+        metrics.ticketsSold(state.getTicketsSold());
+        waitingCustomers.wakeAll();
+    }
+
+    @Override
+    public void shutdown() {
+        isRunning = false;
+        eventLog.poolShutdown(available.get());
+        waitingCustomers.wakeAll();
+        waitingGroups.wakeAll();
+        waitingVendors.wakeAll();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        return totalTicketsAdded.get() >= totalTicketsLimit && available.get() == 0;
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        return available.get();
+    }
+
+    @Override
+    public int getTotalTicketsAdded() {
+        return totalTicketsAdded.get();
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return totalTicketsLimit;
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public TicketInventory getInventory() {
+        return inventory;
+    }
+}
@@ -0,0 +1,494 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+// Splits the pool into ring buffers that vendors and customers are homed on by id. Besides the shards,
+// the ticket limit is striped too: each shard has its own share of the tickets left to reserve and
+// takes from the others only once its share runs out, so adds and sales touch per-shard state and
+// the one shared counter that numbers each batch of new tickets.
+public class ShardedTicketPool implements TicketPool {
+    // Ints per 64-byte cache line, so neighbouring quota stripes are not written through one line
+    private static final int STRIDE = 16;
+
+    private final IntRingBuffer[] shards;
+    private final ParkingStrategy[] waitingVendors;
+    private final ParkingStrategy[] waitingCustomers;
+    private final int maxCapacity;
+    private final AtomicInteger ticketCounter;
+    // Tickets each shard may still reserve, one stripe every STRIDE ints
+    private final AtomicIntegerArray quotas;
+    private final LongAdder totalTicketsAdded;
+    private final int totalTicketsLimit;
+    private final BooleanSupplier canAdd;
+    private final BooleanSupplier canRemove;
+    // Ticket numbers the boolean addTickets has no use for, so that it allocates nothing per call
+    private final ThreadLocal<int[]> addBuffers;
+    private final TicketEventLog eventLog;
+    private final PoolMetrics metrics;
+    // Vendors and customers inside an await on any shard. Every add and sale wakes one of the other side,
+    // and while nobody waits these let it skip checking each shard's waiters
+    private final AtomicInteger waitingVendorCount;
+    private final AtomicInteger waitingCustomerCount;
+    // Set once every ticket up to the limit has been added, so sales need not sum the shards until then
+    private volatile boolean allAdded;
+    private volatile boolean isRunning;
+
+    public ShardedTicketPool(int maxCapacity, int totalTicketsLimit) {
+        this(maxCapacity, totalTicketsLimit, TicketEventLog.console());
+    }
+
+    public ShardedTicketPool(int maxCapacity, int totalTicketsLimit, TicketEventLog eventLog) {
+        this(maxCapacity, totalTicketsLimit, Runtime.getRuntime().availableProcessors(), eventLog);
+    }
+
+    public ShardedTicketPool(int maxCapacity, int totalTicketsLimit, int shardCount, TicketEventLog eventLog) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        int shardTotal = Math.min(shardCount, maxCapacity);
+
+        this.shards = new IntRingBuffer[shardTotal];
+        this.waitingVendors = new ParkingStrategy[shardTotal];
+        this.waitingCustomers = new ParkingStrategy[shardTotal];
+        for (int i = 0; i < shardTotal; i++) {
+            // Spread maxCapacity so the shard capacities add up to exactly maxCapacity
+            int shardCapacity = maxCapacity / shardTotal + (i < maxCapacity % shardTotal ? 1 : 0);
+            shards[i] = new IntRingBuffer(shardCapacity);
+            waitingVendors[i] = new ParkingStrategy();
+            waitingCustomers[i] = new ParkingStrategy();
+        }
+
+        this.maxCapacity = maxCapacity;
+        this.totalTicketsLimit = totalTicketsLimit;
+        this.ticketCounter = new AtomicInteger(0);
+        this.quotas = new AtomicIntegerArray(shardTotal * STRIDE);
+        spreadQuota(totalTicketsLimit);
+        this.totalTicketsAdded = new LongAdder();
+        this.canAdd = () -> !isRunning || hasFreeSpace(0);
+        this.canRemove = () -> !isRunning || getAvailableTickets() > 0 || allTicketsRetrieved();
+        this.addBuffers = ThreadLocal.withInitial(() -> new int[1]);
+        this.allAdded = totalTicketsLimit == 0;
+        this.eventLog = eventLog;
+        this.metrics = new PoolMetrics();
+        this.waitingVendorCount = new AtomicInteger(0);
+        this.waitingCustomerCount = new AtomicInteger(0);
+        this.isRunning = true;
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        if (amount < 1) {
+            return false;
+        }
+        int[] buffer = addBuffers.get();
+        if (buffer.length < Math.min(amount, maxCapacity)) {
+            buffer = new int[Math.min(amount, maxCapacity)];
+            addBuffers.set(buffer);
+        }
+        return add(vendorId, amount, buffer, Long.MAX_VALUE) > 0;
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        return add(vendorId, amount, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        int home = homeShard(vendorId);
+        if (nanos <= 0 && (!hasFreeSpace(home) || allAdded || quotaLeft(home) == 0 && !hasQuota())) {
+            return 0;
+        }
+        return add(vendorId, amount, out, nanos);
+    }
+
+    // Only the wait for space before any ticket is reserved is timed; once reserved, a ticket waits for a
+    // slot until the vendor is interrupted or the pool shuts down
+    private int add(int vendorId, int amount, int[] out, long nanos) {
+        if (!isRunning || amount < 1 || out.length == 0) {
+            return 0;
+        }
+
+        int home = homeShard(vendorId);
+        if (!hasFreeSpace(home) && (!awaitSpace(home, nanos) || !isRunning)) {
+            return 0;
+        }
+
+        // Sized to the home shard's free space, where the batch goes unless other vendors fill it first
+        IntRingBuffer homeShard = shards[home];
+        int requested = Math.min(Math.min(amount, out.length), Math.max(1, homeShard.capacity() - homeShard.size()));
+        int reserved = reserveTickets(home, requested);
+        if (reserved == 0) {
+            // Leaves the space it may have been woken for to a returner
+            wakeVendor(home);
+            return 0;
+        }
+
+        int added = 0;
+        while (added < reserved) {
+            int placed = offerFrom(home, reserved - added, out, added);
+            if (placed == 0) {
+                if (!awaitSpace(home) || !isRunning) {
+                    break;
+                }
+                continue;
+            }
+            added += placed;
+        }
+        if (added < reserved) {
+            // Interrupted or shut down before every reserved ticket found a slot; the rest were never numbered
+            quotas.addAndGet(home * STRIDE, reserved - added);
+        }
+
+        if (added > 0) {
+            totalTicketsAdded.add(added);
+            metrics.ticketsAdded(added);
+            eventLog.ticketsAdded(vendorId, out[0], out[added - 1], added, poolSize());
+            if (quotaLeft(home) == 0 && checkAllAdded()) {
+                wakeAll(waitingCustomers);
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public int removeTicket(int customerId) {
+        if (!isRunning) {
+            return NO_TICKET;
+        }
+
+        int home = homeShard(customerId);
+        while (isRunning) {
+            for (int i = 0; i < shards.length; i++) {
+                int shard = (home + i) % shards.length;
+                int ticket = shards[shard].poll();
+                if (ticket != IntRingBuffer.EMPTY) {
+                    metrics.ticketsSold(1);
+                    eventLog.ticketsPurchased(customerId, ticket, ticket, 1, poolSize());
+                    wakeVendor(shard);
+                    if (allTicketsRetrieved()) {
+                        wakeAll(waitingCustomers);
+                    }
+                    return ticket;
+                }
+            }
+
+            if (allTicketsRetrieved()) {
+                return NO_TICKET;
+            }
+
+            eventLog.customerWaiting(customerId);
+            if (!awaitTickets(home)) {
+                return NO_TICKET;
+            }
+        }
+        return NO_TICKET;
+    }
+
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        return take(customerId, max, out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        // Without a timeout, take() polls each shard once and gives up, no scan needed up front
+        return take(customerId, max, out, unit.toNanos(timeout));
+    }
+
+    private int take(int customerId, int max, int[] out, long nanos) {
+        if (!isRunning || max < 1 || out.length == 0) {
+            return 0;
+        }
+
+        int limit = Math.min(max, out.length);
+        long start = System.nanoTime();
+        int home = homeShard(customerId);
+        while (isRunning) {
+            int count = 0;
+            for (int i = 0; i < shards.length && count < limit; i++) {
+                int shard = (home + i) % shards.length;
+                int taken = 0;
+                int ticket;
+                while (count < limit && (ticket = shards[shard].poll()) != IntRingBuffer.EMPTY) {
+                    out[count++] = ticket;
+                    taken++;
+                }
+                for (int j = 0; j < taken; j++) {
+                    wakeVendor(shard);
+                }
+            }
+
+            if (count > 0) {
+                metrics.ticketsSold(count);
+                eventLog.ticketsPurchased(customerId, out[0], out[count - 1], count, poolSize());
+                if (allTicketsRetrieved()) {
+                    wakeAll(waitingCustomers);
+                }
+                return count;
+            }
+
+            if (allTicketsRetrieved()) {
+                return 0;
+            }
+
+            long remaining = nanos - (System.nanoTime() - start);
+            if (remaining <= 0) {
+                return 0;
+            }
+            eventLog.customerWaiting(customerId);
+            if (!awaitTickets(home, remaining)) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private int homeShard(int participantId) {
+        return Math.floorMod(participantId - 1, shards.length);
+    }
+
+    // Numbers and places up to max new tickets, filling the home shard first
+    private int offerFrom(int home, int max, int[] out, int from) {
+        for (int i = 0; i < shards.length; i++) {
+            int shard = (home + i) % shards.length;
+            int placed = shards[shard].offerNumbered(ticketCounter, max, out, from);
+            if (placed > 0) {
+                for (int j = 0; j < placed; j++) {
+                    wakeCustomer(shard);
+                }
+                return placed;
+            }
+        }
+        return 0;
+    }
+
+    private int offerFrom(int home, int ticketNumber) {
+        for (int i = 0; i < shards.length; i++) {
+            int shard = (home + i) % shards.length;
+            if (shards[shard].offer(ticketNumber)) {
+                return shard;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hasFreeSpace(int home) {
+        for (int i = 0; i < shards.length; i++) {
+            if (!shards[(home + i) % shards.length].isFull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean awaitSpace(int home) {
+        return awaitSpace(home, Long.MAX_VALUE);
+    }
+
+    private boolean awaitSpace(int home, long nanos) {
+        long waitStart = metrics.vendorWaitStarted();
+        // Counted before the await checks canAdd, so a waker that reads 0 made it true before that check
+        waitingVendorCount.incrementAndGet();
+        try {
+            return waitingVendors[home].await(canAdd, nanos);
+        } finally {
+            waitingVendorCount.decrementAndGet();
+            metrics.vendorWaitEnded(waitStart);
+        }
+    }
+
+    private boolean awaitTickets(int home) {
+        return awaitTickets(home, Long.MAX_VALUE);
+    }
+
+    private boolean awaitTickets(int home, long nanos) {
+        long waitStart = metrics.customerWaitStarted();
+        waitingCustomerCount.incrementAndGet();
+        try {
+            return waitingCustomers[home].await(canRemove, nanos);
+        } finally {
+            waitingCustomerCount.decrementAndGet();
+            metrics.customerWaitEnded(waitStart);
+        }
+    }
+
+    // Takes from the home shard's share of the limit, and from the other shards' once it is used up
+    private int reserveTickets(int home, int requested) {
+        for (int i = 0; i < shards.length; i++) {
+            int granted = reserveFrom((home + i) % shards.length, requested);
+            if (granted > 0) {
+                return granted;
+            }
+        }
+        return 0;
+    }
+
+    private int reserveFrom(int shard, int requested) {
+        int index = shard * STRIDE;
+        while (true) {
+            int left = quotas.get(index);
+            int granted = Math.min(requested, left);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (quotas.compareAndSet(index, left, left - granted)) {
+                return granted;
+            }
+        }
+    }
+
+    private int quotaLeft(int shard) {
+        return quotas.get(shard * STRIDE);
+    }
+
+    private boolean hasQuota() {
+        for (int i = 0; i < shards.length; i++) {
+            if (quotaLeft(i) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void spreadQuota(int tickets) {
+        for (int i = 0; i < shards.length; i++) {
+            quotas.set(i * STRIDE, tickets / shards.length + (i < tickets % shards.length ? 1 : 0));
+        }
+    }
+
+    // Only summed once the vendor's own share is gone, which happens towards the end of the sale
+    private boolean checkAllAdded() {
+        if (!allAdded && !hasQuota() && totalTicketsAdded.sum() >= totalTicketsLimit) {
+            allAdded = true;
+        }
+        return allAdded;
+    }
+
+    // Summing the shards costs a read of each one, so only pay for it when the event is kept
+    private int poolSize() {
+        return eventLog.isEnabled() ? getAvailableTickets() : 0;
+    }
+
+    private void wakeVendor(int shard) {
+        if (waitingVendorCount.get() > 0) {
+            wakeOne(waitingVendors, shard);
+        }
+    }
+
+    private void wakeCustomer(int shard) {
+        if (waitingCustomerCount.get() > 0) {
+            wakeOne(waitingCustomers, shard);
+        }
+    }
+
+    // Prefer a waiter homed on the shard that changed, otherwise hand the wake-up to any other shard
+    private void wakeOne(ParkingStrategy[] waiters, int shard) {
+        for (int i = 0; i < waiters.length; i++) {
+            ParkingStrategy candidate = waiters[(shard + i) % waiters.length];
+            if (candidate.hasParkedThreads()) {
+                candidate.wakeOne();
+                return;
+            }
+        }
+    }
+
+    private void wakeAll(ParkingStrategy[] waiters) {
+        for (ParkingStrategy waiter : waiters) {
+            waiter.wakeAll();
+        }
+    }
+
+    @Override
+    public int returnTickets(int customerId, int[] returned, int count) {
+        int home = homeShard(customerId);
+        int accepted = 0;
+        while (accepted < count && isRunning) {
+            int shard = offerFrom(home, returned[accepted]);
+            if (shard >= 0) {
+                accepted++;
+                wakeCustomer(shard);
+            } else if (!awaitSpace(home)) {
+                break;
+            }
+        }
+        if (accepted > 0) {
+            metrics.ticketsReturned(accepted);
+            eventLog.ticketsReturned(customerId, returned[0], returned[accepted - 1], accepted, poolSize());
+        }
+        return accepted;
+    }
+
+    @Override
+    public void restore(RecoveredPoolState state) {
+        state.validateFor(this);
+        ticketCounter.set(state.getLastTicketId());
+        spreadQuota(totalTicketsLimit - state.getTicketsAdded());
+        for (int i = 0; i < state.getAvailableCount(); i++) {
+            int ticketNumber = state.getAvailableTicket(i);
+            offerFrom(homeShard(ticketNumber), ticketNumber);
+        }
+        totalTicketsAdded.reset();
+        totalTicketsAdded.add(state.getTicketsAdded());
+        allAdded = state.getTicketsAdded() >= totalTicketsLimit;
+        metrics.ticketsAdded(state.getTicketsAdded());
+        metrics.ticketsSold(state.getTicketsSold());
+        wakeAll(waitingCustomers);
+    }
+
+    @Override
+    public void shutdown() {
+        isRunning = false;
+        eventLog.poolShutdown(getAvailableTickets());
+        wakeAll(waitingCustomers);
+        wakeAll(waitingVendors);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        return allAdded && getAvailableTickets() == 0;
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        int available = 0;
+        for (IntRingBuffer shard : shards) {
+            available += shard.size();
+        }
+        return available;
+    }
+
+    @Override
+    public int getTotalTicketsAdded() {
+        return totalTicketsAdded.intValue();
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return totalTicketsLimit;
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+}
@@ -0,0 +1,358 @@
+package com.ticketsystem.javafx;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Headless entry point: runs one simulation from a saved configuration and prints a summary.
+// Nothing here touches JavaFX, so it runs on machines without a display.
+public class SimulationCli {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: SimulationCli <configuration> [options]",
+            "       SimulationCli --replay <trace> [--pool <type>] [--mode <mode>] [--timeout <seconds>]",
+            "  <configuration>      file path, or a name saved under configurations/",
+            "  --vendors <n>        number of vendors (default 5)",
+            "  --customers <n>      number of customers (default 10)",
+            "  --events <n>         events on sale at once, each with the configured tickets (default 1)",
+            "  --pool <type>        LOCKING, RING_BUFFER, SHARDED, WAITING_ROOM or SEAT_MAP (default LOCKING)",
+            "  --mode <mode>        PLATFORM_THREADS or VIRTUAL_THREADS (default PLATFORM_THREADS)",
+            "  --clock <clock>      REAL_TIME or DISCRETE_EVENT (default REAL_TIME); DISCRETE_EVENT skips the",
+            "                       retrieval/buying delays in virtual time, so a full sale takes milliseconds",
+            "  --timeout <seconds>  stop the run after this long (default 600)",
+            "  --max-per-customer <n>  tickets one customer may buy per event (default unlimited)",
+            "  --vip <n>            customers 1..n are VIPs, served first by the WAITING_ROOM pool (default 0)",
+            "  --presale <n>        the next n customers are presale, served after VIPs (default 0)",
+            "  --journal <dir>      journal every sale under this directory and resume from it on the next run;",
+            "                       with --coordinate, journal every lease instead",
+            "  --snapshot-interval <ms>  how often journaled pools are snapshotted (default 1000)",
+            "  --target-fill <f>    adapt vendor batches and release rate to keep the pool this full, 0 to 1",
+            "  --hold <ms>          customers reserve tickets and must confirm them within this long",
+            "  --abandon-rate <p>   share of reservations customers walk away from, 0 to below 1 (default 0)",
+            "  --together           customers buy adjacent seats for their group; needs --pool SEAT_MAP",
+            "  --patience <ms>      customers buying outright give up and leave after waiting this long for",
+            "                       tickets; needs --clock REAL_TIME (default 0, wait until sold out)",
+            "  --scenario <file>    start vendors and customers as the workload scenario says; replaces",
+            "                       --vendors and --customers and prints latency percentiles; cannot be combined",
+            "                       with --events, --journal, --hold, --target-fill, --together, --patience or --node",
+            "  --record <file>      record a trace of every ticket movement that --replay can play back; sales",
+            "                       wait for the trace to keep up, and a trace that still lost events fails the run",
+            "  --replay <trace>     replay a recorded trace against a fresh pool as fast as possible",
+            "  --serve <port>       serve the pool on this loopback port to TicketLoadGenerator processes instead",
+            "                       of running vendors and customers, until it sells out (0 picks a free port)",
+            "  --coordinate <port>  lease the configured tickets to --node processes on this loopback port",
+            "                       instead of running a simulation, until every ticket is released",
+            "  --node <id>          run as node <id> of a partitioned sale, selling tickets leased from the",
+            "                       coordinator given by --coordinator",
+            "  --coordinator <port> loopback port of the lease coordinator for --node",
+            "  --lease-size <n>     tickets per lease (default 50)",
+            "  --lease-timeout <ms> --coordinate expires the leases of a node not heard from this long (default 2000)",
+            "  --log <file>         write ticket events to a file instead of the console",
+            "  --quiet              do not print individual ticket events; --log and --record still get them");
+
+    public static void main(String[] args) {
+        if (args.length == 0 || args[0].equals("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        int numVendors = 5;
+        int numCustomers = 10;
+        int numEvents = 1;
+        TicketPoolType poolType = TicketPoolType.LOCKING;
+        ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+        long timeoutSeconds = 600;
+        String logFile = null;
+        String scenarioFile = null;
+        String recordFile = null;
+        String replayFile = null;
+        int servePort = -1;
+        int coordinatorPort = -1;
+        boolean coordinate = false;
+        int nodeId = 0;
+        int leaseSize = 50;
+        long leaseTimeoutMillis = LeaseCoordinator.DEFAULT_LEASE_TIMEOUT_MILLIS;
+        String journalDirectory = null;
+        long snapshotIntervalMillis = JournalSnapshotter.DEFAULT_INTERVAL_MILLIS;
+        boolean quiet = false;
+        int maxTicketsPerCustomer = 0;
+        int vipCustomers = 0;
+        int presaleCustomers = 0;
+        double targetFill = 0;
+        long holdMillis = 0;
+        double abandonRate = 0;
+        boolean seatsTogether = false;
+        long patienceMillis = 0;
+        boolean discreteClock = false;
+
+        try {
+            // A replay needs no configuration
+            for (int i = args[0].startsWith("--") ? 0 : 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--vendors" -> numVendors = Integer.parseInt(requireValue(args, ++i));
+                    case "--customers" -> numCustomers = Integer.parseInt(requireValue(args, ++i));
+                    case "--events" -> numEvents = Integer.parseInt(requireValue(args, ++i));
+                    case "--pool" -> poolType =
+                            TicketPoolType.valueOf(requireValue(args, ++i).toUpperCase(Locale.ROOT));
+                    case "--mode" -> executionMode =
+                            ExecutionMode.valueOf(requireValue(args, ++i).toUpperCase(Locale.ROOT));
+                    case "--clock" -> discreteClock = parseClock(requireValue(args, ++i));
+                    case "--timeout" -> timeoutSeconds = Long.parseLong(requireValue(args, ++i));
+                    case "--max-per-customer" ->
+                            maxTicketsPerCustomer = Integer.parseInt(requireValue(args, ++i));
+                    case "--vip" -> vipCustomers = Integer.parseInt(requireValue(args, ++i));
+                    case "--presale" -> presaleCustomers = Integer.parseInt(requireValue(args, ++i));
+                    case "--journal" -> journalDirectory = requireValue(args, ++i);
+                    case "--snapshot-interval" ->
+                            snapshotIntervalMillis = Long.parseLong(requireValue(args, ++i));
+                    case "--target-fill" -> targetFill = Double.parseDouble(requireValue(args, ++i));
+                    case "--hold" -> holdMillis = Long.parseLong(requireValue(args, ++i));
+                    case "--abandon-rate" -> abandonRate = Double.parseDouble(requireValue(args, ++i));
+                    case "--together" -> seatsTogether = true;
+                    case "--patience" -> patienceMillis = Long.parseLong(requireValue(args, ++i));
+                    case "--scenario" -> scenarioFile = requireValue(args, ++i);
+                    case "--record" -> recordFile = requireValue(args, ++i);
+                    case "--replay" -> replayFile = requireValue(args, ++i);
+                    case "--serve" -> servePort = Integer.parseInt(requireValue(args, ++i));
+                    case "--coordinate" -> {
+                        coordinate = true;
+                        coordinatorPort = Integer.parseInt(requireValue(args, ++i));
+                    }
+                    case "--node" -> nodeId = Integer.parseInt(requireValue(args, ++i));
+                    case "--coordinator" -> coordinatorPort = Integer.parseInt(requireValue(args, ++i));
+                    case "--lease-size" -> leaseSize = Integer.parseInt(requireValue(args, ++i));
+                    case "--lease-timeout" -> leaseTimeoutMillis = Long.parseLong(requireValue(args, ++i));
+                    case "--log" -> logFile = requireValue(args, ++i);
+                    case "--quiet" -> quiet = true;
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (replayFile == null && args[0].startsWith("--")) {
+                throw new IllegalArgumentException("Missing configuration");
+            }
+            if (nodeId != 0 && (coordinate || coordinatorPort < 0)) {
+                throw new IllegalArgumentException("--node needs --coordinator <port>");
+            }
+            if (scenarioFile != null && (numEvents != 1 || journalDirectory != null || holdMillis > 0
+                    || targetFill > 0 || seatsTogether || patienceMillis > 0 || nodeId != 0)) {
+                throw new IllegalArgumentException("--scenario cannot be combined with --events, --journal, --hold, "
+                        + "--target-fill, --together, --patience or --node");
+            }
+            if (patienceMillis > 0 && (discreteClock || holdMillis > 0 || seatsTogether)) {
+                throw new IllegalArgumentException("--patience cannot be combined with --clock DISCRETE_EVENT, "
+                        + "--hold or --together");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (replayFile != null) {
+            replay(replayFile, poolType, executionMode, timeoutSeconds);
+            return;
+        }
+
+        Configuration configuration = Configuration.loadFromFile(resolveConfiguration(args[0]));
+        System.out.println("Loaded " + configuration);
+
+        TicketEventLog eventLog;
+        // The shared console log closes itself at exit; one made here is closed when the run ends
+        boolean ownEventLog = logFile != null || recordFile != null;
+        if (ownEventLog) {
+            // A trace with gaps would replay a different sale, so recording makes producers wait for room
+            eventLog = new TicketEventLog(TicketEventLog.DEFAULT_CAPACITY, recordFile != null);
+            if (logFile != null) {
+                eventLog.addSink(new FileEventSink(new File(logFile).toPath()));
+            } else if (!quiet) {
+                eventLog.addSink(TextEventSink.console());
+            }
+            if (recordFile != null) {
+                eventLog.addSink(new TraceEventSink(new File(recordFile).toPath()));
+            }
+        } else {
+            eventLog = quiet ? TicketEventLog.disabled() : TicketEventLog.console();
+        }
+
+        if (coordinate) {
+            // A restarted coordinator picks up the leases it journaled before
+            LeaseJournal leaseJournal = journalDirectory == null ? null
+                    : new LeaseJournal(new File(journalDirectory).toPath().resolve("leases.journal"));
+            coordinate(new LeaseCoordinator(configuration.getTotalTickets(), leaseSize, leaseTimeoutMillis,
+                    leaseJournal), coordinatorPort, timeoutSeconds);
+            return;
+        }
+        if (servePort >= 0) {
+            TicketPool pool = poolType.create(configuration.getMaxTicketCapacity(), configuration.getTotalTickets(),
+                    eventLog, new PurchasePolicy(maxTicketsPerCustomer, vipCustomers, presaleCustomers));
+            serve(pool, servePort, executionMode, timeoutSeconds);
+            return;
+        }
+
+        SimulationClock clock = discreteClock ? new DiscreteEventClock() : SimulationClock.realTime();
+        try {
+            if (scenarioFile != null) {
+                WorkloadScenario scenario = WorkloadScenario.loadFromFile(scenarioFile);
+                System.out.println(scenario);
+                WorkloadRunner runner = new WorkloadRunner(configuration, scenario, poolType, executionMode,
+                        eventLog, clock);
+                runner.setPurchasePolicy(new PurchasePolicy(maxTicketsPerCustomer, vipCustomers, presaleCustomers));
+                WorkloadReport report = runner.run(timeoutSeconds, TimeUnit.SECONDS);
+                closeAll(clock, eventLog, ownEventLog);
+                boolean traceComplete = checkTrace(recordFile, eventLog);
+                if (runner.getAdmissionController() != null) {
+                    System.out.println(runner.getAdmissionController());
+                }
+                System.out.println(report);
+                System.exit(report.isCompleted() && traceComplete ? 0 : 1);
+            }
+
+            SimulationEngine engine = new SimulationEngine(configuration, numVendors, numCustomers,
+                    poolType, executionMode, eventLog, clock, numEvents);
+            engine.setPurchasePolicy(new PurchasePolicy(maxTicketsPerCustomer, vipCustomers, presaleCustomers));
+            if (journalDirectory != null) {
+                engine.setJournalDirectory(new File(journalDirectory).toPath());
+                engine.setSnapshotIntervalMillis(snapshotIntervalMillis);
+            }
+            engine.setAdaptiveSupply(targetFill);
+            engine.setSeatsTogether(seatsTogether);
+            RemoteLeaseService ticketLeases = null;
+            if (nodeId != 0) {
+                ticketLeases = new RemoteLeaseService("localhost", coordinatorPort);
+                engine.setTicketLeases(ticketLeases, nodeId, leaseSize);
+            }
+            if (holdMillis > 0) {
+                engine.setReservations(holdMillis, abandonRate);
+            }
+            engine.setCustomerPatience(patienceMillis);
+            SimulationResult result = engine.run(timeoutSeconds, TimeUnit.SECONDS);
+            closeAll(clock, eventLog, ownEventLog);
+            boolean traceComplete = checkTrace(recordFile, eventLog);
+            if (ticketLeases != null) {
+                ticketLeases.close();
+            }
+            if (numEvents > 1) {
+                for (TicketedEvent event : engine.getEventRegistry().getEvents()) {
+                    System.out.println(event);
+                    if (event.getAdmissionController() != null) {
+                        System.out.println(event.getName() + " " + event.getAdmissionController());
+                    }
+                }
+            } else if (engine.getAdmissionController() != null) {
+                System.out.println(engine.getAdmissionController());
+            }
+            if (patienceMillis > 0) {
+                System.out.println("Customers who gave up waiting: " + engine.getCustomersGivenUp());
+            }
+            System.out.println(result);
+            System.exit(result.isCompleted() && traceComplete ? 0 : 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(130);
+        }
+    }
+
+    private static void replay(String traceFile, TicketPoolType poolType, ExecutionMode executionMode,
+                               long timeoutSeconds) {
+        EventTrace trace = EventTrace.read(new File(traceFile).toPath());
+        System.out.printf("Replaying %d ticket movements recorded over %d ms%n", trace.size(),
+                trace.getDurationMillis());
+        try {
+            WorkloadReport report = new TraceReplayer(trace, poolType, executionMode)
+                    .replay("Replay of " + traceFile, timeoutSeconds, TimeUnit.SECONDS);
+            System.out.println(report);
+            System.exit(report.isCompleted() ? 0 : 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(130);
+        }
+    }
+
+    private static void serve(TicketPool pool, int port, ExecutionMode executionMode, long timeoutSeconds) {
+        boolean soldOut = false;
+        try (TicketServer server = new TicketServer(pool, port, executionMode)) {
+            System.out.println("Serving " + pool.getTotalTicketsLimit() + " tickets on port " + server.getPort());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            long idleSince = 0;
+            // After the sell-out, wait for clients to collect their last responses and disconnect
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(100);
+                soldOut = pool.allTicketsRetrieved();
+                if (!soldOut || server.getOpenConnections() > 0) {
+                    idleSince = 0;
+                } else if (idleSince == 0) {
+                    idleSince = System.nanoTime();
+                } else if (System.nanoTime() - idleSince >= TimeUnit.SECONDS.toNanos(1)) {
+                    break;
+                }
+            }
+            pool.shutdown();
+            System.out.println(server);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(130);
+        }
+        System.out.println(pool.getMetrics().snapshot());
+        System.exit(soldOut ? 0 : 1);
+    }
+
+    private static void coordinate(LeaseCoordinator coordinator, int port, long timeoutSeconds) {
+        try (LeaseCoordinatorServer server = new LeaseCoordinatorServer(coordinator, port)) {
+            System.out.println("Leasing " + coordinator.getTotalTicketsLimit() + " tickets on port "
+                    + server.getPort());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            // Nodes disconnect once their customers are done, after the last ticket was released
+            while (System.nanoTime() < deadline && !(coordinator.isSoldOut() && coordinator.getNodeCount() > 0
+                    && server.getConnectedNodes() == 0)) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(130);
+        }
+        System.out.println(coordinator);
+        System.exit(coordinator.isSoldOut() ? 0 : 1);
+    }
+
+    private static void closeAll(SimulationClock clock, TicketEventLog eventLog, boolean ownEventLog) {
+        if (clock instanceof DiscreteEventClock discreteEventClock) {
+            discreteEventClock.close();
+        }
+        if (ownEventLog) {
+            eventLog.close();
+        }
+    }
+
+    // Call after the log is closed, when every event it will ever write has reached the trace
+    private static boolean checkTrace(String recordFile, TicketEventLog eventLog) {
+        if (recordFile == null || eventLog.getDroppedEvents() == 0) {
+            return true;
+        }
+        System.err.println("Trace " + recordFile + " is missing " + eventLog.getDroppedEvents()
+                + " events and would not replay this sale");
+        return false;
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static boolean parseClock(String value) {
+        return switch (value.toUpperCase(Locale.ROOT)) {
+            case "REAL_TIME" -> false;
+            case "DISCRETE_EVENT" -> true;
+            default -> throw new IllegalArgumentException("Unknown clock: " + value);
+        };
+    }
+
+    private static String resolveConfiguration(String argument) {
+        if (new File(argument).isFile()) {
+            return argument;
+        }
+        String name = argument.endsWith(".txt") ? argument : argument + ".txt";
+        return "configurations/" + name;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ticketsystem.javafx;
+
+// Source of time for vendors and customers. Participants register the thread they run on
+// so that clocks which advance virtual time can tell when every participant is idle.
+public interface SimulationClock {
+    long currentTimeMillis();
+
+    void sleep(long millis) throws InterruptedException;
+
+    // Announces participants that are about to start, before any of them has registered
+    default void expectParticipants(int count) {
+    }
+
+    default void register() {
+    }
+
+    // Called however the participant ends: a clock that advances virtual time waits on every registered one
+    default void deregister() {
+    }
+
+    static SimulationClock realTime() {
+        return RealTimeClock.INSTANCE;
+    }
+}
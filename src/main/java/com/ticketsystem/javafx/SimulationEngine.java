@@ -0,0 +1,474 @@
+package com.ticketsystem.javafx;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Runs vendors and customers against a ticket pool without any UI, so the same simulation
+// can be driven from the JavaFX application, the command line or a batch job.
+public class SimulationEngine {
+    // Five minutes of occupancy history at a tenth of a second
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+    private static final int SAMPLE_HISTORY = 3000;
+
+    private final Configuration configuration;
+    private final int numVendors;
+    private final int numCustomers;
+    private final TicketPoolType poolType;
+    private final ExecutionMode executionMode;
+    private final TicketEventLog eventLog;
+    // index is eventId - 1; with several events, each run logs every event to a shard of eventLog of its own
+    private final TicketEventLog[] eventLogs;
+    private final SimulationClock clock;
+    private final int numEvents;
+    private final List<Vendor> vendors;
+    private final List<Customer> customers;
+    private final List<TicketJournal> journals;
+    private final List<JournalSnapshotter> snapshotters;
+    private final List<ReservationTicketPool> reservationPools;
+    private Path journalDirectory;
+    private long snapshotIntervalMillis;
+    private long holdMillis;
+    private double abandonRate;
+    private double targetFill;
+    private boolean seatsTogether;
+    private long customerPatienceMillis;
+    private PurchasePolicy purchasePolicy;
+    private TicketLeaseService ticketLeases;
+    private int nodeId;
+    private int leaseSize;
+    private EventRegistry eventRegistry;
+    private ParticipantExecutor participantExecutor;
+    private MetricsSampler metricsSampler;
+    private volatile boolean running;
+    private long startNanos;
+    private long stopNanos;
+    private long clockStartMillis;
+    private long clockStopMillis;
+
+    public SimulationEngine(Configuration configuration, int numVendors, int numCustomers,
+                            TicketPoolType poolType, ExecutionMode executionMode) {
+        this(configuration, numVendors, numCustomers, poolType, executionMode, TicketEventLog.console());
+    }
+
+    public SimulationEngine(Configuration configuration, int numVendors, int numCustomers,
+                            TicketPoolType poolType, ExecutionMode executionMode, TicketEventLog eventLog) {
+        this(configuration, numVendors, numCustomers, poolType, executionMode, eventLog, SimulationClock.realTime());
+    }
+
+    public SimulationEngine(Configuration configuration, int numVendors, int numCustomers,
+                            TicketPoolType poolType, ExecutionMode executionMode, TicketEventLog eventLog,
+                            SimulationClock clock) {
+        this(configuration, numVendors, numCustomers, poolType, executionMode, eventLog, clock, 1);
+    }
+
+    // Runs numEvents events side by side, each with the configuration's capacity and ticket total
+    public SimulationEngine(Configuration configuration, int numVendors, int numCustomers,
+                            TicketPoolType poolType, ExecutionMode executionMode, TicketEventLog eventLog,
+                            SimulationClock clock, int numEvents) {
+        if (numVendors < 1 || numVendors > executionMode.getMaxVendors()) {
+            throw new IllegalArgumentException("Number of vendors must be between 1 and "
+                    + executionMode.getMaxVendors());
+        }
+        if (numCustomers < 1 || numCustomers > executionMode.getMaxCustomers()) {
+            throw new IllegalArgumentException("Number of customers must be between 1 and "
+                    + executionMode.getMaxCustomers());
+        }
+        if (numEvents < 1 || numEvents > Math.min(numVendors, numCustomers)) {
+            throw new IllegalArgumentException("Number of events must be between 1 and the number of "
+                    + "vendors and customers, so that every event gets both");
+        }
+        this.configuration = configuration;
+        this.numVendors = numVendors;
+        this.numCustomers = numCustomers;
+        this.poolType = poolType;
+        this.executionMode = executionMode;
+        this.eventLog = eventLog;
+        this.clock = clock;
+        this.numEvents = numEvents;
+        this.eventLogs = new TicketEventLog[numEvents];
+        this.vendors = new ArrayList<>();
+        this.customers = new ArrayList<>();
+        this.journals = new ArrayList<>();
+        this.snapshotters = new ArrayList<>();
+        this.reservationPools = new ArrayList<>();
+        this.snapshotIntervalMillis = JournalSnapshotter.DEFAULT_INTERVAL_MILLIS;
+        this.purchasePolicy = PurchasePolicy.unrestricted();
+    }
+
+    // Journals each event to <directory>/event-<id>.journal, snapshots it to event-<id>.snapshot and
+    // resumes from the latest snapshot plus the journal tail on start
+    public synchronized void setJournalDirectory(Path journalDirectory) {
+        if (running) {
+            throw new IllegalStateException("Cannot change the journal while the simulation is running");
+        }
+        this.journalDirectory = journalDirectory;
+    }
+
+    public synchronized void setPurchasePolicy(PurchasePolicy purchasePolicy) {
+        if (running) {
+            throw new IllegalStateException("Cannot change the purchase policy while the simulation is running");
+        }
+        // Each event gets roughly numCustomers / numEvents customers; capped, they must still be able to sell out
+        long reachable = (long) purchasePolicy.getMaxTicketsPerCustomer() * (numCustomers / numEvents);
+        if (purchasePolicy.hasPurchaseLimit() && reachable < configuration.getTotalTickets()) {
+            throw new IllegalArgumentException("With at most " + purchasePolicy.getMaxTicketsPerCustomer()
+                    + " tickets per customer the customers cannot buy all " + configuration.getTotalTickets()
+                    + " tickets of an event");
+        }
+        this.purchasePolicy = purchasePolicy;
+    }
+
+    // Customers reserve tickets and confirm them after checking out; holds not confirmed within holdMillis
+    // expire and their tickets go back on sale; abandonRate is the share of checkouts customers walk away from
+    public synchronized void setReservations(long holdMillis, double abandonRate) {
+        if (running) {
+            throw new IllegalStateException("Cannot change reservations while the simulation is running");
+        }
+        if (holdMillis < 1) {
+            throw new IllegalArgumentException("Hold time must be positive");
+        }
+        // Customers who always walk away would keep the event from ever selling out
+        if (abandonRate < 0 || abandonRate >= 1) {
+            throw new IllegalArgumentException("Abandon rate must be at least 0 and below 1");
+        }
+        this.holdMillis = holdMillis;
+        this.abandonRate = abandonRate;
+    }
+
+    // Customers buy their batch for a group that sits together, as adjacent seats in one row, and only split
+    // up once no block that big can free up any more
+    public synchronized void setSeatsTogether(boolean seatsTogether) {
+        if (running) {
+            throw new IllegalStateException("Cannot change seating while the simulation is running");
+        }
+        if (seatsTogether && poolType != TicketPoolType.SEAT_MAP) {
+            throw new IllegalArgumentException("Seating groups together needs the " + TicketPoolType.SEAT_MAP
+                    + " pool");
+        }
+        this.seatsTogether = seatsTogether;
+    }
+
+    // Customers buying outright wait at most patienceMillis for tickets, then give up and leave; 0 waits
+    // until the event sells out. Patience passes in real time, so it needs the real-time clock.
+    public synchronized void setCustomerPatience(long patienceMillis) {
+        if (running) {
+            throw new IllegalStateException("Cannot change customer patience while the simulation is running");
+        }
+        if (patienceMillis < 0) {
+            throw new IllegalArgumentException("Patience cannot be negative");
+        }
+        if (patienceMillis > 0 && clock instanceof DiscreteEventClock) {
+            throw new IllegalArgumentException("Patience passes in real time and needs the real-time clock");
+        }
+        this.customerPatienceMillis = patienceMillis;
+    }
+
+    // Lets a feedback controller per event set the vendors' batch size and release interval so the pool
+    // stays about targetFill full; 0 keeps the configured batch size and retrieval time
+    public synchronized void setAdaptiveSupply(double targetFill) {
+        if (running) {
+            throw new IllegalStateException("Cannot change the supply mode while the simulation is running");
+        }
+        if (targetFill < 0 || targetFill > 1) {
+            throw new IllegalArgumentException("Target fill must be between 0 and 1");
+        }
+        this.targetFill = targetFill;
+    }
+
+    // Runs this engine as node nodeId of a partitioned sale: its pool releases ticket numbers leased from
+    // the coordinator behind ticketLeases, leaseSize at a time, instead of numbering tickets itself
+    public synchronized void setTicketLeases(TicketLeaseService ticketLeases, int nodeId, int leaseSize) {
+        if (running) {
+            throw new IllegalStateException("Cannot change ticket leasing while the simulation is running");
+        }
+        if (nodeId < 1 || leaseSize < 1) {
+            throw new IllegalArgumentException("Node id and lease size must be positive");
+        }
+        this.ticketLeases = ticketLeases;
+        this.nodeId = nodeId;
+        this.leaseSize = leaseSize;
+    }
+
+    public synchronized void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        if (snapshotIntervalMillis < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Simulation is already running");
+        }
+        if (ticketLeases != null && (numEvents > 1 || journalDirectory != null)) {
+            throw new IllegalStateException("A node of a partitioned sale runs one event and cannot be journaled");
+        }
+        if (ticketLeases != null && seatsTogether) {
+            throw new IllegalStateException("A node of a partitioned sale does not know where its seats are");
+        }
+        if (customerPatienceMillis > 0 && (holdMillis > 0 || seatsTogether)) {
+            throw new IllegalStateException("Only customers buying outright and seated anywhere give up waiting");
+        }
+
+        for (int i = 0; i < numEvents; i++) {
+            eventLogs[i] = numEvents > 1 ? eventLog.shard() : eventLog;
+        }
+        eventRegistry = new EventRegistry(poolType, eventLog, purchasePolicy);
+        for (int i = 0; i < numEvents; i++) {
+            int eventId = i + 1;
+            // Each event admits at the configured rates on its own, so a rush on one does not turn away
+            // customers of another
+            AdmissionController eventAdmission = configuration.hasAdmissionControl()
+                    ? new AdmissionController(configuration, clock) : null;
+            TicketInventory inventory = TicketInventory.defaultLayout(eventId, configuration.getTotalTickets());
+            eventRegistry.register(new TicketedEvent(eventId, "Event " + eventId, createEventPool(eventId, inventory),
+                    inventory, eventAdmission));
+        }
+        participantExecutor = new ParticipantExecutor(executionMode);
+        metricsSampler = new MetricsSampler(eventRegistry::getAggregateMetrics, SAMPLE_INTERVAL_MILLIS,
+                SAMPLE_HISTORY);
+        vendors.clear();
+        customers.clear();
+        running = true;
+        startNanos = System.nanoTime();
+        clockStartMillis = clock.currentTimeMillis();
+        clock.expectParticipants(numVendors + numCustomers);
+
+        SupplyController[] supplyControllers = new SupplyController[numEvents];
+        if (targetFill > 0) {
+            int targetOccupancy = (int) Math.max(1, Math.round(targetFill * configuration.getMaxTicketCapacity()));
+            for (int i = 0; i < numEvents; i++) {
+                supplyControllers[i] = new SupplyController(eventRegistry.get(i + 1).getTicketPool(), clock,
+                        targetOccupancy, configuration.getTicketRetrievalTime(), configuration.getVendorBatchSize());
+            }
+        }
+
+        for (int i = 0; i < numVendors; i++) {
+            TicketedEvent event = eventRegistry.route(i + 1);
+            TicketPool pool = event.getTicketPool();
+            SupplyController supplyController = supplyControllers[event.getEventId() - 1];
+            Vendor vendor = supplyController != null
+                    ? new Vendor(i + 1, pool, supplyController, clock)
+                    : new Vendor(i + 1, pool, configuration.getTicketRetrievalTime(),
+                            configuration.getVendorBatchSize(), clock);
+            vendors.add(vendor);
+            participantExecutor.submit(vendor);
+        }
+
+        for (int i = 0; i < numCustomers; i++) {
+            TicketedEvent event = eventRegistry.route(i + 1);
+            TicketPool pool = event.getTicketPool();
+            Customer customer = new Customer.Builder(i + 1, pool, configuration.getTicketBuyingTime())
+                    .batchSize(configuration.getCustomerBatchSize())
+                    .clock(clock)
+                    .reservations(pool instanceof ReservationTicketPool reservations ? reservations : null,
+                            abandonRate)
+                    .admissionController(event.getAdmissionController())
+                    .seatsTogether(seatsTogether)
+                    .patienceMillis(customerPatienceMillis)
+                    .build();
+            customers.add(customer);
+            participantExecutor.submit(customer);
+        }
+    }
+
+    private TicketPool createEventPool(int eventId, TicketInventory inventory) {
+        int totalTickets = configuration.getTotalTickets();
+        TicketPool ticketPool;
+        if (ticketLeases != null) {
+            ticketPool = new LeasedTicketPool(nodeId, ticketLeases, leaseSize, configuration.getMaxTicketCapacity(),
+                    totalTickets, eventLogs[eventId - 1]);
+            if (purchasePolicy.hasPurchaseLimit()) {
+                ticketPool = new PurchaseLimitTicketPool(ticketPool, purchasePolicy.getMaxTicketsPerCustomer());
+            }
+        } else {
+            ticketPool = poolType.create(inventory, configuration.getMaxTicketCapacity(), totalTickets,
+                    eventLogs[eventId - 1], purchasePolicy);
+        }
+        JournaledTicketPool journaledPool = null;
+        if (journalDirectory != null) {
+            // A segment holds one record per ticket added and one per ticket sold; holds, their confirmations
+            // and returns, and resales of expired holds grow the file by further segments
+            TicketJournal journal = new TicketJournal(journalDirectory.resolve("event-" + eventId + ".journal"),
+                    (int) Math.min(2L * totalTickets, Integer.MAX_VALUE));
+            journals.add(journal);
+            Path snapshotFile = journalDirectory.resolve("event-" + eventId + ".snapshot");
+            PoolSnapshot snapshot = PoolSnapshot.readFrom(snapshotFile);
+            journaledPool = new JournaledTicketPool(ticketPool, journal, snapshot, holdMillis > 0);
+            ticketPool = journaledPool;
+            snapshotters.add(new JournalSnapshotter(journal, snapshotFile, snapshot, snapshotIntervalMillis));
+        }
+        if (holdMillis > 0) {
+            ReservationTicketPool reservations = new ReservationTicketPool(ticketPool, holdMillis, clock);
+            if (journaledPool != null) {
+                reservations.restoreHolds(journaledPool.getRecoveredState());
+            }
+            reservationPools.add(reservations);
+            ticketPool = reservations;
+        }
+        return ticketPool;
+    }
+
+    // Waits for every participant to finish on its own; returns false if the timeout elapsed first
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        ParticipantExecutor executor = participantExecutor;
+        if (executor == null) {
+            return true;
+        }
+        boolean finished = executor.awaitCompletion(timeout, unit);
+        if (finished) {
+            markStopped();
+            closeReservations();
+            closeJournals();
+            closeEventLogs();
+        }
+        return finished;
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        for (Vendor vendor : vendors) {
+            vendor.stop();
+        }
+        for (Customer customer : customers) {
+            customer.stop();
+        }
+        eventRegistry.shutdown();
+        participantExecutor.stop();
+        markStopped();
+        closeReservations();
+        if (!journals.isEmpty()) {
+            // Let interrupted participants journal what they already sold before the files close
+            try {
+                participantExecutor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            closeJournals();
+        }
+        closeEventLogs();
+    }
+
+    private synchronized void closeReservations() {
+        for (ReservationTicketPool reservations : reservationPools) {
+            reservations.close();
+        }
+        reservationPools.clear();
+    }
+
+    // The shards hand their rings back to eventLog, which may be the console log and outlive the engine
+    private synchronized void closeEventLogs() {
+        if (numEvents > 1) {
+            for (TicketEventLog shard : eventLogs) {
+                shard.close();
+            }
+        }
+    }
+
+    // Journals commit their last records first, so the final snapshots cover everything
+    private synchronized void closeJournals() {
+        for (TicketJournal journal : journals) {
+            journal.close();
+        }
+        for (JournalSnapshotter snapshotter : snapshotters) {
+            snapshotter.close();
+        }
+        journals.clear();
+        snapshotters.clear();
+    }
+
+    // Starts the simulation, waits up to the timeout for it to sell out and stops whatever is left
+    public SimulationResult run(long timeout, TimeUnit unit) throws InterruptedException {
+        start();
+        try {
+            awaitCompletion(timeout, unit);
+        } finally {
+            stop();
+            participantExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        return getResult();
+    }
+
+    private synchronized void markStopped() {
+        if (running) {
+            running = false;
+            stopNanos = System.nanoTime();
+            clockStopMillis = clock.currentTimeMillis();
+            metricsSampler.close();
+        }
+    }
+
+    public SimulationResult getResult() {
+        long endNanos = running ? System.nanoTime() : stopNanos;
+        long clockEndMillis = running ? clock.currentTimeMillis() : clockStopMillis;
+        EventRegistry registry = eventRegistry;
+        MetricsSampler sampler = metricsSampler;
+        return new SimulationResult(poolType, executionMode, numVendors, numCustomers,
+                configuration.getTotalTickets() * numEvents,
+                registry == null ? 0 : registry.getTotalTicketsAdded(),
+                registry == null ? 0 : registry.getTicketsSold(),
+                TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos), clockEndMillis - clockStartMillis,
+                registry != null && registry.allTicketsRetrieved(),
+                registry == null ? null : registry.getAggregateMetrics(),
+                sampler == null ? List.of() : sampler.getSamples());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Pool of the first event; the only one unless the engine runs several events
+    public TicketPool getTicketPool() {
+        return eventRegistry == null ? null : eventRegistry.get(1).getTicketPool();
+    }
+
+    // The first event's controller; null unless the configuration sets admission limits
+    public AdmissionController getAdmissionController() {
+        return eventRegistry == null ? null : eventRegistry.get(1).getAdmissionController();
+    }
+
+    // Occupancy, rates and waiting counts of every event together, sampled in wall-clock time while running
+    public MetricsSampler getMetricsSampler() {
+        return metricsSampler;
+    }
+
+    public EventRegistry getEventRegistry() {
+        return eventRegistry;
+    }
+
+    public int getNumEvents() {
+        return numEvents;
+    }
+
+    public List<Vendor> getVendors() {
+        return Collections.unmodifiableList(vendors);
+    }
+
+    public List<Customer> getCustomers() {
+        return Collections.unmodifiableList(customers);
+    }
+
+    public int getCustomersGivenUp() {
+        int givenUp = 0;
+        for (Customer customer : customers) {
+            if (customer.hasGivenUp()) {
+                givenUp++;
+            }
+        }
+        return givenUp;
+    }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+}
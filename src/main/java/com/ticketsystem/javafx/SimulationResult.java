@@ -0,0 +1,146 @@
+package com.ticketsystem.javafx;
+
+import java.util.List;
+
+public class SimulationResult {
+    private final TicketPoolType poolType;
+    private final ExecutionMode executionMode;
+    private final int numVendors;
+    private final int numCustomers;
+    private final int totalTicketsLimit;
+    private final int ticketsAdded;
+    private final int ticketsSold;
+    private final long durationMillis;
+    private final long simulatedMillis;
+    private final boolean completed;
+    private final MetricsSnapshot metrics;
+    private final List<MetricsSample> samples;
+
+    public SimulationResult(TicketPoolType poolType, ExecutionMode executionMode, int numVendors, int numCustomers,
+                            int totalTicketsLimit, int ticketsAdded, int ticketsSold, long durationMillis,
+                            long simulatedMillis, boolean completed, MetricsSnapshot metrics,
+                            List<MetricsSample> samples) {
+        this.poolType = poolType;
+        this.executionMode = executionMode;
+        this.numVendors = numVendors;
+        this.numCustomers = numCustomers;
+        this.totalTicketsLimit = totalTicketsLimit;
+        this.ticketsAdded = ticketsAdded;
+        this.ticketsSold = ticketsSold;
+        this.durationMillis = durationMillis;
+        this.simulatedMillis = simulatedMillis;
+        this.completed = completed;
+        this.metrics = metrics;
+        this.samples = List.copyOf(samples);
+    }
+
+    public TicketPoolType getPoolType() {
+        return poolType;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public int getNumVendors() {
+        return numVendors;
+    }
+
+    public int getNumCustomers() {
+        return numCustomers;
+    }
+
+    public int getTotalTicketsLimit() {
+        return totalTicketsLimit;
+    }
+
+    public int getTicketsAdded() {
+        return ticketsAdded;
+    }
+
+    public int getTicketsSold() {
+        return ticketsSold;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    // Time that passed on the simulation clock; equals the wall duration unless the clock is accelerated
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    public double getSimulatedSalesPerSecond() {
+        return simulatedMillis == 0 ? 0 : ticketsSold * 1000.0 / simulatedMillis;
+    }
+
+    // True when every ticket was released and sold before the run was stopped
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public double getSalesPerSecond() {
+        return durationMillis == 0 ? 0 : ticketsSold * 1000.0 / durationMillis;
+    }
+
+    public MetricsSnapshot getMetrics() {
+        return metrics;
+    }
+
+    // Pool state over the run, oldest first; a long run keeps only its most recent samples
+    public List<MetricsSample> getSamples() {
+        return samples;
+    }
+
+    public MetricsSample getPeakOccupancySample() {
+        MetricsSample peak = null;
+        for (MetricsSample sample : samples) {
+            if (peak == null || sample.getOccupancy() > peak.getOccupancy()) {
+                peak = sample;
+            }
+        }
+        return peak;
+    }
+
+    public MetricsSample getPeakWaitingSample() {
+        MetricsSample peak = null;
+        for (MetricsSample sample : samples) {
+            if (peak == null || sample.getWaitingCustomers() > peak.getWaitingCustomers()) {
+                peak = sample;
+            }
+        }
+        return peak;
+    }
+
+    private String describeSamples() {
+        if (samples.isEmpty()) {
+            return "";
+        }
+        MetricsSample busiest = getPeakOccupancySample();
+        MetricsSample mostWaiting = getPeakWaitingSample();
+        return String.format("Peak Occupancy: %d tickets at %d ms, Peak Waiting Customers: %d at %d ms%n",
+                busiest.getOccupancy(), busiest.getElapsedMillis(),
+                mostWaiting.getWaitingCustomers(), mostWaiting.getElapsedMillis());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Simulation Result:%n" +
+                        "Pool: %s, Execution: %s%n" +
+                        "Vendors: %d, Customers: %d%n" +
+                        "Tickets Added: %d/%d, Tickets Sold: %d%n" +
+                        "Duration: %d ms, Throughput: %.1f sales/s%n" +
+                        "Simulated Duration: %d ms, Simulated Throughput: %.1f sales/s%n" +
+                        "Status: %s%n" +
+                        "%s" +
+                        "%s",
+                poolType, executionMode, numVendors, numCustomers,
+                ticketsAdded, totalTicketsLimit, ticketsSold,
+                durationMillis, getSalesPerSecond(),
+                simulatedMillis, getSimulatedSalesPerSecond(),
+                completed ? "Completed" : "Stopped",
+                describeSamples(),
+                metrics == null ? "No pool metrics" : metrics);
+    }
+}
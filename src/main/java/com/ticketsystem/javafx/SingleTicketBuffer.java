@@ -0,0 +1,14 @@
+package com.ticketsystem.javafx;
+
+// One-ticket buffers for the single-ticket defaults of TicketPool, one per thread so those calls
+// allocate nothing
+final class SingleTicketBuffer {
+    private static final ThreadLocal<int[]> BUFFERS = ThreadLocal.withInitial(() -> new int[1]);
+
+    private SingleTicketBuffer() {
+    }
+
+    static int[] get() {
+        return BUFFERS.get();
+    }
+}
@@ -0,0 +1,119 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Feedback controller shared by the vendors of one pool. It compares the tickets in the pool with a
+// target fill level plus the customers waiting for supply, and turns the error into a supply level: a
+// multiplier on the configured release rate. Above 1 vendors release bigger batches more often; below 1
+// they release single tickets less often, so the pool neither runs dry nor fills up and blocks vendors.
+// The level comes from a PI controller whose integral is clamped, so a long sell-out does not wind it up.
+public class SupplyController {
+    private static final double PROPORTIONAL_GAIN = 0.5;
+    private static final double INTEGRAL_GAIN_PER_SECOND = 0.5;
+    private static final double MAX_INTEGRAL = 4;
+    private static final double MIN_LEVEL = 0.25;
+    private static final double MAX_LEVEL = 8;
+    // Release intervals stay within this factor of the configured retrieval time either way
+    private static final int INTERVAL_RANGE = 4;
+
+    private final TicketPool ticketPool;
+    private final SimulationClock clock;
+    private final int targetOccupancy;
+    private final int baseBatchSize;
+    private final int baseIntervalMillis;
+    private final int maxBatchSize;
+    private final ReentrantLock lock;
+    private double integral;
+    private long lastUpdateMillis;
+    private volatile double level;
+    private volatile int batchSize;
+    private volatile int releaseIntervalMillis;
+
+    public SupplyController(TicketPool ticketPool, SimulationClock clock, int targetOccupancy,
+                            int baseIntervalMillis, int baseBatchSize) {
+        if (targetOccupancy < 1 || targetOccupancy > ticketPool.getMaxCapacity()) {
+            throw new IllegalArgumentException("Target occupancy must be between 1 and the pool capacity");
+        }
+        if (baseIntervalMillis < 1 || baseBatchSize < 1) {
+            throw new IllegalArgumentException("Release interval and batch size must be positive");
+        }
+        this.ticketPool = ticketPool;
+        this.clock = clock;
+        this.targetOccupancy = targetOccupancy;
+        this.baseBatchSize = baseBatchSize;
+        this.baseIntervalMillis = baseIntervalMillis;
+        this.maxBatchSize = Math.min(ticketPool.getMaxCapacity(), Math.max(baseBatchSize, targetOccupancy));
+        this.lock = new ReentrantLock();
+        this.lastUpdateMillis = clock.currentTimeMillis();
+        apply(1);
+    }
+
+    // Called by a vendor before each release; returns how many tickets to release now
+    public int nextBatchSize() {
+        // Vendors that arrive while another one is updating use the decision that is about to be replaced
+        if (lock.tryLock()) {
+            try {
+                update();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return batchSize;
+    }
+
+    // How long the vendor should wait before its next release
+    public int getReleaseIntervalMillis() {
+        return releaseIntervalMillis;
+    }
+
+    // Called with the lock held
+    private void update() {
+        long now = clock.currentTimeMillis();
+        long elapsed = now - lastUpdateMillis;
+        lastUpdateMillis = now;
+
+        PoolMetrics metrics = ticketPool.getMetrics();
+        long demand = targetOccupancy + metrics.getWaitingCustomers();
+        double error = (double) (demand - ticketPool.getAvailableTickets()) / targetOccupancy;
+        integral = Math.max(-MAX_INTEGRAL, Math.min(MAX_INTEGRAL,
+                integral + error * INTEGRAL_GAIN_PER_SECOND * elapsed / 1000.0));
+        apply(1 + PROPORTIONAL_GAIN * error + integral);
+    }
+
+    private void apply(double requestedLevel) {
+        double newLevel = Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, requestedLevel));
+        // Shorten the interval first, then make up the rest of the rate with bigger batches
+        int interval = (int) Math.round(baseIntervalMillis / newLevel);
+        interval = Math.max(Math.max(1, baseIntervalMillis / INTERVAL_RANGE),
+                Math.min(baseIntervalMillis * INTERVAL_RANGE, interval));
+        int batch = (int) Math.round(newLevel * baseBatchSize * interval / baseIntervalMillis);
+        batch = Math.max(1, Math.min(maxBatchSize, batch));
+
+        level = newLevel;
+        batchSize = batch;
+        releaseIntervalMillis = interval;
+        ticketPool.getMetrics().supplyAdjusted(targetOccupancy, batch, interval);
+    }
+
+    public double getLevel() {
+        return level;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getTargetOccupancy() {
+        return targetOccupancy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Supply level %.2f: %d tickets every %d ms (target occupancy %d)",
+                level, batchSize, releaseIntervalMillis, targetOccupancy);
+    }
+}
@@ -0,0 +1,24 @@
+package com.ticketsystem.javafx;
+
+import java.util.function.Consumer;
+
+public class TextEventSink implements TicketEventSink {
+    private final Consumer<String> output;
+    private final StringBuilder line;
+
+    public TextEventSink(Consumer<String> output) {
+        this.output = output;
+        this.line = new StringBuilder(128);
+    }
+
+    public static TextEventSink console() {
+        return new TextEventSink(System.out::println);
+    }
+
+    @Override
+    public void onEvent(TicketEvent event) {
+        line.setLength(0);
+        event.appendTo(line);
+        output.accept(line.toString());
+    }
+}
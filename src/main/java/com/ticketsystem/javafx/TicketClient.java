@@ -0,0 +1,97 @@
+package com.ticketsystem.javafx;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// Blocking client for TicketServer. Requests are buffered by send() and go out together on flush(),
+// so a caller can keep several in flight and read the responses back in order with receive().
+// Not thread-safe: one client per thread.
+public class TicketClient implements AutoCloseable {
+    private final SocketChannel channel;
+    private final ByteBuffer out;
+    private final ByteBuffer in;
+    private int nextRequestId;
+    private byte status;
+    private int count;
+
+    public TicketClient(String host, int port) {
+        try {
+            this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            throw new RuntimeException("Error connecting to ticket server: " + e.getMessage(), e);
+        }
+        this.out = ByteBuffer.allocate(64 * TicketProtocol.REQUEST_SIZE);
+        this.in = ByteBuffer.allocate(TicketProtocol.responseSize(TicketProtocol.MAX_BATCH) * 4);
+        this.in.flip();
+    }
+
+    // Queues a request and returns its id; flushes first if the buffer is full
+    public int send(byte operation, int participantId, int ticketCount) throws IOException {
+        if (out.remaining() < TicketProtocol.REQUEST_SIZE) {
+            flush();
+        }
+        int requestId = nextRequestId++;
+        TicketProtocol.writeRequest(out, operation, requestId, participantId, ticketCount);
+        return requestId;
+    }
+
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    // Waits for the next response and copies its values into values, which must have room for
+    // TicketProtocol.MAX_BATCH ints. Returns the request id; getStatus() and getCount() describe the rest.
+    public int receive(int[] values) throws IOException {
+        fill(TicketProtocol.RESPONSE_HEADER_SIZE);
+        int requestId = in.getInt();
+        status = in.get();
+        count = in.getInt();
+        if (count < 0 || count > TicketProtocol.MAX_BATCH) {
+            throw new IOException("Malformed response with " + count + " values");
+        }
+        fill(4 * count);
+        for (int i = 0; i < count; i++) {
+            values[i] = in.getInt();
+        }
+        return requestId;
+    }
+
+    private void fill(int bytes) throws IOException {
+        if (in.remaining() >= bytes) {
+            return;
+        }
+        in.compact();
+        while (in.position() < bytes) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("Ticket server closed the connection");
+            }
+        }
+        in.flip();
+    }
+
+    public byte getStatus() {
+        return status;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing ticket client: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ticketsystem.javafx;
+
+// Read-only view of one slot of the event ring. The writer thread reuses a single instance,
+// so sinks must copy whatever they want to keep.
+public final class TicketEvent {
+    private long timestamp;
+    private TicketEventType type;
+    private int participantId;
+    private int firstTicket;
+    private int lastTicket;
+    private int count;
+    private int poolSize;
+
+    void set(long timestamp, TicketEventType type, int participantId,
+             int firstTicket, int lastTicket, int count, int poolSize) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.participantId = participantId;
+        this.firstTicket = firstTicket;
+        this.lastTicket = lastTicket;
+        this.count = count;
+        this.poolSize = poolSize;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public TicketEventType getType() {
+        return type;
+    }
+
+    public int getParticipantId() {
+        return participantId;
+    }
+
+    public int getFirstTicket() {
+        return firstTicket;
+    }
+
+    public int getLastTicket() {
+        return lastTicket;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void appendTo(StringBuilder builder) {
+        switch (type) {
+            case ADDED -> {
+                builder.append("Vendor ").append(participantId).append(" added ");
+                appendTickets(builder);
+                builder.append(" to the pool. Total tickets: ").append(poolSize);
+            }
+            case PURCHASED -> {
+                builder.append("Customer ").append(participantId).append(" purchased ");
+                appendTickets(builder);
+                builder.append(". Remaining tickets: ").append(poolSize);
+            }
+            case RETURNED -> {
+                builder.append("Customer ").append(participantId).append(" returned ");
+                appendTickets(builder);
+                builder.append(" to the pool. Total tickets: ").append(poolSize);
+            }
+            case WAITING -> builder.append("Customer ").append(participantId).append(" waiting for tickets...");
+            case QUEUED -> builder.append("Customer ").append(participantId).append(" is number ").append(count)
+                    .append(" in line for tickets");
+            case SHUTDOWN -> builder.append("Ticket pool shut down. Remaining tickets: ").append(poolSize);
+        }
+    }
+
+    private void appendTickets(StringBuilder builder) {
+        if (count == 1) {
+            builder.append("ticket #").append(firstTicket);
+        } else {
+            builder.append(count).append(" tickets (#").append(firstTicket).append("-#").append(lastTicket).append(')');
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+}
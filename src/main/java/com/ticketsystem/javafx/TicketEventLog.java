@@ -0,0 +1,354 @@
+package com.ticketsystem.javafx;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Multi-producer, single-consumer ring of ticket events. Producers only write primitives into
+// preallocated columns; one background writer formats them for the registered sinks.
+// When the writer falls behind, new events are dropped and counted instead of blocking a sale, unless the
+// log is lossless: then producers wait for room, for sinks such as a trace that must see every event.
+// A shard is a log with a ring of its own that the same writer drains into the same sinks, so producers on
+// one shard, such as the pools of a busy event, neither contend on another shard's tail nor fill its ring.
+// Closing a shard hands its ring back, so a long-lived root log such as the console does not keep one per run.
+public final class TicketEventLog implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long CLOSE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final TicketEventType[] TYPES = TicketEventType.values();
+
+    private final boolean enabled;
+    private final boolean lossless;
+    private final Ring ring;
+    // The log whose writer drains this log's ring; the log itself unless it is a shard
+    private final TicketEventLog root;
+    // The rings this log reports on: all of them for a root log, replaced as a whole when a shard is added
+    // or closed
+    private volatile Ring[] rings;
+    private final List<TicketEventSink> sinks;
+    private final Thread writer;
+    private volatile boolean running;
+
+    private static final class Ring {
+        private final int mask;
+        private final AtomicLongArray published;
+        private final long[] timestamps;
+        private final int[] types;
+        private final int[] participantIds;
+        private final int[] firstTickets;
+        private final int[] lastTickets;
+        private final int[] counts;
+        private final int[] poolSizes;
+        private final AtomicLong tail;
+        private final AtomicLong head;
+        private final AtomicLong droppedEvents;
+        // Set once the shard is closed; the writer no longer drains it
+        private volatile boolean detached;
+
+        private Ring(int capacity) {
+            this.mask = capacity - 1;
+            this.published = new AtomicLongArray(capacity);
+            this.timestamps = new long[capacity];
+            this.types = new int[capacity];
+            this.participantIds = new int[capacity];
+            this.firstTickets = new int[capacity];
+            this.lastTickets = new int[capacity];
+            this.counts = new int[capacity];
+            this.poolSizes = new int[capacity];
+            this.tail = new AtomicLong(0);
+            this.head = new AtomicLong(0);
+            this.droppedEvents = new AtomicLong(0);
+        }
+    }
+
+    private static final class ConsoleHolder {
+        private static final TicketEventLog CONSOLE = createConsole();
+
+        private static TicketEventLog createConsole() {
+            TicketEventLog log = new TicketEventLog(DEFAULT_CAPACITY);
+            log.addSink(TextEventSink.console());
+            Runtime.getRuntime().addShutdownHook(new Thread(log::close, "ticket-event-log-shutdown"));
+            return log;
+        }
+    }
+
+    private static final TicketEventLog DISABLED = new TicketEventLog();
+
+    public TicketEventLog(int capacity) {
+        this(capacity, false);
+    }
+
+    public TicketEventLog(int capacity, boolean lossless) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Event log capacity must be a power of two");
+        }
+        this.enabled = true;
+        this.lossless = lossless;
+        this.ring = new Ring(capacity);
+        this.root = this;
+        this.rings = new Ring[] {ring};
+        this.sinks = new CopyOnWriteArrayList<>();
+        this.running = true;
+        this.writer = new Thread(this::drainLoop, "ticket-event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private TicketEventLog(TicketEventLog root) {
+        this.enabled = true;
+        this.lossless = root.lossless;
+        this.ring = new Ring(root.ring.mask + 1);
+        this.root = root;
+        this.rings = new Ring[] {ring};
+        this.sinks = root.sinks;
+        this.writer = null;
+        this.running = false;
+    }
+
+    private TicketEventLog() {
+        this.enabled = false;
+        this.lossless = false;
+        this.ring = null;
+        this.root = this;
+        this.rings = new Ring[0];
+        this.sinks = new CopyOnWriteArrayList<>();
+        this.writer = null;
+        this.running = false;
+    }
+
+    // Shared log that prints to standard output, started on first use
+    public static TicketEventLog console() {
+        return ConsoleHolder.CONSOLE;
+    }
+
+    public static TicketEventLog disabled() {
+        return DISABLED;
+    }
+
+    // A new shard of the same root log, with its own ring of the same capacity; a disabled log stays disabled
+    public TicketEventLog shard() {
+        if (!enabled) {
+            return this;
+        }
+        TicketEventLog shard = new TicketEventLog(root);
+        root.addRing(shard.ring);
+        return shard;
+    }
+
+    private synchronized void addRing(Ring added) {
+        Ring[] updated = Arrays.copyOf(rings, rings.length + 1);
+        updated[rings.length] = added;
+        rings = updated;
+    }
+
+    // Lets the writer drain what the shard logged before the ring goes; events it could not drain in time,
+    // or that are logged to the shard afterwards, are dropped. The shard's drops stay in the root's count.
+    private void removeRing(Ring removed) {
+        if (removed.detached) {
+            return;
+        }
+        long deadline = System.nanoTime() + CLOSE_TIMEOUT_NANOS;
+        while (running && removed.head.get() < removed.tail.get() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        synchronized (this) {
+            int index = Arrays.asList(rings).indexOf(removed);
+            if (index < 0) {
+                return;
+            }
+            Ring[] updated = new Ring[rings.length - 1];
+            System.arraycopy(rings, 0, updated, 0, index);
+            System.arraycopy(rings, index + 1, updated, index, updated.length - index);
+            removed.detached = true;
+            rings = updated;
+            ring.droppedEvents.addAndGet(removed.droppedEvents.get() + removed.tail.get() - removed.head.get());
+        }
+    }
+
+    // Sinks belong to the root log, so a sink added through any shard receives the events of every shard
+    public void addSink(TicketEventSink sink) {
+        sinks.add(sink);
+    }
+
+    public void removeSink(TicketEventSink sink) {
+        sinks.remove(sink);
+    }
+
+    public void ticketsAdded(int vendorId, int firstTicket, int lastTicket, int count, int poolSize) {
+        record(TicketEventType.ADDED, vendorId, firstTicket, lastTicket, count, poolSize);
+    }
+
+    public void ticketsPurchased(int customerId, int firstTicket, int lastTicket, int count, int poolSize) {
+        record(TicketEventType.PURCHASED, customerId, firstTicket, lastTicket, count, poolSize);
+    }
+
+    public void ticketsReturned(int customerId, int firstTicket, int lastTicket, int count, int poolSize) {
+        record(TicketEventType.RETURNED, customerId, firstTicket, lastTicket, count, poolSize);
+    }
+
+    public void customerWaiting(int customerId) {
+        record(TicketEventType.WAITING, customerId, 0, 0, 0, 0);
+    }
+
+    // position is 1 for the customer at the head of the line
+    public void customerQueued(int customerId, int position) {
+        record(TicketEventType.QUEUED, customerId, 0, 0, position, 0);
+    }
+
+    public void poolShutdown(int poolSize) {
+        record(TicketEventType.SHUTDOWN, 0, 0, 0, 0, poolSize);
+    }
+
+    private void record(TicketEventType type, int participantId, int firstTicket, int lastTicket,
+                        int count, int poolSize) {
+        if (!root.running) {
+            return;
+        }
+
+        Ring ring = this.ring;
+        long position = ring.tail.get();
+        while (true) {
+            if (position - ring.head.get() > ring.mask) {
+                if (!lossless || !root.running || ring.detached) {
+                    ring.droppedEvents.incrementAndGet();
+                    return;
+                }
+                // Gives the writer the processor on a machine with fewer cores than producers
+                Thread.yield();
+                position = ring.tail.get();
+                continue;
+            }
+            if (ring.tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+            position = ring.tail.get();
+        }
+
+        int index = (int) (position & ring.mask);
+        ring.timestamps[index] = System.currentTimeMillis();
+        ring.types[index] = type.ordinal();
+        ring.participantIds[index] = participantId;
+        ring.firstTickets[index] = firstTicket;
+        ring.lastTickets[index] = lastTicket;
+        ring.counts[index] = count;
+        ring.poolSizes[index] = poolSize;
+        ring.published.lazySet(index, position + 1);
+    }
+
+    private void drainLoop() {
+        TicketEvent event = new TicketEvent();
+        while (running) {
+            int drained = 0;
+            for (Ring ring : rings) {
+                drained += drain(ring, event);
+            }
+            if (drained == 0) {
+                flushSinks();
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+
+        // Pick up events that producers claimed just before the log was closed
+        long deadline = System.nanoTime() + CLOSE_TIMEOUT_NANOS;
+        for (Ring ring : rings) {
+            while (ring.head.get() < ring.tail.get() && System.nanoTime() < deadline) {
+                if (drain(ring, event) == 0) {
+                    Thread.onSpinWait();
+                }
+            }
+            // Whatever a stalled producer left unpublished never reaches the sinks
+            ring.droppedEvents.addAndGet(ring.tail.get() - ring.head.get());
+        }
+        flushSinks();
+    }
+
+    private int drain(Ring ring, TicketEvent event) {
+        long position = ring.head.get();
+        int drained = 0;
+        while (true) {
+            int index = (int) (position & ring.mask);
+            if (ring.published.get(index) != position + 1) {
+                return drained;
+            }
+
+            event.set(ring.timestamps[index], TYPES[ring.types[index]], ring.participantIds[index],
+                    ring.firstTickets[index], ring.lastTickets[index], ring.counts[index], ring.poolSizes[index]);
+            for (TicketEventSink sink : sinks) {
+                try {
+                    sink.onEvent(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Event sink failed: " + e.getMessage());
+                }
+            }
+
+            position++;
+            ring.head.lazySet(position);
+            drained++;
+        }
+    }
+
+    private void flushSinks() {
+        for (TicketEventSink sink : sinks) {
+            try {
+                sink.flush();
+            } catch (RuntimeException e) {
+                System.err.println("Event sink failed to flush: " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isLossless() {
+        return lossless;
+    }
+
+    // For a root log, summed over all of its shards
+    public long getDroppedEvents() {
+        long dropped = 0;
+        for (Ring ring : rings) {
+            dropped += ring.droppedEvents.get();
+        }
+        return dropped;
+    }
+
+    public long getPendingEvents() {
+        long pending = 0;
+        for (Ring ring : rings) {
+            pending += ring.tail.get() - ring.head.get();
+        }
+        return pending;
+    }
+
+    // Closing a shard detaches its ring from the root log and leaves the writer and sinks running; closing
+    // the root log stops the writer and closes the sinks
+    @Override
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        if (root != this) {
+            root.removeRing(ring);
+            return;
+        }
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (TicketEventSink sink : sinks) {
+            sink.close();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.ticketsystem.javafx;
+
+public interface TicketEventSink {
+    void onEvent(TicketEvent event);
+
+    // Called when the writer thread has drained the ring and is about to idle
+    default void flush() {
+    }
+
+    default void close() {
+        flush();
+    }
+}
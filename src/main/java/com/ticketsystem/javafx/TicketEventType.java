@@ -0,0 +1,10 @@
+package com.ticketsystem.javafx;
+
+public enum TicketEventType {
+    ADDED,
+    PURCHASED,
+    RETURNED,
+    WAITING,
+    QUEUED,
+    SHUTDOWN
+}
@@ -0,0 +1,200 @@
+package com.ticketsystem.javafx;
+
+import java.util.Arrays;
+
+// Seat inventory for one event, stored column by column in primitive arrays indexed by ticket id,
+// so a ticket costs seven bytes of columns plus eight for its entries in the section and price tier
+// indexes, fifteen in all, however many seats the event has. Ids run 1..size, with id 0 unused.
+// An event's pool is created on its inventory and sells these ids: SeatMapTicketPool by where seats are
+// free, the other pools as 1, 2, ... in order. The indexes are compressed (offsets + ids) arrays built
+// once when the inventory is created.
+public class TicketInventory {
+    private final int eventId;
+    private final int size;
+    private final short[] sections;
+    private final short[] rows;
+    private final short[] seats;
+    private final byte[] priceTiers;
+    private final int[] sectionOffsets;
+    private final int[] ticketsBySection;
+    private final int[] tierOffsets;
+    private final int[] ticketsByTier;
+
+    private TicketInventory(int eventId, int size, short[] sections, short[] rows, short[] seats, byte[] priceTiers) {
+        this.eventId = eventId;
+        this.size = size;
+        this.sections = sections;
+        this.rows = rows;
+        this.seats = seats;
+        this.priceTiers = priceTiers;
+
+        int sectionCount = 0;
+        int tierCount = 0;
+        for (int id = 1; id <= size; id++) {
+            sectionCount = Math.max(sectionCount, sections[id] + 1);
+            tierCount = Math.max(tierCount, priceTiers[id] + 1);
+        }
+        this.sectionOffsets = new int[sectionCount + 1];
+        this.ticketsBySection = new int[size];
+        this.tierOffsets = new int[tierCount + 1];
+        this.ticketsByTier = new int[size];
+        buildIndex(sectionOffsets, ticketsBySection, sections);
+        buildIndex(tierOffsets, ticketsByTier, priceTiers);
+    }
+
+    private void buildIndex(int[] offsets, int[] ids, short[] column) {
+        for (int id = 1; id <= size; id++) {
+            offsets[column[id] + 1]++;
+        }
+        for (int key = 1; key < offsets.length; key++) {
+            offsets[key] += offsets[key - 1];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int id = 1; id <= size; id++) {
+            ids[next[column[id]]++] = id;
+        }
+    }
+
+    private void buildIndex(int[] offsets, int[] ids, byte[] column) {
+        short[] widened = new short[column.length];
+        for (int i = 0; i < column.length; i++) {
+            widened[i] = column[i];
+        }
+        buildIndex(offsets, ids, widened);
+    }
+
+    // Fills sections one after another, row by row; section n is priced at tier min(n, tierCount - 1)
+    public static TicketInventory generate(int eventId, int capacity, int sectionCount, int seatsPerRow,
+                                           int tierCount) {
+        Builder builder = new Builder(eventId, capacity);
+        int perSection = (capacity + sectionCount - 1) / sectionCount;
+        for (int section = 0; section < sectionCount; section++) {
+            int seatsInSection = Math.min(perSection, capacity - section * perSection);
+            if (seatsInSection <= 0) {
+                break;
+            }
+            builder.addSection(section, seatsInSection, seatsPerRow, Math.min(section, tierCount - 1));
+        }
+        return builder.build();
+    }
+
+    // Layout used when an event does not describe its own seating
+    public static TicketInventory defaultLayout(int eventId, int capacity) {
+        return generate(eventId, capacity, 4, 20, 3);
+    }
+
+    public static class Builder {
+        private final int eventId;
+        private final short[] sections;
+        private final short[] rows;
+        private final short[] seats;
+        private final byte[] priceTiers;
+        private int size;
+
+        public Builder(int eventId, int capacity) {
+            // Id 0 is unused, so the columns need one slot more than there are seats
+            if (capacity < 1 || capacity == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Inventory capacity must be between 1 and "
+                        + (Integer.MAX_VALUE - 1));
+            }
+            this.eventId = eventId;
+            this.sections = new short[capacity + 1];
+            this.rows = new short[capacity + 1];
+            this.seats = new short[capacity + 1];
+            this.priceTiers = new byte[capacity + 1];
+        }
+
+        public Builder addSection(int section, int seatCount, int seatsPerRow, int priceTier) {
+            if (section < 0 || section > Short.MAX_VALUE || priceTier < 0 || priceTier > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Section or price tier out of range");
+            }
+            if (seatsPerRow < 1 || seatsPerRow > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Seats per row out of range");
+            }
+            if (size + seatCount > sections.length - 1) {
+                throw new IllegalArgumentException("Inventory capacity exceeded");
+            }
+            if ((seatCount - 1) / seatsPerRow + 1 > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many rows in section " + section);
+            }
+
+            for (int i = 0; i < seatCount; i++) {
+                int id = ++size;
+                sections[id] = (short) section;
+                rows[id] = (short) (i / seatsPerRow + 1);
+                seats[id] = (short) (i % seatsPerRow + 1);
+                priceTiers[id] = (byte) priceTier;
+            }
+            return this;
+        }
+
+        public TicketInventory build() {
+            return new TicketInventory(eventId, size, sections, rows, seats, priceTiers);
+        }
+    }
+
+    public int getEventId() {
+        return eventId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int ticketId) {
+        return ticketId >= 1 && ticketId <= size;
+    }
+
+    public int getSection(int ticketId) {
+        return sections[checkId(ticketId)];
+    }
+
+    public int getRow(int ticketId) {
+        return rows[checkId(ticketId)];
+    }
+
+    public int getSeat(int ticketId) {
+        return seats[checkId(ticketId)];
+    }
+
+    public int getPriceTier(int ticketId) {
+        return priceTiers[checkId(ticketId)];
+    }
+
+    public int getSectionCount() {
+        return sectionOffsets.length - 1;
+    }
+
+    public int getSectionSize(int section) {
+        return sectionOffsets[section + 1] - sectionOffsets[section];
+    }
+
+    // index runs from 0 to getSectionSize(section) - 1, in seat order
+    public int getTicketInSection(int section, int index) {
+        return ticketsBySection[sectionOffsets[section] + index];
+    }
+
+    public int getPriceTierCount() {
+        return tierOffsets.length - 1;
+    }
+
+    public int getPriceTierSize(int priceTier) {
+        return tierOffsets[priceTier + 1] - tierOffsets[priceTier];
+    }
+
+    public int getTicketInPriceTier(int priceTier, int index) {
+        return ticketsByTier[tierOffsets[priceTier] + index];
+    }
+
+    public String describe(int ticketId) {
+        return String.format("Event %d, Section %d, Row %d, Seat %d, Tier %d",
+                eventId, getSection(ticketId), getRow(ticketId), getSeat(ticketId), getPriceTier(ticketId));
+    }
+
+    private int checkId(int ticketId) {
+        if (!contains(ticketId)) {
+            throw new IllegalArgumentException("Unknown ticket id: " + ticketId);
+        }
+        return ticketId;
+    }
+}
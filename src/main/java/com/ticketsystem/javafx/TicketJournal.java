@@ -0,0 +1,363 @@
+package com.ticketsystem.javafx;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Append-only journal of ticket additions and sales in a memory-mapped file of fixed-size records:
+// header (magic | type), ticket id, participant id, timestamp. Appenders claim a slot with one
+// atomic increment and write the header last, so a record is either complete or invisible.
+// A committer thread forces the file at most once per commit interval and covers every record
+// written since the last force (group commit), instead of one fsync per sale; appenders wait for the
+// force that covers their records. The file is mapped in segments and grows by one whenever it fills.
+public final class TicketJournal implements AutoCloseable {
+    public static final int TICKET_ADDED = 1;
+    public static final int TICKET_SOLD = 2;
+    public static final int TICKET_RETURNED = 3;
+    // A sold ticket that is only held until the deadline in the record's timestamp field
+    public static final int TICKET_HELD = 4;
+    public static final int TICKET_CONFIRMED = 5;
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 2;
+    static final int RECORD_SIZE = 20;
+    private static final int MAGIC = 0x4A520000;
+    private static final int MAGIC_MASK = 0xFFFF0000;
+    private static final VarHandle HEADERS = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.nativeOrder());
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int segmentRecords;
+    private final long commitIntervalNanos;
+    private final boolean waitForCommit;
+    private final AtomicLong nextRecord;
+    private final AtomicLong commitCount;
+    // Pool calls between startAppend and finishAppend, which close() lets finish
+    private final LongAdder appending;
+    private final Object commitMonitor;
+    private final Thread committer;
+    // Mapped in file order; replaced by a longer copy when the file grows
+    private volatile MappedByteBuffer[] segments;
+    private long scannedRecords;
+    private volatile long durableRecords;
+    private volatile boolean accepting;
+    private volatile boolean running;
+
+    public TicketJournal(Path file, int segmentRecords) {
+        this(file, segmentRecords, DEFAULT_COMMIT_INTERVAL_MILLIS, true);
+    }
+
+    // segmentRecords is how many records the file grows by at a time. With waitForCommit, every append
+    // returns only once its record has been forced to disk.
+    public TicketJournal(Path file, int segmentRecords, long commitIntervalMillis, boolean waitForCommit) {
+        if (segmentRecords < 1) {
+            throw new IllegalArgumentException("Journal segments must hold at least one record");
+        }
+        if (commitIntervalMillis < 0) {
+            throw new IllegalArgumentException("Commit interval cannot be negative");
+        }
+        this.file = file;
+        this.segmentRecords = Math.min(segmentRecords, Integer.MAX_VALUE / RECORD_SIZE);
+        long existingRecords;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            existingRecords = channel.size() / RECORD_SIZE;
+            MappedByteBuffer[] mapped = new MappedByteBuffer[(int) Math.max(1,
+                    (existingRecords + this.segmentRecords - 1) / this.segmentRecords)];
+            for (int i = 0; i < mapped.length; i++) {
+                mapped[i] = map(i);
+            }
+            this.segments = mapped;
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening ticket journal: " + e.getMessage(), e);
+        }
+        this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+        this.waitForCommit = waitForCommit;
+
+        // The journal only grows by whole segments, so a file that ends inside one was cut short, and a
+        // record it ends in may have kept its header but lost the rest
+        long end = Math.min(findEnd(), existingRecords);
+        clearTail(end);
+        this.nextRecord = new AtomicLong(end);
+        this.scannedRecords = end;
+        this.durableRecords = end;
+        this.commitCount = new AtomicLong(0);
+        this.appending = new LongAdder();
+        this.commitMonitor = new Object();
+        this.accepting = true;
+        this.running = true;
+        this.committer = new Thread(this::commitLoop, "ticket-journal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    // Called before the pool is touched, so a sale never goes through once the journal can no longer
+    // record it. Returns false once the journal is closing; otherwise finishAppend must follow.
+    public boolean startAppend() {
+        appending.increment();
+        if (!accepting) {
+            appending.decrement();
+            return false;
+        }
+        return true;
+    }
+
+    public void finishAppend() {
+        appending.decrement();
+    }
+
+    public void append(int type, int ticketId, int participantId) {
+        append(type, ticketId, participantId, System.currentTimeMillis());
+    }
+
+    public void append(int type, int ticketId, int participantId, long timestamp) {
+        long record = claim(1);
+        write(record, type, ticketId, participantId, timestamp);
+        if (waitForCommit) {
+            awaitDurable(record + 1);
+        }
+    }
+
+    // Journals count tickets from one batch call with a single claim and at most one wait
+    public void appendAll(int type, int participantId, int[] tickets, int count) {
+        appendAll(type, participantId, tickets, count, System.currentTimeMillis());
+    }
+
+    public void appendAll(int type, int participantId, int[] tickets, int count, long timestamp) {
+        if (count < 1) {
+            return;
+        }
+        long first = claim(count);
+        for (int i = 0; i < count; i++) {
+            write(first + i, type, tickets[i], participantId, timestamp);
+        }
+        if (waitForCommit) {
+            awaitDurable(first + count);
+        }
+    }
+
+    private long claim(int count) {
+        if (!running) {
+            throw new IllegalStateException("Ticket journal is closed: " + file);
+        }
+        return nextRecord.getAndAdd(count);
+    }
+
+    private void write(long record, int type, int ticketId, int participantId, long timestamp) {
+        MappedByteBuffer segment = segmentFor(record);
+        int offset = offset(record);
+        segment.putInt(offset + 4, ticketId);
+        segment.putInt(offset + 8, participantId);
+        segment.putLong(offset + 12, timestamp);
+        HEADERS.setRelease(segment, offset, MAGIC | type);
+    }
+
+    private int offset(long record) {
+        return (int) (record % segmentRecords) * RECORD_SIZE;
+    }
+
+    // The segment a writer needs, mapping it and any before it if the file has not grown that far yet
+    private MappedByteBuffer segmentFor(long record) {
+        int index = (int) (record / segmentRecords);
+        MappedByteBuffer[] current = segments;
+        return index < current.length ? current[index] : grow(index);
+    }
+
+    private synchronized MappedByteBuffer grow(int index) {
+        MappedByteBuffer[] current = segments;
+        if (index >= current.length) {
+            MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+            try {
+                for (int i = current.length; i <= index; i++) {
+                    grown[i] = map(i);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Error growing ticket journal: " + e.getMessage(), e);
+            }
+            segments = grown;
+            current = grown;
+        }
+        return current[index];
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        long size = (long) segmentRecords * RECORD_SIZE;
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, index * size, size);
+        segment.order(ByteOrder.nativeOrder());
+        return segment;
+    }
+
+    private long mappedRecords() {
+        return (long) segments.length * segmentRecords;
+    }
+
+    // Records past the mapped segments have not been written yet
+    private int header(long record) {
+        int index = (int) (record / segmentRecords);
+        MappedByteBuffer[] current = segments;
+        return index < current.length ? (int) HEADERS.getAcquire(current[index], offset(record)) : 0;
+    }
+
+    private boolean isComplete(long record) {
+        return (header(record) & MAGIC_MASK) == MAGIC;
+    }
+
+    private long findEnd() {
+        long end = 0;
+        while (end < mappedRecords() && isComplete(end)) {
+            end++;
+        }
+        return end;
+    }
+
+    // Records after the first gap were never committed; clear them so they cannot be mistaken for new ones
+    private void clearTail(long end) {
+        boolean cleared = false;
+        for (long record = end; record < mappedRecords(); record++) {
+            if (header(record) != 0) {
+                HEADERS.setRelease(segmentFor(record), offset(record), 0);
+                cleared = true;
+            }
+        }
+        if (cleared) {
+            force(end, mappedRecords());
+        }
+    }
+
+    private void commitLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, Math.max(commitIntervalNanos, 1));
+            commit();
+        }
+        commit();
+    }
+
+    private void commit() {
+        long end = scannedRecords;
+        long claimed = nextRecord.get();
+        while (end < claimed && isComplete(end)) {
+            end++;
+        }
+        scannedRecords = end;
+        if (end > durableRecords) {
+            force(durableRecords, end);
+            commitCount.incrementAndGet();
+            synchronized (commitMonitor) {
+                durableRecords = end;
+                commitMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void force(long from, long to) {
+        MappedByteBuffer[] current = segments;
+        for (long index = from / segmentRecords; index <= (to - 1) / segmentRecords; index++) {
+            current[(int) index].force();
+        }
+    }
+
+    private void awaitDurable(long records) {
+        if (durableRecords >= records) {
+            return;
+        }
+        synchronized (commitMonitor) {
+            while (durableRecords < records && running) {
+                try {
+                    commitMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public RecoveredPoolState replay() {
+        return replay(new PoolSnapshot());
+    }
+
+    // Folds the records written after the snapshot into it and returns the resulting state, so a restart
+    // only reads the journal tail. Meant to run before appends start.
+    public RecoveredPoolState replay(PoolSnapshot snapshot) {
+        if (snapshot.getJournalRecords() > nextRecord.get()) {
+            throw new IllegalStateException("Snapshot covers " + snapshot.getJournalRecords()
+                    + " records but " + file + " only holds " + nextRecord.get());
+        }
+        fold(snapshot, nextRecord.get());
+        return snapshot.toRecoveredState();
+    }
+
+    // Applies complete records from the snapshot's position up to end, stopping early at a gap
+    void fold(PoolSnapshot snapshot, long end) {
+        long record = snapshot.getJournalRecords();
+        for (; record < end && isComplete(record); record++) {
+            MappedByteBuffer segment = segmentFor(record);
+            int offset = offset(record);
+            snapshot.apply(header(record) & ~MAGIC_MASK, segment.getInt(offset + 4), segment.getInt(offset + 8),
+                    segment.getLong(offset + 12));
+        }
+        snapshot.setJournalRecords(record);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRecordCount() {
+        return nextRecord.get();
+    }
+
+    public long getDurableRecordCount() {
+        return durableRecords;
+    }
+
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    // Turns new pool calls away, lets the ones under way journal their outcome and commit, then stops
+    @Override
+    public void close() {
+        if (!accepting) {
+            return;
+        }
+        accepting = false;
+        while (appending.sum() > 0) {
+            LockSupport.parkNanos(this, Math.max(commitIntervalNanos, 1));
+        }
+        running = false;
+        LockSupport.unpark(committer);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (commitMonitor) {
+            commitMonitor.notifyAll();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing ticket journal: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ticketsystem.javafx;
+
+// How pool nodes get ticket numbers from the coordinator that owns all of them. A lease is a contiguous
+// range of ticket numbers that only the node holding it may release; the coordinator never leases a
+// number twice unless the node gave it back unreleased, so nodes sell on their own without overselling.
+// Leases are packed into a long: first ticket in the high half, ticket count in the low half.
+public interface TicketLeaseService {
+    // Nothing to lease right now, but other nodes still hold unreleased tickets that may come back
+    long RETRY = 0L;
+    // Every ticket has been leased and released; no lease will ever be granted again
+    long SOLD_OUT = -1L;
+
+    // Leases up to max tickets to the node, or returns RETRY or SOLD_OUT
+    long acquire(int nodeId, int max);
+
+    // Hands unreleased tickets firstTicket..firstTicket + count - 1 of one of the node's leases back
+    void giveBack(int nodeId, int firstTicket, int count);
+
+    // Reports how many leased tickets the node has not released yet; returns how many of them the
+    // coordinator wants back for other nodes, 0 if none
+    int heartbeat(int nodeId, int unreleased);
+
+    static long lease(int firstTicket, int count) {
+        return ((long) firstTicket << 32) | count;
+    }
+
+    static int firstTicket(long lease) {
+        return (int) (lease >>> 32);
+    }
+
+    static int count(long lease) {
+        return (int) lease;
+    }
+}
@@ -0,0 +1,189 @@
+package com.ticketsystem.javafx;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drives a TicketServer from another process. Every vendor and customer gets its own connection and
+// thread and keeps up to --pipeline requests in flight until the server says it is done, and the
+// latency of each request is measured from send to response, so it includes the network round trip,
+// the server's queueing and the pool. Several generators can share one server as long as their
+// participant ids do not overlap, see --first-id.
+public class TicketLoadGenerator {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: TicketLoadGenerator --port <port> [options]",
+            "  --host <host>        server address (default localhost)",
+            "  --vendors <n>        vendor connections adding tickets (default 0)",
+            "  --customers <n>      customer connections buying tickets (default 10)",
+            "  --pipeline <n>       requests each connection keeps in flight (default 8)",
+            "  --batch <n>          tickets per purchase request (default 1)",
+            "  --vendor-batch <n>   tickets per add request (default 10)",
+            "  --first-id <n>       first vendor and customer id, to keep several generators apart (default 1)",
+            "  --timeout <seconds>  give up after this long (default 600)");
+
+    private final String host;
+    private final int port;
+    private final int pipeline;
+    private final LatencyHistogram purchaseLatency;
+    private final LatencyHistogram releaseLatency;
+    private final AtomicLong ticketsBought;
+    private final AtomicLong ticketsAdded;
+
+    public TicketLoadGenerator(String host, int port, int pipeline) {
+        if (pipeline < 1) {
+            throw new IllegalArgumentException("Pipeline depth must be positive");
+        }
+        this.host = host;
+        this.port = port;
+        this.pipeline = pipeline;
+        this.purchaseLatency = new LatencyHistogram();
+        this.releaseLatency = new LatencyHistogram();
+        this.ticketsBought = new AtomicLong(0);
+        this.ticketsAdded = new AtomicLong(0);
+    }
+
+    // Keeps requests of one kind flowing until the server answers DONE, then collects what is in flight
+    void drive(byte operation, int participantId, int batchSize) throws IOException {
+        boolean purchasing = operation == TicketProtocol.PURCHASE;
+        LatencyHistogram latency = purchasing ? purchaseLatency : releaseLatency;
+        AtomicLong moved = purchasing ? ticketsBought : ticketsAdded;
+        int[] values = new int[TicketProtocol.MAX_BATCH];
+        // Responses come back in request order, so request n's send time sits at n % pipeline
+        long[] sentAt = new long[pipeline];
+        try (TicketClient client = new TicketClient(host, port)) {
+            int inFlight = 0;
+            boolean done = false;
+            while (!done || inFlight > 0) {
+                if (!done && inFlight < pipeline) {
+                    long now = System.nanoTime();
+                    while (inFlight < pipeline) {
+                        sentAt[client.send(operation, participantId, batchSize) % pipeline] = now;
+                        inFlight++;
+                    }
+                    client.flush();
+                }
+
+                int requestId = client.receive(values);
+                inFlight--;
+                if (client.getStatus() == TicketProtocol.OK) {
+                    latency.record(System.nanoTime() - sentAt[requestId % pipeline]);
+                    moved.addAndGet(client.getCount());
+                } else {
+                    done = true;
+                }
+            }
+        }
+    }
+
+    // Asks the server for available, added, limit and sold
+    int[] status() throws IOException {
+        int[] values = new int[TicketProtocol.MAX_BATCH];
+        try (TicketClient client = new TicketClient(host, port)) {
+            client.send(TicketProtocol.STATUS, 0, 1);
+            client.flush();
+            client.receive(values);
+        }
+        return values;
+    }
+
+    public static void main(String[] args) {
+        String host = "localhost";
+        int port = -1;
+        int vendors = 0;
+        int customers = 10;
+        int pipeline = 8;
+        int batchSize = 1;
+        int vendorBatchSize = 10;
+        int firstId = 1;
+        long timeoutSeconds = 600;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--host" -> host = requireValue(args, ++i);
+                    case "--port" -> port = Integer.parseInt(requireValue(args, ++i));
+                    case "--vendors" -> vendors = Integer.parseInt(requireValue(args, ++i));
+                    case "--customers" -> customers = Integer.parseInt(requireValue(args, ++i));
+                    case "--pipeline" -> pipeline = Integer.parseInt(requireValue(args, ++i));
+                    case "--batch" -> batchSize = Integer.parseInt(requireValue(args, ++i));
+                    case "--vendor-batch" -> vendorBatchSize = Integer.parseInt(requireValue(args, ++i));
+                    case "--first-id" -> firstId = Integer.parseInt(requireValue(args, ++i));
+                    case "--timeout" -> timeoutSeconds = Long.parseLong(requireValue(args, ++i));
+                    case "--help" -> {
+                        System.out.println(USAGE);
+                        return;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (port < 0) {
+                throw new IllegalArgumentException("Missing --port");
+            }
+            if (batchSize < 1 || batchSize > TicketProtocol.MAX_BATCH
+                    || vendorBatchSize < 1 || vendorBatchSize > TicketProtocol.MAX_BATCH) {
+                throw new IllegalArgumentException("Batch sizes must be between 1 and " + TicketProtocol.MAX_BATCH);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        TicketLoadGenerator generator = new TicketLoadGenerator(host, port, pipeline);
+        CountDownLatch finished = new CountDownLatch(vendors + customers);
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < vendors + customers; i++) {
+            boolean vendor = i < vendors;
+            int participantId = firstId + (vendor ? i : i - vendors);
+            byte operation = vendor ? TicketProtocol.ADD : TicketProtocol.PURCHASE;
+            int batch = vendor ? vendorBatchSize : batchSize;
+            Thread thread = new Thread(() -> {
+                try {
+                    generator.drive(operation, participantId, batch);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println((vendor ? "Vendor " : "Customer ") + participantId + ": " + e.getMessage());
+                } finally {
+                    finished.countDown();
+                }
+            }, (vendor ? "load-vendor-" : "load-customer-") + participantId);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try {
+            boolean completed = finished.await(timeoutSeconds, TimeUnit.SECONDS);
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            System.out.println(generator.report(vendors, customers, durationMillis));
+            int[] status = generator.status();
+            System.out.printf("Server: Available %d, Added %d/%d, Sold %d%n", status[0], status[1], status[2],
+                    status[3]);
+            System.exit(completed ? 0 : 1);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Status request failed: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(130);
+        }
+    }
+
+    String report(int vendors, int customers, long durationMillis) {
+        return String.format("Load Report: %d vendors, %d customers, pipeline %d%n" +
+                        "Tickets Added: %d, Tickets Bought: %d%n" +
+                        "Duration: %d ms, Throughput: %.1f sales/s%n" +
+                        "End-to-end Purchase Latency: %s%n" +
+                        "End-to-end Release Latency: %s",
+                vendors, customers, pipeline, ticketsAdded.get(), ticketsBought.get(), durationMillis,
+                durationMillis > 0 ? ticketsBought.get() * 1000.0 / durationMillis : 0.0,
+                WorkloadReport.percentiles(purchaseLatency.snapshot()),
+                WorkloadReport.percentiles(releaseLatency.snapshot()));
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
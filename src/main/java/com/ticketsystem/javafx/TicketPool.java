@@ -1,153 +1,98 @@
 package com.ticketsystem.javafx;
 
-import java.util.Vector;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.Condition;
-
-public class TicketPool {
-    private final Vector<Integer> tickets;
-    private final int maxCapacity;
-    private final AtomicInteger ticketCounter;
-    private volatile int totalTicketsAdded;
-    private final int totalTicketsLimit;
-    private final ReentrantLock lock;
-    private final Condition notFull;
-    private final Condition notEmpty;
-    private volatile boolean isRunning;
-
-    public TicketPool(int maxCapacity, int totalTicketsLimit) {
-        this.tickets = new Vector<>();
-        this.maxCapacity = maxCapacity;
-        this.totalTicketsLimit = totalTicketsLimit;
-        this.ticketCounter = new AtomicInteger(0);
-        this.totalTicketsAdded = 0;
-        this.lock = new ReentrantLock();
-        this.notFull = lock.newCondition();
-        this.notEmpty = lock.newCondition();
-        this.isRunning = true;
-    }
+import java.util.concurrent.TimeUnit;
+
+public interface TicketPool {
+    // Returned by removeTicket when no ticket was purchased; real ticket ids start at 1
+    int NO_TICKET = -1;
+    // Passed to removeContiguous by groups that will sit in any section
+    int ANY_SECTION = -1;
+
+    boolean addTickets(int vendorId, int amount);
+
+    // Releases up to amount tickets in one step, writing their numbers into out. Returns 0 once the vendor should stop.
+    int addTickets(int vendorId, int amount, int[] out);
+
+    // Returns the purchased ticket id, an id in the TicketInventory the pool was created on, or NO_TICKET
+    int removeTicket(int customerId);
 
-    public boolean addTickets(int vendorId, int amount) {
-        if (!isRunning) {
-            return false;
-        }
-
-        lock.lock();
-        try {
-            while (isRunning && tickets.size() >= maxCapacity) {
-                try {
-                    notFull.await();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return false;
-                }
-            }
-
-            if (!isRunning) {
-                return false;
-            }
-
-            if (totalTicketsAdded >= totalTicketsLimit) {
-                return false;
-            }
-
-            int ticketsToAdd = Math.min(amount, totalTicketsLimit - totalTicketsAdded);
-
-            for (int i = 0; i < ticketsToAdd && tickets.size() < maxCapacity; i++) {
-                int ticketNumber = ticketCounter.incrementAndGet();
-                tickets.add(ticketNumber);
-                totalTicketsAdded++;
-
-                System.out.printf("Vendor %d added ticket #%d to the pool. Total tickets: %d%n",
-                        vendorId, ticketNumber, tickets.size());
-            }
-
-            notEmpty.signalAll();
-            return true;
-        } finally {
-            lock.unlock();
-        }
+    // Purchases up to max tickets in one step, writing their numbers into out. Returns 0 once the customer should stop.
+    int removeTickets(int customerId, int max, int[] out);
+
+    // Like removeTickets, but waits at most timeout for tickets. A timeout of 0 never waits, and fails
+    // without touching the pool's locks when the pool is visibly empty. Returns 0 on timeout as well as
+    // once the customer should stop; allTicketsRetrieved() and isRunning() tell the two apart.
+    int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit);
+
+    // Like addTickets, but waits at most timeout for space, and fails fast when the pool is visibly full.
+    // The timeout only covers waiting before any ticket number is taken.
+    int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit);
+
+    default int tryRemoveTickets(int customerId, int max, int[] out) {
+        return tryRemoveTickets(customerId, max, out, 0, TimeUnit.NANOSECONDS);
     }
 
-    public Integer removeTicket(int customerId) {
-        if (!isRunning) {
-            return null;
-        }
-
-        lock.lock();
-        try {
-            while (isRunning && tickets.isEmpty() && totalTicketsAdded < totalTicketsLimit) {
-                try {
-                    System.out.printf("Customer %d waiting for tickets...%n", customerId);
-                    notEmpty.await();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
-            }
-
-            if (!isRunning || (tickets.isEmpty() && totalTicketsAdded >= totalTicketsLimit)) {
-                return null;
-            }
-
-            if (!tickets.isEmpty()) {
-                Integer ticket = tickets.remove(0);
-                System.out.printf("Customer %d purchased ticket #%d. Remaining tickets: %d%n",
-                        customerId, ticket, tickets.size());
-
-                notFull.signalAll();
-                return ticket;
-            }
-
-            return null;
-        } finally {
-            lock.unlock();
-        }
+    default int tryRemoveTicket(int customerId) {
+        return tryRemoveTicket(customerId, 0, TimeUnit.NANOSECONDS);
     }
 
-    public void shutdown() {
-        lock.lock();
-        try {
-            isRunning = false;
-            notEmpty.signalAll();
-            notFull.signalAll();
-        } finally {
-            lock.unlock();
-        }
+    default int tryRemoveTicket(int customerId, long timeout, TimeUnit unit) {
+        int[] out = SingleTicketBuffer.get();
+        return tryRemoveTickets(customerId, 1, out, timeout, unit) > 0 ? out[0] : NO_TICKET;
     }
 
-    public boolean isRunning() {
-        return isRunning;
+    // How many more tickets the customer may buy here; Integer.MAX_VALUE unless the pool caps purchases
+    // per customer. 0 means no ticket will ever be sold to them, however many are on sale.
+    default int getPurchaseAllowance(int customerId) {
+        return Integer.MAX_VALUE;
     }
 
-    public boolean allTicketsRetrieved() {
-        lock.lock();
-        try {
-            return totalTicketsAdded >= totalTicketsLimit && tickets.isEmpty();
-        } finally {
-            lock.unlock();
-        }
+    default int tryAddTickets(int vendorId, int amount, int[] out) {
+        return tryAddTickets(vendorId, amount, out, 0, TimeUnit.NANOSECONDS);
     }
 
-    public int getAvailableTickets() {
-        lock.lock();
-        try {
-            return tickets.size();
-        } finally {
-            lock.unlock();
-        }
+    // Buys count adjacent seats in one row of the section, or of any section for ANY_SECTION, writing their
+    // ids to out in seat order. All or nothing: waits while such a block could still appear and returns 0
+    // once it cannot, or the customer should stop. A pool that does not support it never has a block to sell,
+    // so it returns 0 at once.
+    default int removeContiguous(int customerId, int count, int section, int[] out) {
+        return 0;
     }
 
-    public int getTotalTicketsAdded() {
-        return totalTicketsAdded;
+    // Whether removeContiguous can sell anything: true only for pools that know where their seats are, and
+    // for decorators of one
+    default boolean supportsContiguous() {
+        return false;
     }
 
-    public int getTotalTicketsLimit() {
-        return totalTicketsLimit;
+    // Puts tickets that were removed back on sale, e.g. when a hold expires unpaid. Waits for space like
+    // addTickets; returns how many went back, which is less than count only if the pool shut down.
+    int returnTickets(int customerId, int[] tickets, int count);
+
+    // Told by a ReservationTicketPool that tickets it just removed are only held until deadline, in wall-clock
+    // milliseconds, and later that a hold was paid for, so a journal can tell an abandoned cart from a sale
+    default void ticketsHeld(int customerId, int[] tickets, int count, long deadline) {
     }
 
-    public int getMaxCapacity() {
-        return maxCapacity;
+    default void holdConfirmed(int customerId, int ticketId) {
     }
-}
\ No newline at end of file
+
+    // Loads state recovered from a journal; only valid before the first ticket is added
+    void restore(RecoveredPoolState state);
+
+    void shutdown();
+
+    boolean isRunning();
+
+    boolean allTicketsRetrieved();
+
+    int getAvailableTickets();
+
+    int getTotalTicketsAdded();
+
+    int getTotalTicketsLimit();
+
+    int getMaxCapacity();
+
+    PoolMetrics getMetrics();
+}
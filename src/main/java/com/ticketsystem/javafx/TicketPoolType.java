@@ -0,0 +1,62 @@
+package com.ticketsystem.javafx;
+
+public enum TicketPoolType {
+    LOCKING("Lock-based"),
+    RING_BUFFER("Lock-free ring buffer"),
+    SHARDED("Sharded ring buffers"),
+    WAITING_ROOM("Fair waiting room"),
+    SEAT_MAP("Seat map with adjacent seating");
+
+    private final String displayName;
+
+    TicketPoolType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public TicketPool create(int maxCapacity, int totalTicketsLimit) {
+        return create(maxCapacity, totalTicketsLimit, TicketEventLog.console());
+    }
+
+    public TicketPool create(int maxCapacity, int totalTicketsLimit, TicketEventLog eventLog) {
+        return create(maxCapacity, totalTicketsLimit, eventLog, PurchasePolicy.unrestricted());
+    }
+
+    // A pool for a sale that is not one of an engine's events; a seat map lays its seats out the default way
+    public TicketPool create(int maxCapacity, int totalTicketsLimit, TicketEventLog eventLog,
+                             PurchasePolicy purchasePolicy) {
+        TicketInventory inventory = this == SEAT_MAP ? TicketInventory.defaultLayout(0, totalTicketsLimit) : null;
+        return build(inventory, maxCapacity, totalTicketsLimit, eventLog, purchasePolicy);
+    }
+
+    // The pool of the event the inventory describes, selling its ticket ids: a seat map picks them by where
+    // seats are free, the other pools hand out 1, 2, ... in order, which the inventory must hold
+    public TicketPool create(TicketInventory inventory, int maxCapacity, int totalTicketsLimit,
+                             TicketEventLog eventLog, PurchasePolicy purchasePolicy) {
+        if (inventory.size() < totalTicketsLimit) {
+            throw new IllegalArgumentException("Inventory for event " + inventory.getEventId()
+                    + " has fewer seats than tickets");
+        }
+        return build(inventory, maxCapacity, totalTicketsLimit, eventLog, purchasePolicy);
+    }
+
+    // Only the waiting room orders customers by tier; the purchase limit applies to every pool type
+    private TicketPool build(TicketInventory inventory, int maxCapacity, int totalTicketsLimit,
+                             TicketEventLog eventLog, PurchasePolicy purchasePolicy) {
+        TicketPool pool = switch (this) {
+            case LOCKING -> new LockingTicketPool(maxCapacity, totalTicketsLimit, eventLog);
+            case RING_BUFFER -> new RingBufferTicketPool(maxCapacity, totalTicketsLimit, eventLog);
+            case SHARDED -> new ShardedTicketPool(maxCapacity, totalTicketsLimit, eventLog);
+            case WAITING_ROOM -> new WaitingRoomTicketPool(maxCapacity, totalTicketsLimit, eventLog, purchasePolicy);
+            case SEAT_MAP -> new SeatMapTicketPool(inventory, maxCapacity, totalTicketsLimit, eventLog);
+        };
+        if (purchasePolicy.hasPurchaseLimit()) {
+            pool = new PurchaseLimitTicketPool(pool, purchasePolicy.getMaxTicketsPerCustomer());
+        }
+        return pool;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
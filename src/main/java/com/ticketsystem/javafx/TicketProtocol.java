@@ -0,0 +1,43 @@
+package com.ticketsystem.javafx;
+
+import java.nio.ByteBuffer;
+
+// Binary protocol spoken by TicketServer and TicketClient, big-endian throughout.
+// Request, 13 bytes: operation (1), request id (4), vendor or customer id (4), ticket count (4).
+// Response: request id (4), status (1), value count (4), then that many ints. ADD and PURCHASE answer
+// with the ticket ids that moved; STATUS answers with available, added, limit and sold.
+// A connection may pipeline any number of requests; they are executed and answered in the order sent.
+public final class TicketProtocol {
+    public static final byte ADD = 1;
+    public static final byte PURCHASE = 2;
+    public static final byte STATUS = 3;
+
+    public static final byte OK = 0;
+    // The pool will not add or sell any more tickets for this participant
+    public static final byte DONE = 1;
+    public static final byte BAD_REQUEST = 2;
+
+    public static final int REQUEST_SIZE = 13;
+    public static final int RESPONSE_HEADER_SIZE = 9;
+    // Largest count one request may ask for
+    public static final int MAX_BATCH = 1024;
+    public static final int STATUS_VALUES = 4;
+
+    private TicketProtocol() {
+    }
+
+    public static void writeRequest(ByteBuffer buffer, byte operation, int requestId, int participantId, int count) {
+        buffer.put(operation).putInt(requestId).putInt(participantId).putInt(count);
+    }
+
+    public static void writeResponse(ByteBuffer buffer, int requestId, byte status, int[] values, int count) {
+        buffer.putInt(requestId).put(status).putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(values[i]);
+        }
+    }
+
+    public static int responseSize(int count) {
+        return RESPONSE_HEADER_SIZE + 4 * count;
+    }
+}
@@ -0,0 +1,325 @@
+package com.ticketsystem.javafx;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Serves one pool to other processes over TicketProtocol on the loopback interface. A single selector
+// thread accepts, reads and writes without blocking. Each connection's requests run in order on a worker
+// of its own, since a purchase may wait on the pool, and the worker only lives while requests are queued.
+// Responses pile up in the connection's output buffer and the selector writes them out together, so a
+// pipelining client gets many responses per write. A connection stops being read while it has a full
+// pipeline of requests queued or too many unread responses, which bounds what one client can make the
+// server hold.
+public class TicketServer implements AutoCloseable {
+    private static final int MAX_PIPELINE = 256;
+    private static final int OUTPUT_LIMIT = 256 * 1024;
+
+    private final TicketPool pool;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Connection> pendingWrites;
+    private final Thread selectorThread;
+    private final AtomicInteger openConnections;
+    private final LongAdder requestsServed;
+    private volatile boolean running;
+
+    public TicketServer(TicketPool pool, int port, ExecutionMode executionMode) {
+        this.pool = pool;
+        try {
+            this.selector = Selector.open();
+            this.serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new RuntimeException("Error starting ticket server: " + e.getMessage(), e);
+        }
+        this.workers = Executors.newThreadPerTaskExecutor(executionMode.threadFactory());
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.openConnections = new AtomicInteger(0);
+        this.requestsServed = new LongAdder();
+        this.running = true;
+        this.selectorThread = new Thread(this::selectLoop, "ticket-server");
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = pendingWrites.poll()) != null) {
+                    connection.flushRequested.set(false);
+                    connection.write();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection selected = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            selected.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            selected.write();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Ticket server stopped: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        openConnections.incrementAndGet();
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private final int[] values;
+        private final AtomicBoolean flushRequested;
+        private ByteBuffer out;
+        private SelectionKey key;
+        private boolean serving;
+        private volatile Thread worker;
+        private volatile boolean closed;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = ByteBuffer.allocate(MAX_PIPELINE * TicketProtocol.REQUEST_SIZE);
+            this.values = new int[TicketProtocol.MAX_BATCH];
+            this.flushRequested = new AtomicBoolean(false);
+            this.out = ByteBuffer.allocate(4096);
+        }
+
+        // Selector thread
+        private void read() {
+            boolean startWorker;
+            synchronized (this) {
+                try {
+                    if (channel.read(in) < 0) {
+                        close();
+                        return;
+                    }
+                } catch (IOException e) {
+                    close();
+                    return;
+                }
+                startWorker = !serving && in.position() >= TicketProtocol.REQUEST_SIZE;
+                serving |= startWorker;
+                updateInterest();
+            }
+            if (startWorker) {
+                workers.execute(this::serve);
+            }
+        }
+
+        // Selector thread
+        private void write() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    out.flip();
+                    channel.write(out);
+                    out.compact();
+                } catch (IOException e) {
+                    close();
+                    return;
+                }
+                updateInterest();
+            }
+        }
+
+        // Called with the connection's lock held
+        private void updateInterest() {
+            if (closed || !key.isValid()) {
+                return;
+            }
+            int ops = in.hasRemaining() && out.position() < OUTPUT_LIMIT ? SelectionKey.OP_READ : 0;
+            if (out.position() > 0) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        // Worker: runs the queued requests one after another until none are left
+        private void serve() {
+            worker = Thread.currentThread();
+            try {
+                while (!closed) {
+                    byte operation;
+                    int requestId;
+                    int participantId;
+                    int count;
+                    synchronized (this) {
+                        if (in.position() < TicketProtocol.REQUEST_SIZE) {
+                            serving = false;
+                            return;
+                        }
+                        in.flip();
+                        operation = in.get();
+                        requestId = in.getInt();
+                        participantId = in.getInt();
+                        count = in.getInt();
+                        in.compact();
+                    }
+                    respond(requestId, operation, participantId, count);
+                }
+            } finally {
+                worker = null;
+            }
+        }
+
+        private void respond(int requestId, byte operation, int participantId, int count) {
+            byte status = TicketProtocol.OK;
+            int moved = 0;
+            boolean validCount = count >= 1 && count <= TicketProtocol.MAX_BATCH;
+            switch (operation) {
+                case TicketProtocol.ADD -> {
+                    moved = validCount ? pool.addTickets(participantId, count, values) : 0;
+                    status = !validCount ? TicketProtocol.BAD_REQUEST : moved > 0 ? status : TicketProtocol.DONE;
+                }
+                case TicketProtocol.PURCHASE -> {
+                    long start = System.nanoTime();
+                    moved = validCount ? pool.removeTickets(participantId, count, values) : 0;
+                    if (moved > 0) {
+                        pool.getMetrics().recordPurchaseLatency(System.nanoTime() - start);
+                    }
+                    status = !validCount ? TicketProtocol.BAD_REQUEST : moved > 0 ? status : TicketProtocol.DONE;
+                }
+                case TicketProtocol.STATUS -> {
+                    values[0] = pool.getAvailableTickets();
+                    values[1] = pool.getTotalTicketsAdded();
+                    values[2] = pool.getTotalTicketsLimit();
+                    values[3] = values[1] - values[0];
+                    moved = TicketProtocol.STATUS_VALUES;
+                }
+                default -> status = TicketProtocol.BAD_REQUEST;
+            }
+            requestsServed.increment();
+
+            synchronized (this) {
+                int size = TicketProtocol.responseSize(moved);
+                if (out.remaining() < size) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+                    out.flip();
+                    larger.put(out);
+                    out = larger;
+                }
+                TicketProtocol.writeResponse(out, requestId, status, values, moved);
+            }
+            // The selector picks up everything written until it gets round to this connection
+            if (flushRequested.compareAndSet(false, true)) {
+                pendingWrites.add(this);
+                selector.wakeup();
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            openConnections.decrementAndGet();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to send to a client that went away
+            }
+            // A worker still waiting on the pool for this client stops waiting
+            Thread current = worker;
+            if (current != null) {
+                current.interrupt();
+            }
+        }
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getRequestsServed() {
+        return requestsServed.sum();
+    }
+
+    public TicketPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                synchronized (connection) {
+                    connection.close();
+                }
+            }
+        }
+        workers.shutdownNow();
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error stopping ticket server: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Ticket server on port %d: %d connections, %d requests served",
+                getPort(), getOpenConnections(), getRequestsServed());
+    }
+}
@@ -11,31 +11,33 @@ import javafx.stage.Stage;
 import java.io.File;
 import javafx.geometry.Pos;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
-import java.util.ArrayList;
-import java.util.List;
 
 public class TicketSystemApplication extends Application {
-    private TextArea logArea;
+    private LogView logView;
+    private DashboardPane dashboardPane;
+    private TicketEventLog eventLog;
     private Configuration currentConfig;
-    private TicketPool ticketPool;
+    private SimulationEngine simulationEngine;
     private TextField totalTicketsField;
     private TextField maxCapacityField;
     private TextField retrievalTimeField;
     private TextField buyingTimeField;
+    private TextField vendorBatchSizeField;
+    private TextField customerBatchSizeField;
     private TextField vendorsField;
     private TextField customersField;
+    private ChoiceBox<TicketPoolType> poolTypeChoice;
+    private ChoiceBox<ExecutionMode> executionModeChoice;
     private Button startButton;
     private Button stopButton;
     private Label statusLabel;
     private boolean systemRunning = false;
-    private List<Vendor> activeVendors;
-    private List<Customer> activeCustomers;
 
     @Override
     public void start(Stage primaryStage) {
-        initializeFields();
         primaryStage.setTitle("Ticket Distribution System");
 
         // Create main layout
@@ -59,12 +61,27 @@ public class TicketSystemApplication extends Application {
         // System Control Section
         TitledPane controlPane = createSystemControlSection();
 
+        // Dashboard Section
+        TitledPane dashboardSection = createDashboardSection();
+
         // Log Section
         TitledPane logPane = createLogSection();
 
-        mainLayout.getChildren().addAll(headerLabel, statusLabel, configPane, controlPane, logPane);
+        // Ticket events are formatted off the FX thread and land in the bounded log view
+        eventLog = new TicketEventLog(TicketEventLog.DEFAULT_CAPACITY);
+        eventLog.addSink(new TextEventSink(logView::append));
+
+        VBox settingsColumn = new VBox(15, configPane, controlPane);
+        settingsColumn.setPrefWidth(520);
+        VBox monitoringColumn = new VBox(15, dashboardSection, logPane);
+        HBox.setHgrow(monitoringColumn, Priority.ALWAYS);
+        VBox.setVgrow(logPane, Priority.ALWAYS);
+        HBox columns = new HBox(15, settingsColumn, monitoringColumn);
+        VBox.setVgrow(columns, Priority.ALWAYS);
 
-        Scene scene = new Scene(mainLayout, 900, 800);
+        mainLayout.getChildren().addAll(headerLabel, statusLabel, columns);
+
+        Scene scene = new Scene(mainLayout, 1400, 900);
         primaryStage.setScene(scene);
         primaryStage.show();
 
@@ -76,16 +93,12 @@ public class TicketSystemApplication extends Application {
             if (systemRunning) {
                 stopTicketSystem();
             }
+            eventLog.close();
             Platform.exit();
             System.exit(0);
         });
     }
 
-    private void initializeFields() {
-        activeVendors = new ArrayList<>();
-        activeCustomers = new ArrayList<>();
-    }
-
     private void initializeConfigDirectory() {
         File configDir = new File("configurations");
         if (!configDir.exists()) {
@@ -109,11 +122,15 @@ public class TicketSystemApplication extends Application {
         maxCapacityField = createStyledTextField("20");
         retrievalTimeField = createStyledTextField("1000");
         buyingTimeField = createStyledTextField("1000");
+        vendorBatchSizeField = createStyledTextField("1");
+        customerBatchSizeField = createStyledTextField("1");
 
         addLabeledField(grid, "Total Tickets (10-1000):", totalTicketsField, 0);
         addLabeledField(grid, "Max Capacity (10-1000):", maxCapacityField, 1);
         addLabeledField(grid, "Retrieval Time (500-10000ms):", retrievalTimeField, 2);
         addLabeledField(grid, "Buying Time (500-10000ms):", buyingTimeField, 3);
+        addLabeledField(grid, "Vendor Batch Size (1-Max Capacity):", vendorBatchSizeField, 4);
+        addLabeledField(grid, "Customer Batch Size (1-Max Capacity):", customerBatchSizeField, 5);
 
         // Buttons
         HBox buttonBox = new HBox(10);
@@ -124,7 +141,7 @@ public class TicketSystemApplication extends Application {
         Button createButton = createStyledButton("Create Configuration");
 
         buttonBox.getChildren().addAll(loadButton, saveButton, createButton);
-        grid.add(buttonBox, 0, 4, 2, 1);
+        grid.add(buttonBox, 0, 6, 2, 1);
 
         // Button Actions
         loadButton.setOnAction(e -> loadConfiguration());
@@ -147,8 +164,28 @@ public class TicketSystemApplication extends Application {
         vendorsField = createStyledTextField("5");
         customersField = createStyledTextField("10");
 
-        addLabeledField(grid, "Number of Vendors (1-50):", vendorsField, 0);
-        addLabeledField(grid, "Number of Customers (1-200):", customersField, 1);
+        Label vendorsLabel = addLabeledField(grid, "", vendorsField, 0);
+        Label customersLabel = addLabeledField(grid, "", customersField, 1);
+
+        poolTypeChoice = new ChoiceBox<>();
+        poolTypeChoice.getItems().addAll(TicketPoolType.values());
+        poolTypeChoice.setValue(TicketPoolType.LOCKING);
+        Label poolTypeLabel = new Label("Ticket Pool Backend:");
+        poolTypeLabel.setStyle("-fx-font-weight: bold;");
+        grid.add(poolTypeLabel, 0, 2);
+        grid.add(poolTypeChoice, 1, 2);
+
+        executionModeChoice = new ChoiceBox<>();
+        executionModeChoice.getItems().addAll(ExecutionMode.values());
+        executionModeChoice.valueProperty().addListener((observable, oldMode, mode) -> {
+            vendorsLabel.setText("Number of Vendors (1-" + mode.getMaxVendors() + "):");
+            customersLabel.setText("Number of Customers (1-" + mode.getMaxCustomers() + "):");
+        });
+        executionModeChoice.setValue(ExecutionMode.PLATFORM_THREADS);
+        Label executionModeLabel = new Label("Execution Mode:");
+        executionModeLabel.setStyle("-fx-font-weight: bold;");
+        grid.add(executionModeLabel, 0, 3);
+        grid.add(executionModeChoice, 1, 3);
 
         // Control Buttons
         HBox buttonBox = new HBox(10);
@@ -159,7 +196,7 @@ public class TicketSystemApplication extends Application {
         stopButton.setDisable(true);
 
         buttonBox.getChildren().addAll(startButton, stopButton);
-        grid.add(buttonBox, 0, 2, 2, 1);
+        grid.add(buttonBox, 0, 4, 2, 1);
 
         // Button Actions
         startButton.setOnAction(e -> startTicketSystem());
@@ -170,24 +207,31 @@ public class TicketSystemApplication extends Application {
         return controlPane;
     }
 
+    private TitledPane createDashboardSection() {
+        dashboardPane = new DashboardPane();
+        dashboardPane.setStyle("-fx-background-color: white;");
+
+        TitledPane dashboardSection = new TitledPane("Live Dashboard", dashboardPane);
+        dashboardSection.setCollapsible(false);
+        return dashboardSection;
+    }
+
     private TitledPane createLogSection() {
         VBox logBox = new VBox(10);
         logBox.setPadding(new Insets(20));
         logBox.setStyle("-fx-background-color: white;");
 
-        logArea = new TextArea();
-        logArea.setEditable(false);
-        logArea.setWrapText(true);
-        logArea.setPrefRowCount(10);
-        logArea.setStyle("-fx-font-family: 'Courier New'; -fx-font-size: 12px;");
+        logView = new LogView();
+        VBox.setVgrow(logView, Priority.ALWAYS);
 
         Button clearButton = createStyledButton("Clear Log");
-        clearButton.setOnAction(e -> logArea.clear());
+        clearButton.setOnAction(e -> logView.clear());
 
-        logBox.getChildren().addAll(logArea, clearButton);
+        logBox.getChildren().addAll(logView, clearButton);
 
         TitledPane logPane = new TitledPane("System Log", logBox);
         logPane.setCollapsible(false);
+        logPane.setMaxHeight(Double.MAX_VALUE);
         return logPane;
     }
 
@@ -210,11 +254,12 @@ public class TicketSystemApplication extends Application {
         return button;
     }
 
-    private void addLabeledField(GridPane grid, String labelText, TextField field, int row) {
+    private Label addLabeledField(GridPane grid, String labelText, TextField field, int row) {
         Label label = new Label(labelText);
         label.setStyle("-fx-font-weight: bold;");
         grid.add(label, 0, row);
         grid.add(field, 1, row);
+        return label;
     }
 
     private void loadConfiguration() {
@@ -265,9 +310,13 @@ public class TicketSystemApplication extends Application {
             int maxCapacity = Integer.parseInt(maxCapacityField.getText());
             int retrievalTime = Integer.parseInt(retrievalTimeField.getText());
             int buyingTime = Integer.parseInt(buyingTimeField.getText());
+            int vendorBatchSize = Integer.parseInt(vendorBatchSizeField.getText());
+            int customerBatchSize = Integer.parseInt(customerBatchSizeField.getText());
 
-            if (validateConfiguration(totalTickets, maxCapacity, retrievalTime, buyingTime)) {
-                currentConfig = new Configuration(totalTickets, maxCapacity, retrievalTime, buyingTime);
+            if (validateConfiguration(totalTickets, maxCapacity, retrievalTime, buyingTime)
+                    && validateBatchSizes(vendorBatchSize, customerBatchSize, maxCapacity)) {
+                currentConfig = new Configuration(totalTickets, maxCapacity, retrievalTime, buyingTime,
+                        vendorBatchSize, customerBatchSize);
                 log("New configuration created successfully");
                 showAlert("Success", "Configuration created successfully!", Alert.AlertType.INFORMATION);
             }
@@ -282,6 +331,8 @@ public class TicketSystemApplication extends Application {
             maxCapacityField.setText(String.valueOf(currentConfig.getMaxTicketCapacity()));
             retrievalTimeField.setText(String.valueOf(currentConfig.getTicketRetrievalTime()));
             buyingTimeField.setText(String.valueOf(currentConfig.getTicketBuyingTime()));
+            vendorBatchSizeField.setText(String.valueOf(currentConfig.getVendorBatchSize()));
+            customerBatchSizeField.setText(String.valueOf(currentConfig.getCustomerBatchSize()));
         }
     }
 
@@ -295,30 +346,17 @@ public class TicketSystemApplication extends Application {
             int numVendors = Integer.parseInt(vendorsField.getText());
             int numCustomers = Integer.parseInt(customersField.getText());
 
-            if (validateSystemParameters(numVendors, numCustomers)) {
-                systemRunning = true;
+            ExecutionMode executionMode = executionModeChoice.getValue();
+
+            if (validateSystemParameters(numVendors, numCustomers, executionMode)) {
+                simulationEngine = new SimulationEngine(currentConfig, numVendors, numCustomers,
+                        poolTypeChoice.getValue(), executionMode, eventLog);
+                simulationEngine.start();
+                dashboardPane.attach(simulationEngine.getTicketPool());
                 updateSystemStatus(true);
-                ticketPool = new TicketPool(currentConfig.getMaxTicketCapacity(), currentConfig.getTotalTickets());
-
-                // Clear previous lists
-                activeVendors = new ArrayList<>();
-                activeCustomers = new ArrayList<>();
-
-                // Start vendors
-                for (int i = 0; i < numVendors; i++) {
-                    Vendor vendor = new Vendor(i + 1, ticketPool, currentConfig.getTicketRetrievalTime());
-                    activeVendors.add(vendor);
-                    new Thread(vendor).start();
-                }
-
-                // Start customers
-                for (int i = 0; i < numCustomers; i++) {
-                    Customer customer = new Customer(i + 1, ticketPool, currentConfig.getTicketBuyingTime());
-                    activeCustomers.add(customer);
-                    new Thread(customer).start();
-                }
-
-                log("System started with " + numVendors + " vendors and " + numCustomers + " customers");
+
+                log("System started with " + numVendors + " vendors and " + numCustomers + " customers ("
+                        + poolTypeChoice.getValue() + " pool, " + executionMode + ")");
             }
         } catch (NumberFormatException ex) {
             showAlert("Invalid Input", "Please enter valid numbers for vendors and customers.", Alert.AlertType.ERROR);
@@ -328,24 +366,11 @@ public class TicketSystemApplication extends Application {
     private void stopTicketSystem() {
         systemRunning = false;
 
-        // Stop all vendors
-        if (activeVendors != null) {
-            for (Vendor vendor : activeVendors) {
-                vendor.stop();
-            }
-        }
-
-        // Stop all customers
-        if (activeCustomers != null) {
-            for (Customer customer : activeCustomers) {
-                customer.stop();
-            }
-        }
-
-        // Shutdown ticket pool
-        if (ticketPool != null) {
-            ticketPool.shutdown();
+        // Stops participants, shuts the pool down and interrupts anyone still sleeping
+        if (simulationEngine != null) {
+            simulationEngine.stop();
         }
+        dashboardPane.detach();
 
         updateSystemStatus(false);
         log("System stopped manually");
@@ -379,13 +404,27 @@ public class TicketSystemApplication extends Application {
         return true;
     }
 
-    private boolean validateSystemParameters(int numVendors, int numCustomers) {
-        if (numVendors < 1 || numVendors > 50) {
-            showAlert("Invalid Input", "Number of vendors must be between 1 and 50", Alert.AlertType.ERROR);
+    private boolean validateBatchSizes(int vendorBatchSize, int customerBatchSize, int maxCapacity) {
+        if (vendorBatchSize < 1 || vendorBatchSize > maxCapacity) {
+            showAlert("Invalid Input", "Vendor batch size must be between 1 and max capacity", Alert.AlertType.ERROR);
             return false;
         }
-        if (numCustomers < 1 || numCustomers > 200) {
-            showAlert("Invalid Input", "Number of customers must be between 1 and 200", Alert.AlertType.ERROR);
+        if (customerBatchSize < 1 || customerBatchSize > maxCapacity) {
+            showAlert("Invalid Input", "Customer batch size must be between 1 and max capacity", Alert.AlertType.ERROR);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean validateSystemParameters(int numVendors, int numCustomers, ExecutionMode executionMode) {
+        if (numVendors < 1 || numVendors > executionMode.getMaxVendors()) {
+            showAlert("Invalid Input", "Number of vendors must be between 1 and " + executionMode.getMaxVendors(),
+                    Alert.AlertType.ERROR);
+            return false;
+        }
+        if (numCustomers < 1 || numCustomers > executionMode.getMaxCustomers()) {
+            showAlert("Invalid Input", "Number of customers must be between 1 and " + executionMode.getMaxCustomers(),
+                    Alert.AlertType.ERROR);
             return false;
         }
         return true;
@@ -400,11 +439,7 @@ public class TicketSystemApplication extends Application {
     }
 
     private void log(String message) {
-        Platform.runLater(() -> {
-            String timestamp = java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss"));
-            logArea.appendText("[" + timestamp + "] " + message + "\n");
-            logArea.setScrollTop(Double.MAX_VALUE); // Auto-scroll to bottom
-        });
+        logView.append(message);
     }
 
     public static void main(String[] args) {
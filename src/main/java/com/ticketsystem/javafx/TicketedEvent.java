@@ -0,0 +1,62 @@
+package com.ticketsystem.javafx;
+
+// One event on sale: its own pool, seat inventory and admission limits, shared with no other event
+public class TicketedEvent {
+    private final int eventId;
+    private final String name;
+    private final TicketPool ticketPool;
+    private final TicketInventory inventory;
+    private final AdmissionController admissionController;
+
+    public TicketedEvent(int eventId, String name, TicketPool ticketPool, TicketInventory inventory) {
+        this(eventId, name, ticketPool, inventory, null);
+    }
+
+    // admissionController may be null when the event admits every request
+    public TicketedEvent(int eventId, String name, TicketPool ticketPool, TicketInventory inventory,
+                         AdmissionController admissionController) {
+        if (inventory.size() < ticketPool.getTotalTicketsLimit()) {
+            throw new IllegalArgumentException("Inventory for event " + eventId + " has fewer seats than tickets");
+        }
+        this.eventId = eventId;
+        this.name = name;
+        this.ticketPool = ticketPool;
+        this.inventory = inventory;
+        this.admissionController = admissionController;
+    }
+
+    public int getEventId() {
+        return eventId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TicketPool getTicketPool() {
+        return ticketPool;
+    }
+
+    public TicketInventory getInventory() {
+        return inventory;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    public int getTicketsSold() {
+        return ticketPool.getTotalTicketsAdded() - ticketPool.getAvailableTickets();
+    }
+
+    public MetricsSnapshot getMetrics() {
+        return ticketPool.getMetrics().snapshot();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: Added %d/%d, Sold %d, Available %d",
+                name, ticketPool.getTotalTicketsAdded(), ticketPool.getTotalTicketsLimit(),
+                getTicketsSold(), ticketPool.getAvailableTickets());
+    }
+}
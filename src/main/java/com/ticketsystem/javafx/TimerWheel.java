@@ -0,0 +1,194 @@
+package com.ticketsystem.javafx;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hashed timer wheel for large numbers of short timers. A timer goes into the bucket of the tick its
+// deadline falls in, in an intrusive doubly linked list kept in primitive arrays, so scheduling and
+// cancelling are O(1) and allocate nothing once the arrays have grown. Expiring walks only the buckets
+// of the ticks that passed; timers in those buckets that belong to a later lap of the wheel stay put.
+// Timer handles carry a generation, so a handle to a fired or cancelled timer can never hit a reused slot.
+public final class TimerWheel {
+    public static final long NO_PAYLOAD = Long.MIN_VALUE;
+    private static final int NONE = -1;
+
+    private final long tickMillis;
+    private final int mask;
+    private final int[] bucketHeads;
+    private final ReentrantLock lock;
+    private int[] next;
+    private int[] previous;
+    private int[] buckets;
+    private int[] generations;
+    private long[] deadlines;
+    private long[] payloads;
+    private boolean[] live;
+    private int freeHead;
+    private int size;
+    private long currentTick;
+
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be at least one millisecond");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.bucketHeads = new int[wheelSize];
+        Arrays.fill(bucketHeads, NONE);
+        this.lock = new ReentrantLock();
+        this.next = new int[0];
+        this.previous = new int[0];
+        this.buckets = new int[0];
+        this.generations = new int[0];
+        this.deadlines = new long[0];
+        this.payloads = new long[0];
+        this.live = new boolean[0];
+        this.freeHead = NONE;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    // Returns a handle for cancel(); a deadline already in the past fires on the next expire()
+    public long schedule(long deadlineMillis, long payload) {
+        lock.lock();
+        try {
+            int entry = allocate();
+            deadlines[entry] = deadlineMillis;
+            payloads[entry] = payload;
+            live[entry] = true;
+            link(entry, bucketOf(deadlineMillis));
+            size++;
+            return ((long) generations[entry] << 32) | entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the timer's payload, or NO_PAYLOAD if it already fired or was cancelled
+    public long cancel(long handle) {
+        int entry = (int) handle;
+        int generation = (int) (handle >>> 32);
+        lock.lock();
+        try {
+            if (entry < 0 || entry >= live.length || !live[entry] || generations[entry] != generation) {
+                return NO_PAYLOAD;
+            }
+            long payload = payloads[entry];
+            unlink(entry);
+            release(entry);
+            return payload;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Removes every timer due at nowMillis and writes its payload to out; returns how many were written.
+    // Stops early when out is full, leaving the remaining due timers for the next call.
+    public int expire(long nowMillis, long[] out) {
+        lock.lock();
+        try {
+            long nowTick = nowMillis / tickMillis;
+            // Past one full lap every bucket has been visited, so there is no point going round again
+            long firstTick = Math.max(currentTick, nowTick - mask);
+            int count = 0;
+            for (long tick = firstTick; tick <= nowTick; tick++) {
+                int bucket = (int) (tick & mask);
+                int entry = bucketHeads[bucket];
+                while (entry != NONE) {
+                    int following = next[entry];
+                    if (deadlines[entry] <= nowMillis) {
+                        if (count == out.length) {
+                            currentTick = tick;
+                            return count;
+                        }
+                        out[count++] = payloads[entry];
+                        unlink(entry);
+                        release(entry);
+                    }
+                    entry = following;
+                }
+            }
+            currentTick = nowTick;
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private int bucketOf(long deadlineMillis) {
+        // A deadline before the current tick would otherwise sit unvisited for a whole lap
+        return (int) (Math.max(deadlineMillis / tickMillis, currentTick) & mask);
+    }
+
+    private int allocate() {
+        if (freeHead == NONE) {
+            grow();
+        }
+        int entry = freeHead;
+        freeHead = next[entry];
+        return entry;
+    }
+
+    private void release(int entry) {
+        live[entry] = false;
+        generations[entry]++;
+        next[entry] = freeHead;
+        freeHead = entry;
+        size--;
+    }
+
+    private void grow() {
+        int oldLength = next.length;
+        int newLength = Math.max(64, oldLength * 2);
+        next = Arrays.copyOf(next, newLength);
+        previous = Arrays.copyOf(previous, newLength);
+        buckets = Arrays.copyOf(buckets, newLength);
+        generations = Arrays.copyOf(generations, newLength);
+        deadlines = Arrays.copyOf(deadlines, newLength);
+        payloads = Arrays.copyOf(payloads, newLength);
+        live = Arrays.copyOf(live, newLength);
+        for (int entry = newLength - 1; entry >= oldLength; entry--) {
+            next[entry] = freeHead;
+            freeHead = entry;
+        }
+    }
+
+    private void link(int entry, int bucket) {
+        int head = bucketHeads[bucket];
+        next[entry] = head;
+        previous[entry] = NONE;
+        buckets[entry] = bucket;
+        if (head != NONE) {
+            previous[head] = entry;
+        }
+        bucketHeads[bucket] = entry;
+    }
+
+    private void unlink(int entry) {
+        int before = previous[entry];
+        int after = next[entry];
+        if (before == NONE) {
+            bucketHeads[buckets[entry]] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.ticketsystem.javafx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Records ticket movements (additions, purchases and returns) as comma-separated values that EventTrace
+// can read back and replay: timestamp,type,participant,first ticket,last ticket,count,pool size
+public class TraceEventSink implements TicketEventSink {
+    static final String HEADER = "# timestamp,type,participant,firstTicket,lastTicket,count,poolSize";
+
+    private final BufferedWriter writer;
+    private final StringBuilder line;
+
+    public TraceEventSink(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            writer.write(HEADER);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening event trace: " + e.getMessage(), e);
+        }
+        this.line = new StringBuilder(64);
+    }
+
+    @Override
+    public void onEvent(TicketEvent event) {
+        TicketEventType type = event.getType();
+        if (type != TicketEventType.ADDED && type != TicketEventType.PURCHASED && type != TicketEventType.RETURNED) {
+            return;
+        }
+        line.setLength(0);
+        line.append(event.getTimestamp()).append(',')
+                .append(type.name()).append(',')
+                .append(event.getParticipantId()).append(',')
+                .append(event.getFirstTicket()).append(',')
+                .append(event.getLastTicket()).append(',')
+                .append(event.getCount()).append(',')
+                .append(event.getPoolSize())
+                .append(System.lineSeparator());
+        try {
+            writer.append(line);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing event trace: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Error flushing event trace: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing event trace: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.ticketsystem.javafx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Replays a recorded trace against a fresh pool as fast as the pool allows. Every vendor and customer
+// in the trace gets its own thread that repeats its recorded additions, purchases and returns in order
+// with no think time, so one participant's steps keep their order while the contention between
+// participants is as bad as the pool will let it be. A purchase is repeated until it got as many
+// tickets as recorded or the pool sold out, since the replayed pool may hand them out in other batches.
+public class TraceReplayer {
+    private final EventTrace trace;
+    private final TicketPoolType poolType;
+    private final ExecutionMode executionMode;
+
+    public TraceReplayer(EventTrace trace, TicketPoolType poolType, ExecutionMode executionMode) {
+        if (trace.getTicketsAdded() < 1) {
+            throw new IllegalArgumentException("Trace does not add any tickets");
+        }
+        this.trace = trace;
+        this.poolType = poolType;
+        this.executionMode = executionMode;
+    }
+
+    public WorkloadReport replay(String name, long timeout, TimeUnit unit) throws InterruptedException {
+        // Room for every recorded ticket, so replayed vendors never wait for space the original run had
+        int tickets = trace.getTicketsAdded();
+        TicketPool pool = poolType.create(tickets, tickets, TicketEventLog.disabled());
+
+        Map<Integer, List<Integer>> vendorSteps = new HashMap<>();
+        Map<Integer, List<Integer>> customerSteps = new HashMap<>();
+        for (int i = 0; i < trace.size(); i++) {
+            Map<Integer, List<Integer>> steps = trace.getType(i) == TicketEventType.ADDED
+                    ? vendorSteps : customerSteps;
+            steps.computeIfAbsent(trace.getParticipantId(i), id -> new ArrayList<>()).add(i);
+        }
+
+        int participants = vendorSteps.size() + customerSteps.size();
+        // Everyone starts together once all threads exist
+        CountDownLatch start = new CountDownLatch(1);
+        ParticipantExecutor executor = new ParticipantExecutor(executionMode);
+        long startNanos;
+        boolean completed;
+        try {
+            for (Map.Entry<Integer, List<Integer>> vendor : vendorSteps.entrySet()) {
+                executor.submit(() -> replayVendor(pool, vendor.getKey(), vendor.getValue(), start));
+            }
+            for (Map.Entry<Integer, List<Integer>> customer : customerSteps.entrySet()) {
+                executor.submit(() -> replayCustomer(pool, customer.getKey(), customer.getValue(), start));
+            }
+            startNanos = System.nanoTime();
+            start.countDown();
+            completed = executor.awaitCompletion(timeout, unit);
+        } finally {
+            executor.stop();
+            pool.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        MetricsSnapshot metrics = pool.getMetrics().snapshot();
+        return new WorkloadReport(name, poolType, participants, pool.getTotalTicketsAdded(),
+                (int) metrics.getTicketsSold(), durationMillis, durationMillis, completed, metrics);
+    }
+
+    private void replayVendor(TicketPool pool, int vendorId, List<Integer> steps, CountDownLatch start) {
+        if (!awaitStart(start)) {
+            return;
+        }
+        int[] released = new int[maxCount(steps)];
+        for (int step : steps) {
+            int remaining = trace.getCount(step);
+            while (remaining > 0) {
+                long requestStart = System.nanoTime();
+                int added = pool.addTickets(vendorId, remaining, released);
+                if (added == 0) {
+                    return;
+                }
+                pool.getMetrics().recordReleaseLatency(System.nanoTime() - requestStart);
+                remaining -= added;
+            }
+        }
+    }
+
+    private void replayCustomer(TicketPool pool, int customerId, List<Integer> steps, CountDownLatch start) {
+        if (!awaitStart(start)) {
+            return;
+        }
+        int[] purchased = new int[maxCount(steps)];
+        int bought = 0;
+        for (int step : steps) {
+            bought += trace.getType(step) == TicketEventType.PURCHASED ? trace.getCount(step) : 0;
+        }
+        // Tickets this customer holds, so recorded returns hand back tickets it actually bought
+        IntArrayQueue held = new IntArrayQueue(Math.max(1, bought));
+        for (int step : steps) {
+            int remaining = trace.getCount(step);
+            if (trace.getType(step) == TicketEventType.RETURNED) {
+                int count = Math.min(remaining, held.size());
+                int[] returned = new int[count];
+                held.drainTo(returned, count);
+                if (count > 0 && pool.returnTickets(customerId, returned, count) < count) {
+                    return;
+                }
+                continue;
+            }
+            while (remaining > 0) {
+                long requestStart = System.nanoTime();
+                int taken = pool.removeTickets(customerId, remaining, purchased);
+                if (taken == 0) {
+                    return;
+                }
+                pool.getMetrics().recordPurchaseLatency(System.nanoTime() - requestStart);
+                for (int i = 0; i < taken; i++) {
+                    held.offer(purchased[i]);
+                }
+                remaining -= taken;
+            }
+        }
+    }
+
+    private int maxCount(List<Integer> steps) {
+        int max = 1;
+        for (int step : steps) {
+            max = Math.max(max, trace.getCount(step));
+        }
+        return max;
+    }
+
+    private static boolean awaitStart(CountDownLatch start) {
+        try {
+            start.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
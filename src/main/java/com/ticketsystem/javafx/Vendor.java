@@ -6,37 +6,73 @@ public class Vendor implements Runnable {
     private final int vendorId;
     private final TicketPool ticketPool;
     private final int ticketRetrievalTime;
+    private final int batchSize;
+    private final SimulationClock clock;
+    private final SupplyController supplyController;
     private volatile boolean running;
     private final AtomicInteger ticketsAdded;
-    private Thread vendorThread;
 
     public Vendor(int vendorId, TicketPool ticketPool, int ticketRetrievalTime) {
+        this(vendorId, ticketPool, ticketRetrievalTime, 1);
+    }
+
+    public Vendor(int vendorId, TicketPool ticketPool, int ticketRetrievalTime, int batchSize) {
+        this(vendorId, ticketPool, ticketRetrievalTime, batchSize, SimulationClock.realTime());
+    }
+
+    public Vendor(int vendorId, TicketPool ticketPool, int ticketRetrievalTime, int batchSize, SimulationClock clock) {
+        this(vendorId, ticketPool, ticketRetrievalTime, batchSize, clock, null);
+    }
+
+    // Releases as many tickets as the controller asks for and waits as long as it says, instead of the
+    // configured batch size and retrieval time
+    public Vendor(int vendorId, TicketPool ticketPool, SupplyController supplyController, SimulationClock clock) {
+        this(vendorId, ticketPool, supplyController.getReleaseIntervalMillis(), supplyController.getMaxBatchSize(),
+                clock, supplyController);
+    }
+
+    private Vendor(int vendorId, TicketPool ticketPool, int ticketRetrievalTime, int batchSize, SimulationClock clock,
+                   SupplyController supplyController) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
         this.vendorId = vendorId;
         this.ticketPool = ticketPool;
         this.ticketRetrievalTime = ticketRetrievalTime;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.supplyController = supplyController;
         this.running = true;
         this.ticketsAdded = new AtomicInteger(0);
     }
 
     @Override
     public void run() {
-        vendorThread = Thread.currentThread();
         System.out.printf("Vendor %d started providing tickets%n", vendorId);
+        int[] releasedTickets = new int[batchSize];
+        clock.register();
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                try {
+                    long requestStart = System.nanoTime();
+                    int batch = supplyController == null ? batchSize : supplyController.nextBatchSize();
+                    int released = ticketPool.addTickets(vendorId, batch, releasedTickets);
+                    if (released == 0 || !running) {
+                        break;
+                    }
+                    ticketPool.getMetrics().recordReleaseLatency(System.nanoTime() - requestStart);
+
+                    clock.sleep(supplyController == null
+                            ? ticketRetrievalTime : supplyController.getReleaseIntervalMillis());
+                    ticketsAdded.addAndGet(released);
 
-        while (running && !Thread.currentThread().isInterrupted()) {
-            try {
-                boolean success = ticketPool.addTickets(vendorId, 1);
-                if (!success || !running) {
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                     break;
                 }
-
-                Thread.sleep(ticketRetrievalTime);
-                ticketsAdded.incrementAndGet();
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
             }
+        } finally {
+            clock.deregister();
         }
 
         System.out.printf("Vendor %d finishing. Total tickets added: %d%n",
@@ -45,9 +81,6 @@ public class Vendor implements Runnable {
 
     public void stop() {
         running = false;
-        if (vendorThread != null) {
-            vendorThread.interrupt();
-        }
     }
 
     public int getVendorId() {
@@ -58,6 +91,10 @@ public class Vendor implements Runnable {
         return ticketsAdded.get();
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     public int getTicketRetrievalTime() {
         return ticketRetrievalTime;
     }
@@ -67,10 +104,8 @@ public class Vendor implements Runnable {
     }
 
     public String getStatistics() {
-        return String.format("Vendor %d Statistics:%n" +
-                        "Total Tickets Added: %d%n" +
-                        "Status: %s",
-                vendorId, ticketsAdded.get(),
-                running ? "Running" : "Stopped");
+        return "Vendor " + vendorId + " Statistics:" + System.lineSeparator()
+                + "Total Tickets Added: " + ticketsAdded.get() + System.lineSeparator()
+                + "Status: " + (running ? "Running" : "Stopped");
     }
 }
\ No newline at end of file
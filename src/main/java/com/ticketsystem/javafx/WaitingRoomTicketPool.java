@@ -0,0 +1,518 @@
+package com.ticketsystem.javafx;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Customers who find the pool empty join a FIFO line, one line per customer tier. A vendor hands each
+// new ticket straight to the customer at the head of the highest-priority non-empty line and wakes only
+// that customer, so releasing one ticket never wakes every waiting thread, and nobody can barge past a
+// customer of the same tier who has been waiting longer. Tickets only go into the pool when nobody is
+// waiting, so the pool is always empty while any line is not.
+public class WaitingRoomTicketPool implements TicketPool {
+    private final IntArrayQueue tickets;
+    private final ArrayDeque<Waiter>[] lines;
+    private final PurchasePolicy purchasePolicy;
+    private final int maxCapacity;
+    private int ticketCounter;
+    private volatile int totalTicketsAdded;
+    private volatile int availableTickets;
+    private final int totalTicketsLimit;
+    private final ReentrantLock lock;
+    private final ParticipantCondition notFull;
+    // A customer waits in one line at a time and is out of it before take returns, so each thread
+    // reuses one waiter instead of allocating one every time the pool is empty
+    private final ThreadLocal<Waiter> waiters;
+    private final TicketEventLog eventLog;
+    private final PoolMetrics metrics;
+    private volatile boolean isRunning;
+
+    private static final class Waiter {
+        private final Thread thread;
+        private final int[] ticket;
+        private int customerId;
+        private int[] out;
+        private int max;
+        private int count;
+        private int poolSize;
+        private RunnableParticipants participants;
+        private volatile boolean done;
+
+        private Waiter() {
+            this.thread = Thread.currentThread();
+            this.ticket = new int[1];
+        }
+
+        // Called with the lock held, so a vendor still releasing this waiter's last wait has finished
+        private void reset(int customerId, int[] out, int max) {
+            this.customerId = customerId;
+            this.out = out;
+            this.max = max;
+            this.count = 0;
+            this.poolSize = 0;
+            this.done = false;
+            this.participants = RunnableParticipants.current();
+            if (participants != null) {
+                participants.blocked();
+            }
+        }
+
+        // Called with the lock held by whoever ends the wait, before the waiter's thread is unparked
+        private void finish(int poolSize) {
+            this.poolSize = poolSize;
+            this.done = true;
+            if (participants != null) {
+                participants.woken();
+            }
+        }
+    }
+
+    public WaitingRoomTicketPool(int maxCapacity, int totalTicketsLimit) {
+        this(maxCapacity, totalTicketsLimit, TicketEventLog.console());
+    }
+
+    public WaitingRoomTicketPool(int maxCapacity, int totalTicketsLimit, TicketEventLog eventLog) {
+        this(maxCapacity, totalTicketsLimit, eventLog, PurchasePolicy.unrestricted());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public WaitingRoomTicketPool(int maxCapacity, int totalTicketsLimit, TicketEventLog eventLog,
+                                 PurchasePolicy purchasePolicy) {
+        this.tickets = new IntArrayQueue(maxCapacity);
+        this.lines = new ArrayDeque[CustomerTier.values().length];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = new ArrayDeque<>();
+        }
+        this.purchasePolicy = purchasePolicy;
+        this.maxCapacity = maxCapacity;
+        this.totalTicketsLimit = totalTicketsLimit;
+        this.lock = new ReentrantLock();
+        this.notFull = new ParticipantCondition(lock);
+        this.waiters = ThreadLocal.withInitial(Waiter::new);
+        this.eventLog = eventLog;
+        this.metrics = new PoolMetrics();
+        this.isRunning = true;
+    }
+
+    @Override
+    public boolean addTickets(int vendorId, int amount) {
+        return add(vendorId, amount, null, Long.MAX_VALUE) > 0;
+    }
+
+    @Override
+    public int addTickets(int vendorId, int amount, int[] out) {
+        if (out.length == 0) {
+            return 0;
+        }
+        return add(vendorId, Math.min(amount, out.length), out, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryAddTickets(int vendorId, int amount, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (out.length == 0 || (nanos <= 0 && (availableTickets >= maxCapacity
+                || totalTicketsAdded >= totalTicketsLimit))) {
+            return 0;
+        }
+        return add(vendorId, Math.min(amount, out.length), out, nanos);
+    }
+
+    // out may be null when the caller does not need the ticket numbers
+    private int add(int vendorId, int amount, int[] out, long nanos) {
+        if (!isRunning || amount < 1) {
+            return 0;
+        }
+
+        lock.lock();
+        try {
+            if (!awaitSpace(nanos) || !isRunning || totalTicketsAdded >= totalTicketsLimit) {
+                return 0;
+            }
+
+            int ticketsToAdd = Math.min(Math.min(amount, totalTicketsLimit - totalTicketsAdded),
+                    maxCapacity - tickets.size());
+            int firstTicket = ticketCounter + 1;
+            for (int i = 0; i < ticketsToAdd; i++) {
+                int ticketNumber = ++ticketCounter;
+                if (out != null) {
+                    out[i] = ticketNumber;
+                }
+                deliver(ticketNumber);
+            }
+            releasePartial();
+            totalTicketsAdded += ticketsToAdd;
+            availableTickets = tickets.size();
+            metrics.ticketsAdded(ticketsToAdd);
+            eventLog.ticketsAdded(vendorId, firstTicket, ticketCounter, ticketsToAdd, tickets.size());
+
+            if (allTicketsRetrieved()) {
+                releaseAll();
+            }
+            if (totalTicketsAdded >= totalTicketsLimit) {
+                // Vendors still waiting for space have nothing left to add
+                notFull.signalAll();
+            } else if (tickets.size() < maxCapacity) {
+                notFull.signal();
+            }
+            return ticketsToAdd;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held; the highest-priority line with anyone in it, or null
+    private ArrayDeque<Waiter> firstLine() {
+        for (ArrayDeque<Waiter> line : lines) {
+            if (!line.isEmpty()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    // Called with the lock held
+    private void deliver(int ticketNumber) {
+        ArrayDeque<Waiter> line = firstLine();
+        if (line == null) {
+            tickets.offer(ticketNumber);
+            return;
+        }
+        Waiter waiter = line.peekFirst();
+        waiter.out[waiter.count++] = ticketNumber;
+        if (waiter.count == waiter.max) {
+            release(line.pollFirst());
+        }
+    }
+
+    // A customer who got fewer tickets than asked for still goes home with them
+    private void releasePartial() {
+        ArrayDeque<Waiter> line = firstLine();
+        if (line != null && line.peekFirst().count > 0) {
+            release(line.pollFirst());
+        }
+    }
+
+    private void release(Waiter waiter) {
+        waiter.finish(tickets.size());
+        LockSupport.unpark(waiter.thread);
+    }
+
+    private void releaseAll() {
+        for (ArrayDeque<Waiter> line : lines) {
+            Waiter waiter;
+            while ((waiter = line.pollFirst()) != null) {
+                release(waiter);
+            }
+        }
+    }
+
+    @Override
+    public int removeTicket(int customerId) {
+        if (!isRunning) {
+            return NO_TICKET;
+        }
+
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (!isRunning) {
+                return NO_TICKET;
+            }
+            if (!tickets.isEmpty()) {
+                int ticket = tickets.poll();
+                sold(customerId, ticket, ticket, 1);
+                return ticket;
+            }
+            if (totalTicketsAdded >= totalTicketsLimit) {
+                return NO_TICKET;
+            }
+            waiter = join(customerId, null, 1);
+        } finally {
+            lock.unlock();
+        }
+
+        return awaitHandoff(waiter, Long.MAX_VALUE) > 0 ? waiter.out[0] : NO_TICKET;
+    }
+
+    @Override
+    public int removeTickets(int customerId, int max, int[] out) {
+        return take(customerId, max, out, Long.MAX_VALUE);
+    }
+
+    // A customer who times out leaves the line, so nobody behind them waits on a customer who has gone
+    @Override
+    public int tryRemoveTickets(int customerId, int max, int[] out, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0 && availableTickets == 0) {
+            return 0;
+        }
+        return take(customerId, max, out, nanos);
+    }
+
+    private int take(int customerId, int max, int[] out, long nanos) {
+        if (!isRunning || max < 1 || out.length == 0) {
+            return 0;
+        }
+
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (!isRunning) {
+                return 0;
+            }
+            if (!tickets.isEmpty()) {
+                int count = tickets.drainTo(out, max);
+                sold(customerId, out[0], out[count - 1], count);
+                return count;
+            }
+            if (totalTicketsAdded >= totalTicketsLimit || nanos <= 0) {
+                return 0;
+            }
+            waiter = join(customerId, out, Math.min(max, out.length));
+        } finally {
+            lock.unlock();
+        }
+
+        return awaitHandoff(waiter, nanos);
+    }
+
+    // Called with the lock held after taking tickets straight from the pool
+    private void sold(int customerId, int firstTicket, int lastTicket, int count) {
+        availableTickets = tickets.size();
+        metrics.ticketsSold(count);
+        eventLog.ticketsPurchased(customerId, firstTicket, lastTicket, count, tickets.size());
+        notFull.signal();
+        if (allTicketsRetrieved()) {
+            releaseAll();
+        }
+    }
+
+    // Called with the lock held; a null out hands the ticket over in the waiter's own slot
+    private Waiter join(int customerId, int[] out, int max) {
+        Waiter waiter = waiters.get();
+        waiter.reset(customerId, out == null ? waiter.ticket : out, max);
+        int tier = purchasePolicy.tierOf(customerId).ordinal();
+        lines[tier].addLast(waiter);
+        int position = 0;
+        for (int i = 0; i <= tier; i++) {
+            position += lines[i].size();
+        }
+        eventLog.customerQueued(customerId, position);
+        return waiter;
+    }
+
+    // Parks until a vendor hands over tickets, the pool sells out or shuts down, the thread is interrupted
+    // or nanos have passed
+    private int awaitHandoff(Waiter waiter, long nanos) {
+        long waitStart = metrics.customerWaitStarted();
+        try {
+            while (!waiter.done) {
+                long remaining = nanos - (System.nanoTime() - waitStart);
+                if (remaining <= 0 && leave(waiter)) {
+                    return 0;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.currentThread().isInterrupted() && leave(waiter)) {
+                    return 0;
+                }
+            }
+        } finally {
+            metrics.customerWaitEnded(waitStart);
+        }
+
+        if (waiter.count > 0) {
+            metrics.ticketsSold(waiter.count);
+            eventLog.ticketsPurchased(waiter.customerId, waiter.out[0], waiter.out[waiter.count - 1],
+                    waiter.count, waiter.poolSize);
+        }
+        return waiter.count;
+    }
+
+    // Returns true if the waiter left the line before being served. One who already holds some tickets is
+    // served with those instead, so none are lost from the sale.
+    private boolean leave(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiter.done) {
+                return false;
+            }
+            lines[purchasePolicy.tierOf(waiter.customerId).ordinal()].remove(waiter);
+            waiter.finish(tickets.size());
+            return waiter.count == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held; returns false if the vendor was interrupted or timed out while the pool was full
+    private boolean awaitSpace(long nanos) {
+        return awaitSpace(nanos, true);
+    }
+
+    // A vendor stops waiting once every ticket has been added; a returned ticket waits for space regardless
+    private boolean awaitSpace(long nanos, boolean vendor) {
+        if (!isRunning || tickets.size() < maxCapacity || (vendor && totalTicketsAdded >= totalTicketsLimit)) {
+            return true;
+        }
+        if (nanos <= 0) {
+            return false;
+        }
+
+        long waitStart = metrics.vendorWaitStarted();
+        try {
+            long remaining = nanos;
+            while (isRunning && tickets.size() >= maxCapacity && !(vendor && totalTicketsAdded >= totalTicketsLimit)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (tickets.size() < maxCapacity) {
+                notFull.signal();
+            }
+            return false;
+        } finally {
+            metrics.vendorWaitEnded(waitStart);
+        }
+    }
+
+    // 1 for the customer who will be served next, 0 if the customer is not waiting
+    public int getQueuePosition(int customerId) {
+        lock.lock();
+        try {
+            int position = 1;
+            for (ArrayDeque<Waiter> line : lines) {
+                for (Waiter waiter : line) {
+                    if (waiter.customerId == customerId) {
+                        return position;
+                    }
+                    position++;
+                }
+            }
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueLength(CustomerTier tier) {
+        lock.lock();
+        try {
+            return lines[tier.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            int length = 0;
+            for (ArrayDeque<Waiter> line : lines) {
+                length += line.size();
+            }
+            return length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int returnTickets(int customerId, int[] returned, int count) {
+        lock.lock();
+        try {
+            int accepted = 0;
+            while (accepted < count) {
+                // awaitSpace lets the lock go, and a customer who gives up meanwhile must not do so holding
+                // tickets this call already handed over
+                releasePartial();
+                if (!awaitSpace(Long.MAX_VALUE, false) || !isRunning) {
+                    break;
+                }
+                while (accepted < count && tickets.size() < maxCapacity) {
+                    deliver(returned[accepted++]);
+                }
+            }
+            releasePartial();
+            availableTickets = tickets.size();
+            if (accepted > 0) {
+                metrics.ticketsReturned(accepted);
+                eventLog.ticketsReturned(customerId, returned[0], returned[accepted - 1], accepted, tickets.size());
+            }
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void restore(RecoveredPoolState state) {
+        lock.lock();
+        try {
+            state.validateFor(this);
+            ticketCounter = state.getLastTicketId();
+            totalTicketsAdded = state.getTicketsAdded();
+            for (int i = 0; i < state.getAvailableCount(); i++) {
+                deliver(state.getAvailableTicket(i));
+            }
+            releasePartial();
+            availableTickets = tickets.size();
+            metrics.ticketsAdded(state.getTicketsAdded());
+            metrics.ticketsSold(state.getTicketsSold());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            isRunning = false;
+            eventLog.poolShutdown(tickets.size());
+            releaseAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public boolean allTicketsRetrieved() {
+        return totalTicketsAdded >= totalTicketsLimit && availableTickets == 0;
+    }
+
+    @Override
+    public int getAvailableTickets() {
+        return availableTickets;
+    }
+
+    @Override
+    public int getTotalTicketsAdded() {
+        return totalTicketsAdded;
+    }
+
+    @Override
+    public int getTotalTicketsLimit() {
+        return totalTicketsLimit;
+    }
+
+    @Override
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+}
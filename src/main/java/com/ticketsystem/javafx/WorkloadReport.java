@@ -0,0 +1,109 @@
+package com.ticketsystem.javafx;
+
+import java.util.concurrent.TimeUnit;
+
+// Outcome of a scenario run or a trace replay: throughput plus the latency tail customers and vendors saw
+public class WorkloadReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p99.9"};
+
+    private final String name;
+    private final TicketPoolType poolType;
+    private final int participants;
+    private final int ticketsAdded;
+    private final int ticketsSold;
+    private final long durationMillis;
+    private final long simulatedMillis;
+    private final boolean completed;
+    private final MetricsSnapshot metrics;
+
+    public WorkloadReport(String name, TicketPoolType poolType, int participants, int ticketsAdded, int ticketsSold,
+                          long durationMillis, long simulatedMillis, boolean completed, MetricsSnapshot metrics) {
+        this.name = name;
+        this.poolType = poolType;
+        this.participants = participants;
+        this.ticketsAdded = ticketsAdded;
+        this.ticketsSold = ticketsSold;
+        this.durationMillis = durationMillis;
+        this.simulatedMillis = simulatedMillis;
+        this.completed = completed;
+        this.metrics = metrics;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TicketPoolType getPoolType() {
+        return poolType;
+    }
+
+    public int getParticipants() {
+        return participants;
+    }
+
+    public int getTicketsAdded() {
+        return ticketsAdded;
+    }
+
+    public int getTicketsSold() {
+        return ticketsSold;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    public double getSalesPerSecond() {
+        return durationMillis == 0 ? 0 : ticketsSold * 1000.0 / durationMillis;
+    }
+
+    public double getSimulatedSalesPerSecond() {
+        return simulatedMillis == 0 ? 0 : ticketsSold * 1000.0 / simulatedMillis;
+    }
+
+    // False if the run hit its timeout before every participant was done
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public MetricsSnapshot getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Workload Report: %s%n" +
+                        "Pool: %s, Participants: %d%n" +
+                        "Tickets Added: %d, Tickets Sold: %d%n" +
+                        "Duration: %d ms, Throughput: %.1f sales/s%n" +
+                        "Simulated Duration: %d ms, Simulated Throughput: %.1f sales/s%n" +
+                        "Purchase Latency: %s%n" +
+                        "Customer Wait: %s%n" +
+                        "Release Latency: %s%n" +
+                        "Status: %s",
+                name, poolType, participants, ticketsAdded, ticketsSold,
+                durationMillis, getSalesPerSecond(), simulatedMillis, getSimulatedSalesPerSecond(),
+                percentiles(metrics.getPurchaseLatency()), percentiles(metrics.getCustomerWait()),
+                percentiles(metrics.getReleaseLatency()), completed ? "Completed" : "Timed out");
+    }
+
+    static String percentiles(HistogramSnapshot histogram) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("count=").append(histogram.getCount());
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            builder.append(String.format(", %s=%.2fms", PERCENTILE_LABELS[i],
+                    toMillis(histogram.getPercentileNanos(PERCENTILES[i]))));
+        }
+        builder.append(String.format(", max=%.2fms", toMillis(histogram.getMaxNanos())));
+        return builder.toString();
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,141 @@
+package com.ticketsystem.javafx;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Drives vendors and customers from a WorkloadScenario instead of starting everyone at once. Vendors
+// start straight away; a dispatcher sleeps on the simulation clock until each customer's arrival time
+// and only then starts that customer, so under the discrete-event clock an hour-long on-sale replays in
+// seconds. Customers who arrive after the sell-out are not started.
+public class WorkloadRunner {
+    private final Configuration configuration;
+    private final WorkloadScenario scenario;
+    private final TicketPoolType poolType;
+    private final ExecutionMode executionMode;
+    private final TicketEventLog eventLog;
+    private final SimulationClock clock;
+    private final AtomicInteger customersArrived;
+    private PurchasePolicy purchasePolicy;
+    private AdmissionController admissionController;
+
+    public WorkloadRunner(Configuration configuration, WorkloadScenario scenario, TicketPoolType poolType,
+                          ExecutionMode executionMode, TicketEventLog eventLog, SimulationClock clock) {
+        if (scenario.getVendors() > executionMode.getMaxVendors()
+                || scenario.getCustomers() > executionMode.getMaxCustomers()) {
+            throw new IllegalArgumentException(executionMode + " supports at most " + executionMode.getMaxVendors()
+                    + " vendors and " + executionMode.getMaxCustomers() + " customers");
+        }
+        this.configuration = configuration;
+        this.scenario = scenario;
+        this.poolType = poolType;
+        this.executionMode = executionMode;
+        this.eventLog = eventLog;
+        this.clock = clock;
+        this.customersArrived = new AtomicInteger(0);
+        this.purchasePolicy = PurchasePolicy.unrestricted();
+    }
+
+    public void setPurchasePolicy(PurchasePolicy purchasePolicy) {
+        // Capped, the scenario's customers must still be able to sell out
+        long reachable = (long) purchasePolicy.getMaxTicketsPerCustomer() * scenario.getCustomers();
+        if (purchasePolicy.hasPurchaseLimit() && reachable < configuration.getTotalTickets()) {
+            throw new IllegalArgumentException("With at most " + purchasePolicy.getMaxTicketsPerCustomer()
+                    + " tickets per customer the scenario's customers cannot buy all "
+                    + configuration.getTotalTickets() + " tickets");
+        }
+        this.purchasePolicy = purchasePolicy;
+    }
+
+    public WorkloadReport run(long timeout, TimeUnit unit) throws InterruptedException {
+        TicketPool pool = poolType.create(configuration.getMaxTicketCapacity(), configuration.getTotalTickets(),
+                eventLog, purchasePolicy);
+        admissionController = configuration.hasAdmissionControl()
+                ? new AdmissionController(configuration, clock) : null;
+        Random random = new Random(scenario.getSeed());
+        long[] arrivals = scenario.arrivalTimes(random);
+        CountDownLatch dispatched = new CountDownLatch(1);
+
+        long startNanos = System.nanoTime();
+        long clockStart = clock.currentTimeMillis();
+        long deadline = startNanos + unit.toNanos(timeout);
+        ParticipantExecutor executor = new ParticipantExecutor(executionMode);
+        boolean completed = false;
+        try {
+            // The dispatcher sleeps on the clock like any participant, so it counts as one
+            clock.expectParticipants(scenario.getVendors() + 1);
+            for (int i = 0; i < scenario.getVendors(); i++) {
+                executor.submit(new Vendor(i + 1, pool, configuration.getTicketRetrievalTime(),
+                        configuration.getVendorBatchSize(), clock));
+            }
+            executor.submit(() -> dispatch(executor, pool, arrivals, random, clockStart, dispatched));
+
+            // Customers are still being submitted until the dispatcher is done
+            if (dispatched.await(timeout, unit)) {
+                completed = executor.awaitCompletion(Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            executor.stop();
+            pool.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        MetricsSnapshot metrics = pool.getMetrics().snapshot();
+        return new WorkloadReport(scenario.getName(), poolType, scenario.getVendors() + customersArrived.get(),
+                pool.getTotalTicketsAdded(), (int) metrics.getTicketsSold(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                clock.currentTimeMillis() - clockStart, completed, metrics);
+    }
+
+    private void dispatch(ParticipantExecutor executor, TicketPool pool, long[] arrivals, Random random,
+                          long clockStart, CountDownLatch dispatched) {
+        clock.register();
+        try {
+            for (int i = 0; i < arrivals.length && !pool.allTicketsRetrieved(); i++) {
+                long wait = clockStart + arrivals[i] - clock.currentTimeMillis();
+                if (wait > 0) {
+                    clock.sleep(wait);
+                }
+                clock.expectParticipants(1);
+                executor.submit(createCustomer(i + 1, pool, scenario.pickProfile(random)));
+                customersArrived.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clock.deregister();
+            dispatched.countDown();
+        }
+    }
+
+    private Customer createCustomer(int customerId, TicketPool pool, CustomerProfile profile) {
+        if (profile == null) {
+            return new Customer.Builder(customerId, pool, configuration.getTicketBuyingTime())
+                    .batchSize(configuration.getCustomerBatchSize())
+                    .clock(clock)
+                    .admissionController(admissionController)
+                    .build();
+        }
+        return new Customer.Builder(customerId, pool, profile.getBuyingTime())
+                .batchSize(profile.getBatchSize())
+                .clock(clock)
+                .admissionController(admissionController)
+                .maxPurchases(profile.getMaxPurchases())
+                .build();
+    }
+
+    // Null unless the configuration sets admission limits
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    public int getCustomersArrived() {
+        return customersArrived.get();
+    }
+
+    public WorkloadScenario getScenario() {
+        return scenario;
+    }
+}
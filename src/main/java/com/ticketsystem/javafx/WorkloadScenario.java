@@ -0,0 +1,207 @@
+package com.ticketsystem.javafx;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+// Customer traffic for a workload run, loaded from a properties file:
+//   Name=Friday on-sale          Vendors=5              Customers=2000
+//   Arrival=FLASH_SALE           ArrivalRate=20         (customers per second)
+//   BurstFactor=5  BurstPeriod=10000  BurstDuty=0.2     (BURSTY)
+//   FlashSaleAt=0  FlashSaleShare=0.8  FlashSaleSpread=1000   (FLASH_SALE, times in ms)
+//   Seed=1
+//   Profiles=fan,reseller
+//   Profile.fan=0.9,1,2000,1     Profile.reseller=0.1,4,500,0   (weight,batchSize,buyingTime,maxPurchases)
+// Without profiles every customer behaves as the simulation configuration says. The same seed always
+// gives the same arrivals and the same mix, so an incident can be replayed against different pools.
+public class WorkloadScenario {
+    private final String name;
+    private final int vendors;
+    private final int customers;
+    private final ArrivalPattern arrivalPattern;
+    private final double arrivalRate;
+    private final double burstFactor;
+    private final long burstPeriodMillis;
+    private final double burstDuty;
+    private final long flashSaleAtMillis;
+    private final double flashSaleShare;
+    private final long flashSaleSpreadMillis;
+    private final long seed;
+    private final List<CustomerProfile> profiles;
+
+    public WorkloadScenario(String name, int vendors, int customers, ArrivalPattern arrivalPattern,
+                            double arrivalRate, double burstFactor, long burstPeriodMillis, double burstDuty,
+                            long flashSaleAtMillis, double flashSaleShare, long flashSaleSpreadMillis, long seed,
+                            List<CustomerProfile> profiles) {
+        if (vendors < 1 || customers < 1) {
+            throw new IllegalArgumentException("A scenario needs at least one vendor and one customer");
+        }
+        boolean everyoneInTheSpike = arrivalPattern == ArrivalPattern.FLASH_SALE && flashSaleShare >= 1;
+        if (!(arrivalRate > 0) && !everyoneInTheSpike) {
+            throw new IllegalArgumentException("Arrival rate must be positive");
+        }
+        if (burstFactor < 1 || burstPeriodMillis < 1 || burstDuty <= 0 || burstDuty > 1) {
+            throw new IllegalArgumentException("Bursts need a factor of at least 1, a positive period and "
+                    + "a duty between 0 and 1");
+        }
+        if (flashSaleAtMillis < 0 || flashSaleShare < 0 || flashSaleShare > 1 || flashSaleSpreadMillis < 0) {
+            throw new IllegalArgumentException("Flash sale needs a start time, a share between 0 and 1 and a spread");
+        }
+        this.name = name;
+        this.vendors = vendors;
+        this.customers = customers;
+        this.arrivalPattern = arrivalPattern;
+        this.arrivalRate = arrivalRate;
+        this.burstFactor = burstFactor;
+        this.burstPeriodMillis = burstPeriodMillis;
+        this.burstDuty = burstDuty;
+        this.flashSaleAtMillis = flashSaleAtMillis;
+        this.flashSaleShare = flashSaleShare;
+        this.flashSaleSpreadMillis = flashSaleSpreadMillis;
+        this.seed = seed;
+        this.profiles = List.copyOf(profiles);
+    }
+
+    public static WorkloadScenario loadFromFile(String filename) {
+        Properties props = new Properties();
+        try (FileReader reader = new FileReader(filename)) {
+            props.load(reader);
+
+            List<CustomerProfile> profiles = new ArrayList<>();
+            for (String profile : props.getProperty("Profiles", "").split(",")) {
+                if (!profile.isBlank()) {
+                    String value = props.getProperty("Profile." + profile.trim());
+                    if (value == null) {
+                        throw new IllegalArgumentException("Missing Profile." + profile.trim());
+                    }
+                    profiles.add(CustomerProfile.parse(profile.trim(), value));
+                }
+            }
+            return new WorkloadScenario(
+                    props.getProperty("Name", filename),
+                    Integer.parseInt(props.getProperty("Vendors", "5")),
+                    Integer.parseInt(props.getProperty("Customers")),
+                    ArrivalPattern.valueOf(props.getProperty("Arrival", "POISSON").trim()),
+                    Double.parseDouble(props.getProperty("ArrivalRate", "10")),
+                    Double.parseDouble(props.getProperty("BurstFactor", "5")),
+                    Long.parseLong(props.getProperty("BurstPeriod", "10000")),
+                    Double.parseDouble(props.getProperty("BurstDuty", "0.2")),
+                    Long.parseLong(props.getProperty("FlashSaleAt", "0")),
+                    Double.parseDouble(props.getProperty("FlashSaleShare", "0.8")),
+                    Long.parseLong(props.getProperty("FlashSaleSpread", "1000")),
+                    Long.parseLong(props.getProperty("Seed", "1")),
+                    profiles
+            );
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("Error loading scenario: " + e.getMessage(), e);
+        }
+    }
+
+    // Arrival time of every customer in milliseconds from the start of the run, in order
+    public long[] arrivalTimes(Random random) {
+        long[] arrivals = new long[customers];
+        switch (arrivalPattern) {
+            case UNIFORM -> {
+                for (int i = 0; i < customers; i++) {
+                    arrivals[i] = (long) (i * 1000 / arrivalRate);
+                }
+            }
+            case POISSON -> poissonArrivals(random, arrivals, 0, customers);
+            case BURSTY -> burstyArrivals(random, arrivals);
+            case FLASH_SALE -> {
+                int spike = (int) Math.round(flashSaleShare * customers);
+                for (int i = 0; i < spike; i++) {
+                    arrivals[i] = flashSaleAtMillis + (long) (random.nextDouble() * flashSaleSpreadMillis);
+                }
+                poissonArrivals(random, arrivals, spike, customers);
+                Arrays.sort(arrivals);
+            }
+        }
+        return arrivals;
+    }
+
+    private void poissonArrivals(Random random, long[] arrivals, int from, int to) {
+        double time = 0;
+        for (int i = from; i < to; i++) {
+            time += exponentialGap(random, arrivalRate);
+            arrivals[i] = (long) time;
+        }
+    }
+
+    // Draws candidates at the peak rate and keeps those that fall in a quiet phase with probability
+    // quiet rate / peak rate, so the average over a period is still the arrival rate
+    private void burstyArrivals(Random random, long[] arrivals) {
+        double quietRate = arrivalRate / (burstDuty * burstFactor + 1 - burstDuty);
+        double peakRate = quietRate * burstFactor;
+        double time = 0;
+        int count = 0;
+        while (count < customers) {
+            time += exponentialGap(random, peakRate);
+            boolean inBurst = (time % burstPeriodMillis) < burstDuty * burstPeriodMillis;
+            if (inBurst || random.nextDouble() < 1 / burstFactor) {
+                arrivals[count++] = (long) time;
+            }
+        }
+    }
+
+    private static double exponentialGap(Random random, double perSecond) {
+        return -Math.log(1 - random.nextDouble()) * 1000 / perSecond;
+    }
+
+    // Picks a profile in proportion to the weights; null when the scenario has none
+    public CustomerProfile pickProfile(Random random) {
+        if (profiles.isEmpty()) {
+            return null;
+        }
+        double totalWeight = 0;
+        for (CustomerProfile profile : profiles) {
+            totalWeight += profile.getWeight();
+        }
+        double pick = random.nextDouble() * totalWeight;
+        for (CustomerProfile profile : profiles) {
+            pick -= profile.getWeight();
+            if (pick < 0) {
+                return profile;
+            }
+        }
+        return profiles.get(profiles.size() - 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVendors() {
+        return vendors;
+    }
+
+    public int getCustomers() {
+        return customers;
+    }
+
+    public ArrivalPattern getArrivalPattern() {
+        return arrivalPattern;
+    }
+
+    public double getArrivalRate() {
+        return arrivalRate;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public List<CustomerProfile> getProfiles() {
+        return profiles;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Scenario %s: %d vendors, %d customers, %s arrivals at %.1f/s, profiles %s",
+                name, vendors, customers, arrivalPattern, arrivalRate, profiles.isEmpty() ? "none" : profiles);
+    }
+}
@@ -1,7 +1,7 @@
 module com.ticketsystem.javafx {
     requires javafx.controls;
     requires javafx.fxml;
-    requires javafx.web;
+    requires static javafx.web;
 
     requires org.controlsfx.controls;
     requires com.dlsc.formsfx;
@@ -9,7 +9,7 @@ module com.ticketsystem.javafx {
     requires org.kordamp.ikonli.javafx;
     requires org.kordamp.bootstrapfx.core;
     requires eu.hansolo.tilesfx;
-    requires com.almasb.fxgl.all;
+    requires static com.almasb.fxgl.all;
 
     opens com.ticketsystem.javafx to javafx.fxml;
     exports com.ticketsystem.javafx;
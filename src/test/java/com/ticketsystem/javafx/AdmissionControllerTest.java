@@ -0,0 +1,73 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Nobody sleeps on the discrete event clock here, so its time stands still and a customer's second
+// request always comes before their bucket has room again
+class AdmissionControllerTest {
+    private static AdmissionController oneRequestPerCustomer(SimulationClock clock) {
+        return new AdmissionController(0, 1, 1, 0, 0, clock);
+    }
+
+    @Test
+    void customersWithLargeIdsGetBucketsOfTheirOwn() throws InterruptedException {
+        try (DiscreteEventClock clock = new DiscreteEventClock()) {
+            AdmissionController controller = oneRequestPerCustomer(clock);
+            int[] customerIds = {Integer.MAX_VALUE, 5_000_000, (1 << 20) + 1, 1, Integer.MAX_VALUE - 1};
+            for (int customerId : customerIds) {
+                assertEquals(AdmissionResult.ADMITTED, controller.admit(customerId), "customer " + customerId);
+                controller.release();
+            }
+            for (int customerId : customerIds) {
+                assertEquals(AdmissionResult.TRY_LATER, controller.admit(customerId), "customer " + customerId);
+            }
+            assertEquals(customerIds.length, controller.getAdmitted());
+            assertThrows(IllegalArgumentException.class, () -> controller.admit(-1));
+        }
+    }
+
+    // The table of buckets grows while other customers use it; a bucket lost in the copy would let its
+    // customer in twice
+    @Test
+    void bucketsSurviveTheTableGrowingUnderLoad() throws InterruptedException {
+        int threads = 8;
+        int customersPerThread = 400;
+        try (DiscreteEventClock clock = new DiscreteEventClock()) {
+            AdmissionController controller = oneRequestPerCustomer(clock);
+            AtomicInteger admittedTwice = new AtomicInteger();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                workers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        // Interleaved and spread out, so every thread keeps reaching past the end of the table
+                        for (int i = 0; i < customersPerThread; i++) {
+                            int customerId = (i * threads + first) * 1024;
+                            controller.admit(customerId);
+                            if (controller.admit(customerId).isAdmitted()) {
+                                admittedTwice.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(0, admittedTwice.get());
+            assertEquals(threads * customersPerThread, controller.getAdmitted());
+            for (int i = 0; i < threads * customersPerThread; i += 97) {
+                assertEquals(AdmissionResult.TRY_LATER, controller.admit(i * 1024));
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.ticketsystem.javafx;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Fails if selling a ticket allocates in steady state, for any TicketPoolType. Counts the bytes a thread
+// allocates with ThreadMXBean, first around the pool calls a vendor and a customer make, after a warm-up
+// so the JIT has settled, then around the real Vendor and Customer loops on a discrete event clock.
+// Participant start-up costs are measured with a short run first and subtracted. A thread that waits on a
+// lock Condition gets a queue node for each wait, so the waiting tests leave out the pools that wait that way.
+class AllocationTest {
+    private static final int BATCH_SIZE = 4;
+    private static final int WARMUP_TICKETS = 200_000;
+    private static final int MEASURED_TICKETS = 800_000;
+    private static final int LOOP_TICKETS = 20_000;
+    private static final int BASELINE_TICKETS = 1_000;
+    private static final long SETTLE_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    private static final long LOOP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    // The smallest object takes 16 bytes, so even one allocation every few tickets fails the test
+    private static final double MAX_BYTES_PER_TICKET = 1.0;
+
+    private static final Set<TicketPoolType> ALL_TYPES = EnumSet.allOf(TicketPoolType.class);
+    // Pools whose customers or vendors wait on a lock Condition
+    private static final Set<TicketPoolType> CUSTOMERS_WAIT_ON_CONDITION = EnumSet.of(TicketPoolType.LOCKING);
+    private static final Set<TicketPoolType> VENDORS_WAIT_ON_CONDITION = EnumSet.of(TicketPoolType.LOCKING,
+            TicketPoolType.WAITING_ROOM);
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @BeforeAll
+    static void countAllocatedBytes() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "This JVM cannot count allocated bytes per thread");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> poolCallsDoNotAllocate() {
+        return Arrays.stream(TicketPoolType.values())
+                .map(type -> DynamicTest.dynamicTest(type.name(), () ->
+                        assertSteadyState(type + " pool calls", poolCalls(type))));
+    }
+
+    // The customer buys one ticket a millisecond; with two tickets released every millisecond and room in the
+    // pool for all of them, neither waits on the other after the first tick
+    @TestFactory
+    Stream<DynamicTest> vendorAndCustomerLoopsDoNotAllocate() {
+        return loopTests(ALL_TYPES, LOOP_TICKETS, 2, 1, 1);
+    }
+
+    // A ticket every other tick for a customer who tries every tick, so the customer parks for each one
+    @TestFactory
+    Stream<DynamicTest> customerWaitingForTicketsDoesNotAllocate() {
+        return loopTests(without(CUSTOMERS_WAIT_ON_CONDITION), LOOP_TICKETS, 1, 2, 1);
+    }
+
+    // Room for one ticket, bought every other tick, so the vendor parks on a full pool for each one
+    @TestFactory
+    Stream<DynamicTest> vendorWaitingForSpaceDoesNotAllocate() {
+        return loopTests(without(VENDORS_WAIT_ON_CONDITION), 1, 1, 1, 2);
+    }
+
+    private static Set<TicketPoolType> without(Set<TicketPoolType> excluded) {
+        Set<TicketPoolType> types = EnumSet.allOf(TicketPoolType.class);
+        types.removeAll(excluded);
+        return types;
+    }
+
+    private static Stream<DynamicTest> loopTests(Set<TicketPoolType> types, int capacity, int vendorBatch,
+                                                 int vendorMillis, int customerMillis) {
+        return types.stream().map(type -> DynamicTest.dynamicTest(type.name(), () -> {
+            // The short run goes first so class loading and other one-off costs land in the baseline
+            long[] baseline = participantLoops(type, BASELINE_TICKETS, capacity, vendorBatch, vendorMillis,
+                    customerMillis);
+            long[] full = participantLoops(type, LOOP_TICKETS, capacity, vendorBatch, vendorMillis, customerMillis);
+            int tickets = LOOP_TICKETS - BASELINE_TICKETS;
+            assertSteadyState(type + " vendor loop", (double) (full[0] - baseline[0]) / tickets);
+            assertSteadyState(type + " customer loop", (double) (full[1] - baseline[1]) / tickets);
+        }));
+    }
+
+    // Slightly negative when a baseline run happened to allocate more at start-up; NaN if the sale stalled
+    private static void assertSteadyState(String name, double bytesPerTicket) {
+        assertFalse(Double.isNaN(bytesPerTicket), name + " stalled before selling every ticket");
+        assertTrue(bytesPerTicket < MAX_BYTES_PER_TICKET,
+                name + " allocated " + bytesPerTicket + " bytes per ticket");
+    }
+
+    // A vendor's and a customer's calls made back to back on this thread, with event logging on
+    private static double poolCalls(TicketPoolType type) {
+        TicketEventLog eventLog = discardingLog();
+        TicketPool pool = type.create(1000, WARMUP_TICKETS + MEASURED_TICKETS, eventLog);
+        try {
+            int[] released = new int[BATCH_SIZE];
+            int[] purchased = new int[BATCH_SIZE];
+            sell(pool, released, purchased, WARMUP_TICKETS);
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            int sold = sell(pool, released, purchased, MEASURED_TICKETS);
+            long allocated = THREADS.getCurrentThreadAllocatedBytes() - before;
+            return sold == MEASURED_TICKETS ? (double) allocated / sold : Double.NaN;
+        } finally {
+            pool.shutdown();
+            eventLog.close();
+        }
+    }
+
+    private static int sell(TicketPool pool, int[] released, int[] purchased, int tickets) {
+        PoolMetrics metrics = pool.getMetrics();
+        int sold = 0;
+        while (sold < tickets) {
+            long start = System.nanoTime();
+            if (pool.addTickets(1, BATCH_SIZE, released) == 0) {
+                break;
+            }
+            metrics.recordReleaseLatency(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int count = pool.removeTickets(2, BATCH_SIZE, purchased);
+            if (count == 0) {
+                break;
+            }
+            metrics.recordPurchaseLatency(System.nanoTime() - start);
+            sold += count;
+        }
+        return sold;
+    }
+
+    // Bytes each participant allocated over its whole run: { vendor, customer }
+    private static long[] participantLoops(TicketPoolType type, int tickets, int capacity, int vendorBatch,
+                                           int vendorMillis, int customerMillis) throws InterruptedException {
+        TicketEventLog eventLog = discardingLog();
+        TicketPool pool = type.create(capacity, tickets, eventLog);
+        long[] allocated = {-1, -1};
+        try (DiscreteEventClock clock = new DiscreteEventClock(SETTLE_NANOS)) {
+            clock.expectParticipants(2);
+            Thread vendor = measured(new Vendor(1, pool, vendorMillis, vendorBatch, clock), allocated, 0);
+            Customer buyer = new Customer.Builder(1, pool, customerMillis).clock(clock).build();
+            Thread customer = measured(buyer, allocated, 1);
+            vendor.join(LOOP_TIMEOUT_MILLIS);
+            customer.join(LOOP_TIMEOUT_MILLIS);
+            if (vendor.isAlive() || customer.isAlive()) {
+                throw new IllegalStateException(type + " participants did not sell out in time");
+            }
+        } finally {
+            pool.shutdown();
+            eventLog.close();
+        }
+        return allocated;
+    }
+
+    private static Thread measured(Runnable participant, long[] allocated, int slot) {
+        Thread thread = new Thread(() -> {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            participant.run();
+            allocated[slot] = THREADS.getCurrentThreadAllocatedBytes() - before;
+        }, participant.getClass().getSimpleName().toLowerCase());
+        thread.start();
+        return thread;
+    }
+
+    // Events are still formatted on the writer thread, which is not measured, but the text is thrown away
+    private static TicketEventLog discardingLog() {
+        TicketEventLog eventLog = new TicketEventLog(TicketEventLog.DEFAULT_CAPACITY);
+        eventLog.addSink(new TextEventSink(line -> { }));
+        return eventLog;
+    }
+}
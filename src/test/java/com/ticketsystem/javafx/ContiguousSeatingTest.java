@@ -0,0 +1,42 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Group purchases go to every pool through the same TicketPool call; a pool without a seat map must
+// turn them down at once, also from behind the decorators, instead of throwing or waiting for a block
+class ContiguousSeatingTest {
+    private static final int CAPACITY = 100;
+
+    @TestFactory
+    Stream<DynamicTest> blocksAreSoldOnlyByPoolsThatKnowTheirSeats() {
+        return Arrays.stream(TicketPoolType.values())
+                .map(type -> DynamicTest.dynamicTest(type.name(), () -> {
+                    TicketPool pool = new PurchaseLimitTicketPool(type.create(CAPACITY, CAPACITY,
+                            TicketEventLog.disabled()), 10);
+                    ReservationTicketPool reservations = new ReservationTicketPool(pool, 60_000,
+                            SimulationClock.realTime());
+                    try {
+                        boolean seated = type == TicketPoolType.SEAT_MAP;
+                        assertEquals(seated, reservations.supportsContiguous());
+                        reservations.addTickets(1, CAPACITY);
+
+                        int[] tickets = new int[4];
+                        long[] holds = new long[4];
+                        assertEquals(seated ? 4 : 0, reservations.removeContiguous(7, 4, TicketPool.ANY_SECTION,
+                                tickets));
+                        assertEquals(seated ? 4 : 0, reservations.reserveContiguous(8, 4, TicketPool.ANY_SECTION,
+                                tickets, holds));
+                        assertEquals(seated ? CAPACITY - 8 : CAPACITY, reservations.getAvailableTickets());
+                    } finally {
+                        reservations.close();
+                        reservations.shutdown();
+                    }
+                }));
+    }
+}
@@ -0,0 +1,66 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiscreteEventClockTest {
+    private static final int PARKED_CUSTOMERS = 5000;
+    private static final int STEPS = 200;
+    // About 0.4 ms on one core; customers that woke themselves every 10 ms to recheck the pool took 2.4 ms
+    private static final long MAX_WALL_NANOS_PER_STEP = TimeUnit.MILLISECONDS.toNanos(2);
+
+    @Test
+    void parkedCustomersDoNotSlowDownVirtualTime() throws InterruptedException {
+        RingBufferTicketPool pool = new RingBufferTicketPool(10, 10, TicketEventLog.disabled());
+        try (DiscreteEventClock clock = new DiscreteEventClock()) {
+            clock.expectParticipants(PARKED_CUSTOMERS + 1);
+            List<Thread> customers = new ArrayList<>();
+            for (int i = 1; i <= PARKED_CUSTOMERS; i++) {
+                int customerId = i;
+                customers.add(Thread.ofVirtual().start(() -> {
+                    clock.register();
+                    try {
+                        pool.removeTicket(customerId);
+                    } finally {
+                        clock.deregister();
+                    }
+                }));
+            }
+
+            long[] wallNanos = new long[1];
+            Thread stepper = Thread.ofPlatform().start(() -> {
+                clock.register();
+                try {
+                    // The first sleep only starts once every customer has registered and parked
+                    clock.sleep(1);
+                    long start = System.nanoTime();
+                    for (int i = 0; i < STEPS; i++) {
+                        clock.sleep(10);
+                    }
+                    wallNanos[0] = System.nanoTime() - start;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    clock.deregister();
+                }
+            });
+            stepper.join(TimeUnit.MINUTES.toMillis(1));
+
+            assertEquals(1 + STEPS * 10, clock.currentTimeMillis());
+            assertEquals(PARKED_CUSTOMERS, pool.getMetrics().snapshot().getWaitingCustomers());
+            long perStep = wallNanos[0] / STEPS;
+            assertTrue(perStep < MAX_WALL_NANOS_PER_STEP, "Virtual step took " + perStep / 1000 + " us of wall time");
+
+            pool.shutdown();
+            for (Thread customer : customers) {
+                customer.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntRingBufferTest {
+    // A shard of a small sharded pool holds a single ticket; a full slot must not read as free again
+    @Test
+    void oneSlotBufferKeepsItsTicketUntilItIsTaken() {
+        IntRingBuffer buffer = new IntRingBuffer(1);
+        for (int ticket = 1; ticket <= 3; ticket++) {
+            assertTrue(buffer.offer(ticket));
+            assertFalse(buffer.offer(100 + ticket));
+            assertTrue(buffer.isFull());
+            assertEquals(ticket, buffer.poll());
+            assertEquals(IntRingBuffer.EMPTY, buffer.poll());
+        }
+    }
+
+    @Test
+    void numberedOffersStopAtAFullBuffer() {
+        AtomicInteger counter = new AtomicInteger(0);
+        int[] out = new int[4];
+        for (int capacity = 1; capacity <= 3; capacity++) {
+            IntRingBuffer buffer = new IntRingBuffer(capacity);
+            for (int round = 0; round < 3; round++) {
+                int first = counter.get() + 1;
+                assertEquals(capacity, buffer.offerNumbered(counter, out.length, out, 0));
+                assertEquals(0, buffer.offerNumbered(counter, out.length, out, 0));
+                for (int i = 0; i < capacity; i++) {
+                    assertEquals(first + i, buffer.poll());
+                }
+                assertEquals(IntRingBuffer.EMPTY, buffer.poll());
+            }
+        }
+    }
+}
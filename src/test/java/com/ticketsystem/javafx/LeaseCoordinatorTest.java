@@ -0,0 +1,168 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class LeaseCoordinatorTest {
+    private static final int TOTAL_TICKETS = 2000;
+    private static final int LEASE_SIZE = 25;
+
+    @Test
+    void restartedCoordinatorCarriesOnFromItsJournal(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("leases.journal");
+        try (LeaseJournal journal = new LeaseJournal(file)) {
+            LeaseCoordinator coordinator = new LeaseCoordinator(100, 10, 60_000, journal);
+            assertEquals(TicketLeaseService.lease(1, 10), coordinator.acquire(1, 10));
+            assertEquals(TicketLeaseService.lease(11, 10), coordinator.acquire(2, 10));
+            coordinator.giveBack(1, 6, 5);
+        }
+        // A record the crash cut short
+        Files.write(file, new byte[7], StandardOpenOption.APPEND);
+
+        try (LeaseJournal journal = new LeaseJournal(file)) {
+            LeaseCoordinator restarted = new LeaseCoordinator(100, 10, 60_000, journal);
+            assertEquals(3, journal.getRecordCount());
+            assertEquals(TicketLeaseService.lease(6, 5), restarted.acquire(3, 10));
+            assertEquals(TicketLeaseService.lease(21, 10), restarted.acquire(3, 10));
+            assertThrows(IllegalStateException.class, () -> restarted.giveBack(3, 1, 5));
+            restarted.giveBack(2, 11, 10);
+        }
+    }
+
+    @Test
+    void leasesOfASilentNodeExpire() throws InterruptedException {
+        LeaseCoordinator coordinator = new LeaseCoordinator(30, 10, 50, null);
+        coordinator.acquire(1, 10);
+        coordinator.acquire(1, 10);
+        assertEquals(TicketLeaseService.lease(21, 10), coordinator.acquire(2, 10));
+        coordinator.heartbeat(2, 0);
+        assertEquals(TicketLeaseService.RETRY, coordinator.acquire(2, 10));
+
+        Thread.sleep(100);
+        assertEquals(TicketLeaseService.SOLD_OUT, coordinator.acquire(2, 10));
+        assertEquals(20, coordinator.getTicketsWrittenOff());
+        assertTrue(coordinator.isSoldOut());
+        assertThrows(IllegalStateException.class, () -> coordinator.heartbeat(1, 20));
+    }
+
+    // Three nodes in their own JVMs sell one event; one of them is killed halfway through its leases
+    @Test
+    void nodesInSeparateJvmsNeverReleaseATicketTwice(@TempDir Path directory) throws Exception {
+        LeaseCoordinator coordinator = new LeaseCoordinator(TOTAL_TICKETS, LEASE_SIZE, 1000, null);
+        List<Path> outputs = new ArrayList<>();
+        try (LeaseCoordinatorServer server = new LeaseCoordinatorServer(coordinator, 0)) {
+            Path crashedOutput = directory.resolve("node-1.txt");
+            outputs.add(crashedOutput);
+            Process crashed = startNode(server.getPort(), 1, 50, crashedOutput);
+            awaitLines(crashedOutput, 10);
+
+            List<Process> survivors = new ArrayList<>();
+            for (int nodeId = 2; nodeId <= 3; nodeId++) {
+                Path output = directory.resolve("node-" + nodeId + ".txt");
+                outputs.add(output);
+                survivors.add(startNode(server.getPort(), nodeId, 1, output));
+            }
+            awaitLines(outputs.get(1), 1);
+            crashed.destroyForcibly().waitFor();
+
+            for (Process survivor : survivors) {
+                assertTrue(survivor.waitFor(60, TimeUnit.SECONDS), "node did not sell out");
+                assertEquals(0, survivor.exitValue());
+            }
+        }
+
+        Set<Integer> released = new HashSet<>();
+        for (Path output : outputs) {
+            for (String line : Files.readAllLines(output)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                int ticket = Integer.parseInt(line.trim());
+                assertTrue(ticket >= 1 && ticket <= TOTAL_TICKETS, "ticket " + ticket + " out of range");
+                if (!released.add(ticket)) {
+                    fail("ticket " + ticket + " was released twice");
+                }
+            }
+        }
+        // Only the killed node can have had tickets to write off, and at most its two leases
+        assertTrue(coordinator.isSoldOut());
+        assertTrue(coordinator.getExpiredNodeCount() >= 1);
+        assertTrue(coordinator.getTicketsWrittenOff() <= 2 * LEASE_SIZE);
+    }
+
+    private static Process startNode(int port, int nodeId, long pauseMillis, Path output) throws IOException {
+        String classPath = System.getProperty("java.class.path");
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null) {
+            classPath = classPath + File.pathSeparator + modulePath;
+        }
+        // On a module path the test classes, Node among them, are patched into the application module and
+        // on neither path, so the node gets the directory Node was loaded from
+        String nodeClass = Node.class.getName().replace('.', '/') + ".class";
+        String nodeUrl = Node.class.getResource("/" + nodeClass).toString();
+        if (nodeUrl.startsWith("file:")) {
+            String testClasses = nodeUrl.substring(0, nodeUrl.length() - nodeClass.length());
+            classPath = classPath + File.pathSeparator + Path.of(URI.create(testClasses));
+        }
+        return new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, Node.class.getName(), String.valueOf(port), String.valueOf(nodeId),
+                String.valueOf(pauseMillis))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .redirectOutput(output.toFile())
+                .start();
+    }
+
+    private static void awaitLines(Path output, int lines) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!Files.exists(output) || Files.readAllLines(output).size() < lines) {
+            if (System.nanoTime() > deadline) {
+                fail("node wrote fewer than " + lines + " tickets to " + output);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // One node: releases tickets from its leases, prints each one, and sells them straight away
+    public static class Node {
+        public static void main(String[] args) throws Exception {
+            int port = Integer.parseInt(args[0]);
+            int nodeId = Integer.parseInt(args[1]);
+            long pauseMillis = Long.parseLong(args[2]);
+            try (RemoteLeaseService service = new RemoteLeaseService("localhost", port)) {
+                LeasedTicketPool pool = new LeasedTicketPool(nodeId, service, LEASE_SIZE, 20, TOTAL_TICKETS,
+                        TicketEventLog.disabled(), 10);
+                int[] released = new int[10];
+                int[] sold = new int[10];
+                int count;
+                while ((count = pool.addTickets(1, released.length, released)) > 0) {
+                    StringBuilder lines = new StringBuilder();
+                    for (int i = 0; i < count; i++) {
+                        lines.append(released[i]).append('\n');
+                    }
+                    System.out.print(lines);
+                    System.out.flush();
+                    pool.removeTickets(1, count, sold);
+                    Thread.sleep(pauseMillis);
+                }
+                pool.shutdown();
+            }
+        }
+    }
+}
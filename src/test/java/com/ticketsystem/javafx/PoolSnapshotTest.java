@@ -0,0 +1,136 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PoolSnapshotTest {
+    private static final int CAPACITY = 100;
+    private static final int SEGMENT_RECORDS = 16;
+
+    // A restart from the snapshot and the journal tail must end up where a full replay does
+    @Test
+    void snapshotPlusJournalTailMatchesAFullReplay(@TempDir Path directory) {
+        Path snapshotFile = directory.resolve("event.snapshot");
+        try (TicketJournal journal = new TicketJournal(directory.resolve("event.journal"), SEGMENT_RECORDS)) {
+            for (int ticket = 1; ticket <= 20; ticket++) {
+                journal.append(TicketJournal.TICKET_ADDED, ticket, 1 + ticket % 2);
+            }
+            for (int ticket = 1; ticket <= 8; ticket++) {
+                journal.append(TicketJournal.TICKET_SOLD, ticket, 7);
+            }
+            PoolSnapshot snapshot = new PoolSnapshot();
+            journal.fold(snapshot, journal.getRecordCount());
+            snapshot.writeTo(snapshotFile);
+
+            for (int ticket = 21; ticket <= 25; ticket++) {
+                journal.append(TicketJournal.TICKET_ADDED, ticket, 1);
+            }
+            journal.append(TicketJournal.TICKET_RETURNED, 3, 7);
+            journal.append(TicketJournal.TICKET_SOLD, 21, 9);
+
+            PoolSnapshot loaded = PoolSnapshot.readFrom(snapshotFile);
+            assertEquals(28, loaded.getJournalRecords());
+            assertEquals(20, loaded.getTicketsAdded());
+            assertEquals(8, loaded.getTicketsSold());
+            assertEquals(10, loaded.getVendorTally(1));
+            assertEquals(8, loaded.getCustomerTally(7));
+
+            RecoveredPoolState fromSnapshot = journal.replay(loaded);
+            RecoveredPoolState full = journal.replay();
+            assertEquals(35, loaded.getJournalRecords());
+            assertEquals(full.toString(), fromSnapshot.toString());
+            assertEquals(25, fromSnapshot.getTicketsAdded());
+            assertEquals(8, fromSnapshot.getTicketsSold());
+            assertEquals(7, loaded.getCustomerTally(7));
+            assertEquals(1, loaded.getCustomerTally(9));
+            assertArrayEquals(availableTickets(full), availableTickets(fromSnapshot));
+        }
+    }
+
+    @Test
+    void damagedSnapshotIsRejected(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("event.snapshot");
+        PoolSnapshot snapshot = new PoolSnapshot();
+        snapshot.apply(TicketJournal.TICKET_ADDED, 1, 1, 0);
+        snapshot.apply(TicketJournal.TICKET_SOLD, 1, 7, 0);
+        snapshot.setJournalRecords(2);
+        snapshot.writeTo(file);
+        assertEquals(1, PoolSnapshot.readFrom(file).getTicketsSold());
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[12] ^= 1;
+        Files.write(file, bytes);
+        RuntimeException corrupt = assertThrows(RuntimeException.class, () -> PoolSnapshot.readFrom(file));
+        assertTrue(corrupt.getMessage().contains("checksum"), corrupt.getMessage());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(bytes.length - 3);
+        }
+        RuntimeException truncated = assertThrows(RuntimeException.class, () -> PoolSnapshot.readFrom(file));
+        assertTrue(truncated.getMessage().contains("truncated"), truncated.getMessage());
+
+        assertEquals(0, PoolSnapshot.readFrom(directory.resolve("missing.snapshot")).getJournalRecords());
+    }
+
+    @Test
+    void snapshotAheadOfItsJournalIsRejected(@TempDir Path directory) {
+        PoolSnapshot snapshot = new PoolSnapshot();
+        snapshot.setJournalRecords(5);
+        try (TicketJournal journal = new TicketJournal(directory.resolve("event.journal"), SEGMENT_RECORDS)) {
+            assertThrows(IllegalStateException.class, () -> journal.replay(snapshot));
+        }
+    }
+
+    // The snapshotter writes its last snapshot on close, after the journal committed everything, so a
+    // restart replays no journal records at all
+    @Test
+    void snapshotterKeepsUpWithASale(@TempDir Path directory) {
+        Path journalFile = directory.resolve("event.journal");
+        Path snapshotFile = directory.resolve("event.snapshot");
+        TicketJournal journal = new TicketJournal(journalFile, SEGMENT_RECORDS);
+        PoolSnapshot snapshot = PoolSnapshot.readFrom(snapshotFile);
+        JournaledTicketPool pool = new JournaledTicketPool(TicketPoolType.LOCKING.create(CAPACITY, CAPACITY), journal,
+                snapshot);
+        JournalSnapshotter snapshotter = new JournalSnapshotter(journal, snapshotFile, snapshot, 5);
+        int[] tickets = new int[5];
+        for (int round = 0; round < 6; round++) {
+            pool.addTickets(1, tickets.length, tickets);
+            pool.removeTickets(7, 3, tickets);
+        }
+        long records = journal.getRecordCount();
+        journal.close();
+        snapshotter.close();
+        assertEquals(records, snapshotter.getSnapshotRecords());
+        assertTrue(snapshotter.getSnapshotsWritten() >= 1);
+
+        PoolSnapshot loaded = PoolSnapshot.readFrom(snapshotFile);
+        assertEquals(records, loaded.getJournalRecords());
+        try (TicketJournal reopened = new TicketJournal(journalFile, SEGMENT_RECORDS)) {
+            JournaledTicketPool restarted = new JournaledTicketPool(TicketPoolType.LOCKING.create(CAPACITY, CAPACITY),
+                    reopened, loaded);
+            assertEquals(30, restarted.getTotalTicketsAdded());
+            assertEquals(12, restarted.getAvailableTickets());
+            assertEquals(18, restarted.getRecoveredState().getTicketsSold());
+            assertEquals(30, restarted.getRecoveredState().getLastTicketId());
+        }
+    }
+
+    private static int[] availableTickets(RecoveredPoolState state) {
+        int[] tickets = new int[state.getAvailableCount()];
+        for (int i = 0; i < tickets.length; i++) {
+            tickets[i] = state.getAvailableTicket(i);
+        }
+        return tickets;
+    }
+}
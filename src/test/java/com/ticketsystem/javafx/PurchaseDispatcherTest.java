@@ -0,0 +1,131 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The dispatcher waits on the pool without polling, so every test here would hang, not just run slowly,
+// if a release, a timeout or a cancel failed to wake it. Each runs against every TicketPoolType.
+class PurchaseDispatcherTest {
+    private static final int CAPACITY = 10;
+    private static final int TOTAL_TICKETS = 100;
+    private static final long GET_TIMEOUT_SECONDS = 10;
+
+    @TestFactory
+    Stream<DynamicTest> ticketOnSaleCompletesAtOnce() {
+        return forEachPool(pool -> () -> {
+            int[] released = new int[2];
+            assertEquals(2, pool.addTickets(1, 2, released));
+            try (PurchaseDispatcher dispatcher = new PurchaseDispatcher(pool)) {
+                CompletableFuture<int[]> purchase = dispatcher.purchase(1, 5);
+                assertTrue(purchase.isDone());
+                assertEquals(2, purchase.get().length);
+                assertEquals(0, dispatcher.getPendingRequests());
+            }
+        });
+    }
+
+    @TestFactory
+    Stream<DynamicTest> waitingRequestCompletesWhenTicketsAreReleased() {
+        return forEachPool(pool -> () -> {
+            try (PurchaseDispatcher dispatcher = new PurchaseDispatcher(pool)) {
+                CompletableFuture<int[]> first = dispatcher.purchase(1, 2);
+                CompletableFuture<int[]> second = dispatcher.purchase(2, 1);
+                assertFalse(first.isDone());
+
+                int[] released = new int[3];
+                assertEquals(3, pool.addTickets(1, 3, released));
+                int[] bought = first.get(GET_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                int[] boughtLater = second.get(GET_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                assertEquals(2, bought.length);
+                assertEquals(1, boughtLater.length);
+                int[] all = {bought[0], bought[1], boughtLater[0]};
+                Arrays.sort(all);
+                Arrays.sort(released);
+                assertArrayEquals(released, all);
+                assertEquals(0, dispatcher.getPendingRequests());
+            }
+        });
+    }
+
+    // The short timeout sits behind a request that waits forever, so only its own deadline can end it
+    @TestFactory
+    Stream<DynamicTest> timeoutBehindAnUntimedRequestEndsOnTime() {
+        return forEachPool(pool -> () -> {
+            try (PurchaseDispatcher dispatcher = new PurchaseDispatcher(pool)) {
+                CompletableFuture<int[]> patient = dispatcher.purchase(1, 1);
+                long start = System.nanoTime();
+                CompletableFuture<int[]> hurried = dispatcher.purchase(2, 1, 50, TimeUnit.MILLISECONDS);
+
+                assertEquals(0, hurried.get(GET_TIMEOUT_SECONDS, TimeUnit.SECONDS).length);
+                long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                assertTrue(waitedMillis >= 50 && waitedMillis < 2000, "Timed out after " + waitedMillis + " ms");
+                assertEquals(1, dispatcher.getTimedOutRequests());
+                assertFalse(patient.isDone());
+                assertEquals(1, dispatcher.getPendingRequests());
+            }
+        });
+    }
+
+    // The dispatcher is waiting on the pool for the request that is cancelled; the next one gets the ticket
+    @TestFactory
+    Stream<DynamicTest> cancelledRequestIsPassedOver() {
+        return forEachPool(pool -> () -> {
+            try (PurchaseDispatcher dispatcher = new PurchaseDispatcher(pool)) {
+                CompletableFuture<int[]> cancelled = dispatcher.purchase(1, 1);
+                CompletableFuture<int[]> next = dispatcher.purchase(2, 1);
+                assertTrue(cancelled.cancel(false));
+                awaitPending(dispatcher, 1);
+
+                int[] released = new int[1];
+                assertEquals(1, pool.addTickets(1, 1, released));
+                assertArrayEquals(released, next.get(GET_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                assertEquals(0, dispatcher.getPendingRequests());
+                assertEquals(0, dispatcher.getTimedOutRequests());
+            }
+        });
+    }
+
+    @Test
+    void closeCompletesWaitingRequestsWithNoTickets() throws Exception {
+        TicketPool pool = new RingBufferTicketPool(CAPACITY, TOTAL_TICKETS, TicketEventLog.disabled());
+        PurchaseDispatcher dispatcher = new PurchaseDispatcher(pool);
+        CompletableFuture<int[]> waiting = dispatcher.purchase(1, 1);
+        dispatcher.close();
+        assertEquals(0, waiting.get(GET_TIMEOUT_SECONDS, TimeUnit.SECONDS).length);
+        assertEquals(0, dispatcher.purchase(2, 1).get().length);
+        pool.shutdown();
+    }
+
+    private static Stream<DynamicTest> forEachPool(Function<TicketPool, Executable> test) {
+        return Arrays.stream(TicketPoolType.values())
+                .map(type -> DynamicTest.dynamicTest(type.name(), () -> {
+                    TicketPool pool = type.create(CAPACITY, TOTAL_TICKETS, TicketEventLog.disabled());
+                    try {
+                        test.apply(pool).execute();
+                    } finally {
+                        pool.shutdown();
+                    }
+                }));
+    }
+
+    private static void awaitPending(PurchaseDispatcher dispatcher, int pending) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(GET_TIMEOUT_SECONDS);
+        while (dispatcher.getPendingRequests() != pending) {
+            assertTrue(System.nanoTime() < deadline, "Cancelled request is still pending");
+            Thread.sleep(1);
+        }
+    }
+}
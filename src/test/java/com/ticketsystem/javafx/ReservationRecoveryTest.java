@@ -0,0 +1,140 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Holds that were neither confirmed nor expired when the process died must come back as holds, not as
+// sales and not as tickets on sale
+class ReservationRecoveryTest {
+    private static final int CAPACITY = 100;
+    private static final int SEGMENT_RECORDS = 16;
+    private static final long LONG_HOLD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Test
+    void unconfirmedHoldsSurviveACrash(@TempDir Path directory) {
+        Path file = directory.resolve("event.journal");
+        TicketJournal crashed = new TicketJournal(file, SEGMENT_RECORDS);
+        ReservationTicketPool reservations = crashedSale(crashed);
+
+        TicketJournal journal = new TicketJournal(file, SEGMENT_RECORDS);
+        JournaledTicketPool pool = new JournaledTicketPool(TicketPoolType.LOCKING.create(CAPACITY, CAPACITY),
+                journal, new PoolSnapshot(), true);
+        RecoveredPoolState state = pool.getRecoveredState();
+        assertEquals(10, state.getTicketsAdded());
+        // Three confirmed and one bought outright stay sold, three holds are still open
+        assertEquals(7, state.getTicketsSold());
+        assertEquals(3, state.getHeldCount());
+        for (int i = 0; i < state.getHeldCount(); i++) {
+            assertEquals(7, state.getHolder(i));
+        }
+        assertEquals(3, pool.getAvailableTickets());
+
+        ReservationTicketPool restarted = new ReservationTicketPool(pool, LONG_HOLD_MILLIS, SimulationClock.realTime());
+        try {
+            restarted.restoreHolds(state);
+            assertEquals(3, restarted.getHeldTickets());
+            assertEquals(3, restarted.getAvailableTickets());
+            assertEquals(0, restarted.getExpiredHolds());
+        } finally {
+            restarted.close();
+            reservations.close();
+            journal.close();
+            crashed.close();
+        }
+    }
+
+    // A hold whose deadline passed while the pool was down goes back on sale as soon as it is restored
+    @Test
+    void holdsThatRanOutWhileDownExpireOnRestore(@TempDir Path directory) throws InterruptedException {
+        Path file = directory.resolve("event.journal");
+        TicketJournal crashed = new TicketJournal(file, SEGMENT_RECORDS);
+        TicketPool pool = new JournaledTicketPool(TicketPoolType.LOCKING.create(CAPACITY, CAPACITY), crashed,
+                new PoolSnapshot(), true);
+        ReservationTicketPool shortHolds = new ReservationTicketPool(pool, 20, SimulationClock.realTime());
+        // Stopped first, so the holds are still open in the journal when it is reopened
+        shortHolds.close();
+        assertTrue(pool.addTickets(1, 4));
+        int[] tickets = new int[4];
+        long[] holds = new long[4];
+        assertEquals(4, shortHolds.reserve(7, 4, tickets, holds));
+        Thread.sleep(50);
+
+        TicketJournal journal = new TicketJournal(file, SEGMENT_RECORDS);
+        JournaledTicketPool reopened = new JournaledTicketPool(TicketPoolType.LOCKING.create(CAPACITY, CAPACITY),
+                journal, new PoolSnapshot(), true);
+        ReservationTicketPool restarted = new ReservationTicketPool(reopened, LONG_HOLD_MILLIS,
+                SimulationClock.realTime());
+        try {
+            restarted.restoreHolds(reopened.getRecoveredState());
+            awaitExpiredHolds(restarted, 4);
+            assertEquals(0, restarted.getHeldTickets());
+            assertEquals(4, restarted.getAvailableTickets());
+        } finally {
+            restarted.close();
+            journal.close();
+            crashed.close();
+        }
+
+        // The returns were journaled, so the next restart finds the tickets on sale and no holds
+        try (TicketJournal again = new TicketJournal(file, SEGMENT_RECORDS)) {
+            RecoveredPoolState state = again.replay();
+            assertEquals(0, state.getHeldCount());
+            assertEquals(0, state.getTicketsSold());
+            assertEquals(4, state.getAvailableCount());
+        }
+    }
+
+    // Without a ReservationTicketPool to take the holds over, nobody could ever confirm them
+    @Test
+    void holdsGoBackOnSaleWhenNotKept(@TempDir Path directory) {
+        Path file = directory.resolve("event.journal");
+        TicketJournal crashed = new TicketJournal(file, SEGMENT_RECORDS);
+        ReservationTicketPool reservations = crashedSale(crashed);
+
+        try (TicketJournal journal = new TicketJournal(file, SEGMENT_RECORDS)) {
+            JournaledTicketPool pool = new JournaledTicketPool(TicketPoolType.LOCKING.create(CAPACITY, CAPACITY),
+                    journal, new PoolSnapshot(), false);
+            RecoveredPoolState state = pool.getRecoveredState();
+            assertEquals(0, state.getHeldCount());
+            assertEquals(4, state.getTicketsSold());
+            assertEquals(6, pool.getAvailableTickets());
+        } finally {
+            reservations.close();
+            crashed.close();
+        }
+    }
+
+    // Ten tickets: customer 7 holds five and confirms two, customer 8 buys one outright and customer 9
+    // holds one and confirms it. The journal is left open, as a crash would leave it.
+    private static ReservationTicketPool crashedSale(TicketJournal journal) {
+        TicketPool pool = new JournaledTicketPool(TicketPoolType.LOCKING.create(CAPACITY, CAPACITY), journal,
+                new PoolSnapshot(), true);
+        ReservationTicketPool reservations = new ReservationTicketPool(pool, LONG_HOLD_MILLIS,
+                SimulationClock.realTime());
+        assertTrue(reservations.addTickets(1, 10));
+        int[] tickets = new int[5];
+        long[] holds = new long[5];
+        assertEquals(5, reservations.reserve(7, 5, tickets, holds));
+        assertTrue(reservations.confirm(holds[0]));
+        assertTrue(reservations.confirm(holds[1]));
+        assertTrue(reservations.removeTicket(8) != TicketPool.NO_TICKET);
+        assertEquals(1, reservations.reserve(9, 1, tickets, holds));
+        assertTrue(reservations.confirm(holds[0]));
+        assertEquals(3, reservations.getHeldTickets());
+        return reservations;
+    }
+
+    private static void awaitExpiredHolds(ReservationTicketPool pool, long expired) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.getExpiredHolds() < expired) {
+            assertTrue(System.nanoTime() < deadline, "Restored holds did not expire");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ticketsystem.javafx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A crash is a journal that is never closed: the next run maps the same file while the records the
+// last one wrote are still there, committed or not
+class TicketJournalTest {
+    private static final int CAPACITY = 100;
+    private static final int SEGMENT_RECORDS = 16;
+
+    @Test
+    void restartAfterCrashResumesTheSale(@TempDir Path directory) {
+        Path file = directory.resolve("event.journal");
+        TicketJournal crashed = new TicketJournal(file, SEGMENT_RECORDS);
+        JournaledTicketPool pool = journaledPool(crashed);
+        int[] released = new int[10];
+        assertEquals(10, pool.addTickets(1, 10, released));
+        int[] sold = new int[4];
+        assertEquals(4, pool.removeTickets(7, 4, sold));
+
+        TicketJournal journal = new TicketJournal(file, SEGMENT_RECORDS);
+        try {
+            JournaledTicketPool restarted = journaledPool(journal);
+            RecoveredPoolState state = restarted.getRecoveredState();
+            assertEquals(10, state.getLastTicketId());
+            assertEquals(10, state.getTicketsAdded());
+            assertEquals(4, state.getTicketsSold());
+            assertEquals(6, restarted.getAvailableTickets());
+            assertEquals(10, restarted.getTotalTicketsAdded());
+
+            // The next release carries on after the last ticket, and nothing sold before is sold again
+            int[] more = new int[1];
+            assertEquals(1, restarted.addTickets(1, 1, more));
+            assertEquals(11, more[0]);
+            int[] rest = new int[CAPACITY];
+            assertEquals(7, restarted.removeTickets(8, rest.length, rest));
+            Set<Integer> everySale = new HashSet<>();
+            for (int ticket : sold) {
+                everySale.add(ticket);
+            }
+            for (int i = 0; i < 7; i++) {
+                assertTrue(everySale.add(rest[i]), "ticket " + rest[i] + " was sold twice");
+            }
+            assertEquals(11, everySale.size());
+        } finally {
+            journal.close();
+            crashed.close();
+        }
+    }
+
+    // A writer that died between claiming a record and writing its header leaves a gap; what follows
+    // the gap was never committed, so replay stops there and the next append reuses the slot
+    @Test
+    void replayStopsAtATornRecord(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("event.journal");
+        try (TicketJournal journal = new TicketJournal(file, SEGMENT_RECORDS)) {
+            for (int ticket = 1; ticket <= 10; ticket++) {
+                journal.append(TicketJournal.TICKET_ADDED, ticket, 1);
+            }
+        }
+        writeHeader(file, 6, 0);
+
+        try (TicketJournal journal = new TicketJournal(file, SEGMENT_RECORDS)) {
+            assertEquals(6, journal.getRecordCount());
+            RecoveredPoolState state = journal.replay();
+            assertEquals(6, state.getTicketsAdded());
+            assertEquals(6, state.getLastTicketId());
+            journal.append(TicketJournal.TICKET_SOLD, 3, 7);
+        }
+        try (TicketJournal journal = new TicketJournal(file, SEGMENT_RECORDS)) {
+            RecoveredPoolState state = journal.replay();
+            assertEquals(7, journal.getRecordCount());
+            assertEquals(6, state.getTicketsAdded());
+            assertEquals(1, state.getTicketsSold());
+            assertEquals(5, state.getAvailableCount());
+        }
+    }
+
+    @Test
+    void truncatedJournalReplaysTheRecordsLeft(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("event.journal");
+        try (TicketJournal journal = new TicketJournal(file, 4)) {
+            for (int ticket = 1; ticket <= 10; ticket++) {
+                journal.append(TicketJournal.TICKET_ADDED, ticket, 1);
+            }
+            assertEquals(3, journal.getSegmentCount());
+        }
+        // Cut in the middle of the second segment, and of the record there
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(6L * TicketJournal.RECORD_SIZE + 7);
+        }
+
+        try (TicketJournal journal = new TicketJournal(file, 4)) {
+            JournaledTicketPool pool = new JournaledTicketPool(TicketPoolType.RING_BUFFER.create(CAPACITY, CAPACITY),
+                    journal);
+            assertEquals(6, journal.getRecordCount());
+            assertEquals(6, pool.getRecoveredState().getTicketsAdded());
+            assertEquals(6, pool.getAvailableTickets());
+            int[] tickets = new int[CAPACITY];
+            int count = pool.removeTickets(7, tickets.length, tickets);
+            Arrays.sort(tickets, 0, count);
+            assertEquals("[1, 2, 3, 4, 5, 6]", Arrays.toString(Arrays.copyOf(tickets, count)));
+        }
+    }
+
+    private static JournaledTicketPool journaledPool(TicketJournal journal) {
+        return new JournaledTicketPool(TicketPoolType.LOCKING.create(CAPACITY, CAPACITY), journal);
+    }
+
+    private static void writeHeader(Path file, long record, int header) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, header), record * TicketJournal.RECORD_SIZE);
+        }
+    }
+}